@@ -0,0 +1,540 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.auth.core.impl;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.jcr.SimpleCredentials;
+
+import org.apache.jackrabbit.api.security.authentication.token.TokenCredentials;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.auth.core.spi.AuthenticationInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>AuthenticatedResolverCache</code> keeps a bounded number of idle
+ * authenticated resource resolvers for reuse by later requests presenting
+ * exactly the same credentials, saving the cost of a repository login.
+ * <p>
+ * Resolvers are keyed by a SHA-256 digest of the complete
+ * {@link AuthenticationInfo} (including password, credentials and
+ * impersonation), so a cached resolver is only ever handed out for
+ * credentials which have already been validated by a successful login. A
+ * resolver is lent to a single request at a time and is only accepted back
+ * into the cache if it is still live and has no pending changes; it is
+ * refreshed before being lent again.
+ * <p>
+ * Resolvers of a user are dropped when the user changes the password or logs
+ * out, and resolvers for credentials are dropped when a login with these
+ * credentials fails. Changes not passing through the authenticator, like
+ * removing or disabling a user, revoking a login token or changing a password
+ * directly in the repository, are not noticed: resolvers are closed once they
+ * are older than the configured time to live, regardless of how often they
+ * have been used, which bounds the time such credentials may still be served.
+ * <p>
+ * The resource resolver factory keeps each resolver on a stack of the
+ * creating thread for {@link ResourceResolverFactory#getThreadResourceResolver()}
+ * until it is closed. As cached resolvers are not closed when released, they
+ * are created by {@link #create(String, ResourceResolverFactory, AuthenticationInfo)}
+ * on a short lived thread of their own. Otherwise a resolver would remain on
+ * the stack of a request thread and could be returned as the thread resolver
+ * to later requests of other users. Consequently a cached resolver is never
+ * the thread resolver of the request using it.
+ */
+class AuthenticatedResolverCache {
+
+    /** default log */
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    /** The maximum number of idle resolvers kept in the cache */
+    private final int maxSize;
+
+    /** The maximum age of a resolver in milliseconds */
+    private final long ttl;
+
+    /** Idle resolvers by credentials digest, oldest first */
+    private final Map<String, LinkedList<Entry>> idle = new HashMap<String, LinkedList<Entry>>();
+
+    /** Resolvers currently lent to a request */
+    private final Map<ResourceResolver, Entry> leased = new IdentityHashMap<ResourceResolver, Entry>();
+
+    /** Number of resolvers in the {@link #idle} map */
+    private int idleCount;
+
+    private boolean disposed;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong logins = new AtomicLong();
+
+    private final AtomicLong loginNanos = new AtomicLong();
+
+    AuthenticatedResolverCache(final int maxSize, final long ttlSeconds) {
+        this.maxSize = maxSize;
+        this.ttl = TimeUnit.SECONDS.toMillis(ttlSeconds);
+    }
+
+    /**
+     * Returns the cache key for the given authentication info or
+     * <code>null</code> if resolvers created for these credentials must not
+     * be cached. This is the case if the authentication info contains values
+     * which cannot be reliably compared, for example custom credentials
+     * objects other than simple and token credentials, or if it requests a
+     * password change.
+     */
+    static String getKey(final AuthenticationInfo authInfo) {
+        if (authInfo.containsKey("user.newpassword")) {
+            return null;
+        }
+
+        final StringBuilder buf = new StringBuilder();
+        for (Map.Entry<String, Object> entry : new TreeMap<String, Object>(authInfo).entrySet()) {
+            buf.append(entry.getKey()).append('\0');
+            if (!appendValue(buf, entry.getValue())) {
+                return null;
+            }
+        }
+
+        try {
+            final MessageDigest md = MessageDigest.getInstance("SHA-256");
+            final byte[] digest = md.digest(buf.toString().getBytes("UTF-8"));
+            final StringBuilder key = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                key.append(Character.forDigit((b >> 4) & 0xf, 16));
+                key.append(Character.forDigit(b & 0xf, 16));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException nsae) {
+            return null;
+        } catch (UnsupportedEncodingException uee) {
+            return null;
+        }
+    }
+
+    private static boolean appendValue(final StringBuilder buf, final Object value) {
+        if (value == null) {
+            buf.append("n\0");
+        } else if (value instanceof String || value instanceof Boolean || value instanceof Number) {
+            buf.append(value.getClass().getName()).append(':').append(value).append('\0');
+        } else if (value instanceof char[]) {
+            buf.append("c:").append((char[]) value).append('\0');
+        } else if (value instanceof SimpleCredentials) {
+            final SimpleCredentials creds = (SimpleCredentials) value;
+            buf.append("s:").append(creds.getUserID()).append('\0');
+            appendValue(buf, creds.getPassword());
+            final TreeMap<String, Object> attrs = new TreeMap<String, Object>();
+            for (String name : creds.getAttributeNames()) {
+                attrs.put(name, creds.getAttribute(name));
+            }
+            return appendAttributes(buf, attrs);
+        } else if (value instanceof TokenCredentials) {
+            final TokenCredentials creds = (TokenCredentials) value;
+            buf.append("t:").append(creds.getToken()).append('\0');
+            final TreeMap<String, Object> attrs = new TreeMap<String, Object>();
+            for (String name : creds.getAttributeNames()) {
+                attrs.put(name, creds.getAttribute(name));
+            }
+            return appendAttributes(buf, attrs);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean appendAttributes(final StringBuilder buf, final Map<String, Object> attrs) {
+        for (Map.Entry<String, Object> attr : attrs.entrySet()) {
+            buf.append(attr.getKey()).append('\0');
+            final Object value = attr.getValue();
+            if (value instanceof SimpleCredentials || value instanceof TokenCredentials || !appendValue(buf, value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns an idle resolver for the given key, refreshed and lent to the
+     * caller, or <code>null</code> if no usable resolver is available. The
+     * resolver must be handed back with {@link #release(ResourceResolver)}.
+     */
+    ResourceResolver acquire(final String key) {
+        final List<ResourceResolver> expired = new ArrayList<ResourceResolver>();
+        try {
+            while (true) {
+                final Entry entry;
+                synchronized (this) {
+                    final LinkedList<Entry> entries = idle.get(key);
+                    entry = (entries == null) ? null : entries.pollLast();
+                    if (entry == null) {
+                        misses.incrementAndGet();
+                        return null;
+                    }
+                    idleCount--;
+                    if (entries.isEmpty()) {
+                        idle.remove(key);
+                    }
+                }
+
+                if (entry.isExpired(ttl) || entry.invalid || !entry.resolver.isLive()) {
+                    expired.add(entry.resolver);
+                    continue;
+                }
+
+                try {
+                    entry.resolver.refresh();
+                } catch (RuntimeException re) {
+                    log.debug("acquire: Dropping resolver which failed to refresh", re);
+                    expired.add(entry.resolver);
+                    continue;
+                }
+
+                synchronized (this) {
+                    leased.put(entry.resolver, entry);
+                }
+                hits.incrementAndGet();
+                return entry.resolver;
+            }
+        } finally {
+            close(expired);
+        }
+    }
+
+    /**
+     * Creates a resolver for the given key on a new thread, so the resolver is
+     * not registered as thread resolver of the calling thread. Once released,
+     * the resolver is eligible for reuse. If the login fails, all resolvers
+     * for the key are dropped.
+     */
+    ResourceResolver create(final String key, final ResourceResolverFactory factory, final AuthenticationInfo authInfo)
+            throws LoginException {
+        final FutureTask<ResourceResolver> login = new FutureTask<ResourceResolver>(new Callable<ResourceResolver>() {
+            @Override
+            public ResourceResolver call() throws LoginException {
+                return factory.getResourceResolver(authInfo);
+            }
+        });
+        final Thread thread = new Thread(login, "Apache Sling Authenticator Login");
+        thread.setDaemon(true);
+
+        final long start = System.nanoTime();
+        thread.start();
+        final ResourceResolver resolver;
+        try {
+            resolver = getUninterruptibly(login);
+        } catch (final ExecutionException ee) {
+            final Throwable cause = ee.getCause();
+            if (cause instanceof LoginException) {
+                // the credentials are not valid (any longer)
+                invalidateKey(key);
+                throw (LoginException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        created(key, resolver, System.nanoTime() - start);
+        return resolver;
+    }
+
+    /**
+     * Waits for the login to finish even if the calling thread is interrupted,
+     * as the resolver would not be closed otherwise.
+     */
+    private static ResourceResolver getUninterruptibly(final FutureTask<ResourceResolver> login)
+            throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return login.get();
+                } catch (final InterruptedException ie) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Registers a resolver freshly created for the given key. Once released,
+     * the resolver is eligible for reuse.
+     *
+     * @param loginNanos The time taken to create the resolver.
+     */
+    void created(final String key, final ResourceResolver resolver, final long loginNanos) {
+        this.logins.incrementAndGet();
+        this.loginNanos.addAndGet(loginNanos);
+        synchronized (this) {
+            leased.put(resolver, new Entry(key, resolver));
+        }
+    }
+
+    /**
+     * Drops all resolvers of the given user, for example because the user
+     * changed the password or logged out. Idle resolvers are closed, lent
+     * resolvers are closed once they are released.
+     */
+    void invalidateUser(final String userId) {
+        if (userId == null) {
+            return;
+        }
+        final List<ResourceResolver> resolvers = new ArrayList<ResourceResolver>();
+        synchronized (this) {
+            for (Iterator<LinkedList<Entry>> ei = idle.values().iterator(); ei.hasNext();) {
+                final LinkedList<Entry> entries = ei.next();
+                for (Iterator<Entry> ri = entries.iterator(); ri.hasNext();) {
+                    final Entry entry = ri.next();
+                    if (userId.equals(entry.userId)) {
+                        ri.remove();
+                        idleCount--;
+                        resolvers.add(entry.resolver);
+                    }
+                }
+                if (entries.isEmpty()) {
+                    ei.remove();
+                }
+            }
+            for (Entry entry : leased.values()) {
+                if (userId.equals(entry.userId)) {
+                    entry.invalid = true;
+                }
+            }
+        }
+        close(resolvers);
+    }
+
+    /**
+     * Drops all resolvers created for the given key, for example because a
+     * login with these credentials failed. Idle resolvers are closed, lent
+     * resolvers are closed once they are released.
+     */
+    void invalidateKey(final String key) {
+        final List<ResourceResolver> resolvers = new ArrayList<ResourceResolver>();
+        synchronized (this) {
+            final LinkedList<Entry> entries = idle.remove(key);
+            if (entries != null) {
+                idleCount -= entries.size();
+                for (Entry entry : entries) {
+                    resolvers.add(entry.resolver);
+                }
+            }
+            for (Entry entry : leased.values()) {
+                if (key.equals(entry.key)) {
+                    entry.invalid = true;
+                }
+            }
+        }
+        close(resolvers);
+    }
+
+    /**
+     * Hands a resolver back after the request using it has been finished.
+     * Resolvers which are not known to this cache, are no longer live, have
+     * pending changes, are expired, or do not fit into the cache are closed.
+     */
+    void release(final ResourceResolver resolver) {
+        final Entry entry;
+        synchronized (this) {
+            entry = leased.remove(resolver);
+        }
+
+        if (entry == null || !resolver.isLive()) {
+            close(resolver);
+            return;
+        }
+
+        if (resolver.hasChanges()) {
+            log.debug("release: Discarding resolver of {} with pending changes", resolver.getUserID());
+            try {
+                resolver.revert();
+            } catch (RuntimeException re) {
+                // ignore, we close anyway
+            }
+            close(resolver);
+            return;
+        }
+
+        final List<ResourceResolver> expired = new ArrayList<ResourceResolver>();
+        boolean cached = false;
+        synchronized (this) {
+            if (!disposed && !entry.invalid && !entry.isExpired(ttl)) {
+                if (idleCount >= maxSize) {
+                    removeExpired(expired);
+                }
+                if (idleCount < maxSize) {
+                    LinkedList<Entry> entries = idle.get(entry.key);
+                    if (entries == null) {
+                        entries = new LinkedList<Entry>();
+                        idle.put(entry.key, entries);
+                    }
+                    entries.add(entry);
+                    idleCount++;
+                    cached = true;
+                }
+            }
+        }
+
+        if (!cached) {
+            expired.add(resolver);
+        }
+        close(expired);
+    }
+
+    /**
+     * Closes all idle resolvers. Resolvers currently lent to requests are
+     * closed when they are released.
+     */
+    void dispose() {
+        final List<ResourceResolver> resolvers = new ArrayList<ResourceResolver>();
+        synchronized (this) {
+            disposed = true;
+            for (LinkedList<Entry> entries : idle.values()) {
+                for (Entry entry : entries) {
+                    resolvers.add(entry.resolver);
+                }
+            }
+            idle.clear();
+            idleCount = 0;
+        }
+        close(resolvers);
+    }
+
+    // ---------- statistics
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    long getTimeToLive() {
+        return TimeUnit.MILLISECONDS.toSeconds(ttl);
+    }
+
+    synchronized int getIdleCount() {
+        return idleCount;
+    }
+
+    long getHits() {
+        return hits.get();
+    }
+
+    long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the average time in milliseconds a login took for a resolver
+     *         which was not found in the cache
+     */
+    double getAverageLoginTime() {
+        final long count = logins.get();
+        return count == 0 ? 0 : loginNanos.get() / (count * 1000000d);
+    }
+
+    /**
+     * @return the estimated login time in milliseconds saved by reusing
+     *         cached resolvers instead of logging in again
+     */
+    double getSavedLoginTime() {
+        return hits.get() * getAverageLoginTime();
+    }
+
+    // ---------- internal
+
+    private void removeExpired(final List<ResourceResolver> expired) {
+        for (Iterator<LinkedList<Entry>> ei = idle.values().iterator(); ei.hasNext();) {
+            final LinkedList<Entry> entries = ei.next();
+            for (Iterator<Entry> ri = entries.iterator(); ri.hasNext();) {
+                final Entry entry = ri.next();
+                if (entry.isExpired(ttl)) {
+                    ri.remove();
+                    idleCount--;
+                    expired.add(entry.resolver);
+                }
+            }
+            if (entries.isEmpty()) {
+                ei.remove();
+            }
+        }
+    }
+
+    private void close(final List<ResourceResolver> resolvers) {
+        for (ResourceResolver resolver : resolvers) {
+            close(resolver);
+        }
+    }
+
+    private void close(final ResourceResolver resolver) {
+        try {
+            if (resolver.isLive()) {
+                resolver.close();
+            }
+        } catch (RuntimeException re) {
+            log.debug("close: Failure closing resolver", re);
+        }
+    }
+
+    private static final class Entry {
+
+        final String key;
+
+        final ResourceResolver resolver;
+
+        final String userId;
+
+        final long created = System.currentTimeMillis();
+
+        /** Set if the credentials must not be reused, guarded by the cache */
+        boolean invalid;
+
+        Entry(final String key, final ResourceResolver resolver) {
+            this.key = key;
+            this.resolver = resolver;
+            this.userId = resolver.getUserID();
+        }
+
+        boolean isExpired(final long ttl) {
+            return System.currentTimeMillis() - created >= ttl;
+        }
+    }
+}
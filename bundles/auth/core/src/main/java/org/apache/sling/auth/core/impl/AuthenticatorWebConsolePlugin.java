@@ -75,6 +75,10 @@ public class AuthenticatorWebConsolePlugin extends HttpServlet {
 
         printAuthenticationConfiguration(pw);
 
+        pw.println("<tr><td colspan='2'>&nbsp;</td></tr>");
+
+        printResolverCache(pw);
+
         pw.println("</table>");
     }
 
@@ -143,4 +147,35 @@ public class AuthenticatorWebConsolePlugin extends HttpServlet {
         pw.printf("<td class='content' colspan='2'>%s</td>%n", (anonUser == null) ? "(default)" : ResponseUtil.escapeXml(anonUser));
         pw.println("</tr>");
     }
+
+    private void printResolverCache(final PrintWriter pw) {
+        final AuthenticatedResolverCache cache = slingAuthenticator.getResolverCache();
+
+        pw.println("<tr>");
+        pw.println("<th class='content container' colspan='3'>Resource Resolver Cache</td>");
+        pw.println("</tr>");
+        if (cache == null) {
+            pw.println("<tr>");
+            pw.println("<td class='content' colspan='3'>Disabled</td>");
+            pw.println("</tr>");
+            return;
+        }
+        pw.println("<tr>");
+        pw.println("<td class='content'>Idle Resolvers</td>");
+        pw.printf("<td class='content' colspan='2'>%d of %d (time to live %d seconds)</td>%n",
+            cache.getIdleCount(), cache.getMaxSize(), cache.getTimeToLive());
+        pw.println("</tr>");
+        pw.println("<tr>");
+        pw.println("<td class='content'>Hits / Misses</td>");
+        pw.printf("<td class='content' colspan='2'>%d / %d</td>%n", cache.getHits(), cache.getMisses());
+        pw.println("</tr>");
+        pw.println("<tr>");
+        pw.println("<td class='content'>Average Login Time</td>");
+        pw.printf("<td class='content' colspan='2'>%.2f ms</td>%n", cache.getAverageLoginTime());
+        pw.println("</tr>");
+        pw.println("<tr>");
+        pw.println("<td class='content'>Login Time Saved</td>");
+        pw.printf("<td class='content' colspan='2'>%.0f ms</td>%n", cache.getSavedLoginTime());
+        pw.println("</tr>");
+    }
 }
@@ -19,125 +19,267 @@
 package org.apache.sling.auth.core.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.servlet.http.HttpServletRequest;
 
+/**
+ * The <code>PathBasedHolderCache</code> manages {@link PathBasedHolder}
+ * instances by scheme, host and path.
+ * <p>
+ * Lookups are lock free: for each scheme and host the holders are kept in an
+ * immutable path trie which is replaced (copy-on-write) whenever holders are
+ * added or removed. A lookup walks the request path once and directly returns
+ * the holders whose path is a prefix of the request path, longest path first.
+ */
 public class PathBasedHolderCache<Type extends PathBasedHolder> {
 
-    private final Map<String, Map<String, SortedSet<Type>>> cache = new HashMap<String, Map<String, SortedSet<Type>>>();
+    /**
+     * The registered holders by scheme and host. This is only accessed while
+     * synchronized on this instance and is used to build the {@link #cache}.
+     */
+    private final Map<String, Map<String, SortedSet<Type>>> holders = new HashMap<String, Map<String, SortedSet<Type>>>();
 
-    /** Read/write lock to synchronize the cache access. */
-    private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+    /** The immutable path tries by scheme and host used for lookups */
+    private volatile Map<String, Map<String, PathTrie<Type>>> cache = Collections.emptyMap();
 
-    public void clear() {
-        this.rwLock.writeLock().lock();
-        try {
-            cache.clear();
-        } finally {
-            this.rwLock.writeLock().unlock();
-        }
+    public synchronized void clear() {
+        holders.clear();
+        cache = Collections.emptyMap();
     }
 
-    public void addHolder(final Type holder) {
-        this.rwLock.writeLock().lock();
-        try {
+    public synchronized void addHolder(final Type holder) {
+        Map<String, SortedSet<Type>> byHostMap = holders.get(holder.protocol);
+        if (byHostMap == null) {
+            byHostMap = new HashMap<String, SortedSet<Type>>();
+            holders.put(holder.protocol, byHostMap);
+        }
 
-            Map<String, SortedSet<Type>> byHostMap = cache.get(holder.protocol);
-            if (byHostMap == null) {
-                byHostMap = new HashMap<String, SortedSet<Type>>();
-                cache.put(holder.protocol, byHostMap);
-            }
+        SortedSet<Type> byPathSet = byHostMap.get(holder.host);
+        if (byPathSet == null) {
+            byPathSet = new TreeSet<Type>();
+            byHostMap.put(holder.host, byPathSet);
+        }
 
-            final SortedSet<Type> byPathSet = new TreeSet<Type>();
+        byPathSet.add(holder);
+        publish(holder.protocol, holder.host, byPathSet);
+    }
 
-            // preset with current list
-            final SortedSet<Type> currentPathSet = byHostMap.get(holder.host);
-            if (currentPathSet != null) {
-                byPathSet.addAll(currentPathSet);
+    public synchronized void removeHolder(final Type holder) {
+        final Map<String, SortedSet<Type>> byHostMap = holders.get(holder.protocol);
+        if (byHostMap != null) {
+            final SortedSet<Type> byPathSet = byHostMap.get(holder.host);
+            if (byPathSet != null && byPathSet.remove(holder)) {
+                if (byPathSet.isEmpty()) {
+                    byHostMap.remove(holder.host);
+                    if (byHostMap.isEmpty()) {
+                        holders.remove(holder.protocol);
+                    }
+                }
+                publish(holder.protocol, holder.host, byPathSet);
             }
+        }
+    }
 
-            // add the new holder
-            byPathSet.add(holder);
+    /**
+     * Returns the holders applicable to the given request and path. The
+     * result contains up to four collections in order of precedence: holders
+     * for the request scheme and host, for the request scheme and any host,
+     * for any scheme and the request host and finally for any scheme and host.
+     * Each collection only contains holders whose path is a prefix of the
+     * <code>path</code> and is ordered longest path first. Entries of the
+     * array may be <code>null</code>.
+     *
+     * @param request The request providing the scheme and host
+     * @param path The path to select holders for
+     */
+    public Collection<Type>[] findApplicableHolders(final HttpServletRequest request, final String path) {
+        final String hostname = request.getServerName()
+              + (request.getServerPort() != 80 && request.getServerPort() != 443
+                ? ":" + request.getServerPort()
+                : "");
 
-            // replace old set with new set
-            byHostMap.put(holder.host, byPathSet);
-        } finally {
-            this.rwLock.writeLock().unlock();
+        @SuppressWarnings("unchecked")
+        final Collection<Type>[] result = new Collection[4];
+
+        final Map<String, Map<String, PathTrie<Type>>> current = this.cache;
+        final Map<String, PathTrie<Type>> byHostMap = current.get(request.getScheme());
+        if ( byHostMap != null ) {
+            result[0] = find(byHostMap.get(hostname), path);
+            result[1] = find(byHostMap.get(""), path);
         }
+        final Map<String, PathTrie<Type>> defaultByHostMap = current.get("");
+        if ( defaultByHostMap != null ) {
+            result[2] = find(defaultByHostMap.get(hostname), path);
+            result[3] = find(defaultByHostMap.get(""), path);
+        }
+        return result;
     }
 
-    public void removeHolder(final Type holder) {
-        this.rwLock.writeLock().lock();
-        try {
-            final Map<String, SortedSet<Type>> byHostMap = cache.get(holder.protocol);
-            if (byHostMap != null) {
-                final SortedSet<Type> byPathSet = byHostMap.get(holder.host);
-                if (byPathSet != null) {
-
-                    // create a new set without the removed holder
-                    final SortedSet<Type> set = new TreeSet<Type>();
-                    set.addAll(byPathSet);
-                    set.remove(holder);
-
-                    // replace the old set with the new one (or remove if empty)
-                    if (set.isEmpty()) {
-                        byHostMap.remove(holder.host);
-                    } else {
-                        byHostMap.put(holder.host, set);
-                    }
-                }
+    public synchronized List<Type> getHolders() {
+        final List<Type> result = new ArrayList<Type>();
+        for (Map<String, SortedSet<Type>> byHostEntry : holders.values()) {
+            for (SortedSet<Type> holderSet : byHostEntry.values()) {
+                result.addAll(holderSet);
             }
-        } finally {
-            this.rwLock.writeLock().unlock();
         }
+        return result;
     }
 
-    public Collection<Type>[] findApplicableHolders(final HttpServletRequest request) {
-        this.rwLock.readLock().lock();
-        try {
-            final String hostname = request.getServerName()
-                  + (request.getServerPort() != 80 && request.getServerPort() != 443
-                    ? ":" + request.getServerPort()
-                    : "");
+    private static <Type extends PathBasedHolder> Collection<Type> find(final PathTrie<Type> trie, final String path) {
+        return (trie == null) ? null : trie.find(path);
+    }
+
+    /**
+     * Publishes a new {@link #cache} with the trie for the given scheme and
+     * host rebuilt from the holders. Only the modified maps are copied, all
+     * other tries are shared with the previous version.
+     */
+    private void publish(final String protocol, final String host, final SortedSet<Type> byPathSet) {
+        final Map<String, Map<String, PathTrie<Type>>> newCache = new HashMap<String, Map<String, PathTrie<Type>>>(this.cache);
+        final Map<String, PathTrie<Type>> oldByHostMap = newCache.get(protocol);
+        final Map<String, PathTrie<Type>> byHostMap = (oldByHostMap == null)
+                ? new HashMap<String, PathTrie<Type>>()
+                : new HashMap<String, PathTrie<Type>>(oldByHostMap);
+
+        if (byPathSet.isEmpty()) {
+            byHostMap.remove(host);
+        } else {
+            byHostMap.put(host, new PathTrie<Type>(byPathSet));
+        }
+
+        if (byHostMap.isEmpty()) {
+            newCache.remove(protocol);
+        } else {
+            newCache.put(protocol, byHostMap);
+        }
+        this.cache = newCache;
+    }
+
+    /**
+     * An immutable character trie of holder paths. Matching is done on
+     * characters rather than path segments to retain the plain string prefix
+     * semantics of holder paths.
+     */
+    private static final class PathTrie<Type extends PathBasedHolder> {
+
+        private final Node<Type> root;
+
+        /** The length of the longest holder path, bounding the lookup */
+        private final int maxDepth;
 
+        PathTrie(final SortedSet<Type> holders) {
+            final Builder<Type> rootBuilder = new Builder<Type>();
+            int depth = 0;
+            for (Type holder : holders) {
+                Builder<Type> builder = rootBuilder;
+                for (int i = 0; i < holder.path.length(); i++) {
+                    builder = builder.child(holder.path.charAt(i));
+                }
+                // the sorted set ensures holders of the same path are ordered
+                builder.holders.add(holder);
+                depth = Math.max(depth, holder.path.length());
+            }
+            this.root = rootBuilder.build();
+            this.maxDepth = depth;
+        }
+
+        /**
+         * Returns the holders whose path is a prefix of <code>path</code>,
+         * longest path first, or <code>null</code> if there is none.
+         */
+        Collection<Type> find(final String path) {
             @SuppressWarnings("unchecked")
-            final SortedSet<Type>[] result = new SortedSet[4];
+            final Type[][] matches = (Type[][]) new PathBasedHolder[Math.min(path.length(), maxDepth) + 1][];
+            int numMatches = 0;
+            int size = 0;
 
-            final Map<String, SortedSet<Type>> byHostMap = cache.get(request.getScheme());
-            if ( byHostMap != null ) {
-                result[0] = byHostMap.get(hostname);
-                result[1] = byHostMap.get("");
+            Node<Type> node = root;
+            int i = 0;
+            while (node != null) {
+                if (node.holders != null) {
+                    matches[numMatches++] = node.holders;
+                    size += node.holders.length;
+                }
+                if (i >= path.length() || i >= maxDepth) {
+                    break;
+                }
+                node = node.child(path.charAt(i++));
             }
-            final Map<String, SortedSet<Type>> defaultByHostMap = cache.get("");
-            if ( defaultByHostMap != null ) {
-                result[2] = defaultByHostMap.get(hostname);
-                result[3] = defaultByHostMap.get("");
+
+            if (numMatches == 0) {
+                return null;
+            } else if (numMatches == 1) {
+                return Arrays.asList(matches[0]);
+            }
+
+            final List<Type> result = new ArrayList<Type>(size);
+            for (int m = numMatches - 1; m >= 0; m--) {
+                result.addAll(Arrays.asList(matches[m]));
             }
             return result;
-        } finally {
-            this.rwLock.readLock().unlock();
         }
     }
 
-    public List<Type> getHolders() {
-        this.rwLock.readLock().lock();
-        try {
-            final List<Type> result = new ArrayList<Type>();
-            for (Map<String, SortedSet<Type>> byHostEntry : cache.values()) {
-                for (SortedSet<Type> holderSet : byHostEntry.values()) {
-                    result.addAll(holderSet);
-                }
+    private static final class Node<Type extends PathBasedHolder> {
+
+        /** The sorted characters leading to the {@link #children} */
+        private final char[] keys;
+
+        private final Node<Type>[] children;
+
+        /** The holders registered for the path ending at this node or null */
+        private final Type[] holders;
+
+        Node(final char[] keys, final Node<Type>[] children, final Type[] holders) {
+            this.keys = keys;
+            this.children = children;
+            this.holders = holders;
+        }
+
+        Node<Type> child(final char c) {
+            final int idx = Arrays.binarySearch(keys, c);
+            return (idx < 0) ? null : children[idx];
+        }
+    }
+
+    private static final class Builder<Type extends PathBasedHolder> {
+
+        private final TreeMap<Character, Builder<Type>> children = new TreeMap<Character, Builder<Type>>();
+
+        private final List<Type> holders = new ArrayList<Type>();
+
+        Builder<Type> child(final char c) {
+            Builder<Type> child = children.get(c);
+            if (child == null) {
+                child = new Builder<Type>();
+                children.put(c, child);
             }
-            return result;
-        } finally {
-            this.rwLock.readLock().unlock();
+            return child;
+        }
+
+        @SuppressWarnings("unchecked")
+        Node<Type> build() {
+            final char[] keys = new char[children.size()];
+            final Node<Type>[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Builder<Type>> entry : children.entrySet()) {
+                keys[i] = entry.getKey();
+                nodes[i] = entry.getValue().build();
+                i++;
+            }
+            final Type[] holderArray = holders.isEmpty()
+                    ? null
+                    : holders.toArray((Type[]) new PathBasedHolder[holders.size()]);
+            return new Node<Type>(keys, nodes, holderArray);
         }
     }
 }
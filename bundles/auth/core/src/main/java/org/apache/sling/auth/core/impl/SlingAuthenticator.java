@@ -200,6 +200,33 @@ public class SlingAuthenticator implements Authenticator,
     @Property(value = DEFAULT_AUTH_URI_SUFFIX, unbounded = PropertyUnbounded.ARRAY)
     public static final String PAR_AUTH_URI_SUFFIX = "auth.uri.suffix";
 
+    /**
+     * The default maximum number of idle authenticated resource resolvers
+     * kept for reuse. The default of zero disables the cache.
+     */
+    private static final int DEFAULT_RESOLVER_CACHE_SIZE = 0;
+
+    /**
+     * The name of the configuration property defining the maximum number of
+     * idle authenticated resource resolvers kept for reuse by later requests
+     * with the same credentials. Setting this to zero disables reuse.
+     */
+    @Property(intValue = DEFAULT_RESOLVER_CACHE_SIZE)
+    private static final String PAR_RESOLVER_CACHE_SIZE = "auth.resolver.cache.size";
+
+    /**
+     * The default maximum age in seconds of a cached resource resolver.
+     */
+    private static final long DEFAULT_RESOLVER_CACHE_TTL = 60;
+
+    /**
+     * The name of the configuration property defining the maximum age in
+     * seconds of a cached resource resolver after which it is closed and a
+     * new login is required.
+     */
+    @Property(longValue = DEFAULT_RESOLVER_CACHE_TTL)
+    private static final String PAR_RESOLVER_CACHE_TTL = "auth.resolver.cache.ttl";
+
     /**
      * The name of the {@link AuthenticationInfo} property providing the option
      * {@link org.apache.sling.auth.core.spi.AuthenticationFeedbackHandler}
@@ -253,6 +280,12 @@ public class SlingAuthenticator implements Authenticator,
     /** HTTP Basic authentication handler */
     private HttpBasicAuthenticationHandler httpBasicHandler;
 
+    /**
+     * The cache of idle authenticated resource resolvers or <code>null</code>
+     * if resolvers are not reused.
+     */
+    private volatile AuthenticatedResolverCache resolverCache;
+
     /** Web Console Plugin service registration */
     private ServiceRegistration webConsolePlugin;
 
@@ -396,12 +429,30 @@ public class SlingAuthenticator implements Authenticator,
             final String realm = PropertiesUtil.toString(properties.get(PAR_REALM_NAME), DEFAULT_REALM);
             httpBasicHandler = new HttpBasicAuthenticationHandler(realm, HTTP_AUTH_ENABLED.equals(http));
         }
+
+        final int cacheSize = PropertiesUtil.toInteger(properties.get(PAR_RESOLVER_CACHE_SIZE), DEFAULT_RESOLVER_CACHE_SIZE);
+        final long cacheTtl = PropertiesUtil.toLong(properties.get(PAR_RESOLVER_CACHE_TTL), DEFAULT_RESOLVER_CACHE_TTL);
+        final AuthenticatedResolverCache oldCache = this.resolverCache;
+        if (cacheSize > 0 && cacheTtl > 0) {
+            log.info("modified: Reusing up to {} authenticated resource resolvers for {} seconds", cacheSize, cacheTtl);
+            this.resolverCache = new AuthenticatedResolverCache(cacheSize, cacheTtl);
+        } else {
+            this.resolverCache = null;
+        }
+        if (oldCache != null) {
+            oldCache.dispose();
+        }
     }
 
     @SuppressWarnings("unused")
     @Deactivate
     private void deactivate(final BundleContext bundleContext) {
         this.authRequiredCache.clear();
+        final AuthenticatedResolverCache cache = this.resolverCache;
+        if (cache != null) {
+            this.resolverCache = null;
+            cache.dispose();
+        }
         if (engineAuthHandlerTracker != null) {
             engineAuthHandlerTracker.close();
             engineAuthHandlerTracker = null;
@@ -535,29 +586,27 @@ public class SlingAuthenticator implements Authenticator,
         }
 
         // select path used for authentication handler selection
-        final Collection<AbstractAuthenticationHandlerHolder>[] holdersArray = this.authHandlerCache
-                .findApplicableHolders(request);
         final String path = getHandlerSelectionPath(request);
+        final Collection<AbstractAuthenticationHandlerHolder>[] holdersArray = this.authHandlerCache
+                .findApplicableHolders(request, path);
         boolean done = false;
         for (int m = 0; !done && m < holdersArray.length; m++) {
             final Collection<AbstractAuthenticationHandlerHolder> holderList = holdersArray[m];
             if ( holderList != null ) {
                 for (AbstractAuthenticationHandlerHolder holder : holderList) {
-                    if (path.startsWith(holder.path)) {
-                        log.debug("login: requesting authentication using handler: {}",
-                            holder);
-
-                        try {
-                            done = holder.requestCredentials(request, response);
-                        } catch (IOException ioe) {
-                            log.error(
-                                "login: Failed sending authentication request through handler "
-                                    + holder + ", access forbidden", ioe);
-                            done = true;
-                        }
-                        if (done) {
-                            break;
-                        }
+                    log.debug("login: requesting authentication using handler: {}",
+                        holder);
+
+                    try {
+                        done = holder.requestCredentials(request, response);
+                    } catch (IOException ioe) {
+                        log.error(
+                            "login: Failed sending authentication request through handler "
+                                + holder + ", access forbidden", ioe);
+                        done = true;
+                    }
+                    if (done) {
+                        break;
                     }
                 }
             }
@@ -576,7 +625,7 @@ public class SlingAuthenticator implements Authenticator,
                     size += holdersArray[m].size();
                 }
             }
-            log.info("login: No handler for request ({} handlers available)", size);
+            log.info("login: No handler for request ({} applicable handlers)", size);
             throw new NoAuthenticationHandlerException();
         }
     }
@@ -597,24 +646,28 @@ public class SlingAuthenticator implements Authenticator,
         // make sure impersonation is dropped
         setSudoCookie(request, response, new AuthenticationInfo("dummy", request.getRemoteUser()));
 
+        // make sure resolvers of the user are not reused
+        final AuthenticatedResolverCache cache = this.resolverCache;
+        if (cache != null) {
+            cache.invalidateUser(request.getRemoteUser());
+        }
+
         final String path = getHandlerSelectionPath(request);
         final Collection<AbstractAuthenticationHandlerHolder>[] holdersArray = this.authHandlerCache
-                .findApplicableHolders(request);
+                .findApplicableHolders(request, path);
         for (int m = 0; m < holdersArray.length; m++) {
             final Collection<AbstractAuthenticationHandlerHolder> holderSet = holdersArray[m];
             if (holderSet != null) {
                 for (AbstractAuthenticationHandlerHolder holder : holderSet) {
-                    if (path.startsWith(holder.path)) {
-                        log.debug("logout: dropping authentication using handler: {}",
-                            holder);
-
-                        try {
-                            holder.dropCredentials(request, response);
-                        } catch (IOException ioe) {
-                            log.error(
-                                "logout: Failed dropping authentication through handler "
-                                    + holder, ioe);
-                        }
+                    log.debug("logout: dropping authentication using handler: {}",
+                        holder);
+
+                    try {
+                        holder.dropCredentials(request, response);
+                    } catch (IOException ioe) {
+                        log.error(
+                            "logout: Failed dropping authentication through handler "
+                                + holder, ioe);
                     }
                 }
             }
@@ -639,13 +692,21 @@ public class SlingAuthenticator implements Authenticator,
         ServletRequest request = sre.getServletRequest();
         Object resolverAttr = request.getAttribute(REQUEST_ATTRIBUTE_RESOLVER);
         if (resolverAttr instanceof ResourceResolver) {
-            ((ResourceResolver) resolverAttr).close();
+            releaseResolver((ResourceResolver) resolverAttr);
             request.removeAttribute(REQUEST_ATTRIBUTE_RESOLVER);
         }
     }
 
     // ---------- WebConsolePlugin support
 
+    /**
+     * Returns the cache of authenticated resource resolvers or
+     * <code>null</code> if resolvers are not reused.
+     */
+    AuthenticatedResolverCache getResolverCache() {
+        return resolverCache;
+    }
+
     /**
      * Returns the list of registered authentication handlers as a map
      */
@@ -718,22 +779,20 @@ public class SlingAuthenticator implements Authenticator,
         }
 
         final Collection<AbstractAuthenticationHandlerHolder>[] localArray = this.authHandlerCache
-                .findApplicableHolders(request);
+                .findApplicableHolders(request, path);
         for (int m = 0; m < localArray.length; m++) {
             final Collection<AbstractAuthenticationHandlerHolder> local = localArray[m];
             if (local != null) {
                 for (AbstractAuthenticationHandlerHolder holder : local) {
-                    if (path.startsWith(holder.path)) {
-                        final AuthenticationInfo authInfo = holder.extractCredentials(
-                            request, response);
+                    final AuthenticationInfo authInfo = holder.extractCredentials(
+                        request, response);
 
-                        if (authInfo != null) {
-                            // add the feedback handler to the info (may be null)
-                            authInfo.put(AUTH_INFO_PROP_FEEDBACK_HANDLER,
-                                holder.getFeedbackHandler());
+                    if (authInfo != null) {
+                        // add the feedback handler to the info (may be null)
+                        authInfo.put(AUTH_INFO_PROP_FEEDBACK_HANDLER,
+                            holder.getFeedbackHandler());
 
-                            return authInfo;
-                        }
+                        return authInfo;
                     }
                 }
             }
@@ -788,7 +847,7 @@ public class SlingAuthenticator implements Authenticator,
         try {
             handleImpersonation(request, authInfo);
             handlePasswordChange(request, authInfo);
-            ResourceResolver resolver = resourceResolverFactory.getResourceResolver(authInfo);
+            ResourceResolver resolver = getResourceResolver(authInfo, sendLoginEvent == null);
             final boolean impersChanged = setSudoCookie(request, response, authInfo);
 
             if (sendLoginEvent != null) {
@@ -819,7 +878,7 @@ public class SlingAuthenticator implements Authenticator,
                 setAttributes(resolver, authInfo.getAuthType(), request);
             } else {
                 // terminate: cleanup
-                resolver.close();
+                releaseResolver(resolver);
             }
 
             return processRequest;
@@ -846,6 +905,54 @@ public class SlingAuthenticator implements Authenticator,
 
     }
 
+    /**
+     * Returns a resource resolver for the given credentials. If resolver
+     * reuse is enabled and the credentials allow for it, an idle resolver
+     * previously created for the same credentials is returned, otherwise a
+     * new resolver is created.
+     *
+     * @param authInfo The credentials to login with
+     * @param reuse Whether a cached resolver may be returned. This is
+     *            <code>false</code> for explicit logins which must always be
+     *            validated against the repository.
+     */
+    private ResourceResolver getResourceResolver(final AuthenticationInfo authInfo, final boolean reuse)
+            throws LoginException {
+        final AuthenticatedResolverCache cache = this.resolverCache;
+        final String key = (cache == null) ? null : AuthenticatedResolverCache.getKey(authInfo);
+        if (key == null) {
+            final ResourceResolver resolver = resourceResolverFactory.getResourceResolver(authInfo);
+            if (cache != null && authInfo.containsKey("user.newpassword")) {
+                // resolvers for the old password must not be used any longer
+                cache.invalidateUser(resolver.getUserID());
+            }
+            return resolver;
+        }
+
+        if (reuse) {
+            final ResourceResolver resolver = cache.acquire(key);
+            if (resolver != null) {
+                return resolver;
+            }
+        }
+
+        return cache.create(key, resourceResolverFactory, authInfo);
+    }
+
+    /**
+     * Releases a resource resolver acquired by
+     * {@link #getResourceResolver(AuthenticationInfo, boolean)} once it is not
+     * used any longer: it is either kept for reuse or closed.
+     */
+    private void releaseResolver(final ResourceResolver resolver) {
+        final AuthenticatedResolverCache cache = this.resolverCache;
+        if (cache != null) {
+            cache.release(resolver);
+        } else {
+            resolver.close();
+        }
+    }
+
     private boolean expectAuthenticationHandler(final HttpServletRequest request) {
         if (this.authUriSuffices != null) {
             final String requestUri = request.getRequestURI();
@@ -867,7 +974,7 @@ public class SlingAuthenticator implements Authenticator,
         if (isAnonAllowed(request)) {
 
             try {
-                ResourceResolver resolver = resourceResolverFactory.getResourceResolver(authInfo);
+                ResourceResolver resolver = getResourceResolver(authInfo, true);
 
                 // check whether the client asked for redirect after
                 // authentication and/or impersonation
@@ -876,7 +983,7 @@ public class SlingAuthenticator implements Authenticator,
 
                     // request will now be terminated, so close the resolver
                     // to release resources
-                    resolver.close();
+                    releaseResolver(resolver);
 
                     return false;
                 }
@@ -911,16 +1018,13 @@ public class SlingAuthenticator implements Authenticator,
             path = "/";
         }
 
+        // the holders are ordered longest matching path first
         final Collection<AuthenticationRequirementHolder>[] holderSetArray = authRequiredCache
-                .findApplicableHolders(request);
+                .findApplicableHolders(request, path);
         for (int m = 0; m < holderSetArray.length; m++) {
             final Collection<AuthenticationRequirementHolder> holders = holderSetArray[m];
-            if (holders != null) {
-                for (AuthenticationRequirementHolder holder : holders) {
-                    if (path.startsWith(holder.path)) {
-                        return !holder.requiresAuthentication();
-                    }
-                }
+            if (holders != null && !holders.isEmpty()) {
+                return !holders.iterator().next().requiresAuthentication();
             }
         }
 
@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.auth.core.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Stack;
+
+import javax.jcr.SimpleCredentials;
+
+import org.apache.jackrabbit.api.security.authentication.token.TokenCredentials;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.auth.core.spi.AuthenticationInfo;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class AuthenticatedResolverCacheTest {
+
+    @Test
+    public void test_key() {
+        final String key = AuthenticatedResolverCache.getKey(new AuthenticationInfo("BASIC", "admin", "admin".toCharArray()));
+        assertNotNull(key);
+        assertEquals(key, AuthenticatedResolverCache.getKey(new AuthenticationInfo("BASIC", "admin", "admin".toCharArray())));
+        assertEquals(false, key.equals(AuthenticatedResolverCache.getKey(new AuthenticationInfo("BASIC", "admin", "other".toCharArray()))));
+
+        final AuthenticationInfo impersonated = new AuthenticationInfo("BASIC", "admin", "admin".toCharArray());
+        impersonated.put(ResourceResolverFactory.USER_IMPERSONATION, "someone");
+        assertEquals(false, key.equals(AuthenticatedResolverCache.getKey(impersonated)));
+
+        final AuthenticationInfo credentials = new AuthenticationInfo("TOKEN");
+        credentials.put("user.jcr.credentials", new SimpleCredentials("admin", "admin".toCharArray()));
+        assertNotNull(AuthenticatedResolverCache.getKey(credentials));
+
+        final AuthenticationInfo token = new AuthenticationInfo("TOKEN");
+        token.put("user.jcr.credentials", new TokenCredentials("token"));
+        final String tokenKey = AuthenticatedResolverCache.getKey(token);
+        assertNotNull(tokenKey);
+        final AuthenticationInfo sameToken = new AuthenticationInfo("TOKEN");
+        sameToken.put("user.jcr.credentials", new TokenCredentials("token"));
+        assertEquals(tokenKey, AuthenticatedResolverCache.getKey(sameToken));
+        final AuthenticationInfo otherToken = new AuthenticationInfo("TOKEN");
+        otherToken.put("user.jcr.credentials", new TokenCredentials("other"));
+        assertEquals(false, tokenKey.equals(AuthenticatedResolverCache.getKey(otherToken)));
+
+        final AuthenticationInfo custom = new AuthenticationInfo("CUSTOM");
+        custom.put("user.jcr.credentials", new Object());
+        assertNull(AuthenticatedResolverCache.getKey(custom));
+
+        final AuthenticationInfo passwordChange = new AuthenticationInfo("BASIC", "admin", "admin".toCharArray());
+        passwordChange.put("user.newpassword", "new");
+        assertNull(AuthenticatedResolverCache.getKey(passwordChange));
+    }
+
+    @Test
+    public void test_reuse() {
+        final AuthenticatedResolverCache cache = new AuthenticatedResolverCache(2, 60);
+        final ResourceResolver resolver = mockResolver();
+
+        assertNull(cache.acquire("a"));
+        cache.created("a", resolver, 1000000);
+        cache.release(resolver);
+        assertEquals(1, cache.getIdleCount());
+
+        assertNull(cache.acquire("b"));
+        assertSame(resolver, cache.acquire("a"));
+        verify(resolver).refresh();
+        assertEquals(0, cache.getIdleCount());
+
+        // lent resolvers are never handed out twice
+        assertNull(cache.acquire("a"));
+
+        cache.release(resolver);
+        assertEquals(1, cache.getIdleCount());
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+        verify(resolver, never()).close();
+
+        cache.dispose();
+        assertEquals(0, cache.getIdleCount());
+        verify(resolver).close();
+    }
+
+    @Test
+    public void test_changes_discarded() {
+        final AuthenticatedResolverCache cache = new AuthenticatedResolverCache(2, 60);
+        final ResourceResolver resolver = mockResolver();
+        when(resolver.hasChanges()).thenReturn(true);
+
+        cache.created("a", resolver, 0);
+        cache.release(resolver);
+
+        assertEquals(0, cache.getIdleCount());
+        verify(resolver).revert();
+        verify(resolver).close();
+    }
+
+    @Test
+    public void test_bounded_and_expired() {
+        final AuthenticatedResolverCache cache = new AuthenticatedResolverCache(1, 60);
+        final ResourceResolver first = mockResolver();
+        final ResourceResolver second = mockResolver();
+        cache.created("a", first, 0);
+        cache.created("a", second, 0);
+        cache.release(first);
+        cache.release(second);
+        assertEquals(1, cache.getIdleCount());
+        verify(second).close();
+
+        // a time to live of zero expires resolvers immediately
+        final AuthenticatedResolverCache expiring = new AuthenticatedResolverCache(1, 0);
+        final ResourceResolver third = mockResolver();
+        expiring.created("a", third, 0);
+        expiring.release(third);
+        assertEquals(0, expiring.getIdleCount());
+        verify(third).close();
+    }
+
+    @Test
+    public void test_invalidate_user() {
+        final AuthenticatedResolverCache cache = new AuthenticatedResolverCache(4, 60);
+        final ResourceResolver idle = mockResolver("alice");
+        final ResourceResolver lent = mockResolver("alice");
+        final ResourceResolver other = mockResolver("bob");
+        cache.created("a", idle, 0);
+        cache.created("b", lent, 0);
+        cache.created("c", other, 0);
+        cache.release(idle);
+        cache.release(other);
+        assertEquals(2, cache.getIdleCount());
+
+        cache.invalidateUser("alice");
+        assertEquals(1, cache.getIdleCount());
+        verify(idle).close();
+        assertNull(cache.acquire("a"));
+
+        // lent resolvers are closed when released
+        cache.release(lent);
+        verify(lent).close();
+        assertEquals(1, cache.getIdleCount());
+        assertSame(other, cache.acquire("c"));
+    }
+
+    @Test
+    public void test_invalidate_key() {
+        final AuthenticatedResolverCache cache = new AuthenticatedResolverCache(4, 60);
+        final ResourceResolver first = mockResolver("alice");
+        final ResourceResolver second = mockResolver("alice");
+        cache.created("a", first, 0);
+        cache.created("a", second, 0);
+        cache.release(first);
+
+        cache.invalidateKey("a");
+        assertEquals(0, cache.getIdleCount());
+        verify(first).close();
+        cache.release(second);
+        verify(second).close();
+        assertEquals(0, cache.getIdleCount());
+    }
+
+    @Test
+    public void test_unknown_resolver_closed() {
+        final AuthenticatedResolverCache cache = new AuthenticatedResolverCache(1, 60);
+        final ResourceResolver resolver = mockResolver();
+        cache.release(resolver);
+        assertEquals(0, cache.getIdleCount());
+        verify(resolver).close();
+    }
+
+    @Test
+    public void test_thread_resolver() throws LoginException {
+        final AuthenticatedResolverCache cache = new AuthenticatedResolverCache(2, 60);
+        final ThreadResolvers threadResolvers = new ThreadResolvers();
+        final ResourceResolverFactory factory = threadResolvers.mockFactory();
+        final AuthenticationInfo authInfo = new AuthenticationInfo("BASIC", "alice", "alice".toCharArray());
+
+        final ResourceResolver resolver = cache.create("a", factory, authInfo);
+        assertNull(threadResolvers.getThreadResolver());
+        cache.release(resolver);
+        assertNull(threadResolvers.getThreadResolver());
+
+        assertSame(resolver, cache.acquire("a"));
+        assertNull(threadResolvers.getThreadResolver());
+        cache.release(resolver);
+
+        // a later request of another user on this thread gets its own resolver
+        final ResourceResolver other = factory.getResourceResolver(null);
+        assertSame(other, threadResolvers.getThreadResolver());
+        other.close();
+        assertNull(threadResolvers.getThreadResolver());
+    }
+
+    @Test
+    public void test_create_failure() throws LoginException {
+        final AuthenticatedResolverCache cache = new AuthenticatedResolverCache(2, 60);
+        final ResourceResolver resolver = mockResolver();
+        cache.created("a", resolver, 0);
+        cache.release(resolver);
+
+        final ResourceResolverFactory factory = mock(ResourceResolverFactory.class);
+        when(factory.getResourceResolver(anyMapOf(String.class, Object.class))).thenThrow(new LoginException("invalid"));
+        try {
+            cache.create("a", factory, new AuthenticationInfo("BASIC", "alice", "alice".toCharArray()));
+            fail("Login must fail");
+        } catch (final LoginException le) {
+            // expected
+        }
+        assertEquals(0, cache.getIdleCount());
+        verify(resolver).close();
+    }
+
+    /**
+     * Keeps the resolvers on a stack of the creating thread until they are
+     * closed, like the resource resolver factory of Sling does for
+     * <code>ResourceResolverFactory.getThreadResourceResolver()</code>.
+     */
+    private static final class ThreadResolvers extends ThreadLocal<Stack<ResourceResolver>> {
+
+        @Override
+        protected Stack<ResourceResolver> initialValue() {
+            return new Stack<ResourceResolver>();
+        }
+
+        ResourceResolverFactory mockFactory() throws LoginException {
+            final ResourceResolverFactory factory = mock(ResourceResolverFactory.class);
+            when(factory.getResourceResolver(anyMapOf(String.class, Object.class))).thenAnswer(new Answer<ResourceResolver>() {
+                @Override
+                public ResourceResolver answer(final InvocationOnMock invocation) {
+                    final ResourceResolver resolver = mockResolver();
+                    doAnswer(new Answer<Void>() {
+                        @Override
+                        public Void answer(final InvocationOnMock invocation) {
+                            ThreadResolvers.super.get().remove(resolver);
+                            return null;
+                        }
+                    }).when(resolver).close();
+                    ThreadResolvers.super.get().push(resolver);
+                    return resolver;
+                }
+            });
+            return factory;
+        }
+
+        /**
+         * @return the thread resolver of the current thread
+         */
+        ResourceResolver getThreadResolver() {
+            final Stack<ResourceResolver> stack = super.get();
+            return stack.isEmpty() ? null : stack.peek();
+        }
+    }
+
+    private static ResourceResolver mockResolver() {
+        return mockResolver("admin");
+    }
+
+    private static ResourceResolver mockResolver(final String userId) {
+        final ResourceResolver resolver = mock(ResourceResolver.class);
+        when(resolver.isLive()).thenReturn(true);
+        when(resolver.getUserID()).thenReturn(userId);
+        return resolver;
+    }
+}
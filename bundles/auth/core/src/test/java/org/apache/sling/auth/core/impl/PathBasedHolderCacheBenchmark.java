@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.auth.core.impl;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of {@link PathBasedHolderCache#findApplicableHolders} with
+ * 10, 100 and 1000 registered authentication requirement paths. Run with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.apache.sling.auth.core.impl.PathBasedHolderCacheBenchmark</code>
+ * or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathBasedHolderCacheBenchmark {
+
+    @Param({ "10", "100", "1000" })
+    public int paths;
+
+    private PathBasedHolderCache<AuthenticationRequirementHolder> cache;
+
+    private HttpServletRequest request;
+
+    private String matchingPath;
+
+    private String missingPath;
+
+    @Setup
+    public void setup() {
+        cache = new PathBasedHolderCache<AuthenticationRequirementHolder>();
+        cache.addHolder(new AuthenticationRequirementHolder("/", false, null));
+        for (int i = 0; i < paths; i++) {
+            cache.addHolder(new AuthenticationRequirementHolder("/content/site" + (i % 10) + "/page" + i, true, null));
+        }
+
+        // avoid measuring mock invocations
+        request = new HttpServletRequestWrapper(mock(HttpServletRequest.class)) {
+            @Override
+            public String getScheme() {
+                return "http";
+            }
+
+            @Override
+            public String getServerName() {
+                return "localhost";
+            }
+
+            @Override
+            public int getServerPort() {
+                return 80;
+            }
+        };
+
+        matchingPath = "/content/site" + ((paths - 1) % 10) + "/page" + (paths - 1) + "/jcr:content/par.html";
+        missingPath = "/content/site1/unprotected/jcr:content/par.html";
+    }
+
+    @Benchmark
+    public Collection<AuthenticationRequirementHolder> matching() {
+        return cache.findApplicableHolders(request, matchingPath)[3];
+    }
+
+    @Benchmark
+    public Collection<AuthenticationRequirementHolder> rootOnly() {
+        return cache.findApplicableHolders(request, missingPath)[3];
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(PathBasedHolderCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
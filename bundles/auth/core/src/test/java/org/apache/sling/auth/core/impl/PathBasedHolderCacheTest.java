@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.auth.core.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+
+public class PathBasedHolderCacheTest {
+
+    private static final String[] PATHS = {
+        "/", "/content", "/content/en", "/content/en/test", "/content/en/test2", "/content/de", "/libs", "/apps/sling"
+    };
+
+    private static final String[] REQUESTS = {
+        "/", "/content", "/content/en/test", "/content/en/test2/child", "/content/en/tes", "/contents",
+        "/content/fr/page.html", "/libs/sling", "/apps", "/apps/slingshot", "/var"
+    };
+
+    @Test
+    public void test_longest_path_first() {
+        final PathBasedHolderCache<AuthenticationRequirementHolder> cache = new PathBasedHolderCache<AuthenticationRequirementHolder>();
+        for (String path : PATHS) {
+            cache.addHolder(new AuthenticationRequirementHolder(path, true, null));
+        }
+
+        final Collection<AuthenticationRequirementHolder>[] result = cache.findApplicableHolders(mockRequest(), "/content/en/test/page");
+        assertNull(result[0]);
+        assertNull(result[1]);
+        assertEquals(4, result[3].size());
+        assertEquals("[/content/en/test, /content/en, /content, /]", paths(result[3]).toString());
+    }
+
+    @Test
+    public void test_same_as_prefix_scan() {
+        final PathBasedHolderCache<AuthenticationRequirementHolder> cache = new PathBasedHolderCache<AuthenticationRequirementHolder>();
+        for (String path : PATHS) {
+            cache.addHolder(new AuthenticationRequirementHolder(path, true, null));
+            cache.addHolder(new AuthenticationRequirementHolder("//localhost" + path, false, null));
+        }
+        cache.removeHolder(new AuthenticationRequirementHolder("/content/en", true, null));
+
+        for (String request : REQUESTS) {
+            final Collection<AuthenticationRequirementHolder>[] result = cache.findApplicableHolders(mockRequest(), request);
+            assertEquals(request, expected(cache, "", request), paths(result[3]));
+            assertEquals(request, expected(cache, "localhost", request), paths(result[2]));
+        }
+    }
+
+    @Test
+    public void test_clear() {
+        final PathBasedHolderCache<AuthenticationRequirementHolder> cache = new PathBasedHolderCache<AuthenticationRequirementHolder>();
+        cache.addHolder(new AuthenticationRequirementHolder("/", true, null));
+        cache.clear();
+        assertEquals(0, cache.getHolders().size());
+        assertNull(cache.findApplicableHolders(mockRequest(), "/")[3]);
+    }
+
+    /**
+     * The holders applicable according to the sorted list of all holders
+     * filtered by path prefix as done before using the path tries.
+     */
+    private static List<String> expected(final PathBasedHolderCache<AuthenticationRequirementHolder> cache,
+            final String host, final String path) {
+        final List<AuthenticationRequirementHolder> holders = cache.getHolders();
+        Collections.sort(holders);
+        final List<String> result = new ArrayList<String>();
+        for (AuthenticationRequirementHolder holder : holders) {
+            if (holder.host.equals(host) && path.startsWith(holder.path)) {
+                result.add(holder.path);
+            }
+        }
+        return result.isEmpty() ? null : result;
+    }
+
+    private static List<String> paths(final Collection<AuthenticationRequirementHolder> holders) {
+        if (holders == null) {
+            return null;
+        }
+        final List<String> result = new ArrayList<String>();
+        for (AuthenticationRequirementHolder holder : holders) {
+            result.add(holder.path);
+        }
+        return result;
+    }
+
+    private static HttpServletRequest mockRequest() {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getScheme()).thenReturn("http");
+        when(request.getServerName()).thenReturn("localhost");
+        when(request.getServerPort()).thenReturn(80);
+        return request;
+    }
+}
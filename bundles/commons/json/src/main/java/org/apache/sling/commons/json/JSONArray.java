@@ -146,7 +146,24 @@ public class JSONArray {
      *  @throws JSONException If there is a syntax error.
      */
     public JSONArray(String string) throws JSONException {
-        this(new JSONTokener(string));
+        this();
+        final JSONParser parser = new JSONParser(string);
+        try {
+            parser.readArray(this);
+        } finally {
+            parser.close();
+        }
+    }
+
+
+    /**
+     * Construct a JSONArray from the next array read by a JSONParser.
+     * @param parser A JSONParser whose next event starts an array.
+     * @throws JSONException If there is a syntax error.
+     */
+    public JSONArray(JSONParser parser) throws JSONException {
+        this();
+        parser.readArray(this);
     }
 
 
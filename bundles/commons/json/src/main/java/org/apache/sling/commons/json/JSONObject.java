@@ -281,7 +281,24 @@ public class JSONObject {
      * @exception JSONException If there is a syntax error in the source string.
      */
     public JSONObject(String string) throws JSONException {
-        this(new JSONTokener(string));
+        this();
+        final JSONParser parser = new JSONParser(string);
+        try {
+            parser.readObject(this);
+        } finally {
+            parser.close();
+        }
+    }
+
+
+    /**
+     * Construct a JSONObject from the next object read by a JSONParser.
+     * @param parser A JSONParser whose next event starts an object.
+     * @exception JSONException If there is a syntax error in the source.
+     */
+    public JSONObject(JSONParser parser) throws JSONException {
+        this();
+        parser.readObject(this);
     }
 
 
@@ -0,0 +1,631 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.json;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+/**
+ * A pull parser reading JSON text from a {@link Reader} as a sequence of
+ * {@link Event}s, without building the whole document in memory.
+ * <p>
+ * The parser accepts the same lenient syntax as the {@link JSONTokener}:
+ * comments, single quoted and unquoted strings, <code>=</code> and
+ * <code>=&gt;</code> after keys, <code>;</code> as separator, trailing
+ * separators and missing array elements. Values are converted the same way,
+ * to Boolean, Double, Integer, Long, String or the JSONObject.NULL object.
+ * <p>
+ * The text is read through a character buffer, sized to the text when parsing
+ * a string. Closing the parser closes the reader.
+ * For example, <pre>
+ * JSONParser parser = new JSONParser(reader);
+ * try {
+ *     while (parser.hasNext()) {
+ *         switch (parser.next()) {
+ *         case KEY:
+ *             String name = parser.getString();
+ *             ...
+ *         case VALUE:
+ *             Object value = parser.getValue();
+ *             ...
+ *         }
+ *     }
+ * } finally {
+ *     parser.close();
+ * }</pre>
+ * Parts of the text can be read as a tree with {@link #nextValue()}.
+ */
+public class JSONParser implements Closeable {
+
+    /** Parser events */
+    public enum Event {
+        /** Start of an object, <code>{</code> */
+        START_OBJECT,
+        /** End of an object, <code>}</code> */
+        END_OBJECT,
+        /** Start of an array, <code>[</code> */
+        START_ARRAY,
+        /** End of an array, <code>]</code> */
+        END_ARRAY,
+        /** Key of an object member, see {@link JSONParser#getString()} */
+        KEY,
+        /** Scalar value, see {@link JSONParser#getValue()} */
+        VALUE
+    }
+
+    static final int BUFFER_SIZE = 8192;
+
+    // characters kept at the start of the buffer on refill, so that up to two
+    // characters can be pushed back across a refill
+    private static final int PUSHBACK = 2;
+
+    // scope states: expecting the first key, a key after a value, the value
+    // after a key, the first element, an element after a value
+    private static final byte OBJECT_FIRST = 0;
+    private static final byte OBJECT_NEXT = 1;
+    private static final byte OBJECT_VALUE = 2;
+    private static final byte ARRAY_FIRST = 3;
+    private static final byte ARRAY_NEXT = 4;
+
+    private final Reader reader;
+
+    private char[] buffer;
+
+    /** The index of the next character in the buffer */
+    private int position = PUSHBACK;
+
+    /** The number of characters in the buffer */
+    private int limit = PUSHBACK;
+
+    /** The number of characters read before the start of the buffer */
+    private long offset = -PUSHBACK;
+
+    /** Whether the last character returned by nextChar() was the end of the text */
+    private boolean eof;
+
+    private final StringBuilder text = new StringBuilder();
+
+    private byte[] scopes = new byte[16];
+
+    private int depth;
+
+    /** Whether the root value has been started */
+    private boolean started;
+
+    /** The last event */
+    private Event event;
+
+    private String string;
+
+    private Object value;
+
+    /**
+     * Construct a parser reading from a reader.
+     * @param reader The reader, closed with the parser.
+     */
+    public JSONParser(Reader reader) {
+        this(reader, BUFFER_SIZE);
+    }
+
+    /**
+     * Construct a parser reading from a string.
+     * @param s A source string.
+     */
+    public JSONParser(String s) {
+        this(new StringReader(s), PUSHBACK + Math.min(BUFFER_SIZE, Math.max(1, s.length())));
+    }
+
+    private JSONParser(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Determine if there are more events, that is if the root value has not
+     * been completely read yet.
+     * @return true if next() can be called.
+     */
+    public boolean hasNext() {
+        return depth > 0 || !started;
+    }
+
+    /**
+     * Read the next event.
+     * @return The event.
+     * @throws JSONException If there is a syntax error, the text cannot be
+     *  read or the root value has been completely read.
+     */
+    public Event next() throws JSONException {
+        event = readEvent();
+        return event;
+    }
+
+    private Event readEvent() throws JSONException {
+        if (depth == 0) {
+            if (started) {
+                throw new JSONException("No more events.");
+            }
+            started = true;
+            return readValue();
+        }
+
+        char c;
+        switch (scopes[depth - 1]) {
+        case OBJECT_FIRST:
+            c = nextClean();
+            if (c == '}') {
+                return end(Event.END_OBJECT);
+            }
+            if (c == 0) {
+                throw syntaxError("A JSONObject text must end with '}'");
+            }
+            back();
+            return readKey();
+
+        case OBJECT_NEXT:
+            /*
+             * Pairs are separated by ','. We will also tolerate ';'.
+             */
+            c = nextClean();
+            if (c == ',' || c == ';') {
+                c = nextClean();
+                if (c == '}') {
+                    return end(Event.END_OBJECT);
+                }
+                if (c == 0) {
+                    throw syntaxError("A JSONObject text must end with '}'");
+                }
+                back();
+                return readKey();
+            }
+            if (c == '}') {
+                return end(Event.END_OBJECT);
+            }
+            throw syntaxError("Expected a ',' or '}'");
+
+        case OBJECT_VALUE:
+            /*
+             * The key is followed by ':'. We will also tolerate '=' or '=>'.
+             */
+            c = nextClean();
+            if (c == '=') {
+                if (nextChar() != '>') {
+                    back();
+                }
+            } else if (c != ':') {
+                throw syntaxError("Expected a ':' after a key");
+            }
+            scopes[depth - 1] = OBJECT_NEXT;
+            return readValue();
+
+        case ARRAY_FIRST:
+            if (nextClean() == ']') {
+                return end(Event.END_ARRAY);
+            }
+            back();
+            return readElement();
+
+        default:
+            c = nextClean();
+            if (c == ',' || c == ';') {
+                if (nextClean() == ']') {
+                    return end(Event.END_ARRAY);
+                }
+                back();
+                return readElement();
+            }
+            if (c == ']') {
+                return end(Event.END_ARRAY);
+            }
+            throw syntaxError("Expected a ',' or ']'");
+        }
+    }
+
+    /**
+     * Get the key of a {@link Event#KEY} event, or the value of a
+     * {@link Event#VALUE} event as a string.
+     * @return A string, or null for a missing array element.
+     */
+    public String getString() {
+        return string;
+    }
+
+    /**
+     * Get the value of a {@link Event#VALUE} event.
+     * @return A Boolean, Double, Integer, Long, String or the JSONObject.NULL
+     *  object, or null for a missing array element.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Get the nesting depth of the current event, 0 outside of the root
+     * object or array.
+     * @return The number of enclosing objects and arrays.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Skip the rest of the object or array started by the last event, up to
+     * and including its end event. Nothing is skipped if the last event is
+     * not the start of an object or array.
+     * @throws JSONException If there is a syntax error.
+     */
+    public void skipChildren() throws JSONException {
+        if (event == Event.START_OBJECT || event == Event.START_ARRAY) {
+            final int start = depth;
+            while (depth >= start) {
+                next();
+            }
+        }
+    }
+
+    /**
+     * Read the next value as a tree.
+     * @return A JSONObject, JSONArray, Boolean, Double, Integer, Long, String
+     *  or the JSONObject.NULL object, or null for a missing array element.
+     * @throws JSONException If there is a syntax error or the next event is
+     *  not the start of a value.
+     */
+    public Object nextValue() throws JSONException {
+        switch (next()) {
+        case START_OBJECT:
+            final JSONObject jo = new JSONObject();
+            readMembers(jo);
+            return jo;
+        case START_ARRAY:
+            final JSONArray ja = new JSONArray();
+            readElements(ja);
+            return ja;
+        case VALUE:
+            return value;
+        default:
+            throw syntaxError("Expected a value instead of " + event);
+        }
+    }
+
+    /**
+     * Close the parser and the reader.
+     */
+    public void close() {
+        buffer = null;
+        try {
+            reader.close();
+        } catch (IOException ignore) {
+            // nothing to do
+        }
+    }
+
+    /**
+     * Make a JSONException to signal a syntax error.
+     *
+     * @param message The error message.
+     * @return  A JSONException object, suitable for throwing
+     */
+    public JSONException syntaxError(String message) {
+        return new JSONException(message + " at character " + (offset + position));
+    }
+
+    /**
+     * Read the members of an object into a JSONObject.
+     * @throws JSONException If the next value is not an object.
+     */
+    void readObject(JSONObject jo) throws JSONException {
+        if (next() != Event.START_OBJECT) {
+            throw syntaxError("A JSONObject text must begin with '{'");
+        }
+        readMembers(jo);
+    }
+
+    /**
+     * Read the elements of an array into a JSONArray.
+     * @throws JSONException If the next value is not an array.
+     */
+    void readArray(JSONArray ja) throws JSONException {
+        if (next() != Event.START_ARRAY) {
+            throw syntaxError("A JSONArray text must start with '['");
+        }
+        readElements(ja);
+    }
+
+    private void readMembers(JSONObject jo) throws JSONException {
+        while (next() == Event.KEY) {
+            final String key = string;
+            jo.put(key, nextValue());
+        }
+    }
+
+    private void readElements(JSONArray ja) throws JSONException {
+        for (;;) {
+            switch (next()) {
+            case END_ARRAY:
+                return;
+            case START_OBJECT:
+                final JSONObject jo = new JSONObject();
+                readMembers(jo);
+                ja.put(jo);
+                break;
+            case START_ARRAY:
+                final JSONArray child = new JSONArray();
+                readElements(child);
+                ja.put(child);
+                break;
+            default:
+                ja.put(value);
+            }
+        }
+    }
+
+    private Event end(Event end) {
+        depth -= 1;
+        string = null;
+        value = null;
+        return end;
+    }
+
+    private Event start(byte scope, Event start) {
+        if (depth == scopes.length) {
+            final byte[] grown = new byte[depth * 2];
+            System.arraycopy(scopes, 0, grown, 0, depth);
+            scopes = grown;
+        }
+        scopes[depth] = scope;
+        depth += 1;
+        string = null;
+        value = null;
+        return start;
+    }
+
+    private Event readKey() throws JSONException {
+        scopes[depth - 1] = OBJECT_VALUE;
+        final char c = nextClean();
+        if (c == '"' || c == '\'') {
+            string = readString(c);
+        } else if (c == '{' || c == '[') {
+            throw syntaxError("Expected a key");
+        } else {
+            back();
+            string = readUnquoted().toString();
+        }
+        value = string;
+        return Event.KEY;
+    }
+
+    private Event readElement() throws JSONException {
+        scopes[depth - 1] = ARRAY_NEXT;
+        if (nextClean() == ',') {
+            back();
+            string = null;
+            value = null;
+            return Event.VALUE;
+        }
+        back();
+        return readValue();
+    }
+
+    private Event readValue() throws JSONException {
+        final char c = nextClean();
+        switch (c) {
+        case '"':
+        case '\'':
+            string = readString(c);
+            value = string;
+            return Event.VALUE;
+        case '{':
+            return start(OBJECT_FIRST, Event.START_OBJECT);
+        case '[':
+            return start(ARRAY_FIRST, Event.START_ARRAY);
+        default:
+            back();
+            value = readUnquoted();
+            string = value.toString();
+            return Event.VALUE;
+        }
+    }
+
+    /**
+     * Read unquoted text, up to the end of the text or a formatting character.
+     */
+    private Object readUnquoted() throws JSONException {
+        text.setLength(0);
+        char c = nextChar();
+        final char b = c;
+        while (c >= ' ' && ",:]}/\\\"[{;=#".indexOf(c) < 0) {
+            text.append(c);
+            c = nextChar();
+        }
+        back();
+
+        final String s = text.toString().trim();
+        if (s.length() == 0) {
+            throw syntaxError("Missing value.");
+        }
+        return JSONTokener.stringToValue(s, b);
+    }
+
+    /**
+     * Read the characters up to the next close quote character, with
+     * backslash processing.
+     */
+    private String readString(char quote) throws JSONException {
+        text.setLength(0);
+        for (;;) {
+            // copy runs of plain characters from the buffer at once
+            final int start = position;
+            while (position < limit) {
+                final char c = buffer[position];
+                if (c == quote || c == '\\' || c == '\n' || c == '\r') {
+                    break;
+                }
+                position += 1;
+            }
+            text.append(buffer, start, position - start);
+
+            char c = nextChar();
+            switch (c) {
+            case 0:
+            case '\n':
+            case '\r':
+                throw syntaxError("Unterminated string");
+            case '\\':
+                c = nextChar();
+                switch (c) {
+                case 'b':
+                    text.append('\b');
+                    break;
+                case 't':
+                    text.append('\t');
+                    break;
+                case 'n':
+                    text.append('\n');
+                    break;
+                case 'f':
+                    text.append('\f');
+                    break;
+                case 'r':
+                    text.append('\r');
+                    break;
+                case 'u':
+                    text.append((char) nextHex(4));
+                    break;
+                case 'x' :
+                    text.append((char) nextHex(2));
+                    break;
+                case 0:
+                    throw syntaxError("Unterminated string");
+                default:
+                    text.append(c);
+                }
+                break;
+            default:
+                if (c == quote) {
+                    return text.toString();
+                }
+                text.append(c);
+            }
+        }
+    }
+
+    private int nextHex(int n) throws JSONException {
+        int result = 0;
+        for (int i = 0; i < n; i++) {
+            final int digit = JSONTokener.dehexchar(nextChar());
+            if (digit < 0) {
+                throw syntaxError("Illegal escape.");
+            }
+            result = (result << 4) | digit;
+        }
+        return result;
+    }
+
+    /**
+     * Get the next char, skipping whitespace and comments (slashslash,
+     * slashstar, and hash).
+     * @return  A character, or 0 if there are no more characters.
+     */
+    private char nextClean() throws JSONException {
+        for (;;) {
+            char c = nextChar();
+            if (c == '/') {
+                switch (nextChar()) {
+                case '/':
+                    do {
+                        c = nextChar();
+                    } while (c != '\n' && c != '\r' && c != 0);
+                    break;
+                case '*':
+                    for (;;) {
+                        c = nextChar();
+                        if (c == 0) {
+                            throw syntaxError("Unclosed comment.");
+                        }
+                        if (c == '*') {
+                            if (nextChar() == '/') {
+                                break;
+                            }
+                            back();
+                        }
+                    }
+                    break;
+                default:
+                    back();
+                    return '/';
+                }
+            } else if (c == '#') {
+                do {
+                    c = nextChar();
+                } while (c != '\n' && c != '\r' && c != 0);
+            } else if (c == 0 || c > ' ') {
+                return c;
+            }
+        }
+    }
+
+    /**
+     * Get the next character.
+     * @return The next character, or 0 past the end of the text.
+     */
+    private char nextChar() throws JSONException {
+        if (position >= limit && !fill()) {
+            eof = true;
+            return 0;
+        }
+        eof = false;
+        return buffer[position++];
+    }
+
+    /**
+     * Back up one character. Backing up past the end of the text is ignored.
+     */
+    private void back() {
+        if (eof) {
+            eof = false;
+        } else if (position > 0) {
+            position -= 1;
+        }
+    }
+
+    private boolean fill() throws JSONException {
+        if (buffer == null) {
+            throw new JSONException("Parser closed");
+        }
+        // keep the last characters for back()
+        final int keep = Math.min(PUSHBACK, limit);
+        System.arraycopy(buffer, limit - keep, buffer, PUSHBACK - keep, keep);
+        offset += limit - PUSHBACK;
+        position = PUSHBACK;
+        limit = PUSHBACK;
+        try {
+            int read;
+            do {
+                read = reader.read(buffer, PUSHBACK, buffer.length - PUSHBACK);
+            } while (read == 0);
+            if (read < 0) {
+                return false;
+            }
+            limit += read;
+            return true;
+        } catch (IOException ioe) {
+            throw new JSONException(ioe);
+        }
+    }
+}
@@ -339,14 +339,26 @@ public class JSONTokener {
         }
         back();
 
-        /*
-         * If it is true, false, or null, return the proper value.
-         */
-
         s = sb.toString().trim();
         if (s.equals("")) {
             throw syntaxError("Missing value.");
         }
+        return stringToValue(s, b);
+    }
+
+
+    /**
+     * Convert unquoted text to the value it stands for: true, false, null, a
+     * number, or else the text itself. Shared with the {@link JSONParser}.
+     * @param s The trimmed, non empty text.
+     * @param b The first character of the text.
+     * @return A Boolean, Double, Integer, Long, String or the JSONObject.NULL object.
+     */
+    static Object stringToValue(String s, char b) {
+        /*
+         * If it is true, false, or null, return the proper value.
+         */
+
         if (s.equalsIgnoreCase("true")) {
             return Boolean.TRUE;
         }
@@ -0,0 +1,445 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.json.io;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Iterator;
+
+import org.apache.sling.commons.json.JSONArray;
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.commons.json.JSONObject;
+import org.apache.sling.commons.json.JSONString;
+
+/**
+ * A streaming generator writing compact JSON text to a {@link Writer}.
+ * <p>
+ * Like the {@link JSONWriter} it provides <code>object</code>,
+ * <code>endObject</code>, <code>array</code>, <code>endArray</code>,
+ * <code>key</code> and <code>value</code> methods which add the commas and
+ * colons and can be cascaded, but it escapes strings directly into a
+ * character buffer instead of creating intermediate strings and has no
+ * nesting limit. JSONObject and JSONArray values are written without
+ * rendering them to strings first.
+ * <p>
+ * The buffer grows with the text up to 8k characters, the buffered text is
+ * written to the writer when the buffer is full, on {@link #flush()} and on
+ * {@link #close()}, which does not close the writer.
+ */
+public class JSONGenerator implements Closeable, Flushable {
+
+    static final int BUFFER_SIZE = 8192;
+
+    // small texts do not need a full buffer
+    private static final int INITIAL_BUFFER_SIZE = 256;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Writer writer;
+
+    private char[] buffer;
+
+    private int length;
+
+    /**
+     * The open scopes: 'a' (array), 'k' (object expecting a key), 'o'
+     * (object expecting a value).
+     */
+    private char[] stack = new char[16];
+
+    private int top;
+
+    /**
+     * The comma flag determines if a comma should be output before the next
+     * value or key.
+     */
+    private boolean comma;
+
+    /**
+     * Make a generator writing to a writer.
+     * @param writer The writer receiving the text.
+     */
+    public JSONGenerator(Writer writer) {
+        this.writer = writer;
+        this.buffer = new char[INITIAL_BUFFER_SIZE];
+    }
+
+    /**
+     * Begin an object, to be balanced by <code>endObject</code>.
+     * @return this
+     * @throws JSONException If the object is started in place of a key.
+     */
+    public JSONGenerator object() throws JSONException {
+        beforeValue();
+        write('{');
+        push('k');
+        return this;
+    }
+
+    /**
+     * End an object.
+     * @return this
+     * @throws JSONException If incorrectly nested.
+     */
+    public JSONGenerator endObject() throws JSONException {
+        return end('k', '}', "Misplaced endObject.");
+    }
+
+    /**
+     * Begin an array, to be balanced by <code>endArray</code>.
+     * @return this
+     * @throws JSONException If the array is started in place of a key.
+     */
+    public JSONGenerator array() throws JSONException {
+        beforeValue();
+        write('[');
+        push('a');
+        return this;
+    }
+
+    /**
+     * End an array.
+     * @return this
+     * @throws JSONException If incorrectly nested.
+     */
+    public JSONGenerator endArray() throws JSONException {
+        return end('a', ']', "Misplaced endArray.");
+    }
+
+    /**
+     * Append a key, associated with the next value.
+     * @param s A key string.
+     * @return this
+     * @throws JSONException If the key is null or out of place.
+     */
+    public JSONGenerator key(String s) throws JSONException {
+        if (s == null) {
+            throw new JSONException("Null key.");
+        }
+        if (top == 0 || stack[top - 1] != 'k') {
+            throw new JSONException("Misplaced key.");
+        }
+        if (comma) {
+            write(',');
+        }
+        quote(s);
+        write(':');
+        stack[top - 1] = 'o';
+        comma = false;
+        return this;
+    }
+
+    /**
+     * Append a string value.
+     * @param s A string, or null.
+     * @return this
+     * @throws JSONException If the value is out of sequence.
+     */
+    public JSONGenerator value(String s) throws JSONException {
+        if (s == null) {
+            return nullValue();
+        }
+        beforeValue();
+        quote(s);
+        return this;
+    }
+
+    /**
+     * Append a boolean value.
+     * @param b A boolean.
+     * @return this
+     * @throws JSONException If the value is out of sequence.
+     */
+    public JSONGenerator value(boolean b) throws JSONException {
+        beforeValue();
+        write(b ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Append a long value.
+     * @param l A long.
+     * @return this
+     * @throws JSONException If the value is out of sequence.
+     */
+    public JSONGenerator value(long l) throws JSONException {
+        beforeValue();
+        write(Long.toString(l));
+        return this;
+    }
+
+    /**
+     * Append a double value.
+     * @param d A double.
+     * @return this
+     * @throws JSONException If the number is not finite or the value is out
+     *  of sequence.
+     */
+    public JSONGenerator value(double d) throws JSONException {
+        return value(Double.valueOf(d));
+    }
+
+    /**
+     * Append the value <code>null</code>.
+     * @return this
+     * @throws JSONException If the value is out of sequence.
+     */
+    public JSONGenerator nullValue() throws JSONException {
+        beforeValue();
+        write("null");
+        return this;
+    }
+
+    /**
+     * Append an object value, rendered like {@link JSONObject#valueToString(Object)}
+     * does. JSONObject and JSONArray values are written member by member.
+     * <p>
+     * Warning: This method assumes that the data structure is acyclical.
+     * @param o The value: null, a Boolean, Number, String, JSONObject,
+     *  JSONArray, JSONString, or an object written as its quoted string
+     *  representation.
+     * @return this
+     * @throws JSONException If the value is or contains an invalid number or
+     *  is out of sequence.
+     */
+    public JSONGenerator value(Object o) throws JSONException {
+        if (o == null || o.equals(null)) {
+            return nullValue();
+        }
+        if (o instanceof JSONObject) {
+            final JSONObject jo = (JSONObject) o;
+            object();
+            final Iterator<String> keys = jo.keys();
+            while (keys.hasNext()) {
+                final String k = keys.next();
+                key(k);
+                value(jo.get(k));
+            }
+            return endObject();
+        }
+        if (o instanceof JSONArray) {
+            final JSONArray ja = (JSONArray) o;
+            array();
+            final int len = ja.length();
+            for (int i = 0; i < len; i++) {
+                value(ja.get(i));
+            }
+            return endArray();
+        }
+        if (o instanceof String) {
+            return value((String) o);
+        }
+        if (o instanceof Boolean) {
+            return value(((Boolean) o).booleanValue());
+        }
+        if (o instanceof Number) {
+            final String s = JSONObject.numberToString((Number) o);
+            beforeValue();
+            write(s);
+            return this;
+        }
+        if (o instanceof JSONString) {
+            final Object s;
+            try {
+                s = ((JSONString) o).toJSONString();
+            } catch (Exception e) {
+                throw new JSONException(e);
+            }
+            if (!(s instanceof String)) {
+                throw new JSONException("Bad value from toJSONString: " + s);
+            }
+            beforeValue();
+            write((String) s);
+            return this;
+        }
+        return value(o.toString());
+    }
+
+    /**
+     * Write the buffered text to the writer and flush the writer.
+     * @throws IOException If the text cannot be written.
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        writer.flush();
+    }
+
+    /**
+     * Write the buffered text to the writer and release the buffer. The
+     * writer is not closed.
+     * @throws IOException If the text cannot be written.
+     */
+    public void close() throws IOException {
+        if (buffer != null) {
+            try {
+                flushBuffer();
+            } finally {
+                buffer = null;
+            }
+        }
+    }
+
+    private void beforeValue() throws JSONException {
+        if (top > 0) {
+            final char scope = stack[top - 1];
+            if (scope == 'k') {
+                throw new JSONException("Value out of sequence.");
+            }
+            if (scope == 'o') {
+                stack[top - 1] = 'k';
+            } else if (comma) {
+                write(',');
+            }
+            comma = true;
+        }
+    }
+
+    private JSONGenerator end(char scope, char c, String message) throws JSONException {
+        if (top == 0 || stack[top - 1] != scope) {
+            throw new JSONException(message);
+        }
+        top -= 1;
+        write(c);
+        comma = true;
+        return this;
+    }
+
+    private void push(char scope) {
+        if (top == stack.length) {
+            final char[] grown = new char[top * 2];
+            System.arraycopy(stack, 0, grown, 0, top);
+            stack = grown;
+        }
+        stack[top] = scope;
+        top += 1;
+        comma = false;
+    }
+
+    /**
+     * Quote a string like {@link JSONRenderer#quote(String)}, directly into
+     * the buffer.
+     */
+    private void quote(String string) throws JSONException {
+        write('"');
+        final int len = string.length();
+        char c = 0;
+        for (int i = 0; i < len; i += 1) {
+            final char b = c;
+            c = string.charAt(i);
+            switch (c) {
+                case '\\':
+                case '"':
+                    write('\\');
+                    write(c);
+                    break;
+                case '/':
+                    if (b == '<') {
+                        write('\\');
+                    }
+                    write(c);
+                    break;
+                case '\b':
+                    write('\\');
+                    write('b');
+                    break;
+                case '\t':
+                    write('\\');
+                    write('t');
+                    break;
+                case '\n':
+                    write('\\');
+                    write('n');
+                    break;
+                case '\f':
+                    write('\\');
+                    write('f');
+                    break;
+                case '\r':
+                    write('\\');
+                    write('r');
+                    break;
+                default:
+                    if (c < ' ' || (c >= '\u0080' && c < '\u00a0') ||
+                            (c >= '\u2000' && c < '\u2100')) {
+                        write('\\');
+                        write('u');
+                        write(HEX[(c >> 12) & 0xf]);
+                        write(HEX[(c >> 8) & 0xf]);
+                        write(HEX[(c >> 4) & 0xf]);
+                        write(HEX[c & 0xf]);
+                    } else {
+                        write(c);
+                    }
+            }
+        }
+        write('"');
+    }
+
+    private void write(char c) throws JSONException {
+        if (length == buffer.length && !grow(1)) {
+            try {
+                flushBuffer();
+            } catch (IOException e) {
+                throw new JSONException(e);
+            }
+        }
+        buffer[length++] = c;
+    }
+
+    private void write(String s) throws JSONException {
+        final int len = s.length();
+        if (length + len > buffer.length && !grow(len)) {
+            try {
+                flushBuffer();
+                if (len > buffer.length) {
+                    writer.write(s);
+                    return;
+                }
+            } catch (IOException e) {
+                throw new JSONException(e);
+            }
+        }
+        s.getChars(0, len, buffer, length);
+        length += len;
+    }
+
+    /**
+     * Grow the buffer up to its maximum size.
+     * @return Whether the given number of characters now fits in the buffer.
+     */
+    private boolean grow(int len) {
+        if (buffer.length >= BUFFER_SIZE) {
+            return false;
+        }
+        final char[] grown = new char[Math.min(BUFFER_SIZE, Math.max(buffer.length * 2, length + len))];
+        System.arraycopy(buffer, 0, grown, 0, length);
+        buffer = grown;
+        return length + len <= buffer.length;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (buffer == null) {
+            throw new IOException("Generator closed");
+        }
+        if (length > 0) {
+            writer.write(buffer, 0, length);
+            length = 0;
+        }
+    }
+}
@@ -523,33 +523,7 @@ public class JSONRenderer {
      * @throws JSONException
      */
     public Writer write(Writer writer, JSONObject jo) throws JSONException {
-       try {
-           boolean  b = false;
-           Iterator<String> keys = jo.keys();
-           writer.write('{');
-
-           while (keys.hasNext()) {
-               if (b) {
-                   writer.write(',');
-               }
-               String k = keys.next();
-               writer.write(quote(k));
-               writer.write(':');
-               final Object v = jo.get(k);
-               if (v instanceof JSONObject) {
-                   ((JSONObject)v).write(writer);
-               } else if (v instanceof JSONArray) {
-                   ((JSONArray)v).write(writer);
-               } else {
-                   writer.write(valueToString(v));
-               }
-               b = true;
-           }
-           writer.write('}');
-           return writer;
-       } catch (IOException e) {
-           throw new JSONException(e);
-       }
+        return write(writer, (Object) jo);
     }
 
     /**
@@ -562,30 +536,24 @@ public class JSONRenderer {
      * @throws JSONException
      */
     public Writer write(Writer writer, JSONArray ja) throws JSONException {
-        try {
-            boolean b = false;
-            int len = ja.length();
-
-            writer.write('[');
+        return write(writer, (Object) ja);
+    }
 
-            for (int i = 0; i < len; i += 1) {
-                if (b) {
-                    writer.write(',');
-                }
-                final Object v = ja.get(i);
-                if (v instanceof JSONObject) {
-                    ((JSONObject)v).write(writer);
-                } else if (v instanceof JSONArray) {
-                    ((JSONArray)v).write(writer);
-                } else {
-                    writer.write(JSONObject.valueToString(v));
-                }
-                b = true;
-            }
-            writer.write(']');
+    /** Write a JSONObject or JSONArray with a {@link JSONGenerator} */
+    private Writer write(Writer writer, Object value) throws JSONException {
+        final JSONGenerator generator = new JSONGenerator(writer);
+        try {
+            generator.value(value);
+            generator.close();
             return writer;
         } catch (IOException e) {
-           throw new JSONException(e);
+            throw new JSONException(e);
+        } finally {
+            try {
+                generator.close();
+            } catch (IOException ignore) {
+                // already failed
+            }
         }
     }
 
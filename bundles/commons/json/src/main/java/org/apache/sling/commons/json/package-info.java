@@ -17,7 +17,7 @@
  * under the License.
  */
 
-@Version("2.0.4")
+@Version("2.1.0")
 package org.apache.sling.commons.json;
 
 import aQute.bnd.annotation.Version;
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.json;
+
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark of parsing and serializing JSON trees of 1, 100 and 10000
+ * members with the {@link JSONTokener} and {@link JSONParser}, and with
+ * {@link JSONObject#toString()} and the {@link org.apache.sling.commons.json.io.JSONGenerator}
+ * behind {@link JSONObject#write(java.io.Writer)}. Run with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=org.apache.sling.commons.json.JSONBenchmark</code>
+ * or from the IDE, add <code>-prof gc</code> to the JMH options to compare
+ * allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JSONBenchmark {
+
+    @Param({ "1", "100", "10000" })
+    public int members;
+
+    private String text;
+
+    private JSONObject tree;
+
+    @Setup
+    public void setup() throws JSONException {
+        tree = new JSONObject();
+        for (int i = 0; i < members; i++) {
+            final JSONObject member = new JSONObject();
+            member.put("jcr:primaryType", "nt:unstructured");
+            member.put("sling:resourceType", "sling/components/page");
+            member.put("title", "Page \"" + i + "\"\twith escapes");
+            member.put("index", i);
+            member.put("ratio", i / 3.0);
+            member.put("hidden", i % 2 == 0);
+            member.put("tags", new JSONArray().put("a").put("b").put("c"));
+            tree.put("page" + i, member);
+        }
+        text = tree.toString();
+    }
+
+    @Benchmark
+    public JSONObject parseTokener() throws JSONException {
+        return new JSONObject(new JSONTokener(text));
+    }
+
+    @Benchmark
+    public JSONObject parseParser() throws JSONException {
+        return new JSONObject(text);
+    }
+
+    @Benchmark
+    public String serializeToString() {
+        return tree.toString();
+    }
+
+    @Benchmark
+    public String serializeGenerator() throws JSONException {
+        return tree.write(new StringWriter()).toString();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(JSONBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.apache.sling.commons.json.JSONParser.Event;
+import org.junit.Test;
+
+public class JSONParserTest {
+
+    @Test
+    public void testEvents() throws JSONException {
+        final JSONParser parser = new JSONParser("{\"a\":[1,true,null,\"x\"],\"b\":{}}");
+        assertEquals(Event.START_OBJECT, parser.next());
+        assertEquals(Event.KEY, parser.next());
+        assertEquals("a", parser.getString());
+        assertEquals(Event.START_ARRAY, parser.next());
+        assertEquals(2, parser.getDepth());
+        assertEquals(Event.VALUE, parser.next());
+        assertEquals(1, parser.getValue());
+        assertEquals(Event.VALUE, parser.next());
+        assertEquals(Boolean.TRUE, parser.getValue());
+        assertEquals(Event.VALUE, parser.next());
+        assertEquals(JSONObject.NULL, parser.getValue());
+        assertEquals(Event.VALUE, parser.next());
+        assertEquals("x", parser.getString());
+        assertEquals(Event.END_ARRAY, parser.next());
+        assertEquals(Event.KEY, parser.next());
+        assertEquals("b", parser.getString());
+        assertEquals(Event.START_OBJECT, parser.next());
+        assertEquals(Event.END_OBJECT, parser.next());
+        assertTrue(parser.hasNext());
+        assertEquals(Event.END_OBJECT, parser.next());
+        assertFalse(parser.hasNext());
+        parser.close();
+    }
+
+    @Test
+    public void testLenientSyntax() throws JSONException {
+        final JSONObject jo = new JSONObject(
+            "// comment\n{a = 1; 'b' => 'two', /* c */ \"c\": [,1,,],# d\n d: 0x1F, e: 012, f: 1.5, g: 12345678901, h: NULL,}");
+        assertEquals(1, jo.get("a"));
+        assertEquals("two", jo.get("b"));
+        final JSONArray c = jo.getJSONArray("c");
+        assertEquals(3, c.length());
+        assertNull(c.opt(0));
+        assertEquals(1, c.get(1));
+        assertNull(c.opt(2));
+        assertEquals(31, jo.get("d"));
+        assertEquals(10, jo.get("e"));
+        assertEquals(1.5, jo.get("f"));
+        assertEquals(12345678901L, jo.get("g"));
+        assertEquals(JSONObject.NULL, jo.get("h"));
+    }
+
+    @Test
+    public void testStrings() throws JSONException {
+        final JSONArray ja = new JSONArray("[\"a\\\"b\\\\c\\/d\\n\\u00e9\\x41\", 'it\\'s', unquoted text ]");
+        assertEquals("a\"b\\c/d\n\u00e9A", ja.get(0));
+        assertEquals("it's", ja.get(1));
+        assertEquals("unquoted text", ja.get(2));
+    }
+
+    @Test
+    public void testSmallReads() throws JSONException {
+        // strings, comments and lookahead spanning buffer refills
+        final StringBuilder sb = new StringBuilder("{\"long\":\"");
+        for (int i = 0; i < JSONParser.BUFFER_SIZE * 2; i++) {
+            sb.append((char) ('a' + i % 26));
+        }
+        sb.append("\", x /* c */ : 1, y => 2}");
+        final String text = sb.toString();
+        final Reader reader = new StringReader(text) {
+            @Override
+            public int read(char[] cbuf, int off, int len) throws java.io.IOException {
+                return super.read(cbuf, off, Math.min(len, 1));
+            }
+        };
+        final JSONObject jo = new JSONObject(new JSONParser(reader));
+        assertEquals(JSONParser.BUFFER_SIZE * 2, jo.getString("long").length());
+        assertEquals(1, jo.get("x"));
+        assertEquals(2, jo.get("y"));
+        assertEquals(new JSONObject(text).toString(), jo.toString());
+    }
+
+    @Test
+    public void testSkipChildren() throws JSONException {
+        final JSONParser parser = new JSONParser("[{\"a\":[1,{\"b\":2}]},3]");
+        assertEquals(Event.START_ARRAY, parser.next());
+        assertEquals(Event.START_OBJECT, parser.next());
+        parser.skipChildren();
+        assertEquals(Event.VALUE, parser.next());
+        assertEquals(3, parser.getValue());
+        parser.skipChildren();
+        assertEquals(Event.END_ARRAY, parser.next());
+    }
+
+    @Test
+    public void testNextValue() throws JSONException {
+        final JSONParser parser = new JSONParser("{\"items\":[{\"a\":1},{\"a\":2}]}");
+        assertEquals(Event.START_OBJECT, parser.next());
+        assertEquals(Event.KEY, parser.next());
+        assertEquals(Event.START_ARRAY, parser.next());
+        assertEquals(1, ((JSONObject) parser.nextValue()).get("a"));
+        assertEquals(2, ((JSONObject) parser.nextValue()).get("a"));
+        assertEquals(Event.END_ARRAY, parser.next());
+    }
+
+    @Test(expected = JSONException.class)
+    public void testUnterminatedObject() throws JSONException {
+        new JSONObject("{\"a\":1");
+    }
+
+    @Test(expected = JSONException.class)
+    public void testUnterminatedString() throws JSONException {
+        new JSONArray("[\"a]");
+    }
+
+    @Test(expected = JSONException.class)
+    public void testNotAnObject() throws JSONException {
+        new JSONObject("[1]");
+    }
+
+    @Test(expected = JSONException.class)
+    public void testMissingValue() throws JSONException {
+        new JSONObject("{\"a\":}");
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.json.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.apache.sling.commons.json.JSONArray;
+import org.apache.sling.commons.json.JSONException;
+import org.apache.sling.commons.json.JSONObject;
+import org.apache.sling.commons.json.JSONString;
+import org.junit.Test;
+
+public class JSONGeneratorTest {
+
+    @Test
+    public void testCascade() throws JSONException, IOException {
+        final StringWriter w = new StringWriter();
+        final JSONGenerator generator = new JSONGenerator(w);
+        generator.object()
+            .key("a").value(1)
+            .key("b").array().value("x").value(true).nullValue().value(1.50).endArray()
+            .key("c").object().endObject()
+            .key("d").value((String) null)
+        .endObject();
+        generator.close();
+        assertEquals("{\"a\":1,\"b\":[\"x\",true,null,1.5],\"c\":{},\"d\":null}", w.toString());
+    }
+
+    @Test
+    public void testQuoting() throws JSONException, IOException {
+        final String s = "q\"b\\</script>\t\u0001\u0085 \u00e9";
+        final StringWriter w = new StringWriter();
+        final JSONGenerator generator = new JSONGenerator(w);
+        generator.array().value(s).endArray();
+        generator.close();
+        assertEquals("[" + new JSONRenderer().quote(s) + "]", w.toString());
+    }
+
+    @Test
+    public void testTree() throws JSONException, IOException {
+        final JSONObject jo = new JSONObject("{\"a\":[1,{\"b\":null}],\"c\":\"d\",\"e\":2.5}");
+        jo.put("f", new JSONString() {
+            public String toJSONString() {
+                return "{\"raw\":true}";
+            }
+        });
+        final StringWriter w = new StringWriter();
+        final JSONGenerator generator = new JSONGenerator(w);
+        generator.value(jo);
+        generator.close();
+        assertEquals("{\"a\":[1,{\"b\":null}],\"c\":\"d\",\"e\":2.5,\"f\":{\"raw\":true}}", w.toString());
+        assertEquals(jo.toString(), w.toString());
+    }
+
+    @Test
+    public void testLargeOutput() throws JSONException, IOException {
+        final JSONArray ja = new JSONArray();
+        for (int i = 0; i < JSONGenerator.BUFFER_SIZE; i++) {
+            ja.put("value " + i);
+        }
+        final StringWriter w = new StringWriter();
+        ja.write(w);
+        assertEquals(ja.toString(), w.toString());
+    }
+
+    @Test(expected = JSONException.class)
+    public void testMisplacedValue() throws JSONException {
+        new JSONGenerator(new StringWriter()).object().value(1);
+    }
+
+    @Test(expected = JSONException.class)
+    public void testMisplacedEnd() throws JSONException {
+        new JSONGenerator(new StringWriter()).array().endObject();
+    }
+
+    @Test(expected = JSONException.class)
+    public void testInvalidNumber() throws JSONException {
+        new JSONGenerator(new StringWriter()).array().value(Double.NaN);
+    }
+}
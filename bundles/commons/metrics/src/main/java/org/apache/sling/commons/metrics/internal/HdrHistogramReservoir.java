@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sling.commons.metrics.internal;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+
+/**
+ * A {@link Reservoir} which records every value of a sliding time window in
+ * HDR histograms instead of sampling them. Unlike the exponentially decaying
+ * reservoir the tail percentiles are never dropped from the sample, they are
+ * reported with the configured number of significant digits for all values
+ * recorded in the window.
+ *
+ * <p>The window is made of {@link #WINDOW_CHUNKS} histograms, each covering
+ * an equal part of the window, so a snapshot covers between the last
+ * <code>(chunks - 1) / chunks</code> of the window and the whole window. The
+ * oldest histogram is reset when the window slides.</p>
+ *
+ * <p>Updates go to a {@link Recorder} and are wait free, the recorded interval
+ * is only moved into the current histogram when the window slides or a
+ * snapshot is taken. The sum of all values recorded since the reservoir was
+ * created is kept for the <code>_sum</code> of Prometheus summaries.</p>
+ */
+final class HdrHistogramReservoir implements Reservoir {
+    static final int WINDOW_CHUNKS = 5;
+
+    private final int significantDigits;
+    private final Recorder recorder;
+    private final org.HdrHistogram.Histogram[] chunks;
+    private final long chunkNanos;
+    private final Clock clock;
+    private final AtomicLong sum = new AtomicLong();
+    private org.HdrHistogram.Histogram interval;
+    private int current;
+    private volatile long nextRotation;
+
+    HdrHistogramReservoir(int significantDigits, long window, TimeUnit windowUnit) {
+        this(significantDigits, window, windowUnit, Clock.defaultClock());
+    }
+
+    HdrHistogramReservoir(int significantDigits, long window, TimeUnit windowUnit, Clock clock) {
+        this.significantDigits = significantDigits;
+        this.recorder = new Recorder(significantDigits);
+        this.interval = recorder.getIntervalHistogram();
+        this.chunks = new org.HdrHistogram.Histogram[WINDOW_CHUNKS];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = new org.HdrHistogram.Histogram(significantDigits);
+        }
+        this.chunkNanos = Math.max(1, windowUnit.toNanos(window) / WINDOW_CHUNKS);
+        this.clock = clock;
+        this.nextRotation = clock.getTick() + chunkNanos;
+    }
+
+    @Override
+    public int size() {
+        return getSnapshot().size();
+    }
+
+    @Override
+    public void update(long value) {
+        final long tick = clock.getTick();
+        if (tick >= nextRotation) {
+            rotate(tick);
+        }
+        final long v = value < 0 ? 0 : value;
+        recorder.recordValue(v);
+        sum.addAndGet(v);
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+        rotate(clock.getTick());
+        collect();
+        final org.HdrHistogram.Histogram window = new org.HdrHistogram.Histogram(significantDigits);
+        for (org.HdrHistogram.Histogram chunk : chunks) {
+            window.add(chunk);
+        }
+        return new HdrSnapshot(window, sum.get());
+    }
+
+    /**
+     * Moves the values recorded so far to the current histogram and resets
+     * the histograms which have left the window.
+     */
+    private synchronized void rotate(long tick) {
+        if (tick < nextRotation) {
+            return;
+        }
+        collect();
+        final long elapsed = (tick - nextRotation) / chunkNanos + 1;
+        for (long i = 0; i < Math.min(elapsed, chunks.length); i++) {
+            current = (current + 1) % chunks.length;
+            chunks[current].reset();
+        }
+        nextRotation += elapsed * chunkNanos;
+    }
+
+    private void collect() {
+        interval = recorder.getIntervalHistogram(interval);
+        chunks[current].add(interval);
+    }
+
+    static final class HdrSnapshot extends Snapshot {
+        /** Maximum number of values returned by {@link #getValues()}, as the exponentially decaying reservoir */
+        static final int MAX_VALUES = 1028;
+
+        private static final Charset UTF_8 = Charset.forName("UTF-8");
+        private final org.HdrHistogram.Histogram histogram;
+        private final long sum;
+
+        HdrSnapshot(org.HdrHistogram.Histogram histogram, long sum) {
+            this.histogram = histogram;
+            this.sum = sum;
+        }
+
+        /**
+         * Returns the sum of all values recorded since the reservoir was
+         * created, not only of the values of the window.
+         */
+        long getSum() {
+            return sum;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            if (quantile < 0.0 || quantile > 1.0 || Double.isNaN(quantile)) {
+                throw new IllegalArgumentException(quantile + " is not in [0..1]");
+            }
+            return histogram.getValueAtPercentile(quantile * 100.0);
+        }
+
+        /**
+         * Returns a sorted sample of at most {@link #MAX_VALUES} values of the
+         * window, evenly spaced by rank, as the number of updates is not
+         * bounded.
+         */
+        @Override
+        public long[] getValues() {
+            final long total = histogram.getTotalCount();
+            final long[] values = new long[size()];
+            int i = 0;
+            long cumulative = 0;
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                cumulative += value.getCountAtValueIteratedTo();
+                while (i < values.length && i * total / values.length < cumulative) {
+                    values[i++] = value.getValueIteratedTo();
+                }
+            }
+            return values;
+        }
+
+        /**
+         * Returns the number of values returned by {@link #getValues()}.
+         */
+        @Override
+        public int size() {
+            return (int) Math.min(histogram.getTotalCount(), MAX_VALUES);
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getMaxValue();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+            final PrintWriter out = new PrintWriter(new OutputStreamWriter(output, UTF_8));
+            try {
+                for (long value : getValues()) {
+                    out.printf("%d%n", value);
+                }
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
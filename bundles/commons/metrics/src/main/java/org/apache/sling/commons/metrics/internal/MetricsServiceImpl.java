@@ -28,11 +28,13 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import javax.management.MBeanServer;
 
 import com.codahale.metrics.JmxReporter;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Reservoir;
 import org.apache.sling.commons.metrics.Meter;
 import org.apache.sling.commons.metrics.MetricsService;
 import org.apache.sling.commons.metrics.Timer;
@@ -47,9 +49,48 @@ import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.component.annotations.ReferenceCardinality;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.osgi.service.metatype.annotations.Option;
 
+@Designate(ocd = MetricsServiceImpl.Config.class)
 @Component(service = {}, immediate = true)
 public class MetricsServiceImpl implements MetricsService {
+
+    @ObjectClassDefinition(name = "Apache Sling Metrics Service",
+            description = "Configures the reservoirs used by the timers and histograms created through the MetricsService")
+    public static @interface Config {
+
+        @AttributeDefinition(name = "Reservoir", description = "Reservoir used for new timers and histograms. The " +
+                "exponentially decaying reservoir keeps a sample biased towards the last five minutes and is cheap " +
+                "but tends to under-report tail latencies. The HDR histogram reservoir records every value of a " +
+                "sliding time window with a fixed relative precision.",
+                options = {
+                        @Option(label = "Exponentially decaying", value = RESERVOIR_EXPONENTIALLY_DECAYING),
+                        @Option(label = "HDR histogram", value = RESERVOIR_HDR)
+                })
+        String reservoir() default RESERVOIR_EXPONENTIALLY_DECAYING;
+
+        @AttributeDefinition(name = "HDR Significant Digits", description = "Number of significant decimal digits " +
+                "kept by the HDR histogram reservoir (0 to 5). Each additional digit increases the memory used per " +
+                "timer and histogram tenfold.")
+        int hdr_significantDigits() default DEFAULT_HDR_SIGNIFICANT_DIGITS;
+
+        @AttributeDefinition(name = "HDR Window", description = "Length in seconds of the sliding time window " +
+                "whose values are reported by the HDR histogram reservoir. The window slides in steps of a fifth " +
+                "of its length.")
+        int hdr_windowSeconds() default DEFAULT_HDR_WINDOW_SECONDS;
+    }
+
+    static final String PROP_RESERVOIR = "reservoir";
+    static final String PROP_HDR_SIGNIFICANT_DIGITS = "hdr.significantDigits";
+    static final String PROP_HDR_WINDOW_SECONDS = "hdr.windowSeconds";
+    static final String RESERVOIR_EXPONENTIALLY_DECAYING = "exponentially_decaying";
+    static final String RESERVOIR_HDR = "hdr";
+    static final int DEFAULT_HDR_SIGNIFICANT_DIGITS = 2;
+    static final int DEFAULT_HDR_WINDOW_SECONDS = 300;
+
     private final List<ServiceRegistration> regs = new ArrayList<>();
     private final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<>();
     private final MetricRegistry registry = new MetricRegistry();
@@ -61,8 +102,16 @@ public class MetricsServiceImpl implements MetricsService {
 
     private JmxReporter reporter;
 
+    /**
+     * Creates the reservoirs of new timers and histograms, <code>null</code>
+     * for the default reservoir of the MetricRegistry
+     */
+    private ReservoirFactory reservoirs;
+
     @Activate
     private void activate(BundleContext context, Map<String, Object> config) {
+        reservoirs = createReservoirFactory(config);
+
         enableJMXReporter();
 
         gaugeManager = new GaugeManager(context, registry, metricsMapper);
@@ -136,7 +185,7 @@ public class MetricsServiceImpl implements MetricsService {
             return (T) metric;
         } else if (metric == null) {
             try {
-                return register(name, builder.newMetric(registry, name));
+                return register(name, builder.newMetric(registry, name, reservoirs));
             } catch (IllegalArgumentException e) {
                 final Metric added = metrics.get(name);
                 if (builder.isInstance(added)) {
@@ -161,7 +210,7 @@ public class MetricsServiceImpl implements MetricsService {
     private interface MetricBuilder<T extends Metric> {
         MetricBuilder<Counter> COUNTERS = new MetricBuilder<Counter>() {
             @Override
-            public Counter newMetric(MetricRegistry registry, String name) {
+            public Counter newMetric(MetricRegistry registry, String name, ReservoirFactory reservoirs) {
                 return new CounterImpl(registry.counter(name));
             }
 
@@ -173,8 +222,12 @@ public class MetricsServiceImpl implements MetricsService {
 
         MetricBuilder<Histogram> HISTOGRAMS = new MetricBuilder<Histogram>() {
             @Override
-            public Histogram newMetric(MetricRegistry registry, String name) {
-                return new HistogramImpl(registry.histogram(name));
+            public Histogram newMetric(MetricRegistry registry, String name, ReservoirFactory reservoirs) {
+                if (reservoirs == null) {
+                    return new HistogramImpl(registry.histogram(name));
+                }
+                return new HistogramImpl(getOrRegister(registry, name, com.codahale.metrics.Histogram.class,
+                        new com.codahale.metrics.Histogram(reservoirs.newReservoir())));
             }
 
             @Override
@@ -185,7 +238,7 @@ public class MetricsServiceImpl implements MetricsService {
 
         MetricBuilder<Meter> METERS = new MetricBuilder<Meter>() {
             @Override
-            public Meter newMetric(MetricRegistry registry, String name) {
+            public Meter newMetric(MetricRegistry registry, String name, ReservoirFactory reservoirs) {
                 return new MeterImpl(registry.meter(name));
             }
 
@@ -197,8 +250,12 @@ public class MetricsServiceImpl implements MetricsService {
 
         MetricBuilder<Timer> TIMERS = new MetricBuilder<Timer>() {
             @Override
-            public Timer newMetric(MetricRegistry registry, String name) {
-                return new TimerImpl(registry.timer(name));
+            public Timer newMetric(MetricRegistry registry, String name, ReservoirFactory reservoirs) {
+                if (reservoirs == null) {
+                    return new TimerImpl(registry.timer(name));
+                }
+                return new TimerImpl(getOrRegister(registry, name, com.codahale.metrics.Timer.class,
+                        new com.codahale.metrics.Timer(reservoirs.newReservoir())));
             }
 
             @Override
@@ -207,11 +264,67 @@ public class MetricsServiceImpl implements MetricsService {
             }
         };
 
-        T newMetric(MetricRegistry registry, String name);
+        T newMetric(MetricRegistry registry, String name, ReservoirFactory reservoirs);
 
         boolean isInstance(Metric metric);
     }
 
+    private interface ReservoirFactory {
+        Reservoir newReservoir();
+    }
+
+    private static ReservoirFactory createReservoirFactory(Map<String, Object> config) {
+        final Object type = config.get(PROP_RESERVOIR);
+        if (!RESERVOIR_HDR.equals(type)) {
+            return null;
+        }
+
+        final int significantDigits = Math.max(0, Math.min(5,
+                toInt(config.get(PROP_HDR_SIGNIFICANT_DIGITS), DEFAULT_HDR_SIGNIFICANT_DIGITS)));
+        final int windowSeconds = Math.max(1, toInt(config.get(PROP_HDR_WINDOW_SECONDS), DEFAULT_HDR_WINDOW_SECONDS));
+        return new ReservoirFactory() {
+            @Override
+            public Reservoir newReservoir() {
+                return new HdrHistogramReservoir(significantDigits, windowSeconds, TimeUnit.SECONDS);
+            }
+        };
+    }
+
+    private static int toInt(Object value, int defaultValue) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        } else if (value != null) {
+            try {
+                return Integer.parseInt(value.toString().trim());
+            } catch (NumberFormatException e) {
+                // keep the default
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Registers the given metric unless the registry already has a metric of the
+     * same type with that name, which is returned instead. This mirrors what
+     * MetricRegistry does for the metrics it creates with its default reservoir.
+     */
+    private static <M extends com.codahale.metrics.Metric> M getOrRegister(MetricRegistry registry, String name,
+                                                                           Class<M> type, M metric) {
+        final com.codahale.metrics.Metric existing = registry.getMetrics().get(name);
+        if (type.isInstance(existing)) {
+            return type.cast(existing);
+        }
+        try {
+            return registry.register(name, metric);
+        } catch (IllegalArgumentException e) {
+            final com.codahale.metrics.Metric added = registry.getMetrics().get(name);
+            if (type.isInstance(added)) {
+                return type.cast(added);
+            }
+            throw e;
+        }
+    }
+
     private void enableJMXReporter() {
         if (server == null){
             server = ManagementFactory.getPlatformMBeanServer();
@@ -0,0 +1,282 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sling.commons.metrics.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.Servlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceReference;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ConfigurationPolicy;
+import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.osgi.util.tracker.ServiceTracker;
+import org.osgi.util.tracker.ServiceTrackerCustomizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves the metrics of all MetricRegistry services in the Prometheus text
+ * exposition format. The registries are streamed to the response as they are
+ * iterated, no intermediate registry or document is built, so that they can be
+ * scraped cheaply every few seconds.
+ *
+ * <ul>
+ *     <li>Counters and gauges with a numeric or boolean value are exposed as gauges</li>
+ *     <li>Meters are exposed as counters with a <code>_total</code> suffix</li>
+ *     <li>Histograms and timers are exposed as summaries, timer values in seconds</li>
+ * </ul>
+ *
+ * Metric names of registries with a name are prefixed with that name, like in the
+ * web console, and all names are reduced to the characters allowed by Prometheus.
+ */
+@Designate(ocd = PrometheusMetricsServlet.Config.class)
+@Component(service = Servlet.class,
+        configurationPolicy = ConfigurationPolicy.REQUIRE,
+        property = {
+                PrometheusMetricsServlet.PROP_SERVLET_PATTERN + "=" + PrometheusMetricsServlet.DEFAULT_SERVLET_PATTERN,
+                Constants.SERVICE_DESCRIPTION + "=Apache Sling Metrics Prometheus Exporter",
+                Constants.SERVICE_VENDOR + "=The Apache Software Foundation"
+        }
+)
+public class PrometheusMetricsServlet extends HttpServlet implements
+        ServiceTrackerCustomizer<MetricRegistry, MetricRegistry> {
+
+    @ObjectClassDefinition(name = "Apache Sling Metrics Prometheus Exporter",
+            description = "Exposes the metrics of all MetricRegistry services in the Prometheus text format " +
+                    "through the OSGi Http Whiteboard")
+    public static @interface Config {
+
+        @AttributeDefinition(name = "Servlet Pattern", description = "Http Whiteboard servlet pattern under " +
+                "which the metrics are served")
+        String osgi_http_whiteboard_servlet_pattern() default DEFAULT_SERVLET_PATTERN;
+    }
+
+    static final String PROP_SERVLET_PATTERN = "osgi.http.whiteboard.servlet.pattern";
+    static final String DEFAULT_SERVLET_PATTERN = "/metrics";
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.98, 0.99, 0.999};
+    private static final String[] QUANTILE_LABELS = {
+            "{quantile=\"0.5\"}", "{quantile=\"0.75\"}", "{quantile=\"0.95\"}",
+            "{quantile=\"0.98\"}", "{quantile=\"0.99\"}", "{quantile=\"0.999\"}"
+    };
+    private static final double SECONDS_PER_NANO = 1.0 / TimeUnit.SECONDS.toNanos(1);
+
+    private final Logger log = LoggerFactory.getLogger(getClass());
+    private BundleContext context;
+    private ServiceTracker<MetricRegistry, MetricRegistry> tracker;
+    private final ConcurrentMap<ServiceReference, MetricRegistry> registries
+            = new ConcurrentHashMap<>();
+
+    @Activate
+    private void activate(BundleContext context) {
+        this.context = context;
+        tracker = new ServiceTracker<>(context, MetricRegistry.class, this);
+        tracker.open();
+    }
+
+    @Deactivate
+    private void deactivate() {
+        tracker.close();
+    }
+
+    //~---------------------------------------------< ServiceTracker >
+
+    @Override
+    public MetricRegistry addingService(ServiceReference<MetricRegistry> serviceReference) {
+        MetricRegistry registry = context.getService(serviceReference);
+        registries.put(serviceReference, registry);
+        return registry;
+    }
+
+    @Override
+    public void modifiedService(ServiceReference<MetricRegistry> serviceReference, MetricRegistry registry) {
+        registries.put(serviceReference, registry);
+    }
+
+    @Override
+    public void removedService(ServiceReference<MetricRegistry> serviceReference, MetricRegistry registry) {
+        registries.remove(serviceReference);
+        context.ungetService(serviceReference);
+    }
+
+    //~----------------------------------------------< Servlet >
+
+    @Override
+    protected void doGet(final HttpServletRequest req, final HttpServletResponse resp) throws IOException {
+        resp.setContentType(CONTENT_TYPE);
+        final Writer out = resp.getWriter();
+        write(out);
+        out.flush();
+    }
+
+    void write(Writer out) throws IOException {
+        final Set<String> written = new HashSet<>();
+        for (Map.Entry<ServiceReference, MetricRegistry> registryEntry : registries.entrySet()) {
+            final Object registryName = registryEntry.getKey().getProperty(MetricWebConsolePlugin.METRIC_REGISTRY_NAME);
+            for (Map.Entry<String, Metric> metricEntry : registryEntry.getValue().getMetrics().entrySet()) {
+                String metricName = metricEntry.getKey();
+                if (registryName != null) {
+                    metricName = registryName + ":" + metricName;
+                }
+                final String name = sanitize(metricName);
+                if (!written.add(name)) {
+                    log.debug("Duplicate Metric name found {}", metricName);
+                    continue;
+                }
+                writeMetric(out, name, metricEntry.getValue());
+            }
+        }
+    }
+
+    private static void writeMetric(Writer out, String name, Metric metric) throws IOException {
+        if (metric instanceof Counter) {
+            type(out, name, "gauge");
+            sample(out, name, null, ((Counter) metric).getCount());
+        } else if (metric instanceof Gauge) {
+            final Object value = ((Gauge) metric).getValue();
+            if (value instanceof Number) {
+                type(out, name, "gauge");
+                sample(out, name, null, ((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                type(out, name, "gauge");
+                sample(out, name, null, (Boolean) value ? 1 : 0);
+            }
+        } else if (metric instanceof Meter) {
+            final String total = name + "_total";
+            type(out, total, "counter");
+            sample(out, total, null, ((Meter) metric).getCount());
+        } else if (metric instanceof Timer) {
+            final Timer timer = (Timer) metric;
+            summary(out, name, timer.getSnapshot(), timer.getCount(), SECONDS_PER_NANO);
+        } else if (metric instanceof Histogram) {
+            final Histogram histogram = (Histogram) metric;
+            summary(out, name, histogram.getSnapshot(), histogram.getCount(), 1.0);
+        }
+    }
+
+    private static void summary(Writer out, String name, Snapshot snapshot, long count, double factor)
+            throws IOException {
+        type(out, name, "summary");
+        for (int i = 0; i < QUANTILES.length; i++) {
+            sample(out, name, QUANTILE_LABELS[i], snapshot.getValue(QUANTILES[i]) * factor);
+        }
+        sample(out, name + "_sum", null, getSum(snapshot, count) * factor);
+        sample(out, name + "_count", null, count);
+    }
+
+    /**
+     * Returns the sum of all recorded values. It is only known for the HDR
+     * histogram reservoir, for other reservoirs it is estimated from the
+     * mean of their sample.
+     */
+    private static double getSum(Snapshot snapshot, long count) {
+        if (snapshot instanceof HdrHistogramReservoir.HdrSnapshot) {
+            return ((HdrHistogramReservoir.HdrSnapshot) snapshot).getSum();
+        }
+        return snapshot.getMean() * count;
+    }
+
+    private static void type(Writer out, String name, String type) throws IOException {
+        out.write("# TYPE ");
+        out.write(name);
+        out.write(' ');
+        out.write(type);
+        out.write('\n');
+    }
+
+    private static void sample(Writer out, String name, String labels, long value) throws IOException {
+        out.write(name);
+        if (labels != null) {
+            out.write(labels);
+        }
+        out.write(' ');
+        out.write(Long.toString(value));
+        out.write('\n');
+    }
+
+    private static void sample(Writer out, String name, String labels, double value) throws IOException {
+        out.write(name);
+        if (labels != null) {
+            out.write(labels);
+        }
+        out.write(' ');
+        if (Double.isNaN(value)) {
+            out.write("NaN");
+        } else if (Double.isInfinite(value)) {
+            out.write(value > 0 ? "+Inf" : "-Inf");
+        } else {
+            out.write(Double.toString(value));
+        }
+        out.write('\n');
+    }
+
+    /**
+     * Replaces all characters which are not allowed in Prometheus metric names
+     * with an underscore.
+     */
+    static String sanitize(String name) {
+        StringBuilder sb = null;
+        for (int i = 0; i < name.length(); i++) {
+            final char c = name.charAt(i);
+            final boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_'
+                    || (c >= '0' && c <= '9' && i > 0);
+            if (!valid && sb == null) {
+                sb = new StringBuilder(name.length() + 1);
+                sb.append(name, 0, i);
+            }
+            if (sb != null) {
+                if (valid) {
+                    sb.append(c);
+                } else if (i == 0 && c >= '0' && c <= '9') {
+                    sb.append('_').append(c);
+                } else {
+                    sb.append('_');
+                }
+            }
+        }
+        return sb == null ? name : sb.toString();
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sling.commons.metrics.internal;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Snapshot;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HdrHistogramReservoirTest {
+    private final ManualClock clock = new ManualClock();
+
+    @Test
+    public void percentiles() throws Exception{
+        HdrHistogramReservoir reservoir = newReservoir(3);
+        for (int i = 1; i <= 10000; i++) {
+            reservoir.update(i);
+        }
+
+        Snapshot s = reservoir.getSnapshot();
+        assertEquals(HdrHistogramReservoir.HdrSnapshot.MAX_VALUES, s.size());
+        assertEquals(1, s.getMin());
+        assertEquals(10000, s.getMax(), 10);
+        assertEquals(5000.5, s.getMean(), 5);
+        assertEquals(5000, s.getMedian(), 5);
+        assertEquals(9990, s.get999thPercentile(), 10);
+    }
+
+    @Test
+    public void tailIsKept() throws Exception{
+        HdrHistogramReservoir reservoir = newReservoir(2);
+        reservoir.update(1000000);
+        for (int i = 0; i < 100000; i++) {
+            reservoir.update(10);
+        }
+
+        Snapshot s = reservoir.getSnapshot();
+        assertEquals(1000000, s.getMax(), 10000);
+        assertEquals(10, s.get99thPercentile(), 0);
+    }
+
+    @Test
+    public void snapshotsAccumulate() throws Exception{
+        HdrHistogramReservoir reservoir = newReservoir(2);
+        reservoir.update(5);
+        assertEquals(1, reservoir.getSnapshot().size());
+
+        reservoir.update(7);
+        reservoir.update(-1);
+        Snapshot s = reservoir.getSnapshot();
+        assertEquals(3, s.size());
+        assertEquals(0, s.getMin());
+        assertEquals(3, reservoir.size());
+        assertEquals(12, ((HdrHistogramReservoir.HdrSnapshot) s).getSum());
+    }
+
+    @Test
+    public void slidingWindow() throws Exception{
+        // window of 50s made of 10s chunks
+        HdrHistogramReservoir reservoir = newReservoir(2);
+        reservoir.update(100);
+        clock.advance(30);
+        reservoir.update(5);
+        assertEquals(100, reservoir.getSnapshot().getMax(), 1);
+
+        // the chunk of the first value has left the window
+        clock.advance(25);
+        Snapshot s = reservoir.getSnapshot();
+        assertEquals(1, s.size());
+        assertEquals(5, s.getMax());
+        assertEquals(105, ((HdrHistogramReservoir.HdrSnapshot) s).getSum());
+
+        clock.advance(200);
+        s = reservoir.getSnapshot();
+        assertEquals(0, s.size());
+        assertEquals(0, s.getMax());
+        assertEquals(105, ((HdrHistogramReservoir.HdrSnapshot) s).getSum());
+    }
+
+    @Test
+    public void values() throws Exception{
+        HdrHistogramReservoir reservoir = newReservoir(2);
+        reservoir.update(3);
+        reservoir.update(3);
+        reservoir.update(42);
+
+        Snapshot s = reservoir.getSnapshot();
+        assertArrayEquals(new long[]{3, 3, 42}, s.getValues());
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        s.dump(out);
+        assertTrue(out.toString("UTF-8").contains("42"));
+    }
+
+    @Test
+    public void sampledValues() throws Exception{
+        HdrHistogramReservoir reservoir = newReservoir(3);
+        for (int i = 1; i <= 10000; i++) {
+            reservoir.update(i);
+        }
+
+        Snapshot s = reservoir.getSnapshot();
+        long[] values = s.getValues();
+        assertEquals(s.size(), values.length);
+        assertEquals(1, values[0]);
+        for (int i = 1; i < values.length; i++) {
+            assertTrue(values[i] >= values[i - 1]);
+        }
+        assertEquals(10000, values[values.length - 1], 20);
+        assertEquals(5000, values[values.length / 2], 20);
+    }
+
+    @Test
+    public void emptySnapshot() throws Exception{
+        Snapshot s = newReservoir(2).getSnapshot();
+        assertEquals(0, s.size());
+        assertEquals(0, s.getMax());
+        assertEquals(0, s.getValue(0.99), 0);
+        assertEquals(0, s.getValues().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidQuantile() throws Exception{
+        newReservoir(2).getSnapshot().getValue(1.5);
+    }
+
+    private HdrHistogramReservoir newReservoir(int significantDigits) {
+        return new HdrHistogramReservoir(significantDigits, 50, TimeUnit.SECONDS, clock);
+    }
+
+    private static class ManualClock extends Clock {
+        private long tick;
+
+        void advance(long seconds) {
+            tick += TimeUnit.SECONDS.toNanos(seconds);
+        }
+
+        @Override
+        public long getTick() {
+            return tick;
+        }
+    }
+}
@@ -46,6 +46,7 @@ import org.osgi.framework.ServiceRegistration;
 
 import static org.apache.sling.commons.metrics.internal.BundleMetricsMapper.JMX_TYPE_METRICS;
 import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.not;
 import static org.junit.Assert.assertEquals;
@@ -126,6 +127,35 @@ public class MetricServiceTest {
         assertSame(histo, service.histogram("test"));
     }
 
+    @Test
+    public void hdrReservoir() throws Exception{
+        MockOsgi.activate(service, context.bundleContext(),
+                MapUtil.toMap(MetricsServiceImpl.PROP_RESERVOIR, MetricsServiceImpl.RESERVOIR_HDR));
+        Timer timer = service.timer("test");
+        Histogram histo = service.histogram("test2");
+
+        com.codahale.metrics.Timer t = timer.adaptTo(com.codahale.metrics.Timer.class);
+        assertSame(t, getRegistry().getTimers().get("test"));
+        assertThat(t.getSnapshot(), instanceOf(HdrHistogramReservoir.HdrSnapshot.class));
+
+        com.codahale.metrics.Histogram h = histo.adaptTo(com.codahale.metrics.Histogram.class);
+        assertSame(h, getRegistry().getHistograms().get("test2"));
+        h.update(743);
+        assertEquals(743, h.getSnapshot().getMax(), 10);
+
+        assertSame(timer, service.timer("test"));
+    }
+
+    @Test
+    public void hdrReservoirExistingMetric() throws Exception{
+        MockOsgi.activate(service, context.bundleContext(),
+                MapUtil.toMap(MetricsServiceImpl.PROP_RESERVOIR, MetricsServiceImpl.RESERVOIR_HDR));
+        com.codahale.metrics.Timer existing = getRegistry().timer("test");
+
+        Timer timer = service.timer("test");
+        assertSame(existing, timer.adaptTo(com.codahale.metrics.Timer.class));
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void sameNameDifferentTypeMetric() throws Exception{
         activate();
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.sling.commons.metrics.internal;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import org.apache.sling.testing.mock.osgi.MockOsgi;
+import org.apache.sling.testing.mock.osgi.junit.OsgiContext;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PrometheusMetricsServletTest {
+    @Rule
+    public final OsgiContext context = new OsgiContext();
+
+    private PrometheusMetricsServlet servlet = new PrometheusMetricsServlet();
+
+    private static Map<String, Object> regProps(String name) {
+        Map<String, Object> props = new HashMap<String, Object>();
+        props.put("name", name);
+        return props;
+    }
+
+    @Test
+    public void exposition() throws Exception {
+        MetricRegistry reg1 = new MetricRegistry();
+        reg1.counter("test.counter").inc(9);
+        reg1.meter("test-meter").mark(5);
+        reg1.timer("test.timer").update(250, TimeUnit.MILLISECONDS);
+        reg1.histogram("test.histogram").update(743);
+        Histogram hdr = reg1.register("test.hdr", new Histogram(new HdrHistogramReservoir(2, 60, TimeUnit.SECONDS)));
+        hdr.update(10);
+        hdr.update(21);
+        reg1.register("test.gauge", new Gauge<Integer>() {
+            @Override
+            public Integer getValue() {
+                return 42;
+            }
+        });
+        reg1.register("test.text", new Gauge<String>() {
+            @Override
+            public String getValue() {
+                return "foo";
+            }
+        });
+        context.registerService(MetricRegistry.class, reg1);
+
+        activateServlet();
+
+        String out = get();
+
+        assertThat(out, containsString("# TYPE test_counter gauge\ntest_counter 9\n"));
+        assertThat(out, containsString("# TYPE test_meter_total counter\ntest_meter_total 5\n"));
+        assertThat(out, containsString("# TYPE test_timer summary\n"));
+        assertThat(out, containsString("test_timer{quantile=\"0.99\"} 0.25\n"));
+        assertThat(out, containsString("test_timer_sum 0.25\n"));
+        assertThat(out, containsString("test_timer_count 1\n"));
+        assertThat(out, containsString("test_histogram{quantile=\"0.5\"} 743.0\n"));
+        assertThat(out, containsString("test_histogram_sum 743.0\n"));
+        assertThat(out, containsString("test_histogram_count 1\n"));
+        assertThat(out, containsString("test_hdr_sum 31.0\ntest_hdr_count 2\n"));
+        assertThat(out, containsString("# TYPE test_gauge gauge\ntest_gauge 42.0\n"));
+        assertThat(out, not(containsString("test_text")));
+    }
+
+    @Test
+    public void registryNames() throws Exception {
+        MetricRegistry reg1 = new MetricRegistry();
+        reg1.counter("test1").inc();
+        context.registerService(MetricRegistry.class, reg1, regProps("foo"));
+
+        MetricRegistry reg2 = new MetricRegistry();
+        reg2.counter("test1").inc();
+        context.registerService(MetricRegistry.class, reg2, regProps("foo"));
+
+        activateServlet();
+
+        String out = get();
+        assertEquals(out.indexOf("foo_test1 1"), out.lastIndexOf("foo_test1 1"));
+        assertThat(out, containsString("foo_test1 1\n"));
+    }
+
+    @Test
+    public void sanitize() throws Exception {
+        assertEquals("foo_bar", PrometheusMetricsServlet.sanitize("foo_bar"));
+        assertEquals("foo_bar_baz", PrometheusMetricsServlet.sanitize("foo:bar.baz"));
+        assertEquals("_1foo", PrometheusMetricsServlet.sanitize("1foo"));
+        assertEquals("foo1", PrometheusMetricsServlet.sanitize("foo1"));
+    }
+
+    private String get() throws Exception {
+        StringWriter sw = new StringWriter();
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getWriter()).thenReturn(new PrintWriter(sw));
+
+        servlet.doGet(mock(HttpServletRequest.class), response);
+
+        verify(response).setContentType(PrometheusMetricsServlet.CONTENT_TYPE);
+        return sw.toString();
+    }
+
+    private void activateServlet() {
+        MockOsgi.activate(servlet, context.bundleContext(), Collections.<String, Object>emptyMap());
+    }
+}
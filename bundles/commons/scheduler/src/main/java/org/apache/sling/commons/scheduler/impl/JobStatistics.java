@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.scheduler.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Run time statistics of executed jobs, collected per job type
+ * (the class name of the job object).
+ */
+public class JobStatistics {
+
+    private final ConcurrentMap<String, Counters> counters = new ConcurrentHashMap<String, Counters>();
+
+    /**
+     * Record a job execution.
+     * @param type The job type
+     * @param durationNanos The execution time in nanoseconds
+     * @param failed Whether the job threw an exception
+     */
+    public void record(final String type, final long durationNanos, final boolean failed) {
+        Counters c = this.counters.get(type);
+        if ( c == null ) {
+            final Counters newCounters = new Counters();
+            c = this.counters.putIfAbsent(type, newCounters);
+            if ( c == null ) {
+                c = newCounters;
+            }
+        }
+        c.record(durationNanos, failed);
+    }
+
+    /**
+     * Get a snapshot of the statistics of all job types, the most
+     * expensive type (by total execution time) first.
+     * @return The list of entries
+     */
+    public List<Entry> getEntries() {
+        final List<Entry> result = new ArrayList<Entry>();
+        for(final Map.Entry<String, Counters> e : this.counters.entrySet()) {
+            final Counters c = e.getValue();
+            result.add(new Entry(e.getKey(), c.runs.get(), c.failures.get(), c.totalNanos.get(), c.maxNanos.get()));
+        }
+        Collections.sort(result, new Comparator<Entry>() {
+
+            @Override
+            public int compare(final Entry o1, final Entry o2) {
+                if ( o1.totalNanos != o2.totalNanos ) {
+                    return o1.totalNanos < o2.totalNanos ? 1 : -1;
+                }
+                return o1.type.compareTo(o2.type);
+            }
+        });
+        return result;
+    }
+
+    private static final class Counters {
+
+        final AtomicLong runs = new AtomicLong();
+
+        final AtomicLong failures = new AtomicLong();
+
+        final AtomicLong totalNanos = new AtomicLong();
+
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void record(final long durationNanos, final boolean failed) {
+            this.runs.incrementAndGet();
+            if ( failed ) {
+                this.failures.incrementAndGet();
+            }
+            this.totalNanos.addAndGet(durationNanos);
+            long max = this.maxNanos.get();
+            while ( durationNanos > max && !this.maxNanos.compareAndSet(max, durationNanos) ) {
+                max = this.maxNanos.get();
+            }
+        }
+    }
+
+    /**
+     * Statistics of a single job type.
+     */
+    public static final class Entry {
+
+        private final String type;
+
+        private final long runs;
+
+        private final long failures;
+
+        private final long totalNanos;
+
+        private final long maxNanos;
+
+        Entry(final String type, final long runs, final long failures, final long totalNanos, final long maxNanos) {
+            this.type = type;
+            this.runs = runs;
+            this.failures = failures;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public String getType() {
+            return this.type;
+        }
+
+        public long getRuns() {
+            return this.runs;
+        }
+
+        public long getFailures() {
+            return this.failures;
+        }
+
+        /** Total execution time in milliseconds. */
+        public long getTotalTime() {
+            return this.totalNanos / 1000000;
+        }
+
+        /** Maximum execution time in milliseconds. */
+        public long getMaxTime() {
+            return this.maxNanos / 1000000;
+        }
+
+        /** Average execution time in milliseconds. */
+        public long getAverageTime() {
+            return this.runs == 0 ? 0 : this.totalNanos / this.runs / 1000000;
+        }
+    }
+}
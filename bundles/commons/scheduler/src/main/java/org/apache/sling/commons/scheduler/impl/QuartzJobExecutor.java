@@ -52,8 +52,16 @@ public class QuartzJobExecutor implements Job {
      * @see org.quartz.Job#execute(org.quartz.JobExecutionContext)
      */
     public void execute(final JobExecutionContext context) throws JobExecutionException {
+        this.execute(context.getJobDetail().getJobDataMap());
+    }
 
-        final JobDataMap data = context.getJobDetail().getJobDataMap();
+    /**
+     * Execute the job described by the data map. This is shared by
+     * the quartz and the timing wheel engine.
+     * @param data The job data map
+     * @throws JobExecutionException
+     */
+    void execute(final JobDataMap data) throws JobExecutionException {
         final Object job = data.get(QuartzScheduler.DATA_MAP_OBJECT);
         final Logger logger = (Logger)data.get(QuartzScheduler.DATA_MAP_LOGGER);
 
@@ -103,7 +111,10 @@ public class QuartzJobExecutor implements Job {
         }
 
         final String name = (String) data.get(QuartzScheduler.DATA_MAP_NAME);
+        final JobStatistics statistics = (JobStatistics) data.get(QuartzScheduler.DATA_MAP_STATISTICS);
         String origThreadName = Thread.currentThread().getName();
+        final long start = System.nanoTime();
+        boolean failed = true;
         try {
             Thread.currentThread().setName(origThreadName + "-" + name);
 
@@ -119,6 +130,7 @@ public class QuartzJobExecutor implements Job {
             } else {
                 logger.error("Scheduled job {} is neither a job nor a runnable.", job);
             }
+            failed = false;
         } catch (final Throwable t) {
             // if this is a quartz exception, rethrow it
             if (t instanceof JobExecutionException) {
@@ -128,6 +140,9 @@ public class QuartzJobExecutor implements Job {
             logger.error("Exception during job execution of " + job + " : " + t.getMessage(), t);
         } finally {
             Thread.currentThread().setName(origThreadName);
+            if ( statistics != null && job != null ) {
+                statistics.record(job.getClass().getName(), System.nanoTime() - start, failed);
+            }
         }
     }
 
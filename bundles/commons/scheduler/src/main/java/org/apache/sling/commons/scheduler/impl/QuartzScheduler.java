@@ -20,16 +20,15 @@ import java.io.Serializable;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.Set;
 import java.util.UUID;
 
 import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.PropertyOption;
 import org.apache.felix.scr.annotations.PropertyUnbounded;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
@@ -44,13 +43,11 @@ import org.quartz.CronScheduleBuilder;
 import org.quartz.JobBuilder;
 import org.quartz.JobDataMap;
 import org.quartz.JobDetail;
-import org.quartz.JobKey;
 import org.quartz.SchedulerException;
 import org.quartz.SimpleScheduleBuilder;
 import org.quartz.SimpleTrigger;
 import org.quartz.Trigger;
 import org.quartz.TriggerBuilder;
-import org.quartz.impl.matchers.GroupMatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -86,6 +83,15 @@ public class QuartzScheduler implements BundleListener {
     /** Map key for the bundle information (Long). */
     static final String DATA_MAP_SERVICE_ID = "QuartzJobScheduler.serviceId";
 
+    /** Map key for the job statistics. */
+    static final String DATA_MAP_STATISTICS = "QuartzJobScheduler.statistics";
+
+    static final String ENGINE_QUARTZ = "quartz";
+
+    static final String ENGINE_TIMING_WHEEL = "timingwheel";
+
+    private static final long DEFAULT_TIMING_WHEEL_TICK = 50;
+
     @Property(label="Thread Pool Name",
             description="The name of a configured thread pool - if no name is configured " +
                         "the default pool is used.")
@@ -97,6 +103,20 @@ public class QuartzScheduler implements BundleListener {
              unbounded=PropertyUnbounded.ARRAY)
     private static final String PROPERTY_ALLOWED_POOLS = "allowedPoolNames";
 
+    @Property(label="Scheduler Engine",
+            description="The engine used to fire jobs. Quartz is the default, the hashed timing " +
+                        "wheel avoids the quartz trigger lock if many short period jobs are scheduled.",
+            value=ENGINE_QUARTZ,
+            options={@PropertyOption(name=ENGINE_QUARTZ, value="Quartz"),
+                     @PropertyOption(name=ENGINE_TIMING_WHEEL, value="Hashed Timing Wheel")})
+    private static final String PROPERTY_ENGINE = "engine";
+
+    @Property(label="Timing Wheel Tick",
+            description="The duration of a tick of the timing wheel in milliseconds. " +
+                        "This is only used by the timing wheel engine.",
+            longValue=DEFAULT_TIMING_WHEEL_TICK)
+    private static final String PROPERTY_TIMING_WHEEL_TICK = "timingWheelTick";
+
     /** Default logger. */
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
@@ -112,6 +132,11 @@ public class QuartzScheduler implements BundleListener {
 
     private volatile boolean active;
 
+    /** The tick of the timing wheel or 0 if quartz is used. */
+    private volatile long timingWheelTick;
+
+    private final JobStatistics statistics = new JobStatistics();
+
     /**
      * Activate this component.
      * Start the scheduler.
@@ -145,6 +170,20 @@ public class QuartzScheduler implements BundleListener {
                 }
             }
         }
+        if ( ENGINE_TIMING_WHEEL.equals(props.get(PROPERTY_ENGINE)) ) {
+            final Object tick = props.get(PROPERTY_TIMING_WHEEL_TICK);
+            long tickValue = DEFAULT_TIMING_WHEEL_TICK;
+            if ( tick != null ) {
+                try {
+                    tickValue = Long.parseLong(tick.toString().trim());
+                } catch (final NumberFormatException nfe) {
+                    logger.warn("Invalid timing wheel tick {}, using default {}", tick, DEFAULT_TIMING_WHEEL_TICK);
+                }
+            }
+            this.timingWheelTick = tickValue > 0 ? tickValue : DEFAULT_TIMING_WHEEL_TICK;
+        } else {
+            this.timingWheelTick = 0;
+        }
         ctx.addBundleListener(this);
 
         this.active = true;
@@ -196,7 +235,7 @@ public class QuartzScheduler implements BundleListener {
             if ( this.active ) {
                 proxy = this.schedulers.get(poolName);
                 if ( proxy == null ) {
-                    proxy = new SchedulerProxy(this.threadPoolManager, poolName);
+                    proxy = new SchedulerProxy(this.threadPoolManager, poolName, this.timingWheelTick);
                     this.schedulers.put(poolName, proxy);
                 }
             }
@@ -223,22 +262,15 @@ public class QuartzScheduler implements BundleListener {
             for(final SchedulerProxy proxy : proxies.values()) {
                 synchronized ( proxy ) {
                     try {
-                        final List<String> groups = proxy.getScheduler().getJobGroupNames();
-                        for(final String group : groups) {
-                            final Set<JobKey> keys = proxy.getScheduler().getJobKeys(GroupMatcher.jobGroupEquals(group));
-                            for(final JobKey key : keys) {
-                                final JobDetail detail = proxy.getScheduler().getJobDetail(key);
-                                if ( detail != null ) {
-                                    final String jobName = (String) detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_NAME);
-                                    final Object job = detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_OBJECT);
-
-                                    if ( jobName != null && job != null ) {
-                                        final Long jobBundleId = (Long) detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_BUNDLE_ID);
-                                        if ( jobBundleId != null && jobBundleId.equals(bundleId) ) {
-                                            proxy.getScheduler().deleteJob(key);
-                                            this.logger.debug("Unscheduling job with name {}", jobName);
-                                        }
-                                    }
+                        for(final JobDetail detail : proxy.getJobDetails()) {
+                            final String jobName = (String) detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_NAME);
+                            final Object job = detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_OBJECT);
+
+                            if ( jobName != null && job != null ) {
+                                final Long jobBundleId = (Long) detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_BUNDLE_ID);
+                                if ( jobBundleId != null && jobBundleId.equals(bundleId) ) {
+                                    proxy.deleteJob(detail.getKey().getName());
+                                    this.logger.debug("Unscheduling job with name {}", jobName);
                                 }
                             }
                         }
@@ -270,6 +302,7 @@ public class QuartzScheduler implements BundleListener {
 
         jobDataMap.put(DATA_MAP_NAME, jobName);
         jobDataMap.put(DATA_MAP_LOGGER, this.logger);
+        jobDataMap.put(DATA_MAP_STATISTICS, this.statistics);
         if ( bundleId != null ) {
             jobDataMap.put(DATA_MAP_BUNDLE_ID, bundleId);
         }
@@ -440,10 +473,7 @@ public class QuartzScheduler implements BundleListener {
         for(final SchedulerProxy proxy : proxies.values()) {
             synchronized ( proxy ) {
                 try {
-                    final JobKey key = JobKey.jobKey(jobName);
-                    final JobDetail jobdetail = proxy.getScheduler().getJobDetail(key);
-                    if (jobdetail != null) {
-                        proxy.getScheduler().deleteJob(key);
+                    if ( proxy.deleteJob(jobName) ) {
                         this.logger.debug("Unscheduling job with name {}", jobName);
                         return;
                     }
@@ -564,10 +594,7 @@ public class QuartzScheduler implements BundleListener {
             for(final SchedulerProxy proxy : proxies.values()) {
                 synchronized ( proxy ) {
                     try {
-                        final JobKey key = JobKey.jobKey(jobName);
-                        final JobDetail jobdetail = proxy.getScheduler().getJobDetail(key);
-                        if (jobdetail != null) {
-                            proxy.getScheduler().deleteJob(key);
+                        if ( proxy.deleteJob(jobName) ) {
                             this.logger.debug("Unscheduling job with name {}", jobName);
                             return true;
                         }
@@ -623,7 +650,7 @@ public class QuartzScheduler implements BundleListener {
             final JobDetail detail = this.createJobDetail(name, jobDataMap, opts.canRunConcurrently);
 
             this.logger.debug("Scheduling job {} with name {} and trigger {}", new Object[] {job, name, trigger});
-            proxy.getScheduler().scheduleJob(detail, trigger);
+            proxy.scheduleJob(detail, trigger);
         }
     }
 
@@ -636,4 +663,12 @@ public class QuartzScheduler implements BundleListener {
             return new HashMap<String, SchedulerProxy>(this.schedulers);
         }
     }
+
+    /**
+     * This is used by the web console plugin
+     * @return The run time statistics of the executed jobs
+     */
+    JobStatistics getStatistics() {
+        return this.statistics;
+    }
 }
@@ -16,19 +16,26 @@
  */
 package org.apache.sling.commons.scheduler.impl;
 
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
 
 import org.apache.sling.commons.threads.ThreadPool;
 import org.apache.sling.commons.threads.ThreadPoolManager;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
 import org.quartz.SchedulerException;
+import org.quartz.Trigger;
 import org.quartz.impl.DirectSchedulerFactory;
+import org.quartz.impl.matchers.GroupMatcher;
 import org.quartz.simpl.RAMJobStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * A per thread pool quartz scheduler
+ * A per thread pool scheduler, either backed by quartz or
+ * by a {@link TimingWheelScheduler}.
  */
 public class SchedulerProxy {
 
@@ -39,9 +46,12 @@ public class SchedulerProxy {
     /** Default logger. */
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    /** The quartz scheduler. */
+    /** The quartz scheduler (or null if the timing wheel is used). */
     private final org.quartz.Scheduler scheduler;
 
+    /** The timing wheel scheduler (or null if quartz is used). */
+    private final TimingWheelScheduler wheel;
+
     private final ThreadPoolManager threadPoolManager;
 
     private final ThreadPool threadPool;
@@ -50,6 +60,20 @@ public class SchedulerProxy {
 
     public SchedulerProxy(final ThreadPoolManager manager,
             final String pName) throws SchedulerException {
+        this(manager, pName, 0);
+    }
+
+    /**
+     * Create a new scheduler
+     * @param manager The thread pool manager
+     * @param pName The thread pool name
+     * @param timingWheelTick If positive, a timing wheel with this tick duration
+     *                        (in milliseconds) is used instead of quartz
+     * @throws SchedulerException
+     */
+    public SchedulerProxy(final ThreadPoolManager manager,
+            final String pName,
+            final long timingWheelTick) throws SchedulerException {
         // sanity null check
         if ( manager == null ) {
             throw new SchedulerException("Thread pool manager missing");
@@ -63,36 +87,24 @@ public class SchedulerProxy {
 
         // create the pool
         this.threadPool = this.threadPoolManager.get(poolName);
-        final QuartzThreadPool quartzPool = new QuartzThreadPool(this.threadPool);
 
         boolean succeeded = false;
 
         try {
             final String name = QUARTZ_SCHEDULER_NAME + this.poolName.replace(' ', '_');
-            final DirectSchedulerFactory factory = DirectSchedulerFactory.getInstance();
             // unique run id
             final String runID = new Date().toString().replace(' ', '_') + this.hashCode();
 
-            factory.createScheduler(name, runID, quartzPool, new RAMJobStore());
-            // quartz does not provide a way to get the scheduler by name AND runID, so we have to iterate!
-            final Iterator<org.quartz.Scheduler> allSchedulersIter = factory.getAllSchedulers().iterator();
-            org.quartz.Scheduler s = null;
-            while ( s == null && allSchedulersIter.hasNext() ) {
-                final org.quartz.Scheduler current = allSchedulersIter.next();
-                if ( name.equals(current.getSchedulerName())
-                    && runID.equals(current.getSchedulerInstanceId()) ) {
-                    s = current;
-                }
-            }
-            if ( s == null ) {
-                throw new SchedulerException("Unable to find new scheduler with name " + name + " and run ID " + runID);
+            if ( timingWheelTick > 0 ) {
+                this.wheel = new TimingWheelScheduler(name, runID, this.threadPool, timingWheelTick);
+                this.scheduler = null;
+            } else {
+                this.wheel = null;
+                this.scheduler = createQuartzScheduler(name, runID);
             }
-
-            s.start();
             if ( this.logger.isDebugEnabled() ) {
                 this.logger.debug("{}for pool {} started.", PREFIX, poolName);
             }
-            this.scheduler = s;
             succeeded = true;
         } finally {
             if ( !succeeded) {
@@ -101,14 +113,42 @@ public class SchedulerProxy {
         }
     }
 
+    private org.quartz.Scheduler createQuartzScheduler(final String name, final String runID)
+    throws SchedulerException {
+        final QuartzThreadPool quartzPool = new QuartzThreadPool(this.threadPool);
+        final DirectSchedulerFactory factory = DirectSchedulerFactory.getInstance();
+
+        factory.createScheduler(name, runID, quartzPool, new RAMJobStore());
+        // quartz does not provide a way to get the scheduler by name AND runID, so we have to iterate!
+        final Iterator<org.quartz.Scheduler> allSchedulersIter = factory.getAllSchedulers().iterator();
+        org.quartz.Scheduler s = null;
+        while ( s == null && allSchedulersIter.hasNext() ) {
+            final org.quartz.Scheduler current = allSchedulersIter.next();
+            if ( name.equals(current.getSchedulerName())
+                && runID.equals(current.getSchedulerInstanceId()) ) {
+                s = current;
+            }
+        }
+        if ( s == null ) {
+            throw new SchedulerException("Unable to find new scheduler with name " + name + " and run ID " + runID);
+        }
+
+        s.start();
+        return s;
+    }
+
     /**
      * Dispose the quartz scheduler
      */
     public void dispose() {
-        try {
-            this.scheduler.shutdown();
-        } catch (SchedulerException e) {
-            this.logger.debug("Exception during shutdown of scheduler.", e);
+        if ( this.wheel != null ) {
+            this.wheel.shutdown();
+        } else {
+            try {
+                this.scheduler.shutdown();
+            } catch (SchedulerException e) {
+                this.logger.debug("Exception during shutdown of scheduler.", e);
+            }
         }
         if ( this.logger.isDebugEnabled() ) {
             this.logger.debug("{}for pool {} stopped.", PREFIX, poolName);
@@ -117,7 +157,79 @@ public class SchedulerProxy {
         this.threadPoolManager.release(this.threadPool);
     }
 
+    /**
+     * Get the quartz scheduler
+     * @return The quartz scheduler or {@code null} if the timing wheel is used
+     */
     public org.quartz.Scheduler getScheduler() {
         return this.scheduler;
     }
+
+    public String getSchedulerName() throws SchedulerException {
+        return this.wheel != null ? this.wheel.getName() : this.scheduler.getSchedulerName();
+    }
+
+    public String getSchedulerInstanceId() throws SchedulerException {
+        return this.wheel != null ? this.wheel.getInstanceId() : this.scheduler.getSchedulerInstanceId();
+    }
+
+    public void scheduleJob(final JobDetail detail, final Trigger trigger) throws SchedulerException {
+        if ( this.wheel != null ) {
+            this.wheel.scheduleJob(detail, trigger);
+        } else {
+            this.scheduler.scheduleJob(detail, trigger);
+        }
+    }
+
+    public JobDetail getJobDetail(final String name) throws SchedulerException {
+        if ( this.wheel != null ) {
+            return this.wheel.getJobDetail(name);
+        }
+        return this.scheduler.getJobDetail(JobKey.jobKey(name));
+    }
+
+    /**
+     * Remove a job
+     * @param name The job name
+     * @return {@code true} if the job existed
+     * @throws SchedulerException
+     */
+    public boolean deleteJob(final String name) throws SchedulerException {
+        if ( this.wheel != null ) {
+            return this.wheel.deleteJob(name);
+        }
+        final JobKey key = JobKey.jobKey(name);
+        if ( this.scheduler.getJobDetail(key) != null ) {
+            return this.scheduler.deleteJob(key);
+        }
+        return false;
+    }
+
+    /**
+     * Get all scheduled jobs
+     * @return The job details
+     * @throws SchedulerException
+     */
+    public List<JobDetail> getJobDetails() throws SchedulerException {
+        if ( this.wheel != null ) {
+            return this.wheel.getJobDetails();
+        }
+        final List<JobDetail> result = new ArrayList<JobDetail>();
+        for(final String group : this.scheduler.getJobGroupNames()) {
+            for(final JobKey key : this.scheduler.getJobKeys(GroupMatcher.jobGroupEquals(group))) {
+                final JobDetail detail = this.scheduler.getJobDetail(key);
+                if ( detail != null ) {
+                    result.add(detail);
+                }
+            }
+        }
+        return result;
+    }
+
+    public List<? extends Trigger> getTriggersOfJob(final JobDetail detail) throws SchedulerException {
+        if ( this.wheel != null ) {
+            return this.wheel.getTriggersOfJob(detail.getKey().getName());
+        }
+        return this.scheduler.getTriggersOfJob(detail.getKey());
+    }
 }
@@ -0,0 +1,400 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.scheduler.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.sling.commons.threads.ThreadPool;
+import org.quartz.JobDetail;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.spi.OperableTrigger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timing wheel scheduler engine.
+ * <p>
+ * Jobs are registered without locking: the job is put into a concurrent
+ * map and queued for the wheel thread, which moves it into its bucket on
+ * the next tick. The wheel thread is the only thread touching the buckets
+ * and the triggers; it hands expired jobs to the thread pool.
+ * <p>
+ * Fire times are calculated by the quartz trigger built from the schedule
+ * options, so period, at and cron schedules (and misfire handling) behave
+ * as with the quartz engine.
+ */
+public class TimingWheelScheduler {
+
+    /** Number of buckets, must be a power of two. */
+    private static final int WHEEL_SIZE = 512;
+
+    /** Fire times older than this are treated as misfires (same as the quartz RAM job store). */
+    private static final long MISFIRE_THRESHOLD = 5000;
+
+    /** Default logger. */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final String name;
+
+    private final String instanceId;
+
+    private final ThreadPool threadPool;
+
+    private final long tickMillis;
+
+    private final Bucket[] wheel = new Bucket[WHEEL_SIZE];
+
+    private final ConcurrentMap<String, Entry> jobs = new ConcurrentHashMap<String, Entry>();
+
+    private final Queue<Entry> additions = new ConcurrentLinkedQueue<Entry>();
+
+    private final Queue<Entry> cancellations = new ConcurrentLinkedQueue<Entry>();
+
+    private final Thread worker;
+
+    private volatile boolean running = true;
+
+    /** The current tick, only used by the wheel thread. */
+    private long tick;
+
+    public TimingWheelScheduler(final String name,
+            final String instanceId,
+            final ThreadPool pool,
+            final long tickMillis) {
+        this.name = name;
+        this.instanceId = instanceId;
+        this.threadPool = pool;
+        this.tickMillis = tickMillis;
+        for(int i=0; i<WHEEL_SIZE; i++) {
+            this.wheel[i] = new Bucket();
+        }
+        this.worker = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                runWheel();
+            }
+        }, "Apache Sling Scheduler Timing Wheel " + name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public String getInstanceId() {
+        return this.instanceId;
+    }
+
+    /**
+     * Stop the wheel. Running jobs are not interrupted.
+     */
+    public void shutdown() {
+        this.running = false;
+        this.worker.interrupt();
+        try {
+            this.worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.jobs.clear();
+        this.additions.clear();
+        this.cancellations.clear();
+    }
+
+    /**
+     * Schedule a job. An existing job with the same name is replaced.
+     * @throws SchedulerException If the trigger is invalid or will never fire
+     */
+    public void scheduleJob(final JobDetail detail, final Trigger trigger) throws SchedulerException {
+        if ( !this.running ) {
+            throw new SchedulerException("Timing wheel scheduler " + this.name + " is shut down.");
+        }
+        final OperableTrigger t = (OperableTrigger) trigger;
+        t.setJobKey(detail.getKey());
+        t.validate();
+        if ( t.computeFirstFireTime(null) == null ) {
+            throw new SchedulerException("Based on configured schedule, the given trigger '" + t.getKey() + "' will never fire.");
+        }
+        final Entry entry = new Entry(detail, t);
+        final Entry old = this.jobs.put(detail.getKey().getName(), entry);
+        if ( old != null ) {
+            cancel(old);
+        }
+        this.additions.offer(entry);
+    }
+
+    /**
+     * Remove a job.
+     * @return {@code true} if a job with that name existed
+     */
+    public boolean deleteJob(final String jobName) {
+        final Entry entry = this.jobs.remove(jobName);
+        if ( entry != null ) {
+            cancel(entry);
+            return true;
+        }
+        return false;
+    }
+
+    public JobDetail getJobDetail(final String jobName) {
+        final Entry entry = this.jobs.get(jobName);
+        return entry == null ? null : entry.detail;
+    }
+
+    public List<JobDetail> getJobDetails() {
+        final List<JobDetail> result = new ArrayList<JobDetail>();
+        for(final Entry entry : this.jobs.values()) {
+            result.add(entry.detail);
+        }
+        return result;
+    }
+
+    public List<? extends Trigger> getTriggersOfJob(final String jobName) {
+        final Entry entry = this.jobs.get(jobName);
+        if ( entry == null ) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(entry.trigger);
+    }
+
+    private void cancel(final Entry entry) {
+        entry.cancelled = true;
+        this.cancellations.offer(entry);
+    }
+
+    private void runWheel() {
+        final long tickNanos = TimeUnit.MILLISECONDS.toNanos(this.tickMillis);
+        final long startTime = System.nanoTime();
+        while ( this.running ) {
+            try {
+                final long sleepNanos = startTime + this.tick * tickNanos - System.nanoTime();
+                if ( sleepNanos > 0 ) {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                }
+                this.processCancellations();
+                this.transferAdditions();
+                this.expire(this.wheel[(int) (this.tick & (WHEEL_SIZE - 1))]);
+                this.tick++;
+            } catch (final InterruptedException ie) {
+                // shutdown
+            } catch (final Throwable t) {
+                this.logger.error("Exception in timing wheel " + this.name + " : " + t.getMessage(), t);
+            }
+        }
+    }
+
+    private void processCancellations() {
+        Entry entry;
+        while ( (entry = this.cancellations.poll()) != null ) {
+            if ( entry.bucket != null ) {
+                entry.bucket.remove(entry);
+            }
+        }
+    }
+
+    private void transferAdditions() {
+        Entry entry;
+        while ( (entry = this.additions.poll()) != null ) {
+            if ( !entry.cancelled ) {
+                this.place(entry, this.tick);
+            }
+        }
+    }
+
+    /**
+     * Put the entry into the bucket for its next fire time.
+     * @param base The first tick whose bucket has not been processed yet
+     */
+    private void place(final Entry entry, final long base) {
+        final long delay = entry.trigger.getNextFireTime().getTime() - System.currentTimeMillis();
+        long ticks = (delay <= 0 ? 0 : (delay + this.tickMillis - 1) / this.tickMillis) - (base - this.tick);
+        if ( ticks < 0 ) {
+            ticks = 0;
+        }
+        entry.remainingRounds = ticks / WHEEL_SIZE;
+        this.wheel[(int) ((base + ticks) & (WHEEL_SIZE - 1))].add(entry);
+    }
+
+    private void expire(final Bucket bucket) {
+        final List<Entry> expired = new ArrayList<Entry>();
+        Entry entry = bucket.head;
+        while ( entry != null ) {
+            final Entry next = entry.next;
+            if ( entry.cancelled ) {
+                bucket.remove(entry);
+            } else if ( entry.remainingRounds <= 0 ) {
+                bucket.remove(entry);
+                expired.add(entry);
+            } else {
+                entry.remainingRounds--;
+            }
+            entry = next;
+        }
+        for(final Entry e : expired) {
+            try {
+                this.fire(e);
+            } catch (final Throwable t) {
+                this.jobs.remove(e.detail.getKey().getName(), e);
+                this.logger.error("Unable to fire job " + e.detail.getKey().getName() + " : " + t.getMessage(), t);
+            }
+        }
+    }
+
+    private void fire(final Entry entry) {
+        if ( entry.cancelled ) {
+            return;
+        }
+        this.execute(entry);
+
+        final OperableTrigger trigger = entry.trigger;
+        trigger.triggered(null);
+        Date next = trigger.getNextFireTime();
+        if ( next != null && System.currentTimeMillis() - next.getTime() > MISFIRE_THRESHOLD ) {
+            trigger.updateAfterMisfire(null);
+            next = trigger.getNextFireTime();
+        }
+        if ( next == null ) {
+            this.jobs.remove(entry.detail.getKey().getName(), entry);
+        } else if ( !entry.cancelled ) {
+            // the current bucket has already been processed
+            this.place(entry, this.tick + 1);
+        }
+    }
+
+    /**
+     * Hand the job to the thread pool. A job which must not run concurrently
+     * and is still running is executed once more after the current run.
+     */
+    private void execute(final Entry entry) {
+        if ( entry.concurrent ) {
+            this.submit(entry);
+        } else if ( entry.executing.compareAndSet(false, true) ) {
+            this.submit(entry);
+        } else {
+            entry.pending = true;
+            if ( entry.executing.compareAndSet(false, true) ) {
+                entry.pending = false;
+                this.submit(entry);
+            }
+        }
+    }
+
+    private void submit(final Entry entry) {
+        this.threadPool.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    new QuartzJobExecutor().execute(entry.detail.getJobDataMap());
+                } catch (final Throwable t) {
+                    logger.error("Exception during job execution of " + entry.detail.getKey().getName() + " : " + t.getMessage(), t);
+                } finally {
+                    if ( !entry.concurrent ) {
+                        entry.executing.set(false);
+                        if ( entry.pending && !entry.cancelled && entry.executing.compareAndSet(false, true) ) {
+                            entry.pending = false;
+                            submit(entry);
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * A scheduled job. The linkage, the rounds and the trigger
+     * are only changed by the wheel thread.
+     */
+    private static final class Entry {
+
+        final JobDetail detail;
+
+        final OperableTrigger trigger;
+
+        final boolean concurrent;
+
+        final AtomicBoolean executing = new AtomicBoolean();
+
+        volatile boolean pending;
+
+        volatile boolean cancelled;
+
+        long remainingRounds;
+
+        Bucket bucket;
+
+        Entry prev;
+
+        Entry next;
+
+        Entry(final JobDetail detail, final OperableTrigger trigger) {
+            this.detail = detail;
+            this.trigger = trigger;
+            this.concurrent = !detail.isConcurrentExectionDisallowed();
+        }
+    }
+
+    /**
+     * A doubly linked list of entries.
+     */
+    private static final class Bucket {
+
+        Entry head;
+
+        Entry tail;
+
+        void add(final Entry entry) {
+            entry.bucket = this;
+            entry.prev = this.tail;
+            entry.next = null;
+            if ( this.tail == null ) {
+                this.head = entry;
+            } else {
+                this.tail.next = entry;
+            }
+            this.tail = entry;
+        }
+
+        void remove(final Entry entry) {
+            if ( entry.prev == null ) {
+                this.head = entry.next;
+            } else {
+                entry.prev.next = entry.next;
+            }
+            if ( entry.next == null ) {
+                this.tail = entry.prev;
+            } else {
+                entry.next.prev = entry.prev;
+            }
+            entry.bucket = null;
+            entry.prev = null;
+            entry.next = null;
+        }
+    }
+}
@@ -22,7 +22,6 @@ import java.io.PrintWriter;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Properties;
@@ -31,11 +30,8 @@ import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
 import org.osgi.framework.Constants;
 import org.quartz.JobDetail;
-import org.quartz.JobKey;
-import org.quartz.Scheduler;
 import org.quartz.SchedulerException;
 import org.quartz.Trigger;
-import org.quartz.impl.matchers.GroupMatcher;
 
 /**
  * This is a configuration printer for the web console which
@@ -70,7 +66,7 @@ public class WebConsolePrinter {
             pw.println("Status : active");
             pw.println("Discovery : " + (QuartzJobExecutor.DISCOVERY_AVAILABLE.get() ? "available" : "not available"));
             for(final Map.Entry<String, SchedulerProxy> entry : proxies.entrySet()) {
-                final Scheduler s = entry.getValue().getScheduler();
+                final SchedulerProxy s = entry.getValue();
                 try {
                     pw.print  ("Name      : ");
                     pw.println(s.getSchedulerName());
@@ -79,79 +75,74 @@ public class WebConsolePrinter {
                     pw.print  ("Id        : ");
                     pw.println(s.getSchedulerInstanceId());
                     pw.println();
-                    final List<String> groups = s.getJobGroupNames();
-                    for(final String group : groups) {
-                        final Set<JobKey> keys = s.getJobKeys(GroupMatcher.jobGroupEquals(group));
-                        for(final JobKey key : keys) {
-                            final JobDetail detail = s.getJobDetail(key);
-                            final String jobName = (String) detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_NAME);
-                            final Object job = detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_OBJECT);
-                            // only print jobs started through the sling scheduler
-                            if ( jobName != null && job != null ) {
-                                pw.print("Job : ");
-                                pw.print(detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_NAME));
-                                if ( detail.getDescription() != null && detail.getDescription().length() > 0 ) {
-                                    pw.print(" (");
-                                    pw.print(detail.getDescription());
-                                    pw.print(")");
-                                }
-                                pw.print(", class: ");
-                                pw.print(job.getClass().getName());
-                                pw.print(", concurrent: ");
-                                pw.print(!detail.isConcurrentExectionDisallowed());
-                                final String[] runOn = (String[])detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_RUN_ON);
-                                if ( runOn != null ) {
-                                    pw.print(", runOn: ");
-                                    pw.print(Arrays.toString(runOn));
-                                    // check run on information
-                                    if ( runOn.length == 1 &&
-                                         (org.apache.sling.commons.scheduler.Scheduler.VALUE_RUN_ON_LEADER.equals(runOn[0]) || org.apache.sling.commons.scheduler.Scheduler.VALUE_RUN_ON_SINGLE.equals(runOn[0])) ) {
-                                        if ( QuartzJobExecutor.DISCOVERY_AVAILABLE.get() ) {
-                                            if ( QuartzJobExecutor.DISCOVERY_INFO_AVAILABLE.get() ) {
-                                                if ( !QuartzJobExecutor.IS_LEADER.get() ) {
-                                                    pw.print(" (inactive: not leader)");
-                                                }
-                                            } else {
-                                                pw.print(" (inactive: no discovery info)");
+                    for(final JobDetail detail : s.getJobDetails()) {
+                        final String jobName = (String) detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_NAME);
+                        final Object job = detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_OBJECT);
+                        // only print jobs started through the sling scheduler
+                        if ( jobName != null && job != null ) {
+                            pw.print("Job : ");
+                            pw.print(detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_NAME));
+                            if ( detail.getDescription() != null && detail.getDescription().length() > 0 ) {
+                                pw.print(" (");
+                                pw.print(detail.getDescription());
+                                pw.print(")");
+                            }
+                            pw.print(", class: ");
+                            pw.print(job.getClass().getName());
+                            pw.print(", concurrent: ");
+                            pw.print(!detail.isConcurrentExectionDisallowed());
+                            final String[] runOn = (String[])detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_RUN_ON);
+                            if ( runOn != null ) {
+                                pw.print(", runOn: ");
+                                pw.print(Arrays.toString(runOn));
+                                // check run on information
+                                if ( runOn.length == 1 &&
+                                     (org.apache.sling.commons.scheduler.Scheduler.VALUE_RUN_ON_LEADER.equals(runOn[0]) || org.apache.sling.commons.scheduler.Scheduler.VALUE_RUN_ON_SINGLE.equals(runOn[0])) ) {
+                                    if ( QuartzJobExecutor.DISCOVERY_AVAILABLE.get() ) {
+                                        if ( QuartzJobExecutor.DISCOVERY_INFO_AVAILABLE.get() ) {
+                                            if ( !QuartzJobExecutor.IS_LEADER.get() ) {
+                                                pw.print(" (inactive: not leader)");
                                             }
                                         } else {
-                                            pw.print(" (inactive: no discovery)");
+                                            pw.print(" (inactive: no discovery info)");
                                         }
-                                    } else { // sling IDs
-                                        final String myId = QuartzJobExecutor.SLING_ID;
-                                        if ( myId == null ) {
-                                            pw.print(" (inactive: no Sling settings)");
-                                        } else {
-                                            boolean schedule = false;
-                                            for(final String id : runOn ) {
-                                                if ( myId.equals(id) ) {
-                                                    schedule = true;
-                                                    break;
-                                                }
-                                            }
-                                            if ( !schedule ) {
-                                                pw.print(" (inactive: Sling ID)");
+                                    } else {
+                                        pw.print(" (inactive: no discovery)");
+                                    }
+                                } else { // sling IDs
+                                    final String myId = QuartzJobExecutor.SLING_ID;
+                                    if ( myId == null ) {
+                                        pw.print(" (inactive: no Sling settings)");
+                                    } else {
+                                        boolean schedule = false;
+                                        for(final String id : runOn ) {
+                                            if ( myId.equals(id) ) {
+                                                schedule = true;
+                                                break;
                                             }
                                         }
-                                    }                            }
-                                final Long bundleId = (Long)detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_BUNDLE_ID);
-                                if ( bundleId != null ) {
-                                    pw.print(", bundleId: ");
-                                    pw.print(String.valueOf(bundleId));
-                                }
-                                final Long serviceId = (Long)detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_SERVICE_ID);
-                                if ( serviceId != null ) {
-                                    pw.print(", serviceId: ");
-                                    pw.print(String.valueOf(serviceId));
-                                }
-                                pw.println();
-                                for(final Trigger trigger : s.getTriggersOfJob(key)) {
-                                    pw.print("Trigger : ");
-                                    pw.print(trigger);
-                                    pw.println();
-                                }
+                                        if ( !schedule ) {
+                                            pw.print(" (inactive: Sling ID)");
+                                        }
+                                    }
+                                }                            }
+                            final Long bundleId = (Long)detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_BUNDLE_ID);
+                            if ( bundleId != null ) {
+                                pw.print(", bundleId: ");
+                                pw.print(String.valueOf(bundleId));
+                            }
+                            final Long serviceId = (Long)detail.getJobDataMap().get(QuartzScheduler.DATA_MAP_SERVICE_ID);
+                            if ( serviceId != null ) {
+                                pw.print(", serviceId: ");
+                                pw.print(String.valueOf(serviceId));
+                            }
+                            pw.println();
+                            for(final Trigger trigger : s.getTriggersOfJob(detail)) {
+                                pw.print("Trigger : ");
+                                pw.print(trigger);
                                 pw.println();
                             }
+                            pw.println();
                         }
                     }
                 } catch ( final SchedulerException se ) {
@@ -160,6 +151,27 @@ public class WebConsolePrinter {
                 }
                 pw.println();
             }
+            final List<JobStatistics.Entry> stats = this.scheduler.getStatistics().getEntries();
+            if ( !stats.isEmpty() ) {
+                pw.println("Job Statistics");
+                pw.println();
+                for(final JobStatistics.Entry stat : stats) {
+                    pw.print("Type : ");
+                    pw.print(stat.getType());
+                    pw.print(", runs: ");
+                    pw.print(stat.getRuns());
+                    pw.print(", failures: ");
+                    pw.print(stat.getFailures());
+                    pw.print(", average: ");
+                    pw.print(stat.getAverageTime());
+                    pw.print("ms, max: ");
+                    pw.print(stat.getMaxTime());
+                    pw.print("ms, total: ");
+                    pw.print(stat.getTotalTime());
+                    pw.println("ms");
+                }
+                pw.println();
+            }
         } else {
             pw.println("Status : not active");
         }
@@ -33,6 +33,10 @@ import org.osgi.framework.Constants;
 class ActivatedQuartzSchedulerFactory {
 
     public static QuartzScheduler create(BundleContext context, String poolName) throws Exception {
+        return create(context, poolName, null);
+    }
+
+    public static QuartzScheduler create(BundleContext context, String poolName, Map<String, Object> activationProps) throws Exception {
         QuartzScheduler quartzScheduler = null;
         if (context != null) {
             quartzScheduler = new QuartzScheduler();
@@ -50,6 +54,10 @@ class ActivatedQuartzSchedulerFactory {
                 scheduleActivationProps.put("allowedPoolNames", new String[] {"testName", "allowed"});
             }
 
+            if ( activationProps != null ) {
+                scheduleActivationProps.putAll(activationProps);
+            }
+
             quartzScheduler.activate(context, scheduleActivationProps);
             context.registerService("scheduler", quartzScheduler, props);
         }
@@ -0,0 +1,204 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.commons.scheduler.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.testing.mock.osgi.MockOsgi;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+
+public class TimingWheelSchedulerTest {
+
+    private BundleContext context;
+    private QuartzScheduler quartzScheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        context = MockOsgi.newBundleContext();
+        final Map<String, Object> props = new HashMap<String, Object>();
+        props.put("engine", QuartzScheduler.ENGINE_TIMING_WHEEL);
+        props.put("timingWheelTick", 10L);
+        quartzScheduler = ActivatedQuartzSchedulerFactory.create(context, "testName", props);
+    }
+
+    @Test
+    public void testFireNow() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        assertTrue(quartzScheduler.schedule(1L, 1L, new CountDownJob(latch), quartzScheduler.NOW()));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        final SchedulerProxy proxy = quartzScheduler.getSchedulers().get("testName");
+        assertNull("No quartz scheduler for the timing wheel engine", proxy.getScheduler());
+    }
+
+    @Test
+    public void testPeriodic() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(3);
+        assertTrue(quartzScheduler.schedule(1L, 1L, new CountDownJob(latch), quartzScheduler.NOW(3, 1).name("periodic")));
+        assertNotNull(quartzScheduler.getSchedulers().get("testName").getJobDetail("periodic"));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        // the job is removed after the last run
+        Thread.sleep(200);
+        assertNull(quartzScheduler.getSchedulers().get("testName").getJobDetail("periodic"));
+    }
+
+    @Test
+    public void testCron() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        assertTrue(quartzScheduler.schedule(1L, 1L, new CountDownJob(latch), quartzScheduler.EXPR("* * * * * ?").name("cron")));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertTrue(quartzScheduler.unschedule(1L, "cron"));
+    }
+
+    @Test
+    public void testAt() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final long at = System.currentTimeMillis() + 300;
+        final AtomicInteger runs = new AtomicInteger();
+        final Runnable job = new Runnable() {
+
+            @Override
+            public void run() {
+                if ( System.currentTimeMillis() >= at ) {
+                    runs.incrementAndGet();
+                }
+                latch.countDown();
+            }
+        };
+        assertTrue(quartzScheduler.schedule(1L, 1L, job, quartzScheduler.AT(new Date(at))));
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    public void testUnschedule() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        assertTrue(quartzScheduler.schedule(1L, 1L, new CountDownJob(latch),
+                quartzScheduler.AT(new Date(System.currentTimeMillis() + 500)).name("later")));
+        assertTrue(quartzScheduler.unschedule(1L, "later"));
+        assertFalse(quartzScheduler.unschedule(1L, "later"));
+        assertFalse(latch.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testReschedule() throws Exception {
+        final CountDownLatch first = new CountDownLatch(1);
+        final CountDownLatch second = new CountDownLatch(1);
+        assertTrue(quartzScheduler.schedule(1L, 1L, new CountDownJob(first),
+                quartzScheduler.AT(new Date(System.currentTimeMillis() + 300)).name("job")));
+        assertTrue(quartzScheduler.schedule(1L, 1L, new CountDownJob(second),
+                quartzScheduler.AT(new Date(System.currentTimeMillis() + 300)).name("job")));
+        assertTrue(second.await(5, TimeUnit.SECONDS));
+        assertFalse(first.await(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testNonConcurrent() throws Exception {
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicInteger maxActive = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(3);
+        final Runnable job = new Runnable() {
+
+            @Override
+            public void run() {
+                final int current = active.incrementAndGet();
+                if ( current > maxActive.get() ) {
+                    maxActive.set(current);
+                }
+                try {
+                    Thread.sleep(1500);
+                } catch (final InterruptedException ignore) {
+                    // ignore
+                } finally {
+                    active.decrementAndGet();
+                    latch.countDown();
+                }
+            }
+        };
+        assertTrue(quartzScheduler.schedule(1L, 1L, job, quartzScheduler.NOW(3, 1).canRunConcurrently(false)));
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(1, maxActive.get());
+    }
+
+    @Test
+    public void testBundleStopped() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        quartzScheduler.addPeriodicJob(2L, 1L, "periodic", new CountDownJob(latch), null, 60, true);
+        assertNotNull(quartzScheduler.getSchedulers().get("testName").getJobDetail("periodic"));
+
+        final Bundle bundle = mock(Bundle.class);
+        when(bundle.getBundleId()).thenReturn(2L);
+        quartzScheduler.bundleChanged(new BundleEvent(BundleEvent.STOPPED, bundle));
+        assertNull(quartzScheduler.getSchedulers().get("testName").getJobDetail("periodic"));
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(2);
+        final CountDownJob job = new CountDownJob(latch);
+        quartzScheduler.schedule(1L, 1L, job, quartzScheduler.NOW());
+        quartzScheduler.schedule(1L, 1L, job, quartzScheduler.NOW());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        // the statistics are updated after the job returned
+        Thread.sleep(200);
+        final List<JobStatistics.Entry> entries = quartzScheduler.getStatistics().getEntries();
+        assertEquals(1, entries.size());
+        assertEquals(CountDownJob.class.getName(), entries.get(0).getType());
+        assertEquals(2, entries.get(0).getRuns());
+        assertEquals(0, entries.get(0).getFailures());
+    }
+
+    @After
+    public void deactivateScheduler() {
+        quartzScheduler.deactivate(context);
+    }
+
+    private static final class CountDownJob implements Runnable {
+
+        private final CountDownLatch latch;
+
+        CountDownJob(final CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void run() {
+            latch.countDown();
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.collections.IteratorUtils;
@@ -59,6 +60,7 @@ class ConfigurationBuilderImpl implements ConfigurationBuilder {
     private final ConfigurationOverrideManager configurationOverrideManager;
     private final ConfigurationMetadataProvider configurationMetadataProvider;
     private final Collection<String> configBucketNames;
+    private final ConfigurationResolverCache cache;
 
     private String configName;
 
@@ -71,7 +73,8 @@ class ConfigurationBuilderImpl implements ConfigurationBuilder {
             final ConfigurationInheritanceStrategy configurationInheritanceStrategy,
             final ConfigurationOverrideManager configurationOverrideManager,
             final ConfigurationMetadataProvider configurationMetadataProvider,
-            final Collection<String> configBucketNames) {
+            final Collection<String> configBucketNames,
+            final ConfigurationResolverCache cache) {
         this.contentResource = resource;
         this.configurationResolver = configurationResolver;
         this.configurationResourceResolvingStrategy = configurationResourceResolvingStrategy;
@@ -80,6 +83,7 @@ class ConfigurationBuilderImpl implements ConfigurationBuilder {
         this.configurationOverrideManager = configurationOverrideManager;
         this.configurationMetadataProvider = configurationMetadataProvider;
         this.configBucketNames = configBucketNames;
+        this.cache = cache;
     }
 
     @Override
@@ -115,13 +119,24 @@ class ConfigurationBuilderImpl implements ConfigurationBuilder {
      * @return Converted singleton configuration
      */
     private <T> T getConfigResource(String configName, Class<T> clazz, Converter<T> converter) {
-        Iterator<Resource> resourceInheritanceChain = null;
-        if (this.contentResource != null) {
-            validateConfigurationName(configName);
-            resourceInheritanceChain = this.configurationResourceResolvingStrategy
-                    .getResourceInheritanceChain(this.contentResource, configBucketNames, configName);
+        if (this.contentResource == null) {
+            return converter.convert(null, clazz, configName);
+        }
+        validateConfigurationName(configName);
+        final ConfigurationResolverCache.Key key = getCacheKey(configName, converter, false);
+        if (key != null) {
+            final Resource[] cached = cache.getResource(key, contentResource.getResourceResolver());
+            if (cached != null) {
+                return convert(cached[0], clazz, converter, configName, false);
+            }
         }
-        return convert(resourceInheritanceChain, clazz, converter, configName, false);
+        final Iterator<Resource> resourceInheritanceChain = this.configurationResourceResolvingStrategy
+                .getResourceInheritanceChain(this.contentResource, configBucketNames, configName);
+        final Resource configResource = applyInheritance(resourceInheritanceChain);
+        if (key != null) {
+            cache.putResource(key, configResource);
+        }
+        return convert(configResource, clazz, converter, configName, false);
     }
 
     /**
@@ -134,16 +149,30 @@ class ConfigurationBuilderImpl implements ConfigurationBuilder {
     private <T> Collection<T> getConfigResourceCollection(String configName, Class<T> clazz, Converter<T> converter) {
         if (this.contentResource != null) {
            validateConfigurationName(configName);
-           final Collection<T> result = new ArrayList<>();
-           Collection<Iterator<Resource>> resourceInheritanceChains = this.configurationResourceResolvingStrategy
-                   .getResourceCollectionInheritanceChain(this.contentResource, configBucketNames, configName);;
-           if (resourceInheritanceChains != null) {
-               for (final Iterator<Resource> resourceInheritanceChain : resourceInheritanceChains) {
-                   final T obj = convert(resourceInheritanceChain, clazz, converter, configName, true);
-                   if (obj != null) {
-                       result.add(obj);
+           final ConfigurationResolverCache.Key key = getCacheKey(configName, converter, true);
+           List<Resource> configResources = null;
+           if (key != null) {
+               configResources = cache.getResourceCollection(key, contentResource.getResourceResolver());
+           }
+           if (configResources == null) {
+               configResources = new ArrayList<>();
+               Collection<Iterator<Resource>> resourceInheritanceChains = this.configurationResourceResolvingStrategy
+                       .getResourceCollectionInheritanceChain(this.contentResource, configBucketNames, configName);;
+               if (resourceInheritanceChains != null) {
+                   for (final Iterator<Resource> resourceInheritanceChain : resourceInheritanceChains) {
+                       configResources.add(applyInheritance(resourceInheritanceChain));
                    }
                }
+               if (key != null) {
+                   cache.putResourceCollection(key, configResources);
+               }
+           }
+           final Collection<T> result = new ArrayList<>();
+           for (final Resource configResource : configResources) {
+               final T obj = convert(configResource, clazz, converter, configName, true);
+               if (obj != null) {
+                   result.add(obj);
+               }
            }
            return result;
         }
@@ -151,25 +180,48 @@ class ConfigurationBuilderImpl implements ConfigurationBuilder {
             return Collections.emptyList();
         }
     }
-    
+
+    /**
+     * Get cache key for the given lookup.
+     * @return Cache key or null if the lookup is not cached.
+     */
+    private ConfigurationResolverCache.Key getCacheKey(String configName, Converter<?> converter, boolean collection) {
+        // adaptables need the original resource
+        if (cache == null || converter instanceof AdaptableConverter) {
+            return null;
+        }
+        return cache.getKey(contentResource, configName, collection);
+    }
+
+    /**
+     * Apply persistence transformation and resource inheritance to the given inheritance chain.
+     * @param resourceInhertianceChain Inheritance chain
+     * @return Merged configuration resource or null
+     */
     @SuppressWarnings("unchecked")
-    private <T> T convert(Iterator<Resource> resourceInhertianceChain, Class<T> clazz, Converter<T> converter,
+    private Resource applyInheritance(Iterator<Resource> resourceInhertianceChain) {
+        if (resourceInhertianceChain == null) {
+            return null;
+        }
+        // apply persistence transformation
+        Iterator<Resource> transformedResources = IteratorUtils.transformedIterator(resourceInhertianceChain,
+                new Transformer() {
+                    @Override
+                    public Object transform(Object input) {
+                        return configurationPersistenceStrategy.getResource((Resource)input);
+                    }
+                });
+        // apply resource inheritance
+        return configurationInheritanceStrategy.getResource(transformedResources);
+    }
+
+    private <T> T convert(Resource inheritedConfigResource, Class<T> clazz, Converter<T> converter,
             String name, boolean appendResourceName) {
         Resource configResource = null;
         String conversionName = name;
-        if (resourceInhertianceChain != null) {
-            // apply persistence transformation
-            Iterator<Resource> transformedResources = IteratorUtils.transformedIterator(resourceInhertianceChain,
-                    new Transformer() {
-                        @Override
-                        public Object transform(Object input) {
-                            return configurationPersistenceStrategy.getResource((Resource)input);
-                        }
-                    });
-            // apply resource inheritance
-            configResource = configurationInheritanceStrategy.getResource(transformedResources);
+        if (inheritedConfigResource != null) {
             // apply overrides
-            configResource = configurationOverrideManager.overrideProperties(contentResource.getPath(), name, configResource);
+            configResource = configurationOverrideManager.overrideProperties(contentResource.getPath(), name, inheritedConfigResource);
             // build name
             if (configResource != null && appendResourceName) {
                 conversionName = conversionName + "/" + configResource.getName();
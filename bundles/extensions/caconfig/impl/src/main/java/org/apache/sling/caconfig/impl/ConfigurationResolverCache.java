@@ -0,0 +1,488 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.caconfig.impl;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.SyntheticResource;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.apache.sling.api.wrappers.ValueMapDecorator;
+import org.apache.sling.caconfig.resource.impl.ConfigurationResourceResolvingStrategyMultiplexer;
+import org.apache.sling.caconfig.resource.spi.CollectionInheritanceDecider;
+import org.apache.sling.caconfig.resource.spi.ConfigurationResourceResolvingStrategy;
+import org.apache.sling.caconfig.resource.spi.ContextPathStrategy;
+import org.apache.sling.caconfig.spi.ConfigurationInheritanceStrategy;
+import org.apache.sling.caconfig.spi.ConfigurationPersistenceStrategy;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared cache of resolved configuration resources by user, context path and configuration name.
+ * <p>
+ * The cached values are the configuration properties after applying the inheritance strategies, but before
+ * applying overrides and default values, which are cheap and may change independently of the repository.
+ * </p>
+ * <p>
+ * Entries are invalidated from resource changes:
+ * </p>
+ * <ul>
+ *   <li>Changes below a configuration bucket under one of the configuration root paths invalidate only the entries
+ *   of the affected configuration name. Other changes under configuration root paths invalidate all entries.
+ *   The configuration root paths are taken from the configuration resource resolving strategies.</li>
+ *   <li>Changes outside the configuration root paths invalidate the entries whose context path is located below
+ *   the parent of the changed resource, as they may affect the context path detection
+ *   (e.g. a changed <code>sling:configRef</code> property).</li>
+ *   <li>Registration changes of the strategy services involved in resolving configurations clear all entries.</li>
+ * </ul>
+ * <p>
+ * Entries are indexed by context path and configuration name, so a change only looks at the affected entries.
+ * Each invalidation increments a generation, and values resolved for a key obtained before are not cached, as
+ * they might have been read before the change.
+ * </p>
+ */
+public final class ConfigurationResolverCache implements ResourceChangeListener, ExternalResourceChangeListener, ServiceListener {
+
+    /**
+     * If more changes than this are reported at once the whole cache is cleared.
+     */
+    static final int MAX_CHANGES_FOR_PARTIAL_INVALIDATION = 100;
+
+    /**
+     * Service filter matching all services affecting the resolved configurations.
+     */
+    static final String STRATEGY_SERVICES_FILTER = "(|"
+            + "(" + Constants.OBJECTCLASS + "=" + ContextPathStrategy.class.getName() + ")"
+            + "(" + Constants.OBJECTCLASS + "=" + ConfigurationResourceResolvingStrategy.class.getName() + ")"
+            + "(" + Constants.OBJECTCLASS + "=" + CollectionInheritanceDecider.class.getName() + ")"
+            + "(" + Constants.OBJECTCLASS + "=" + ConfigurationPersistenceStrategy.class.getName() + ")"
+            + "(" + Constants.OBJECTCLASS + "=" + ConfigurationInheritanceStrategy.class.getName() + ")"
+            + ")";
+
+    private static final Object NOT_FOUND = new Object();
+
+    private static final Logger log = LoggerFactory.getLogger(ConfigurationResolverCache.class);
+
+    private final Map<Key, Object> cache;
+    private final TreeMap<String, Set<Key>> keysByContextPath = new TreeMap<>();
+    private final Map<String, Set<Key>> keysByConfigName = new HashMap<>();
+    private final ConfigurationResourceResolvingStrategyMultiplexer configurationResourceResolvingStrategy;
+    private final Collection<String> configBucketNames;
+    private final AtomicLong generation = new AtomicLong();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    ConfigurationResolverCache(final int maxSize,
+            final ConfigurationResourceResolvingStrategyMultiplexer configurationResourceResolvingStrategy,
+            final Collection<String> configBucketNames) {
+        this.configurationResourceResolvingStrategy = configurationResourceResolvingStrategy;
+        this.configBucketNames = configBucketNames;
+        this.cache = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+                if (size() > maxSize) {
+                    unindex(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get cache key for a configuration lookup. The key must be obtained before resolving the configuration.
+     * @param contentResource Context resource
+     * @param configName Configuration name
+     * @param collection Whether a configuration collection is looked up
+     * @return Key or null if the lookup must not be cached, because the resource resolver has pending changes.
+     */
+    Key getKey(Resource contentResource, String configName, boolean collection) {
+        ResourceResolver resolver = contentResource.getResourceResolver();
+        if (resolver == null || resolver.hasChanges()) {
+            return null;
+        }
+        return new Key(resolver.getUserID(), contentResource.getPath(), configName, collection, generation.get());
+    }
+
+    /**
+     * Get cached configuration resource.
+     * @param key Key
+     * @param resolver Resource resolver to bind the returned resource to
+     * @return Array with the resolved configuration resource (may be null) or null if not cached
+     */
+    Resource[] getResource(Key key, ResourceResolver resolver) {
+        Object value = get(key);
+        if (value == null) {
+            return null;
+        }
+        return new Resource[] { toResource(value, resolver) };
+    }
+
+    /**
+     * Get cached configuration resource collection.
+     * @param key Key
+     * @param resolver Resource resolver to bind the returned resources to
+     * @return List of resolved configuration resources (items may be null) or null if not cached
+     */
+    List<Resource> getResourceCollection(Key key, ResourceResolver resolver) {
+        Object value = get(key);
+        if (value == null) {
+            return null;
+        }
+        List<Resource> result = new ArrayList<>();
+        for (Object item : (List<?>)value) {
+            result.add(toResource(item, resolver));
+        }
+        return result;
+    }
+
+    void putResource(Key key, Resource resource) {
+        put(key, toValue(resource));
+    }
+
+    void putResourceCollection(Key key, List<Resource> resources) {
+        List<Object> value = new ArrayList<>(resources.size());
+        for (Resource resource : resources) {
+            value.add(toValue(resource));
+        }
+        put(key, Collections.unmodifiableList(value));
+    }
+
+    void clear() {
+        generation.incrementAndGet();
+        synchronized (cache) {
+            cache.clear();
+            keysByContextPath.clear();
+            keysByConfigName.clear();
+        }
+    }
+
+    @Override
+    public void onChange(List<ResourceChange> changes) {
+        if (changes.size() > MAX_CHANGES_FOR_PARTIAL_INVALIDATION) {
+            log.debug("Clear configuration cache after {} changes", changes.size());
+            invalidations.incrementAndGet();
+            clear();
+            return;
+        }
+        // lookups in progress might have read the state before the changes
+        generation.incrementAndGet();
+        Collection<String> configRootPaths = configurationResourceResolvingStrategy.getConfigRootPaths();
+        synchronized (cache) {
+            for (ResourceChange change : changes) {
+                if (cache.isEmpty()) {
+                    return;
+                }
+                invalidate(change.getPath(), configRootPaths);
+            }
+        }
+    }
+
+    @Override
+    public void serviceChanged(ServiceEvent event) {
+        log.debug("Clear configuration cache after strategy service change");
+        invalidations.incrementAndGet();
+        clear();
+    }
+
+    private void invalidate(String path, Collection<String> configRootPaths) {
+        if (isConfigPath(path, configRootPaths)) {
+            String configName = getConfigName(path);
+            if (configName == null) {
+                log.debug("Clear configuration cache after change of {}", path);
+                invalidations.incrementAndGet();
+                cache.clear();
+                keysByContextPath.clear();
+                keysByConfigName.clear();
+                return;
+            }
+            // the number of distinct configuration names is small compared to the number of entries
+            List<Key> affected = new ArrayList<>();
+            for (Map.Entry<String, Set<Key>> entry : keysByConfigName.entrySet()) {
+                if (isSameOrDescendant(configName, entry.getKey()) || isSameOrDescendant(entry.getKey(), configName)) {
+                    affected.addAll(entry.getValue());
+                }
+            }
+            remove(affected);
+        }
+        else {
+            // a change of a resource may affect the context path detection of all resources below its parent
+            String parentPath = StringUtils.defaultIfEmpty(StringUtils.substringBeforeLast(path, "/"), "/");
+            List<Key> affected = new ArrayList<>();
+            Set<Key> keys = keysByContextPath.get(parentPath);
+            if (keys != null) {
+                affected.addAll(keys);
+            }
+            // all context paths below the parent path, '0' is the character following '/'
+            String prefix = "/".equals(parentPath) ? "/" : parentPath + "/";
+            String end = "/".equals(parentPath) ? "0" : parentPath + "0";
+            for (Set<Key> descendantKeys : keysByContextPath.subMap(prefix, end).values()) {
+                affected.addAll(descendantKeys);
+            }
+            remove(affected);
+        }
+    }
+
+    private void remove(List<Key> keys) {
+        for (Key key : keys) {
+            if (cache.remove(key) != null) {
+                invalidations.incrementAndGet();
+            }
+            unindex(key);
+        }
+    }
+
+    private void index(Key key) {
+        Set<Key> keys = keysByContextPath.get(key.contextPath);
+        if (keys == null) {
+            keys = new HashSet<>();
+            keysByContextPath.put(key.contextPath, keys);
+        }
+        keys.add(key);
+        keys = keysByConfigName.get(key.configName);
+        if (keys == null) {
+            keys = new HashSet<>();
+            keysByConfigName.put(key.configName, keys);
+        }
+        keys.add(key);
+    }
+
+    private void unindex(Key key) {
+        Set<Key> keys = keysByContextPath.get(key.contextPath);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByContextPath.remove(key.contextPath);
+        }
+        keys = keysByConfigName.get(key.configName);
+        if (keys != null && keys.remove(key) && keys.isEmpty()) {
+            keysByConfigName.remove(key.configName);
+        }
+    }
+
+    private static boolean isConfigPath(String path, Collection<String> configRootPaths) {
+        for (String configRootPath : configRootPaths) {
+            if (isSameOrDescendant(path, configRootPath) || isSameOrDescendant(configRootPath, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return Configuration name (relative path below the bucket) or null if the path is not located below a bucket
+     */
+    private String getConfigName(String path) {
+        for (String bucketName : configBucketNames) {
+            int index = path.indexOf("/" + bucketName + "/");
+            if (index >= 0) {
+                return path.substring(index + bucketName.length() + 2);
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSameOrDescendant(String path, String parentPath) {
+        if ("/".equals(parentPath)) {
+            return path.startsWith("/");
+        }
+        return path.equals(parentPath) || path.startsWith(parentPath + "/");
+    }
+
+    // --- statistics ---
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    public int getSize() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * @return Hit rate in percent
+     */
+    public double getHitRate() {
+        long lookups = hits.get() + misses.get();
+        return lookups == 0 ? 0 : hits.get() * 100d / lookups;
+    }
+
+    // --- internal ---
+
+    private Object get(Key key) {
+        Object value;
+        synchronized (cache) {
+            value = cache.get(key);
+        }
+        if (value == null) {
+            misses.incrementAndGet();
+        }
+        else {
+            hits.incrementAndGet();
+        }
+        return value;
+    }
+
+    private void put(Key key, Object value) {
+        synchronized (cache) {
+            // skip values which might have been resolved before a change
+            if (key.generation != generation.get()) {
+                return;
+            }
+            cache.put(key, value);
+            index(key);
+        }
+    }
+
+    private static Object toValue(Resource resource) {
+        if (resource == null) {
+            return NOT_FOUND;
+        }
+        return new CachedConfig(resource.getPath(), new HashMap<String, Object>(resource.getValueMap()));
+    }
+
+    private static Resource toResource(Object value, ResourceResolver resolver) {
+        if (value == NOT_FOUND) {
+            return null;
+        }
+        CachedConfig config = (CachedConfig)value;
+        // copy arrays to prevent modification of the cached values by callers
+        Map<String,Object> props = new HashMap<>(config.props);
+        for (Map.Entry<String,Object> entry : props.entrySet()) {
+            Object propValue = entry.getValue();
+            if (propValue != null && propValue.getClass().isArray()) {
+                int length = Array.getLength(propValue);
+                Object copy = Array.newInstance(propValue.getClass().getComponentType(), length);
+                System.arraycopy(propValue, 0, copy, 0, length);
+                entry.setValue(copy);
+            }
+        }
+        return new CachedConfigResource(resolver, config.path, new ValueMapDecorator(props));
+    }
+
+    static final class Key {
+
+        private final String userId;
+        private final String contextPath;
+        private final String configName;
+        private final boolean collection;
+        // not part of the identity of the key
+        private final long generation;
+
+        Key(String userId, String contextPath, String configName, boolean collection, long generation) {
+            this.userId = userId;
+            this.contextPath = contextPath;
+            this.configName = configName;
+            this.collection = collection;
+            this.generation = generation;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = StringUtils.defaultString(userId).hashCode();
+            result = 31 * result + contextPath.hashCode();
+            result = 31 * result + configName.hashCode();
+            return 31 * result + (collection ? 1 : 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key)obj;
+            return StringUtils.equals(userId, other.userId)
+                    && contextPath.equals(other.contextPath)
+                    && configName.equals(other.configName)
+                    && collection == other.collection;
+        }
+
+    }
+
+    private static final class CachedConfig {
+
+        private final String path;
+        private final Map<String,Object> props;
+
+        CachedConfig(String path, Map<String,Object> props) {
+            this.path = path;
+            this.props = props;
+        }
+
+    }
+
+    /**
+     * Resource providing the cached configuration properties.
+     */
+    private static final class CachedConfigResource extends SyntheticResource {
+
+        private final ValueMap props;
+
+        CachedConfigResource(ResourceResolver resolver, String path, ValueMap props) {
+            super(resolver, path, null);
+            this.props = props;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <AdapterType> AdapterType adaptTo(Class<AdapterType> type) {
+            if (type == ValueMap.class || type == Map.class) {
+                return (AdapterType)props;
+            }
+            return super.adaptTo(type);
+        }
+
+        @Override
+        public ValueMap getValueMap() {
+            return props;
+        }
+
+    }
+
+}
@@ -23,17 +23,24 @@ import static org.apache.sling.caconfig.impl.ConfigurationNameConstants.CONFIGS_
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Dictionary;
+import java.util.Hashtable;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
 import org.apache.sling.caconfig.ConfigurationBuilder;
 import org.apache.sling.caconfig.ConfigurationResolver;
 import org.apache.sling.caconfig.impl.metadata.ConfigurationMetadataProviderMultiplexer;
 import org.apache.sling.caconfig.impl.override.ConfigurationOverrideManager;
 import org.apache.sling.caconfig.management.impl.ConfigurationPersistenceStrategyMultiplexer;
 import org.apache.sling.caconfig.resource.impl.ConfigurationResourceResolvingStrategyMultiplexer;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Deactivate;
 import org.osgi.service.component.annotations.Reference;
 import org.osgi.service.metatype.annotations.AttributeDefinition;
 import org.osgi.service.metatype.annotations.Designate;
@@ -64,18 +71,47 @@ public class ConfigurationResolverImpl implements ConfigurationResolver, Configu
                 + "Once a bucket resource with a matching name is found, that bucket is used and the following names are skipped. "
                 + "For writeback via ConfigurationManager always " + CONFIGS_BUCKET_NAME + " is used.")
         String[] configBucketNames();
+
+        @AttributeDefinition(name = "Cache size",
+                description = "Maximum number of resolved configurations kept in a cache shared by all requests. "
+                + "Entries are invalidated by resource changes. 0 disables the cache.")
+        int cacheSize() default 0;
     
     }
     
     private Collection<String> configBucketNames;
+    private volatile ConfigurationResolverCache cache;
+    private ServiceRegistration<?> cacheRegistration;
     
     @Activate
-    private void activate(Config config) {
+    private void activate(BundleContext bundleContext, Config config) {
         configBucketNames = new ArrayList<>();
         configBucketNames.add(ConfigurationNameConstants.CONFIGS_BUCKET_NAME);
         if (!ArrayUtils.isEmpty(config.configBucketNames())) {
             configBucketNames.addAll(Arrays.asList(config.configBucketNames()));
         }
+        if (config.cacheSize() > 0) {
+            cache = new ConfigurationResolverCache(config.cacheSize(), configurationResourceResolvingStrategy, configBucketNames);
+            Dictionary<String,Object> props = new Hashtable<>();
+            props.put(ResourceChangeListener.PATHS, "/");
+            cacheRegistration = bundleContext.registerService(ResourceChangeListener.class.getName(), cache, props);
+            try {
+                bundleContext.addServiceListener(cache, ConfigurationResolverCache.STRATEGY_SERVICES_FILTER);
+            }
+            catch (InvalidSyntaxException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+    }
+
+    @Deactivate
+    private void deactivate(BundleContext bundleContext) {
+        if (cacheRegistration != null) {
+            bundleContext.removeServiceListener(cache);
+            cacheRegistration.unregister();
+            cacheRegistration = null;
+        }
+        cache = null;
     }
     
     @Override
@@ -83,7 +119,14 @@ public class ConfigurationResolverImpl implements ConfigurationResolver, Configu
         return new ConfigurationBuilderImpl(resource, this,
                 configurationResourceResolvingStrategy, configurationPersistenceStrategy,
                 configurationInheritanceStrategy, configurationOverrideManager, configurationMetadataProvider,
-                configBucketNames);
+                configBucketNames, cache);
+    }
+
+    /**
+     * @return Cache of resolved configurations or null if caching is disabled
+     */
+    public ConfigurationResolverCache getCache() {
+        return cache;
     }
 
     @Override
@@ -29,6 +29,9 @@ import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.felix.inventory.Format;
 import org.apache.felix.inventory.InventoryPrinter;
+import org.apache.sling.caconfig.ConfigurationResolver;
+import org.apache.sling.caconfig.impl.ConfigurationResolverCache;
+import org.apache.sling.caconfig.impl.ConfigurationResolverImpl;
 import org.apache.sling.caconfig.resource.spi.CollectionInheritanceDecider;
 import org.apache.sling.caconfig.resource.spi.ConfigurationResourceResolvingStrategy;
 import org.apache.sling.caconfig.resource.spi.ContextPathStrategy;
@@ -44,6 +47,7 @@ import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
 
 /**
  * Web console configuration printer.
@@ -59,6 +63,9 @@ public class CAConfigInventoryPrinter implements InventoryPrinter {
     public static final String TITLE = "Sling Context-Aware Configuration";
     
     private BundleContext bundleContext;
+
+    @Reference
+    private ConfigurationResolver configurationResolver;
     
     @Activate
     private void activate(BundleContext bundleContext) {
@@ -80,6 +87,28 @@ public class CAConfigInventoryPrinter implements InventoryPrinter {
                 new ConfigurationMetadataPrinter());
         printSPISection(pw, ConfigurationOverrideProvider.class, "Configuration Override Providers",
                 new ConfigurationOverridePrinter());
+        printCacheSection(pw);
+    }
+
+    private void printCacheSection(PrintWriter pw) {
+        String title = "Configuration Cache";
+        pw.println(title);
+        pw.println(StringUtils.repeat('-', title.length()));
+
+        ConfigurationResolverCache cache = null;
+        if (configurationResolver instanceof ConfigurationResolverImpl) {
+            cache = ((ConfigurationResolverImpl)configurationResolver).getCache();
+        }
+        if (cache == null) {
+            pw.println("(disabled)");
+        }
+        else {
+            pw.println(ServiceConfigurationPrinter.BULLET + "Entries: " + cache.getSize());
+            pw.println(ServiceConfigurationPrinter.BULLET + String.format("Hit rate: %.1f%% (%d hits, %d misses)",
+                    cache.getHitRate(), cache.getHits(), cache.getMisses()));
+            pw.println(ServiceConfigurationPrinter.BULLET + "Invalidations: " + cache.getInvalidations());
+        }
+        pw.println();
     }
     
     @SafeVarargs
@@ -19,10 +19,13 @@
 package org.apache.sling.caconfig.resource.impl;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Map;
 
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.caconfig.resource.impl.def.DefaultConfigurationResourceResolvingStrategy;
 import org.apache.sling.caconfig.resource.spi.ConfigurationResourceResolvingStrategy;
 import org.apache.sling.commons.osgi.Order;
 import org.apache.sling.commons.osgi.RankedServices;
@@ -55,6 +58,25 @@ public class ConfigurationResourceResolvingStrategyMultiplexer implements Config
         items.unbind(contextPathStrategy, props);
     }
 
+    /**
+     * Gets the root paths of all configuration resources found by the registered implementations.
+     * As other implementations than the default one do not expose their root paths, the repository root
+     * is returned if any other implementation is registered.
+     * @return Configuration root paths
+     */
+    public Collection<String> getConfigRootPaths() {
+        Collection<String> result = new LinkedHashSet<>();
+        for (ConfigurationResourceResolvingStrategy item : items) {
+            if (item instanceof DefaultConfigurationResourceResolvingStrategy) {
+                result.addAll(((DefaultConfigurationResourceResolvingStrategy)item).getConfigRootPaths());
+            }
+            else {
+                return Collections.singletonList("/");
+            }
+        }
+        return result;
+    }
+
     /**
      * Gets the configuration resource from the first implementation that has an answer.
      */
@@ -21,6 +21,7 @@ package org.apache.sling.caconfig.resource.impl.def;
 import static org.apache.sling.caconfig.resource.impl.def.ConfigurationResourceNameConstants.PROPERTY_CONFIG_COLLECTION_INHERIT;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
@@ -247,6 +248,20 @@ public class DefaultConfigurationResourceResolvingStrategy implements Configurat
         return ref;
     }
 
+    /**
+     * @return Root paths of all configuration resources found by this strategy, empty if it is disabled
+     */
+    public Collection<String> getConfigRootPaths() {
+        final Config config = this.config;
+        if (config == null || !config.enabled()) {
+            return Collections.emptyList();
+        }
+        final List<String> paths = new ArrayList<>();
+        paths.add(config.configPath());
+        paths.addAll(Arrays.asList(config.fallbackPaths()));
+        return paths;
+    }
+
     private boolean isAllowedConfigPath(String path) {
         return path.startsWith(config.configPath() + "/");
     }
@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.caconfig.impl;
+
+import static org.apache.sling.caconfig.resource.impl.def.ConfigurationResourceNameConstants.PROPERTY_CONFIG_REF;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.PersistenceException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.apache.sling.caconfig.resource.spi.ConfigurationResourceResolvingStrategy;
+import org.apache.sling.testing.mock.sling.junit.SlingContext;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Test {@link ConfigurationResolverCache} via {@link ConfigurationResolverImpl}.
+ */
+public class ConfigurationResolverCacheTest {
+
+    @Rule
+    public SlingContext context = new SlingContext();
+
+    private ConfigurationResolverImpl underTest;
+    private ConfigurationResolverCache cache;
+
+    private Resource site1Page1;
+
+    @Before
+    public void setUp() throws PersistenceException {
+        underTest = (ConfigurationResolverImpl)ConfigurationTestUtils.registerConfigurationResolver(context,
+                "cacheSize", 100);
+        cache = underTest.getCache();
+
+        context.build().resource("/content/site1", PROPERTY_CONFIG_REF, "/conf/content/site1");
+        site1Page1 = context.create().resource("/content/site1/page1");
+        context.build().resource("/conf/content/site1/sling:configs/sampleName",
+                "stringParam", "configValue1");
+        context.build().resource("/conf/content/site1/sling:configs/sampleList")
+            .siblingsMode()
+            .resource("1", "stringParam", "configValue1.1")
+            .resource("2", "stringParam", "configValue1.2");
+        context.resourceResolver().commit();
+    }
+
+    @Test
+    public void testCacheHit() {
+        assertEquals("configValue1", getStringParam());
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        assertEquals("configValue1", getStringParam());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void testCacheHitCollection() {
+        assertEquals(2, getCollection().size());
+        Collection<ValueMap> propsList = getCollection();
+        assertEquals(2, propsList.size());
+        assertEquals("configValue1.1", propsList.iterator().next().get("stringParam", String.class));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testNonExistingConfigCached() {
+        assertNull(underTest.get(site1Page1).name("otherName").asValueMap().get("stringParam", String.class));
+        assertNull(underTest.get(site1Page1).name("otherName").asValueMap().get("stringParam", String.class));
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void testInvalidateConfigChange() throws PersistenceException {
+        assertEquals("configValue1", getStringParam());
+        assertEquals(2, getCollection().size());
+
+        updateStringParam("/conf/content/site1/sling:configs/sampleName", "configValue2");
+        cache.onChange(Collections.singletonList(change("/conf/content/site1/sling:configs/sampleName")));
+
+        // only the changed configuration is invalidated
+        assertEquals(1, cache.getSize());
+        assertEquals("configValue2", getStringParam());
+    }
+
+    @Test
+    public void testInvalidateConfigCollectionItemChange() throws PersistenceException {
+        assertEquals("configValue1.1", getCollection().iterator().next().get("stringParam", String.class));
+
+        updateStringParam("/conf/content/site1/sling:configs/sampleList/1", "configValue2.1");
+        cache.onChange(Collections.singletonList(change("/conf/content/site1/sling:configs/sampleList/1")));
+
+        assertEquals("configValue2.1", getCollection().iterator().next().get("stringParam", String.class));
+    }
+
+    @Test
+    public void testInvalidateContentChange() throws PersistenceException {
+        assertEquals("configValue1", getStringParam());
+
+        context.build().resource("/conf/content/site2/sling:configs/sampleName", "stringParam", "configValueSite2");
+        ModifiableValueMap props = context.resourceResolver().getResource("/content/site1").adaptTo(ModifiableValueMap.class);
+        props.put(PROPERTY_CONFIG_REF, "/conf/content/site2");
+        context.resourceResolver().commit();
+        cache.onChange(Collections.singletonList(change("/content/site1")));
+
+        assertEquals("configValueSite2", getStringParam());
+    }
+
+    @Test
+    public void testUnrelatedContentChange() {
+        assertEquals("configValue1", getStringParam());
+
+        cache.onChange(Collections.singletonList(change("/content/site2/page1")));
+
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void testInvalidateContentChangeOfContextAncestor() {
+        assertEquals("configValue1", getStringParam());
+        assertEquals(2, getCollection().size());
+
+        cache.onChange(Collections.singletonList(change("/content/site1")));
+
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testInvalidateFallbackPathChange() {
+        assertEquals("configValue1", getStringParam());
+
+        // the fallback paths of the default strategy are configuration root paths
+        cache.onChange(Collections.singletonList(change("/libs/conf/other")));
+
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testInvalidateAnyChangeWithCustomStrategy() {
+        assertEquals("configValue1", getStringParam());
+        context.registerService(ConfigurationResourceResolvingStrategy.class, mock(ConfigurationResourceResolvingStrategy.class));
+        cache.clear();
+        assertEquals("configValue1", getStringParam());
+
+        // the configuration root paths of custom strategies are unknown
+        cache.onChange(Collections.singletonList(change("/content/site2/page1")));
+
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testNoStalePutAfterInvalidation() {
+        ConfigurationResolverCache.Key key = cache.getKey(site1Page1, "sampleName", false);
+        Resource configResource = context.resourceResolver().getResource("/conf/content/site1/sling:configs/sampleName");
+
+        // a change reported while the configuration is resolved
+        cache.onChange(Collections.singletonList(change("/conf/content/site1/sling:configs/sampleName")));
+        cache.putResource(key, configResource);
+        assertEquals(0, cache.getSize());
+
+        cache.putResource(cache.getKey(site1Page1, "sampleName", false), configResource);
+        assertEquals(1, cache.getSize());
+    }
+
+    @Test
+    public void testNoCacheWithPendingChanges() {
+        context.create().resource("/content/site1/page2");
+
+        assertEquals("configValue1", getStringParam());
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void testCacheDisabled() {
+        ConfigurationResolverImpl resolver = (ConfigurationResolverImpl)context.registerInjectActivateService(
+                new ConfigurationResolverImpl());
+        assertNull(resolver.getCache());
+    }
+
+    private String getStringParam() {
+        return underTest.get(site1Page1).name("sampleName").asValueMap().get("stringParam", String.class);
+    }
+
+    private Collection<ValueMap> getCollection() {
+        return underTest.get(site1Page1).name("sampleList").asValueMapCollection();
+    }
+
+    private void updateStringParam(String path, String value) throws PersistenceException {
+        ModifiableValueMap props = context.resourceResolver().getResource(path).adaptTo(ModifiableValueMap.class);
+        props.put("stringParam", value);
+        context.resourceResolver().commit();
+    }
+
+    private static ResourceChange change(String path) {
+        return new ResourceChange(ChangeType.CHANGED, path, false, null, null, null);
+    }
+
+}
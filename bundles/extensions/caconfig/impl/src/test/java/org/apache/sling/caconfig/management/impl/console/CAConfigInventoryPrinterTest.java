@@ -93,6 +93,9 @@ public class CAConfigInventoryPrinterTest {
         
         // ensure overrides strings
         assertTrue(StringUtils.contains(result, SAMPLE_OVERRIDE_STRING));
+
+        // ensure cache section
+        assertTrue(StringUtils.contains(result, "Configuration Cache"));
     }
 
 }
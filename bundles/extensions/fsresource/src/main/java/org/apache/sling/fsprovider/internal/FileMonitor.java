@@ -19,9 +19,16 @@
 package org.apache.sling.fsprovider.internal;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -30,16 +37,19 @@ import org.apache.sling.api.resource.observation.ResourceChange;
 import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
 import org.apache.sling.fsprovider.internal.mapper.ContentFile;
 import org.apache.sling.fsprovider.internal.parser.ContentFileCache;
+import org.apache.sling.installer.provider.file.impl.FileWatcher;
 import org.apache.sling.spi.resource.provider.ObservationReporter;
 import org.apache.sling.spi.resource.provider.ObserverConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * This class is a monitor for the file system
- * that periodically checks for changes.
+ * This class is a monitor for the file system.
+ * If possible, changes are detected by a {@link FileWatcher} and only
+ * the changed entries are checked. Otherwise or if the root directory
+ * can't be watched anymore, the whole tree is checked periodically.
  */
-public final class FileMonitor extends TimerTask {
+public final class FileMonitor extends TimerTask implements FileWatcher.Listener {
 
     private final Logger log = LoggerFactory.getLogger(this.getClass());
 
@@ -54,20 +64,41 @@ public final class FileMonitor extends TimerTask {
     private final ContentFileExtensions contentFileExtensions;
     private final ContentFileCache contentFileCache;
 
+    private final long interval;
+
+    private volatile FileWatcher watcher;
+
     /**
      * Creates a new instance of this class.
      * @param provider The resource provider.
      * @param interval The interval between executions of the task, in milliseconds.
+     * @param watch Whether changes should be detected by watching the file system.
      */
-    public FileMonitor(final FsResourceProvider provider, final long interval,
+    public FileMonitor(final FsResourceProvider provider, final long interval, final boolean watch,
             final ContentFileExtensions contentFileExtensions, final ContentFileCache contentFileCache) {
         this.provider = provider;
         this.contentFileExtensions = contentFileExtensions;
         this.contentFileCache = contentFileCache;
+        this.interval = interval;
         this.root = new Monitorable(this.provider.getProviderRoot(), this.provider.getRootFile(), null);
+        // register the watcher before the initial scan so no change gets lost
+        if (watch && this.root.file.isDirectory()) {
+            try {
+                this.watcher = new FileWatcher(this.root.file, FileWatcher.DEFAULT_DEBOUNCE, this);
+            }
+            catch (IOException e) {
+                log.info("Unable to watch {}, falling back to periodic checks: {}", this.root.file, e.getMessage());
+            }
+        }
         createStatus(this.root, contentFileExtensions, contentFileCache);
-        log.debug("Starting file monitor for {} with an interval of {}ms", this.root.file, interval);
-        timer.schedule(this, 0, interval);
+        if (this.watcher != null) {
+            log.debug("Starting file watcher for {}", this.root.file);
+            this.watcher.start();
+        }
+        else {
+            log.debug("Starting file monitor for {} with an interval of {}ms", this.root.file, interval);
+            timer.schedule(this, 0, interval);
+        }
     }
 
     /**
@@ -76,6 +107,10 @@ public final class FileMonitor extends TimerTask {
      * never run (again).
      */
     void stop() {
+        final FileWatcher w = this.watcher;
+        if (w != null) {
+            w.stop();
+        }
         synchronized (timer) {
             if (!stop) {
                 stop = true;
@@ -129,6 +164,139 @@ public final class FileMonitor extends TimerTask {
         }
     }
 
+    @Override
+    public void changed(final Set<File> changed, final Set<File> rescan) {
+        synchronized ( this ) {
+            try {
+                // if we don't have an observation reporter, we just skip the check
+                final ObservationReporter reporter = this.provider.getObservationReporter();
+                if ( reporter == null ) {
+                    return;
+                }
+                for (final File dir : rescan) {
+                    final Monitorable monitorable = find(dir);
+                    if (monitorable != null) {
+                        log.debug("Rescanning {}", dir);
+                        if (monitorable.status instanceof DirStatus) {
+                            // force an update of the children
+                            ((DirStatus)monitorable.status).lastModified = -1;
+                        }
+                        check(monitorable, reporter);
+                    }
+                }
+                // check parents before their children, so a removed or added
+                // directory is handled as a whole
+                final List<File> files = new ArrayList<>(changed);
+                Collections.sort(files, DEPTH_COMPARATOR);
+                final Set<Monitorable> changedParents = new HashSet<>();
+                for (final File file : files) {
+                    checkEntry(file, changedParents, reporter);
+                }
+            } catch (Exception e) {
+                log.warn("Unable to process changes in " + this.root.file, e);
+            }
+        }
+    }
+
+    @Override
+    public void invalidated() {
+        this.watcher = null;
+        synchronized (timer) {
+            if (!stop) {
+                log.debug("Continuing file monitor for {} with an interval of {}ms", this.root.file, this.interval);
+                timer.schedule(this, 0, this.interval);
+            }
+        }
+    }
+
+    /**
+     * Check a single entry reported by the watcher.
+     * @param file The changed file
+     * @param changedParents The parents already reported as changed in this batch
+     * @param reporter The ObservationReporter
+     */
+    private void checkEntry(final File file, final Set<Monitorable> changedParents, final ObservationReporter reporter) {
+        final Monitorable parent = find(file.getParentFile());
+        if (parent == null || !(parent.status instanceof DirStatus)) {
+            // the parent has been added or removed as a whole
+            return;
+        }
+        final DirStatus ds = (DirStatus)parent.status;
+        Monitorable monitorable = null;
+        for (final Monitorable child : ds.children) {
+            if (child.file.getName().equals(file.getName())) {
+                monitorable = child;
+                break;
+            }
+        }
+        if (monitorable == null) {
+            monitorable = new Monitorable(parent.path + '/' + file.getName(), file, contentFileExtensions.getSuffix(file));
+            monitorable.status = NonExistingStatus.SINGLETON;
+            ds.children = Arrays.copyOf(ds.children, ds.children.length + 1);
+            ds.children[ds.children.length - 1] = monitorable;
+        }
+        else if (monitorable.status instanceof DirStatus && monitorable.file.isDirectory()) {
+            // the content of a directory is watched on its own
+            return;
+        }
+        // adding or removing a child changes the parent, as with periodic checks
+        final boolean existed = !(monitorable.status instanceof NonExistingStatus);
+        if (existed != monitorable.file.exists() && changedParents.add(parent)) {
+            ds.lastModified = parent.file.lastModified();
+            sendEvents(parent, ChangeType.CHANGED, reporter);
+        }
+        check(monitorable, reporter);
+        if (monitorable.status instanceof NonExistingStatus) {
+            final List<Monitorable> children = new ArrayList<>(Arrays.asList(ds.children));
+            children.remove(monitorable);
+            ds.children = children.toArray(new Monitorable[children.size()]);
+        }
+    }
+
+    /**
+     * Find the monitorable for a file
+     * @return The monitorable or {@code null} if the file is not part of the current tree.
+     */
+    private Monitorable find(final File file) {
+        final Path relPath;
+        try {
+            relPath = this.root.file.toPath().relativize(file.toPath());
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+        Monitorable current = this.root;
+        for (final Path name : relPath) {
+            final String segment = name.toString();
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (!(current.status instanceof DirStatus) || segment.equals("..")) {
+                return null;
+            }
+            Monitorable next = null;
+            for (final Monitorable child : ((DirStatus)current.status).children) {
+                if (child.file.getName().equals(segment)) {
+                    next = child;
+                    break;
+                }
+            }
+            if (next == null) {
+                return null;
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /** Orders files by the depth of their path. */
+    private static final Comparator<File> DEPTH_COMPARATOR = new Comparator<File>() {
+        @Override
+        public int compare(final File f1, final File f2) {
+            return f1.toPath().getNameCount() - f2.toPath().getNameCount();
+        }
+    };
+
     /**
      * Check the monitorable
      * @param monitorable The monitorable to check
@@ -101,6 +101,12 @@ public final class FsResourceProvider extends ResourceProvider<Object> {
              "(the default is 1000). If a change is detected, resource events are sent through the event admin.")
         long provider_checkinterval() default 1000;
 
+        @AttributeDefinition(name = "Watch File System",
+                description = "If enabled and the check interval has a value higher than 100, changes are detected " +
+                "by watching the file system instead of checking the whole tree periodically. " +
+                "If the file system can't be watched, the provider falls back to periodic checks.")
+        boolean provider_watch() default true;
+
         @AttributeDefinition(name = "Provider Root",
                 description = "Location in the virtual resource tree where the " +
                 "filesystem resources are mapped in. This property must not be an empty string.")
@@ -271,7 +277,7 @@ public final class FsResourceProvider extends ResourceProvider<Object> {
         
         // start background monitor if check interval is higher than 100
         if ( config.provider_checkinterval() > 100 ) {
-            this.monitor = new FileMonitor(this, config.provider_checkinterval(),
+            this.monitor = new FileMonitor(this, config.provider_checkinterval(), config.provider_watch(),
                     contentFileExtensions, this.contentFileCache);
         }
     }
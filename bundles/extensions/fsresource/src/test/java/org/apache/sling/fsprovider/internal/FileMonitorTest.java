@@ -24,6 +24,8 @@ import static org.junit.Assert.assertTrue;
 import java.io.File;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 
 import org.apache.commons.io.FileUtils;
@@ -37,16 +39,27 @@ import org.apache.sling.testing.mock.sling.junit.SlingContextBuilder;
 import org.apache.sling.testing.mock.sling.junit.SlingContextCallback;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
 
 /**
- * Test events when changing filesystem content.
+ * Test events when changing filesystem content, both with watching the file system and with periodic checks.
  */
+@RunWith(Parameterized.class)
 public class FileMonitorTest {
 
     private final File tempDir;
+    private final boolean watch;
     private final ResourceListener resourceListener = new ResourceListener();
     
-    public FileMonitorTest() throws Exception {
+    @Parameters(name = "watch={0}")
+    public static Collection<Object[]> parameters() {
+        return Arrays.asList(new Object[][] { { true }, { false } });
+    }
+
+    public FileMonitorTest(boolean watch) throws Exception {
+        this.watch = watch;
         tempDir = Files.createTempDirectory(getClass().getName()).toFile();
     }
 
@@ -65,6 +78,7 @@ public class FileMonitorTest {
                         "provider.file", tempDir.getPath(),
                         "provider.root", "/fs-test",
                         "provider.checkinterval", 120,
+                        "provider.watch", watch,
                         "provider.json.content", true);
                 
                 // register resource change listener
@@ -21,6 +21,7 @@ package org.apache.sling.i18n.impl;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
@@ -28,6 +29,7 @@ import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Locale;
 import java.util.Map;
 import java.util.ResourceBundle;
@@ -65,7 +67,19 @@ public class JcrResourceBundle extends ResourceBundle {
 
     static final String QUERY_LANGUAGE_ROOTS = "//element(*,mix:language)[@jcr:language]";
 
-    private final Map<String, Object> resources;
+    /**
+     * The merged messages of all dictionaries. This map is never modified but replaced
+     * as a whole, so lookups never have to wait for a reload.
+     */
+    private volatile Map<String, Object> resources;
+
+    /**
+     * The individual dictionaries in the order in which they have been loaded.
+     * Only accessed while holding the monitor of this bundle (or from the constructor).
+     */
+    private final List<Dictionary> dictionaries;
+
+    private final String[] searchPath;
 
     private final Locale locale;
 
@@ -82,8 +96,10 @@ public class JcrResourceBundle extends ResourceBundle {
 
         long start = System.currentTimeMillis();
         resourceResolver.refresh();
+        this.searchPath = resourceResolver.getSearchPath();
         Set<String> roots = loadPotentialLanguageRoots(resourceResolver, locale, baseName);
-        this.resources = loadFully(resourceResolver, roots, this.languageRoots);
+        this.dictionaries = loadFully(resourceResolver, roots, this.languageRoots);
+        this.resources = merge();
 
         long end = System.currentTimeMillis();
         if (log.isInfoEnabled()) {
@@ -160,27 +176,13 @@ public class JcrResourceBundle extends ResourceBundle {
      *      processing the resources, all subtrees listed in the {@code roots}
      *      set is added to this set if it actually contains resources. This
      *      must not be {@code null}.
-     * @return
+     * @return the loaded dictionaries in the order of the given roots
      *
      * @throws NullPointerException if either of the parameters is {@code null}.
      */
-    private Map<String, Object> loadFully(final ResourceResolver resolver, Set<String> roots, Set<String> languageRoots) {
-
-        final String[] searchPath = resolver.getSearchPath();
-
-        // for each search path entry, have a list of maps (dictionaries)
-        // plus other = "outside the search path" at the end
-
-        //   [0] /apps2  -> [dict1, dict2, dict3 ...]
-        //   [1] /apps   -> [dict4, dict5, ...]
-        //   [2] /libs   -> [dict6, ...]
-        //   [3] (other) -> [dict7, dict8 ...]
-
-        List<List<Map<String, Object>>> dictionariesBySearchPath = new ArrayList<List<Map<String, Object>>>(searchPath.length + 1);
-        for (int i = 0; i < searchPath.length + 1; i++) {
-            dictionariesBySearchPath.add(new ArrayList<Map<String, Object>>());
-        }
+    private List<Dictionary> loadFully(final ResourceResolver resolver, Set<String> roots, Set<String> languageRoots) {
 
+        final List<Dictionary> result = new ArrayList<Dictionary>(roots.size());
         for (final String root: roots) {
 
             Resource dictionaryResource = resolver.getResource(root);
@@ -189,53 +191,129 @@ public class JcrResourceBundle extends ResourceBundle {
                 continue;
             }
 
-            // linked hash map to keep order (not functionally important, but helpful for dictionary debugging)
-            Map<String, Object> dictionary = new LinkedHashMap<String, Object>();
-
             // find where in the search path this dict belongs
-            // otherwise put it in the outside-the-search-path bucket (last list)
-            List<Map<String, Object>> targetList = dictionariesBySearchPath.get(searchPath.length);
+            // otherwise put it in the outside-the-search-path bucket (last one)
+            int bucket = searchPath.length;
             for (int i = 0; i < searchPath.length; i++) {
                 if (root.startsWith(searchPath[i])) {
-                    targetList = dictionariesBySearchPath.get(i);
+                    bucket = i;
                     break;
                 }
             }
-            targetList.add(dictionary);
 
-            // check type of dictionary
-            if (dictionaryResource.getName().endsWith(".json")) {
-                loadJsonDictionary(dictionaryResource, dictionary);
-            } else {
-                loadSlingMessageDictionary(dictionaryResource, dictionary);
-            }
+            final Dictionary dictionary = new Dictionary(root, bucket, dictionaryResource.getName().endsWith(".json"));
+            dictionary.load(dictionaryResource);
+            result.add(dictionary);
 
             languageRoots.add(root);
         }
+        return result;
+    }
 
+    /**
+     * Merges all dictionaries into a single map.
+     * <p>
+     * The search path defines the precedence of the dictionaries:
+     * for each search path entry, have a list of dictionaries
+     * plus other = "outside the search path" at the end
+     * <pre>
+     *   [0] /apps2  -&gt; [dict1, dict2, dict3 ...]
+     *   [1] /apps   -&gt; [dict4, dict5, ...]
+     *   [2] /libs   -&gt; [dict6, ...]
+     *   [3] (other) -&gt; [dict7, dict8 ...]
+     * </pre>
+     */
+    private Map<String, Object> merge() {
         // linked hash map to keep order (not functionally important, but helpful for dictionary debugging)
         final Map<String, Object> result = new LinkedHashMap<String, Object>();
 
-        // first, add everything that's not under a search path (e.g. /content)
-        // below, same strings inside a search path dictionary would overlay them since
-        // they are added later to result = overwrite
-        for (Map<String, Object> dict : dictionariesBySearchPath.get(searchPath.length)) {
-            result.putAll(dict);
-        }
-
+        // first, add everything that's not under a search path (e.g. /content),
         // then, in order of the search path, add all the individual dictionaries into
         // a single result, so that e.g. strings in /apps overlay the ones in /libs
-        for (int i = searchPath.length - 1; i >= 0; i--) {
+        for (int bucket = searchPath.length; bucket >= 0; bucket--) {
+            for (Dictionary dict : dictionaries) {
+                if (dict.bucket == bucket) {
+                    result.putAll(dict.entries);
+                }
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
 
-            for (Map<String, Object> dict : dictionariesBySearchPath.get(i)) {
-                result.putAll(dict);
+    /**
+     * Applies changes of the given resources to this bundle by only reading the changed
+     * subtrees of the affected dictionaries. The merged messages are then replaced at once,
+     * lookups done in the meantime see the previous state.
+     *
+     * @param resolver The storage access (must not be {@code null})
+     * @param changedPaths The paths of added, changed or removed resources
+     * @return {@code false} if the changes cannot be applied incrementally (e.g. because a
+     *      language root itself has changed), in which case the bundle must be fully reloaded.
+     */
+    synchronized boolean applyChanges(final ResourceResolver resolver, final Collection<String> changedPaths) {
+        final Set<String> changedKeys = new HashSet<String>();
+        for (final String path : changedPaths) {
+            Dictionary dictionary = null;
+            for (Dictionary dict : dictionaries) {
+                if (path.startsWith(dict.root + "/") || (dict.json && path.equals(dict.root))) {
+                    dictionary = dict;
+                    break;
+                }
+            }
+            if (dictionary == null) {
+                log.debug("Change of '{}' cannot be applied incrementally to {}", path, this);
+                return false;
+            }
+            if (dictionary.json) {
+                final Resource dictionaryResource = resolver.getResource(dictionary.root);
+                if (dictionaryResource == null) {
+                    return false;
+                }
+                changedKeys.addAll(dictionary.entries.keySet());
+                dictionary.entries.clear();
+                dictionary.load(dictionaryResource);
+                changedKeys.addAll(dictionary.entries.keySet());
+            } else {
+                dictionary.removeMessages(path, changedKeys);
+                final Resource changedResource = resolver.getResource(path);
+                if (changedResource != null) {
+                    dictionary.addMessages(changedResource, changedKeys);
+                }
             }
         }
 
-        return result;
+        final Map<String, Object> result = new LinkedHashMap<String, Object>(resources);
+        for (final String key : changedKeys) {
+            final Object value = resolve(key);
+            if (value == null) {
+                result.remove(key);
+            } else {
+                result.put(key, value);
+            }
+        }
+        this.resources = Collections.unmodifiableMap(result);
+        log.debug("Applied {} changed entries to {}", changedKeys.size(), this);
+        return true;
+    }
+
+    /**
+     * @return the value of the dictionary with the highest precedence containing the given key
+     * @see #merge()
+     */
+    private Object resolve(final String key) {
+        for (int bucket = 0; bucket <= searchPath.length; bucket++) {
+            // later dictionaries in the same bucket overlay the earlier ones
+            for (ListIterator<Dictionary> it = dictionaries.listIterator(dictionaries.size()); it.hasPrevious();) {
+                final Dictionary dict = it.previous();
+                if (dict.bucket == bucket && dict.entries.containsKey(key)) {
+                    return dict.entries.get(key);
+                }
+            }
+        }
+        return null;
     }
 
-    private void loadJsonDictionary(Resource resource, final Map<String, Object> targetDictionary) {
+    private static void loadJsonDictionary(Resource resource, final Map<String, Object> targetDictionary) {
         log.info("Loading json dictionary: {}", resource.getPath());
 
         // use streaming parser (we don't need the dict in memory twice)
@@ -297,25 +375,25 @@ public class JcrResourceBundle extends ResourceBundle {
     /**
      * Depth-first traversal of a resource tree
      */
-    private void scanForSlingMessages(final Resource rsrc, final Map<String, Object> targetDictionary) {
+    private static void scanForSlingMessages(final Resource rsrc, final Map<String, String[]> targetMessages) {
         final ValueMap vm = rsrc.adaptTo(ValueMap.class);
         if ( vm != null ) {
             final String value = vm.get(PROP_VALUE, String.class);
             if ( value != null ) {
                 final String key = vm.get(PROP_KEY, rsrc.getName());
-                targetDictionary.put(key, value);
+                targetMessages.put(rsrc.getPath(), new String[] {key, value});
             }
         }
 
         for(final Resource c : rsrc.getChildren()) {
-            scanForSlingMessages(c, targetDictionary);
+            scanForSlingMessages(c, targetMessages);
         }
     }
 
-    private void loadSlingMessageDictionary(final Resource dictionaryResource, final Map<String, Object> targetDictionary) {
+    private static void loadSlingMessageDictionary(final Resource dictionaryResource, final Map<String, String[]> targetMessages) {
         log.info("Loading sling:Message dictionary: {}", dictionaryResource.getPath());
 
-        this.scanForSlingMessages(dictionaryResource, targetDictionary);
+        scanForSlingMessages(dictionaryResource, targetMessages);
     }
 
     private Set<String> loadPotentialLanguageRoots(ResourceResolver resourceResolver, Locale locale, String baseName) {
@@ -350,6 +428,79 @@ public class JcrResourceBundle extends ResourceBundle {
         return locale.toString().replace('_', '-');
     }
 
+    /**
+     * A single dictionary, i.e. a json file or a subtree of sling:Message resources.
+     */
+    private static final class Dictionary {
+
+        final String root;
+
+        /** index of the search path entry this dictionary belongs to */
+        final int bucket;
+
+        final boolean json;
+
+        /** the messages of this dictionary by key */
+        final Map<String, Object> entries = new LinkedHashMap<String, Object>();
+
+        /** the sling:Message resources by path (key and message), empty for json dictionaries */
+        final Map<String, String[]> messages = new LinkedHashMap<String, String[]>();
+
+        Dictionary(final String root, final int bucket, final boolean json) {
+            this.root = root;
+            this.bucket = bucket;
+            this.json = json;
+        }
+
+        void load(final Resource dictionaryResource) {
+            if (json) {
+                loadJsonDictionary(dictionaryResource, entries);
+            } else {
+                loadSlingMessageDictionary(dictionaryResource, messages);
+                for (String[] message : messages.values()) {
+                    entries.put(message[0], message[1]);
+                }
+            }
+        }
+
+        /**
+         * Removes all messages at or below the given path and collects their keys.
+         */
+        void removeMessages(final String path, final Set<String> changedKeys) {
+            final Set<String> removedKeys = new HashSet<String>();
+            for (Iterator<Map.Entry<String, String[]>> it = messages.entrySet().iterator(); it.hasNext();) {
+                final Map.Entry<String, String[]> entry = it.next();
+                if (entry.getKey().equals(path) || entry.getKey().startsWith(path + "/")) {
+                    removedKeys.add(entry.getValue()[0]);
+                    it.remove();
+                }
+            }
+            for (final String key : removedKeys) {
+                entries.remove(key);
+            }
+            // the same key might still be defined by another message of this dictionary
+            for (String[] message : messages.values()) {
+                if (removedKeys.contains(message[0])) {
+                    entries.put(message[0], message[1]);
+                }
+            }
+            changedKeys.addAll(removedKeys);
+        }
+
+        /**
+         * Adds all messages at or below the given resource and collects their keys.
+         */
+        void addMessages(final Resource resource, final Set<String> changedKeys) {
+            final Map<String, String[]> added = new LinkedHashMap<String, String[]>();
+            scanForSlingMessages(resource, added);
+            for (String[] message : added.values()) {
+                entries.put(message[0], message[1]);
+                changedKeys.add(message[0]);
+            }
+            messages.putAll(added);
+        }
+    }
+
     @Override
     public String toString() {
         return "JcrResourceBundle [locale=" + locale + ", baseName=" + baseName + ", languageRoots=" + languageRoots
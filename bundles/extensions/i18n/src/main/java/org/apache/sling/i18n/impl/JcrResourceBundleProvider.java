@@ -30,6 +30,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -42,6 +43,8 @@ import java.util.concurrent.Semaphore;
 import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.Resource;
@@ -100,6 +103,9 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, Resour
     @Reference
     private ServiceUserMapped serviceUserMapped;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC)
+    private volatile ResourceBundleMetrics metrics;
+
     /**
      * The default Locale as configured with the <i>locale.default</i>
      * configuration property. This defaults to <code>Locale.ENGLISH</code> if
@@ -121,6 +127,11 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, Resour
 
     private final ConcurrentHashMap<Key, Semaphore> loadingGuards = new ConcurrentHashMap<Key, Semaphore>();
 
+    /**
+     * Changed paths per cached resource bundle, collected until the scheduled update job applies them.
+     */
+    private final Map<Key, PendingChanges> pendingChanges = new HashMap<Key, PendingChanges>();
+
     /**
      * paths from which JCR resource bundles have been loaded
      */
@@ -196,23 +207,30 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, Resour
                         change.getPath());
                 scheduleReloadBundles(true);
             } else {
-                // if it is only a change below a root path, only messages of one resource bundle can be affected!
+                // if it is only a change below a root path, only the messages of the resource bundles
+                // containing this root can be affected!
+                boolean scheduled = false;
                 for (final String root : languageRootPaths) {
                     if (change.getPath().startsWith(root)) {
-                        // figure out which JcrResourceBundle from the cached ones is affected
+                        // figure out which JcrResourceBundles from the cached ones are affected
                         for (JcrResourceBundle bundle : resourceBundleCache.values()) {
                             if (bundle.getLanguageRootPaths().contains(root)) {
-                                // reload it
-                                log.debug("handleEvent: Resource changes below '{}', reloading ResourceBundle '{}'",
+                                // update it
+                                log.debug("handleEvent: Resource changes below '{}', updating ResourceBundle '{}'",
                                         root, bundle);
-                                scheduleReloadBundle(bundle);
-                                return;
+                                scheduleReloadBundle(bundle, change.getPath());
+                                scheduled = true;
                             }
                         }
-                        log.debug("handleEvent: No cached resource bundle found with root '{}'", root);
+                        if (!scheduled) {
+                            log.debug("handleEvent: No cached resource bundle found with root '{}'", root);
+                        }
                         break;
                     }
                 }
+                if (scheduled) {
+                    continue;
+                }
                 // may be a completely new dictionary
                 if (!refreshed) {
                     // refresh at most once per onChange()
@@ -279,6 +297,9 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, Resour
             }
         }
         scheduledJobNames.clear();
+        synchronized (pendingChanges) {
+            pendingChanges.clear();
+        }
         // defer this job
         final ScheduleOptions options;
         if (withDelay) {
@@ -297,25 +318,71 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, Resour
         }, options);
     }
 
-    private void scheduleReloadBundle(JcrResourceBundle bundle) {
+    private void scheduleReloadBundle(JcrResourceBundle bundle, String changedPath) {
         String baseName = bundle.getBaseName();
         Locale locale = bundle.getLocale();
         final Key key = new Key(baseName, locale);
 
+        // collect the changes until the job runs, only a single job per bundle is scheduled
+        synchronized (pendingChanges) {
+            PendingChanges changes = pendingChanges.get(key);
+            if (changes != null) {
+                changes.paths.add(changedPath);
+                return;
+            }
+            changes = new PendingChanges();
+            changes.paths.add(changedPath);
+            pendingChanges.put(key, changes);
+        }
+
         // defer this job
         ScheduleOptions options = scheduler.AT(new Date(System.currentTimeMillis() + invalidationDelay));
-        final String jobName = "JcrResourceBundleProvider: reload bundle with key " + key.toString();
+        final String jobName = "JcrResourceBundleProvider: update bundle with key " + key.toString();
         scheduledJobNames.add(jobName);
         options.name(jobName);
         scheduler.schedule(new Runnable() {
             @Override
             public void run() {
-                reloadBundle(key);
+                final PendingChanges changes;
+                synchronized (pendingChanges) {
+                    changes = pendingChanges.remove(key);
+                }
+                if (changes != null) {
+                    applyChanges(key, changes);
+                }
                 scheduledJobNames.remove(jobName);
             }
         }, options);
     }
 
+    /**
+     * Applies the given changes to the cached bundle by only re-reading the changed messages.
+     * As the bundle instance stays the same, bundles having this bundle as parent are not affected.
+     * Falls back to {@link #reloadBundle(Key)} if the changes cannot be applied incrementally.
+     */
+    void applyChanges(final Key key, final PendingChanges changes) {
+        final JcrResourceBundle bundle = resourceBundleCache.get(key);
+        if (bundle == null) {
+            log.debug("Resource bundle for {} is no longer cached, ignoring changes", key);
+            return;
+        }
+        final ResourceBundleMetrics metrics = getMetrics();
+        final long start = System.nanoTime();
+        boolean applied;
+        try {
+            resourceResolver.refresh();
+            applied = bundle.applyChanges(resourceResolver, changes.paths);
+        } finally {
+            metrics.incrementalReload(System.nanoTime() - start);
+        }
+        if (applied) {
+            log.info("Updated resource bundle for {} with {} changed resources", key, changes.paths.size());
+        } else {
+            reloadBundle(key);
+        }
+        metrics.changeLatency(System.currentTimeMillis() - changes.since);
+    }
+
     void reloadBundle(final Key key) {
         // remove bundle from cache
         resourceBundleCache.remove(key);
@@ -408,7 +475,12 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, Resour
                     log.debug("getResourceBundleInternal({}): got cache hit on second try", key);
                 } else {
                     log.debug("getResourceBundleInternal({}): reading from Repository", key);
-                    resourceBundle = createResourceBundle(key.baseName, key.locale);
+                    final long start = System.nanoTime();
+                    try {
+                        resourceBundle = createResourceBundle(key.baseName, key.locale);
+                    } finally {
+                        getMetrics().fullReload(System.nanoTime() - start);
+                    }
                     resourceBundleCache.put(key, resourceBundle);
                     registerResourceBundle(key, resourceBundle);
                 }
@@ -508,6 +580,11 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, Resour
         return rootResourceBundle;
     }
 
+    private ResourceBundleMetrics getMetrics() {
+        final ResourceBundleMetrics metrics = this.metrics;
+        return metrics != null ? metrics : ResourceBundleMetrics.NOOP;
+    }
+
     private void clearCache() {
         resourceBundleCache.clear();
         languageRootPaths.clear();
@@ -614,6 +691,17 @@ public class JcrResourceBundleProvider implements ResourceBundleProvider, Resour
 
     //---------- internal class
 
+    /**
+     * The changed paths of a single resource bundle which have not been applied yet.
+     */
+    static final class PendingChanges {
+
+        /** time of the first change */
+        final long since = System.currentTimeMillis();
+
+        final Set<String> paths = new LinkedHashSet<String>();
+    }
+
     /**
      * The <code>Key</code> class encapsulates the base name and Locale in a
      * single object that can be used as the key in a <code>HashMap</code>.
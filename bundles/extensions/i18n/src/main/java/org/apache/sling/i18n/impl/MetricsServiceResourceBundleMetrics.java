@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.i18n.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.commons.metrics.MetricsService;
+import org.apache.sling.commons.metrics.Timer;
+
+/**
+ * Records the {@link ResourceBundleMetrics} with the Sling Commons Metrics.
+ * This is the only class of the bundle using the metrics API, whose import is
+ * optional: the component is only activated if a {@link MetricsService} is
+ * available.
+ */
+@Component
+@Service(ResourceBundleMetrics.class)
+public class MetricsServiceResourceBundleMetrics implements ResourceBundleMetrics {
+
+    /** name of the timer measuring the time from a dictionary change until it is visible in the cached bundles */
+    static final String METRIC_CHANGE_LATENCY = "sling.i18n.change.latency";
+
+    /** name of the timer measuring incremental updates of cached bundles */
+    static final String METRIC_INCREMENTAL_RELOAD = "sling.i18n.reload.incremental";
+
+    /** name of the timer measuring full loads of bundles */
+    static final String METRIC_FULL_RELOAD = "sling.i18n.reload.full";
+
+    @Reference
+    private MetricsService metricsService;
+
+    private Timer changeLatency;
+
+    private Timer incrementalReload;
+
+    private Timer fullReload;
+
+    @Activate
+    protected void activate() {
+        changeLatency = metricsService.timer(METRIC_CHANGE_LATENCY);
+        incrementalReload = metricsService.timer(METRIC_INCREMENTAL_RELOAD);
+        fullReload = metricsService.timer(METRIC_FULL_RELOAD);
+    }
+
+    @Override
+    public void fullReload(final long nanos) {
+        fullReload.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void incrementalReload(final long nanos) {
+        incrementalReload.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void changeLatency(final long millis) {
+        changeLatency.update(millis, TimeUnit.MILLISECONDS);
+    }
+}
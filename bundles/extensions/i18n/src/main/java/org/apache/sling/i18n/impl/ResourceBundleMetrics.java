@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.i18n.impl;
+
+/**
+ * Records the load and update times of the resource bundles cached by the
+ * {@link JcrResourceBundleProvider}. The implementation based on the optional
+ * Sling Commons Metrics is {@link MetricsServiceResourceBundleMetrics}, so the
+ * provider itself does not load any metrics class.
+ */
+public interface ResourceBundleMetrics {
+
+    /**
+     * Metrics discarding everything, used if no metrics service is available.
+     */
+    ResourceBundleMetrics NOOP = new ResourceBundleMetrics() {
+
+        @Override
+        public void fullReload(final long nanos) {
+        }
+
+        @Override
+        public void incrementalReload(final long nanos) {
+        }
+
+        @Override
+        public void changeLatency(final long millis) {
+        }
+    };
+
+    /**
+     * Records the time taken to load a bundle from the repository.
+     */
+    void fullReload(long nanos);
+
+    /**
+     * Records the time taken to update a cached bundle with changed messages.
+     */
+    void incrementalReload(long nanos);
+
+    /**
+     * Records the time from a dictionary change until it is visible in the
+     * cached bundles.
+     */
+    void changeLatency(long millis);
+}
@@ -20,6 +20,8 @@ package org.apache.sling.i18n.impl;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -670,6 +672,57 @@ public class JcrResourceBundleTest extends RepositoryTestBase {
         assertEquals(MESSAGES_DE.size(), counter);
     }
 
+    public void test_apply_changes() throws Exception {
+        JcrResourceBundle bundle = new JcrResourceBundle(new Locale("de"), null, resolver);
+
+        Node de = getSession().getNode("/libs/i18n/de");
+        // change a message
+        de.getNode("plate").setProperty("sling:message", "Untertasse");
+        // add a message
+        de.addNode("cup", "sling:MessageEntry").setProperty("sling:message", "Tasse");
+        // remove a subtree containing a message
+        de.getNode("s").remove();
+        getSession().save();
+
+        // changes are only visible once applied
+        assertEquals(MESSAGES_DE.get("plate").message, bundle.getString("plate"));
+
+        assertTrue(bundle.applyChanges(resolver, Arrays.asList("/libs/i18n/de/plate", "/libs/i18n/de/cup", "/libs/i18n/de/s")));
+        assertEquals("Untertasse", bundle.getString("plate"));
+        assertEquals("Tasse", bundle.getString("cup"));
+        assertFalse(bundle.keySet().contains("spoon"));
+        assertEquals(MESSAGES_DE.get("kitchen").message, bundle.getString("kitchen"));
+
+        // a change of the language root itself requires a full reload
+        assertFalse(bundle.applyChanges(resolver, Collections.singletonList("/libs/i18n/de")));
+    }
+
+    public void test_apply_changes_search_path() throws Exception {
+        // overwrite stuff in apps
+        Node appsI18n = getSession().getRootNode().addNode("apps").addNode("i18n", "nt:unstructured");
+        Node appsDe = appsI18n.addNode("de", "nt:folder");
+        appsDe.addMixin("mix:language");
+        appsDe.setProperty("jcr:language", "de");
+        for (Message msg : MESSAGES_DE_APPS.values()) {
+            msg.add(appsDe);
+        }
+        getSession().save();
+
+        JcrResourceBundle bundle = new JcrResourceBundle(new Locale("de"), null, resolver);
+
+        // a change in /libs must not overlay the message in /apps
+        getSession().getNode("/libs/i18n/de/plate").setProperty("sling:message", "Untertasse");
+        getSession().save();
+        assertTrue(bundle.applyChanges(resolver, Collections.singletonList("/libs/i18n/de/plate")));
+        assertEquals(MESSAGES_DE_APPS.get("plate").message, bundle.getString("plate"));
+
+        // removing the message from /apps makes the one in /libs visible
+        appsDe.getNode("plate").remove();
+        getSession().save();
+        assertTrue(bundle.applyChanges(resolver, Collections.singletonList("/apps/i18n/de/plate")));
+        assertEquals("Untertasse", bundle.getString("plate"));
+    }
+
     private class TestResource extends AbstractResource {
 
         private final Node node;
@@ -206,6 +206,8 @@ public class ResourceBundleProviderIT {
                 mavenBundle("org.apache.sling", "org.apache.sling.commons.classloader", "1.3.2"),
                 mavenBundle("org.apache.sling", "org.apache.sling.commons.scheduler", "2.4.14"),
                 mavenBundle("org.apache.sling", "org.apache.sling.commons.threads", "3.2.4"),
+                mavenBundle("org.apache.sling", "org.apache.sling.commons.metrics", "1.2.0"),
+                mavenBundle("io.dropwizard.metrics", "metrics-core", "3.1.2"),
 
                 mavenBundle("org.apache.sling", "org.apache.sling.auth.core", "1.3.12"),
                 mavenBundle("org.apache.sling", "org.apache.sling.discovery.api", "1.0.2"),
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.models.annotations;
+
+/**
+ * Used by the {@link Model} annotation to opt in to caching of the created model instances.
+ * Cached instances are handed out again without re-running any injection, therefore only models
+ * which do not change their state after creation should be cached.
+ * Instances are only cached while a request is processed and never outlive the request.
+ */
+public enum CacheStrategy {
+
+    /**
+     * A new model instance is created for every adaptation (default).
+     */
+    DISABLED,
+
+    /**
+     * The model instance is cached per adaptable object and requested type.
+     */
+    REQUEST,
+
+    /**
+     * The model instance is cached per resource path, resource resolver and requested type.
+     * This allows sharing instances between different resource objects representing the same path.
+     * For adaptables other than resources this behaves like {@link #REQUEST}.
+     */
+    RESOURCE
+
+}
@@ -66,4 +66,15 @@ public @interface Model {
      */
     public String[] resourceType() default {};
 
+    /**
+     * Instances are only cached while a request is processed and dropped at the end of the request.
+     * Cached instances are not used while the resource resolver of the adaptable has pending changes
+     * and are discarded whenever resources are changed.
+     *
+     * @return {@link CacheStrategy#DISABLED} in case a new instance should be created on every adaptation (default),
+     *  {@link CacheStrategy#REQUEST} in case the instance should be cached per adaptable or
+     *  {@link CacheStrategy#RESOURCE} in case the instance should be cached per resource path and resource resolver.
+     */
+    public CacheStrategy cache() default CacheStrategy.DISABLED;
+
 }
@@ -40,7 +40,7 @@ import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
-import javax.annotation.PostConstruct;
+import javax.servlet.Filter;
 
 import org.apache.commons.beanutils.PropertyUtils;
 import org.apache.commons.lang.StringUtils;
@@ -54,12 +54,14 @@ import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.ReferencePolicyOption;
 import org.apache.felix.scr.annotations.References;
 import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.api.SlingConstants;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.adapter.Adaptable;
 import org.apache.sling.api.adapter.AdapterFactory;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.commons.osgi.PropertiesUtil;
 import org.apache.sling.commons.osgi.RankedServices;
+import org.apache.sling.models.annotations.CacheStrategy;
 import org.apache.sling.models.annotations.Model;
 import org.apache.sling.models.annotations.ValidationStrategy;
 import org.apache.sling.models.export.spi.ModelExporter;
@@ -95,6 +97,8 @@ import org.osgi.framework.BundleContext;
 import org.osgi.framework.Constants;
 import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.component.ComponentContext;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -200,10 +204,16 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
 
     final AdapterImplementations adapterImplementations = new AdapterImplementations();
 
+    final ModelCache modelCache = new ModelCache();
+
     private ServiceRegistration jobRegistration;
 
     private ServiceRegistration configPrinterRegistration;
 
+    private ServiceRegistration cacheFilterRegistration;
+
+    private ServiceRegistration cacheEventHandlerRegistration;
+
     // Use threadlocal to count recursive invocations and break recursing if a max. limit is reached (to avoid cyclic dependencies)
     private ThreadLocal<ThreadInvocationCounter> invocationCountThreadLocal;
 
@@ -318,6 +328,13 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
                 String msg = String.format("Adaptables (%s) are not acceptable for the model class: %s", StringUtils.join(declaredAdaptable), modelClass.getType());
                 return new Result<ModelType>(new InvalidAdaptableException(msg)); 
             } else {
+                CacheStrategy cacheStrategy = modelAnnotation.cache();
+                if (cacheStrategy != CacheStrategy.DISABLED) {
+                    ModelType cachedModel = modelCache.get(adaptable, requestedType, cacheStrategy);
+                    if (cachedModel != null) {
+                        return new Result<ModelType>(cachedModel);
+                    }
+                }
                 RuntimeException t = validateModel(adaptable, modelClass.getType(), modelAnnotation);
                 if (t != null) {
                     return new Result<ModelType>(t);
@@ -338,6 +355,9 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
                         return new Result<ModelType>(new ModelClassException(msg, e));
                     }
                 }
+                if (cacheStrategy != CacheStrategy.DISABLED && result.wasSuccessful()) {
+                    modelCache.put(adaptable, requestedType, cacheStrategy, result.getValue());
+                }
             }
             return result;
         } finally {
@@ -559,9 +579,9 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         final Map<ValuePreparer, Object> preparedValues = new HashMap<ValuePreparer, Object>(VALUE_PREPARERS_COUNT);
 
         final ModelType object;
-        if (constructorToUse.getConstructor().getParameterTypes().length == 0) {
+        if (constructorToUse.getParameterTypes().length == 0) {
             // no parameters for constructor injection? instantiate it right away
-            object = constructorToUse.getConstructor().newInstance();
+            object = constructorToUse.newInstance();
         } else {
             // instantiate with constructor injection
             // if this fails, make sure resources that may be claimed by injectors are cleared up again
@@ -604,7 +624,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
             return new Result<ModelType>(missingElements);
         }
         try {
-            invokePostConstruct(object);
+            modelClass.invokePostConstruct(object);
         } catch (InvocationTargetException e) {
             return new Result<ModelType>(new PostConstructException("Post-construct method has thrown an exception for model " + modelClass.getType(), e.getCause()));
         } catch (IllegalAccessException e) {
@@ -630,15 +650,15 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
             }
             // compatibility mode for sling models implementation <= 1.0.6:
             // support constructor without @Inject if it has exactly one parameter matching the adaptable class
-            final Class<?>[] paramTypes = constructor.getConstructor().getParameterTypes();
+            final Class<?>[] paramTypes = constructor.getParameterTypes();
             if (paramTypes.length == 1) {
-                Class<?> paramType = constructor.getConstructor().getParameterTypes()[0];
+                Class<?> paramType = paramTypes[0];
                 if (paramType.isInstance(adaptable)) {
                     return constructor;
                 }
             }
             // if no constructor for injection found use public constructor without any params
-            if (constructor.getConstructor().getParameterTypes().length == 0) {
+            if (paramTypes.length == 0) {
                 return constructor;
             }
         }
@@ -663,7 +683,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         if (!missingElements.isEmpty()) {
             return new Result<ModelType>(missingElements);
         }
-        return new Result<ModelType>(constructor.getConstructor().newInstance(paramValues.toArray(new Object[paramValues.size()])));
+        return new Result<ModelType>(constructor.newInstance(paramValues.toArray(new Object[paramValues.size()])));
     }
 
     private Result<Boolean> injectDefaultValue(InjectableElement point, InjectAnnotationProcessor processor,
@@ -758,46 +778,6 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         return element.getName();
     }
 
-    private boolean addMethodIfNotOverriden(List<Method> methods, Method newMethod) {
-        for (Method method : methods) {
-            if (method.getName().equals(newMethod.getName())) {
-                if (Arrays.equals(method.getParameterTypes(),newMethod.getParameterTypes())) {
-                    return false;
-                }
-            }
-        }
-        methods.add(newMethod);
-        return true;
-    }
-
-    private void invokePostConstruct(Object object) throws InvocationTargetException, IllegalAccessException {
-        Class<?> clazz = object.getClass();
-        List<Method> postConstructMethods = new ArrayList<Method>();
-        while (clazz != null) {
-            Method[] methods = clazz.getDeclaredMethods();
-            for (Method method : methods) {
-                if (method.isAnnotationPresent(PostConstruct.class)) {
-                    addMethodIfNotOverriden(postConstructMethods, method);
-                }
-            }
-            clazz = clazz.getSuperclass();
-        }
-        Collections.reverse(postConstructMethods);
-        for (Method method : postConstructMethods) {
-            boolean accessible = method.isAccessible();
-            try {
-                if (!accessible) {
-                    method.setAccessible(true);
-                }
-                method.invoke(object);
-            } finally {
-                if (!accessible) {
-                    method.setAccessible(false);
-                }
-            }
-        }
-    }
-
     private RuntimeException setField(InjectableField injectableField, Object createdObject, Object value) {
         Result<Object> result = adaptIfNecessary(value, injectableField.getFieldType(), injectableField.getFieldGenericType());
         if (result.wasSuccessful()) {
@@ -977,7 +957,24 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         printerProps.put("felix.webconsole.configprinter.modes", "always");
 
         this.configPrinterRegistration = bundleContext.registerService(Object.class.getName(),
-                new ModelConfigurationPrinter(this, bundleContext, adapterImplementations), printerProps);
+                new ModelConfigurationPrinter(this, bundleContext, adapterImplementations, modelCache), printerProps);
+
+
+        Hashtable<Object, Object> filterProps = new Hashtable<Object, Object>();
+        filterProps.put(Constants.SERVICE_VENDOR, "Apache Software Foundation");
+        filterProps.put(Constants.SERVICE_DESCRIPTION, "Sling Models Cache Scope Filter");
+        filterProps.put("sling.filter.scope", "REQUEST");
+        filterProps.put(Constants.SERVICE_RANKING, Integer.MAX_VALUE);
+        this.cacheFilterRegistration = bundleContext.registerService(Filter.class.getName(),
+                new ModelCacheFilter(modelCache), filterProps);
+
+        Hashtable<Object, Object> eventHandlerProps = new Hashtable<Object, Object>();
+        eventHandlerProps.put(Constants.SERVICE_VENDOR, "Apache Software Foundation");
+        eventHandlerProps.put(Constants.SERVICE_DESCRIPTION, "Sling Models Cache Invalidation");
+        eventHandlerProps.put(EventConstants.EVENT_TOPIC, new String[] {
+                SlingConstants.TOPIC_RESOURCE_ADDED, SlingConstants.TOPIC_RESOURCE_CHANGED, SlingConstants.TOPIC_RESOURCE_REMOVED });
+        this.cacheEventHandlerRegistration = bundleContext.registerService(EventHandler.class.getName(),
+                modelCache, eventHandlerProps);
     }
 
     @Deactivate
@@ -985,6 +982,7 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
         this.clearDisposalCallbackRegistryQueue();
         this.listener.unregisterAll();
         this.adapterImplementations.removeAll();
+        this.modelCache.clear();
         if (jobRegistration != null) {
             jobRegistration.unregister();
             jobRegistration = null;
@@ -993,6 +991,14 @@ public class ModelAdapterFactory implements AdapterFactory, Runnable, ModelFacto
             configPrinterRegistration.unregister();
             configPrinterRegistration = null;
         }
+        if (cacheFilterRegistration != null) {
+            cacheFilterRegistration.unregister();
+            cacheFilterRegistration = null;
+        }
+        if (cacheEventHandlerRegistration != null) {
+            cacheEventHandlerRegistration.unregister();
+            cacheEventHandlerRegistration = null;
+        }
     }
 
     protected void bindInjector(final Injector injector, final Map<String, Object> props) {
@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.models.impl;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.CheckForNull;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.models.annotations.CacheStrategy;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
+
+/**
+ * Holds the model instances of all models which opted in to caching via {@link org.apache.sling.models.annotations.Model#cache()}.
+ * <p>
+ * Instances are only cached while a request is processed: the {@link ModelCacheFilter} opens a {@link Scope} for the
+ * request thread, which is dropped together with all cached instances at the end of the request. Outside of requests
+ * nothing is cached. The scope is confined to the request thread, so no locking is necessary.
+ * <p>
+ * A scope is cleared
+ * <ul>
+ * <li>whenever a resource change is reported via {@link #resourcesChanged()}, which covers commits of the request's
+ * resource resolver as well as changes by other sessions (the cache is registered as event handler for the
+ * resource events),</li>
+ * <li>while a resource resolver has pending changes, and once those changes have been committed or reverted.</li>
+ * </ul>
+ * Instances are never handed out for resource resolvers which have been closed.
+ */
+class ModelCache implements EventHandler {
+
+    /** incremented on every change, scopes created for an older generation are cleared before they are used */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final ThreadLocal<Scope> scopes = new ThreadLocal<Scope>();
+
+    private final ConcurrentMap<Class<?>, Statistics> statistics = new ConcurrentHashMap<Class<?>, Statistics>();
+
+    /**
+     * Opens a new scope for the current thread.
+     * @return the previous scope of the thread which has to be passed to {@link #exit(Scope)}
+     */
+    @CheckForNull
+    Scope enter() {
+        Scope previous = scopes.get();
+        scopes.set(new Scope(generation.get()));
+        return previous;
+    }
+
+    /**
+     * Closes the scope of the current thread.
+     * @param previous the scope returned by {@link #enter()}
+     */
+    void exit(@CheckForNull Scope previous) {
+        if (previous == null) {
+            scopes.remove();
+        } else {
+            scopes.set(previous);
+        }
+    }
+
+    /**
+     * Invalidates the cached instances of all scopes.
+     */
+    void resourcesChanged() {
+        generation.incrementAndGet();
+    }
+
+    /**
+     * Invalidates the cached instances of all scopes on resource events.
+     */
+    @Override
+    public void handleEvent(Event event) {
+        resourcesChanged();
+    }
+
+    /**
+     * @param adaptable the adaptable
+     * @param requestedType the requested model type
+     * @param strategy the cache strategy of the model
+     * @return the cached model or {@code null} in case there is none (or it may not be used)
+     */
+    @CheckForNull
+    <ModelType> ModelType get(Object adaptable, Class<ModelType> requestedType, CacheStrategy strategy) {
+        Scope scope = getScope(adaptable);
+        Object model = null;
+        if (scope != null) {
+            ResourceResolver resolver = getResourceResolver(adaptable);
+            String path = getCacheablePath(adaptable, resolver, strategy);
+            if (path != null) {
+                Map<String, Object> models = scope.resolverModels.get(resolver);
+                model = models == null ? null : models.get(getKey(path, requestedType));
+            } else {
+                Map<Class<?>, Object> models = scope.adaptableModels.get(adaptable);
+                model = models == null ? null : models.get(requestedType);
+            }
+        }
+        getStatistics(requestedType, strategy).record(model != null);
+        return requestedType.cast(model);
+    }
+
+    /**
+     * Caches the given model, unless it is created outside of a request or the resource resolver of the adaptable has
+     * pending changes.
+     * @param adaptable the adaptable
+     * @param requestedType the requested model type
+     * @param strategy the cache strategy of the model
+     * @param model the model to cache
+     */
+    <ModelType> void put(Object adaptable, Class<ModelType> requestedType, CacheStrategy strategy, ModelType model) {
+        Scope scope = getScope(adaptable);
+        if (scope == null) {
+            return;
+        }
+        ResourceResolver resolver = getResourceResolver(adaptable);
+        String path = getCacheablePath(adaptable, resolver, strategy);
+        if (path != null) {
+            Map<String, Object> models = scope.resolverModels.get(resolver);
+            if (models == null) {
+                models = new HashMap<String, Object>();
+                scope.resolverModels.put(resolver, models);
+            }
+            models.put(getKey(path, requestedType), model);
+        } else {
+            Map<Class<?>, Object> models = scope.adaptableModels.get(adaptable);
+            if (models == null) {
+                models = new HashMap<Class<?>, Object>();
+                scope.adaptableModels.put(adaptable, models);
+            }
+            models.put(requestedType, model);
+        }
+    }
+
+    /**
+     * Invalidates all cached instances and removes the statistics.
+     */
+    void clear() {
+        resourcesChanged();
+        statistics.clear();
+    }
+
+    /**
+     * @return the scope of the current thread, cleared if necessary, or {@code null} if the given adaptable may not be
+     *     cached in it
+     */
+    @CheckForNull
+    private Scope getScope(Object adaptable) {
+        Scope scope = scopes.get();
+        if (scope == null) {
+            return null;
+        }
+        long currentGeneration = generation.get();
+        if (scope.generation != currentGeneration) {
+            scope.clear(currentGeneration);
+        }
+        ResourceResolver resolver = getResourceResolver(adaptable);
+        if (resolver != null) {
+            if (!resolver.isLive()) {
+                return null;
+            }
+            if (resolver.hasChanges()) {
+                // the cached instances might not reflect the pending changes
+                scope.clear(currentGeneration);
+                scope.pendingChanges = true;
+                return null;
+            }
+            if (scope.pendingChanges) {
+                // the changes have been committed or reverted since the last lookup
+                scope.clear(currentGeneration);
+            }
+        }
+        return scope;
+    }
+
+    /**
+     * @return the cache statistics per requested model type
+     */
+    Map<Class<?>, Statistics> getStatistics() {
+        return Collections.unmodifiableMap(statistics);
+    }
+
+    private Statistics getStatistics(Class<?> requestedType, CacheStrategy strategy) {
+        Statistics stats = statistics.get(requestedType);
+        if (stats == null) {
+            Statistics newStats = new Statistics(strategy);
+            stats = statistics.putIfAbsent(requestedType, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+        return stats;
+    }
+
+    private static String getKey(String path, Class<?> requestedType) {
+        return requestedType.getName() + ':' + path;
+    }
+
+    @CheckForNull
+    private static String getCacheablePath(Object adaptable, ResourceResolver resolver, CacheStrategy strategy) {
+        if (strategy == CacheStrategy.RESOURCE && resolver != null && adaptable instanceof Resource) {
+            return ((Resource) adaptable).getPath();
+        }
+        return null;
+    }
+
+    @CheckForNull
+    private static ResourceResolver getResourceResolver(Object adaptable) {
+        if (adaptable instanceof Resource) {
+            return ((Resource) adaptable).getResourceResolver();
+        } else if (adaptable instanceof SlingHttpServletRequest) {
+            return ((SlingHttpServletRequest) adaptable).getResourceResolver();
+        }
+        return null;
+    }
+
+    /**
+     * The cached instances of a single request. Only accessed by the request thread.
+     */
+    static final class Scope {
+
+        /** cache for {@link CacheStrategy#REQUEST}: adaptable -&gt; requested type -&gt; model */
+        private final Map<Object, Map<Class<?>, Object>> adaptableModels = new IdentityHashMap<Object, Map<Class<?>, Object>>();
+
+        /** cache for {@link CacheStrategy#RESOURCE}: resolver -&gt; resource path and requested type -&gt; model */
+        private final Map<ResourceResolver, Map<String, Object>> resolverModels = new IdentityHashMap<ResourceResolver, Map<String, Object>>();
+
+        private long generation;
+
+        private boolean pendingChanges;
+
+        private Scope(long generation) {
+            this.generation = generation;
+        }
+
+        private void clear(long newGeneration) {
+            adaptableModels.clear();
+            resolverModels.clear();
+            generation = newGeneration;
+            pendingChanges = false;
+        }
+    }
+
+    /**
+     * Hit and miss counters of a single requested model type.
+     */
+    static class Statistics {
+
+        private final CacheStrategy strategy;
+
+        private final AtomicLong hits = new AtomicLong();
+
+        private final AtomicLong misses = new AtomicLong();
+
+        Statistics(CacheStrategy strategy) {
+            this.strategy = strategy;
+        }
+
+        private void record(boolean hit) {
+            if (hit) {
+                hits.incrementAndGet();
+            } else {
+                misses.incrementAndGet();
+            }
+        }
+
+        CacheStrategy getStrategy() {
+            return strategy;
+        }
+
+        long getHits() {
+            return hits.get();
+        }
+
+        long getMisses() {
+            return misses.get();
+        }
+
+        /**
+         * @return the ratio of lookups served from the cache (between 0 and 1)
+         */
+        double getHitRate() {
+            long hitCount = hits.get();
+            long total = hitCount + misses.get();
+            return total == 0 ? 0d : (double) hitCount / total;
+        }
+    }
+
+}
@@ -39,11 +39,14 @@ public class ModelConfigurationPrinter {
     private final ModelAdapterFactory modelAdapterFactory;
     private final BundleContext bundleContext;
     private final AdapterImplementations adapterImplementations;
+    private final ModelCache modelCache;
 
-    ModelConfigurationPrinter(ModelAdapterFactory modelAdapterFactory, BundleContext bundleContext, AdapterImplementations adapterImplementations) {
+    ModelConfigurationPrinter(ModelAdapterFactory modelAdapterFactory, BundleContext bundleContext, AdapterImplementations adapterImplementations,
+            ModelCache modelCache) {
         this.modelAdapterFactory = modelAdapterFactory;
         this.bundleContext = bundleContext;
         this.adapterImplementations = adapterImplementations;
+        this.modelCache = modelCache;
     }
 
     public void printConfiguration(PrintWriter printWriter) {
@@ -118,6 +121,22 @@ public class ModelConfigurationPrinter {
 
         printWriter.println();
 
+        // cached models
+        printWriter.println("Sling Models Cache Statistics:");
+        Map<Class<?>, ModelCache.Statistics> statistics = modelCache.getStatistics();
+        if (statistics.isEmpty()) {
+            printWriter.println("none");
+        } else {
+            for (Map.Entry<Class<?>, ModelCache.Statistics> entry : statistics.entrySet()) {
+                ModelCache.Statistics stats = entry.getValue();
+                printWriter.printf("%s - %s - %d hits, %d misses (%.1f%% hit rate)", entry.getKey().getName(), stats.getStrategy(),
+                        stats.getHits(), stats.getMisses(), stats.getHitRate() * 100);
+                printWriter.println();
+            }
+        }
+
+        printWriter.println();
+
         // registered exporter servlets
         printWriter.println("Sling Models Exporter Servlets:");
         try {
@@ -205,7 +205,8 @@ public class ModelPackageBundleListener implements BundleTrackerCustomizer {
             }
         }
         adapterImplementations.removeResourceTypeBindings(bundle);
-
+        // cached instances might be of one of the removed classes
+        factory.modelCache.clear();
     }
 
     public synchronized void unregisterAll() {
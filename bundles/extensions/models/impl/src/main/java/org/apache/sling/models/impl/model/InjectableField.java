@@ -18,6 +18,9 @@
  */
 package org.apache.sling.models.impl.model;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Field;
 import java.lang.reflect.Type;
 
@@ -29,14 +32,45 @@ import org.apache.sling.models.spi.injectorspecific.StaticInjectAnnotationProces
 
 public class InjectableField extends AbstractInjectableElement {
     
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+
     private final Field field;
+
+    /**
+     * Setter resolved once per model class, {@code null} if the field can only be set via reflection.
+     */
+    private final MethodHandle setter;
     
     public InjectableField(Field field, StaticInjectAnnotationProcessorFactory[] processorFactories, DefaultInjectionStrategy defaultInjectionStrategy) {
         super(field, ReflectionUtil.mapPrimitiveClasses(field.getGenericType()), field.getName(), processorFactories, defaultInjectionStrategy);
         this.field = field;
+        this.setter = createSetter(field);
+    }
+
+    private static MethodHandle createSetter(Field field) {
+        try {
+            // the accessible flag only affects this Field instance, which is private to this element
+            Field accessibleField = field.getDeclaringClass().getDeclaredField(field.getName());
+            accessibleField.setAccessible(true);
+            return MethodHandles.lookup().unreflectSetter(accessibleField).asType(SETTER_TYPE);
+        } catch (Exception e) {
+            // e.g. final fields or a security manager forbidding access, fall back to reflection
+            return null;
+        }
     }
 
+    @MethodHandleInvocation
     public RuntimeException set(Object createdObject, Result<Object> result) {
+        if (setter != null) {
+            try {
+                setter.invokeExact(createdObject, result.getValue());
+                return null;
+            } catch (Error e) {
+                throw e;
+            } catch (Throwable e) {
+                return new ModelClassException("Could not inject field due to reflection issues", e);
+            }
+        }
         synchronized (field) {
             boolean accessible = field.isAccessible();
             try {
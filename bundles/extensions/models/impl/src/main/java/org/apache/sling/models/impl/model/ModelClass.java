@@ -18,12 +18,20 @@
  */
 package org.apache.sling.models.impl.model;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import javax.annotation.PostConstruct;
+
 import org.apache.sling.models.annotations.DefaultInjectionStrategy;
 import org.apache.sling.models.annotations.Model;
 import org.apache.sling.models.impl.ReflectionUtil;
@@ -37,6 +45,8 @@ public class ModelClass<ModelType> {
     private volatile ModelClassConstructor[] constructors;
     private volatile InjectableField[] injectableFields;
     private volatile InjectableMethod[] injectableMethods;
+    private final Method[] postConstructMethods;
+    private final MethodHandle[] postConstructHandles;
 
     public ModelClass(Class<ModelType> type, StaticInjectAnnotationProcessorFactory[] processorFactories) {
         this.type = type;
@@ -46,6 +56,8 @@ public class ModelClass<ModelType> {
         } else {
             defaultInjectionStrategy = modelAnnotation.defaultInjectionStrategy();
         }
+        this.postConstructMethods = getPostConstructMethods(type);
+        this.postConstructHandles = getPostConstructHandles(postConstructMethods);
         updateProcessorFactories(processorFactories);
     }
     
@@ -100,6 +112,79 @@ public class ModelClass<ModelType> {
         return array;
     }
 
+    /**
+     * Collects the methods annotated with {@link PostConstruct}, superclass methods first, skipping overridden ones.
+     */
+    private static Method[] getPostConstructMethods(Class<?> type) {
+        if (type.isInterface()) {
+            return new Method[0];
+        }
+        List<Method> postConstructMethods = new ArrayList<Method>();
+        Class<?> clazz = type;
+        while (clazz != null) {
+            Method[] methods = clazz.getDeclaredMethods();
+            for (Method method : methods) {
+                if (method.isAnnotationPresent(PostConstruct.class)) {
+                    addMethodIfNotOverriden(postConstructMethods, method);
+                }
+            }
+            clazz = clazz.getSuperclass();
+        }
+        Collections.reverse(postConstructMethods);
+        return postConstructMethods.toArray(new Method[postConstructMethods.size()]);
+    }
+
+    private static boolean addMethodIfNotOverriden(List<Method> methods, Method newMethod) {
+        for (Method method : methods) {
+            if (method.getName().equals(newMethod.getName())) {
+                if (Arrays.equals(method.getParameterTypes(),newMethod.getParameterTypes())) {
+                    return false;
+                }
+            }
+        }
+        methods.add(newMethod);
+        return true;
+    }
+
+    private static MethodHandle[] getPostConstructHandles(Method[] methods) {
+        MethodHandle[] handles = new MethodHandle[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            try {
+                // the methods are private copies returned by getDeclaredMethods, so it is safe to keep them accessible
+                methods[i].setAccessible(true);
+                handles[i] = MethodHandles.lookup().unreflect(methods[i]).asType(MethodType.methodType(void.class, Object.class));
+            } catch (Exception e) {
+                // fall back to reflection
+                handles[i] = null;
+            }
+        }
+        return handles;
+    }
+
+    /**
+     * Invokes the {@link PostConstruct} methods of the model class on the given instance.
+     * @param object an instance of the model class
+     * @throws InvocationTargetException if one of the methods has thrown an exception
+     * @throws IllegalAccessException if one of the methods could not be accessed
+     */
+    @MethodHandleInvocation
+    public void invokePostConstruct(Object object) throws InvocationTargetException, IllegalAccessException {
+        for (int i = 0; i < postConstructMethods.length; i++) {
+            MethodHandle handle = postConstructHandles[i];
+            if (handle == null) {
+                postConstructMethods[i].invoke(object);
+            } else {
+                try {
+                    handle.invokeExact(object);
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new InvocationTargetException(e);
+                }
+            }
+        }
+    }
+
     public Class<ModelType> getType() {
         return this.type;
     }
@@ -18,11 +18,17 @@
  */
 package org.apache.sling.models.impl.model;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
 
 import javax.inject.Inject;
 
+import org.apache.commons.lang.ClassUtils;
+
 import org.apache.sling.models.annotations.DefaultInjectionStrategy;
 import org.apache.sling.models.impl.ReflectionUtil;
 import org.apache.sling.models.spi.injectorspecific.StaticInjectAnnotationProcessorFactory;
@@ -30,12 +36,21 @@ import org.apache.sling.models.spi.injectorspecific.StaticInjectAnnotationProces
 public class ModelClassConstructor<ModelType> {
 
     private final Constructor<ModelType> constructor;
+    private final Class<?>[] parameterTypes;
     private final boolean hasInjectAnnotation;
     private final ConstructorParameter[] constructorParametersArray;
 
+    /**
+     * Constructor handle taking all parameters as one {@code Object[]}, {@code null} if the constructor can only be
+     * invoked via reflection.
+     */
+    private final MethodHandle constructorHandle;
+
     public ModelClassConstructor(Constructor<ModelType> constructor, StaticInjectAnnotationProcessorFactory[] processorFactories, DefaultInjectionStrategy defaultInjectionStrategy) {
         this.constructor = constructor;
+        this.parameterTypes = constructor.getParameterTypes();
         this.hasInjectAnnotation = constructor.isAnnotationPresent(Inject.class);
+        this.constructorHandle = createConstructorHandle(constructor, parameterTypes.length);
 
         Type[] parameterTypes = constructor.getGenericParameterTypes();
         this.constructorParametersArray = new ConstructorParameter[parameterTypes.length];
@@ -49,9 +64,69 @@ public class ModelClassConstructor<ModelType> {
         }
     }
 
+    private static MethodHandle createConstructorHandle(Constructor<?> constructor, int parameterCount) {
+        try {
+            return MethodHandles.publicLookup().unreflectConstructor(constructor)
+                    .asType(MethodType.genericMethodType(parameterCount))
+                    .asSpreader(Object[].class, parameterCount);
+        } catch (Exception e) {
+            // fall back to reflection
+            return null;
+        }
+    }
+
     public Constructor<ModelType> getConstructor() {
         return constructor;
     }
+
+    /**
+     * @return the parameter types of the constructor, the returned array must not be modified
+     */
+    public Class<?>[] getParameterTypes() {
+        return parameterTypes;
+    }
+
+    /**
+     * Creates a new instance with the given constructor parameters. Exceptions thrown by the constructor are
+     * wrapped in an {@link InvocationTargetException}, as with {@link Constructor#newInstance(Object...)},
+     * errors are rethrown as is.
+     * @param parameters the constructor parameters
+     * @return the new instance
+     */
+    @MethodHandleInvocation
+    @SuppressWarnings("unchecked")
+    public ModelType newInstance(Object... parameters) throws InstantiationException, InvocationTargetException, IllegalAccessException {
+        if (constructorHandle == null) {
+            return constructor.newInstance(parameters);
+        }
+        if (parameters.length != parameterTypes.length) {
+            throw new IllegalArgumentException("wrong number of arguments");
+        }
+        for (int i = 0; i < parameters.length; i++) {
+            if (!isExactMatch(parameterTypes[i], parameters[i])) {
+                // let reflection apply widening conversions or report the mismatch, so a ClassCastException
+                // from the handle can only be thrown by the constructor itself
+                return constructor.newInstance(parameters);
+            }
+        }
+        try {
+            return (ModelType) (Object) constructorHandle.invokeExact(parameters);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new InvocationTargetException(e);
+        }
+    }
+
+    private static boolean isExactMatch(Class<?> type, Object value) {
+        if (value == null) {
+            return !type.isPrimitive();
+        }
+        if (type.isPrimitive()) {
+            return ClassUtils.primitiveToWrapper(type) == value.getClass();
+        }
+        return type.isInstance(value);
+    }
     
     public boolean hasInjectAnnotation() {
         return hasInjectAnnotation;
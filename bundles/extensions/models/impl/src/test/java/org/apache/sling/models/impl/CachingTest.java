@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.models.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Hashtable;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.models.annotations.CacheStrategy;
+import org.apache.sling.models.testmodels.classes.RequestCachedModel;
+import org.apache.sling.models.testmodels.classes.ResourceCachedModel;
+import org.apache.sling.models.testmodels.classes.SubClass;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.osgi.framework.BundleContext;
+import org.osgi.service.component.ComponentContext;
+import org.osgi.service.event.Event;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CachingTest {
+
+    @Mock
+    private ComponentContext componentCtx;
+
+    @Mock
+    private BundleContext bundleContext;
+
+    @Mock
+    private ResourceResolver resourceResolver;
+
+    @Mock
+    private Resource resource;
+
+    @Mock
+    private Resource samePathResource;
+
+    @Mock
+    private FilterChain filterChain;
+
+    ModelAdapterFactory factory = new ModelAdapterFactory();
+
+    private ModelCache.Scope previousScope;
+
+    @Before
+    public void setup() {
+        when(componentCtx.getBundleContext()).thenReturn(bundleContext);
+        when(componentCtx.getProperties()).thenReturn(new Hashtable<String, Object>());
+        factory.activate(componentCtx);
+        // no injectors are necessary
+        factory.adapterImplementations.addClassesAsAdapterAndImplementation(RequestCachedModel.class, ResourceCachedModel.class, SubClass.class);
+
+        when(resource.getPath()).thenReturn("/content/test");
+        when(resource.getResourceResolver()).thenReturn(resourceResolver);
+        when(samePathResource.getPath()).thenReturn("/content/test");
+        when(samePathResource.getResourceResolver()).thenReturn(resourceResolver);
+        when(resourceResolver.isLive()).thenReturn(true);
+
+        // act as if a request is processed
+        previousScope = factory.modelCache.enter();
+    }
+
+    @After
+    public void tearDown() {
+        factory.modelCache.exit(previousScope);
+    }
+
+    @Test
+    public void testNotCachedByDefault() {
+        assertNotSame(factory.getAdapter(resource, SubClass.class), factory.getAdapter(resource, SubClass.class));
+        assertTrue(factory.modelCache.getStatistics().isEmpty());
+    }
+
+    @Test
+    public void testCachedPerAdaptable() {
+        RequestCachedModel model = factory.getAdapter(resource, RequestCachedModel.class);
+        assertSame(model, factory.getAdapter(resource, RequestCachedModel.class));
+        assertNotSame(model, factory.getAdapter(samePathResource, RequestCachedModel.class));
+
+        ModelCache.Statistics stats = factory.modelCache.getStatistics().get(RequestCachedModel.class);
+        assertEquals(CacheStrategy.REQUEST, stats.getStrategy());
+        assertEquals(1, stats.getHits());
+        assertEquals(2, stats.getMisses());
+    }
+
+    @Test
+    public void testCachedPerResourcePath() {
+        ResourceCachedModel model = factory.getAdapter(resource, ResourceCachedModel.class);
+        assertSame(model, factory.getAdapter(samePathResource, ResourceCachedModel.class));
+        assertEquals(0.5d, factory.modelCache.getStatistics().get(ResourceCachedModel.class).getHitRate(), 0.001d);
+    }
+
+    @Test
+    public void testNotCachedWithPendingChanges() {
+        ResourceCachedModel model = factory.getAdapter(resource, ResourceCachedModel.class);
+        when(resourceResolver.hasChanges()).thenReturn(true);
+        assertNotSame(model, factory.getAdapter(resource, ResourceCachedModel.class));
+
+        // the instance created while there were pending changes must not be cached either
+        when(resourceResolver.hasChanges()).thenReturn(false);
+        assertNotSame(model, factory.getAdapter(resource, ResourceCachedModel.class));
+    }
+
+    @Test
+    public void testClearedAfterPendingChangesAreCommitted() {
+        ResourceCachedModel model = factory.getAdapter(resource, ResourceCachedModel.class);
+        when(resourceResolver.hasChanges()).thenReturn(true);
+        factory.getAdapter(resource, ResourceCachedModel.class);
+        when(resourceResolver.hasChanges()).thenReturn(false);
+
+        ResourceCachedModel newModel = factory.getAdapter(resource, ResourceCachedModel.class);
+        assertNotSame(model, newModel);
+        assertSame(newModel, factory.getAdapter(resource, ResourceCachedModel.class));
+    }
+
+    @Test
+    public void testClearedOnResourceEvent() {
+        ResourceCachedModel model = factory.getAdapter(resource, ResourceCachedModel.class);
+        factory.modelCache.handleEvent(new Event(SlingConstants.TOPIC_RESOURCE_CHANGED, Collections.<String, Object>emptyMap()));
+        assertNotSame(model, factory.getAdapter(resource, ResourceCachedModel.class));
+    }
+
+    @Test
+    public void testNotServedForClosedResolver() {
+        ResourceCachedModel model = factory.getAdapter(resource, ResourceCachedModel.class);
+        when(resourceResolver.isLive()).thenReturn(false);
+        assertNotSame(model, factory.getAdapter(resource, ResourceCachedModel.class));
+    }
+
+    @Test
+    public void testNotCachedOutsideOfRequest() {
+        factory.modelCache.exit(previousScope);
+        assertNotSame(factory.getAdapter(resource, ResourceCachedModel.class), factory.getAdapter(resource, ResourceCachedModel.class));
+    }
+
+    @Test
+    public void testScopedToRequest() throws Exception {
+        factory.modelCache.exit(previousScope);
+        final ResourceCachedModel[] models = new ResourceCachedModel[2];
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                ResourceCachedModel model = factory.getAdapter(resource, ResourceCachedModel.class);
+                assertSame(model, factory.getAdapter(samePathResource, ResourceCachedModel.class));
+                models[models[0] == null ? 0 : 1] = model;
+                return null;
+            }
+        }).when(filterChain).doFilter(any(ServletRequest.class), any(ServletResponse.class));
+
+        ModelCacheFilter filter = new ModelCacheFilter(factory.modelCache);
+        filter.doFilter(null, null, filterChain);
+        filter.doFilter(null, null, filterChain);
+        assertNotSame(models[0], models[1]);
+        assertNotSame(models[1], factory.getAdapter(resource, ResourceCachedModel.class));
+    }
+
+    @Test
+    public void testStatisticsPrinted() {
+        factory.getAdapter(resource, ResourceCachedModel.class);
+        factory.getAdapter(resource, ResourceCachedModel.class);
+
+        StringWriter writer = new StringWriter();
+        new ModelConfigurationPrinter(factory, bundleContext, factory.adapterImplementations, factory.modelCache)
+                .printConfiguration(new PrintWriter(writer));
+        assertTrue(writer.toString().contains(ResourceCachedModel.class.getName() + " - RESOURCE - 1 hits, 1 misses"));
+    }
+}
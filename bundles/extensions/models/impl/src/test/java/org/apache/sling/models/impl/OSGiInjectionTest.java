@@ -31,6 +31,8 @@ import java.util.Arrays;
 import java.util.Dictionary;
 import java.util.Hashtable;
 
+import javax.servlet.Filter;
+
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.scripting.SlingBindings;
 import org.apache.sling.api.scripting.SlingScriptHelper;
@@ -54,6 +56,7 @@ import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleListener;
 import org.osgi.framework.ServiceReference;
 import org.osgi.service.component.ComponentContext;
+import org.osgi.service.event.EventHandler;
 
 @RunWith(MockitoJUnitRunner.class)
 public class OSGiInjectionTest {
@@ -219,6 +222,8 @@ public class OSGiInjectionTest {
         verify(bundleContext).registerService(eq(Runnable.class.getName()), eq(factory), any(Dictionary.class));
         verify(bundleContext).addBundleListener(any(BundleListener.class));
         verify(bundleContext).registerService(eq(Object.class.getName()), any(Object.class), any(Dictionary.class));
+        verify(bundleContext).registerService(eq(Filter.class.getName()), any(Object.class), any(Dictionary.class));
+        verify(bundleContext).registerService(eq(EventHandler.class.getName()), any(Object.class), any(Dictionary.class));
         verify(bundleContext).getBundles();
         verify(bundleContext).getBundle();
         verifyNoMoreInteractions(res, bundleContext);
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.models.impl.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationTargetException;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.sling.models.annotations.DefaultInjectionStrategy;
+import org.apache.sling.models.spi.injectorspecific.StaticInjectAnnotationProcessorFactory;
+import org.junit.Test;
+
+public class ModelClassConstructorTest {
+
+    private static final StaticInjectAnnotationProcessorFactory[] NO_FACTORIES = new StaticInjectAnnotationProcessorFactory[0];
+
+    @Test
+    public void testNewInstance() throws Exception {
+        TestModel model = constructor(String.class, int.class).newInstance("name", 5);
+        assertEquals("name", model.name);
+        assertEquals(5, model.count);
+    }
+
+    @Test
+    public void testNewInstanceWithNullValue() throws Exception {
+        TestModel model = constructor(String.class, int.class).newInstance(null, 5);
+        assertEquals(null, model.name);
+    }
+
+    @Test
+    public void testNewInstanceWithWideningConversion() throws Exception {
+        TestModel model = constructor(long.class).newInstance(Integer.valueOf(7));
+        assertEquals(7L, model.count);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNewInstanceWithWrongArgumentType() throws Exception {
+        constructor(String.class, int.class).newInstance(5, "name");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNewInstanceWithWrongNumberOfArguments() throws Exception {
+        constructor(String.class, int.class).newInstance("name");
+    }
+
+    @Test
+    public void testExceptionIsWrapped() throws Exception {
+        try {
+            constructor(Object.class).newInstance(new IllegalStateException("failed"));
+            fail("expected InvocationTargetException");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testClassCastExceptionOfConstructorIsWrapped() throws Exception {
+        try {
+            constructor(Object.class).newInstance("not a runtime exception");
+            fail("expected InvocationTargetException");
+        } catch (InvocationTargetException e) {
+            assertTrue(e.getCause() instanceof ClassCastException);
+        }
+    }
+
+    @Test
+    public void testErrorIsRethrown() throws Exception {
+        TestError error = new TestError();
+        try {
+            constructor(Object.class).newInstance(error);
+            fail("expected TestError");
+        } catch (TestError e) {
+            assertSame(error, e);
+        }
+    }
+
+    @Test
+    public void testPostConstruct() throws Exception {
+        ModelClass<PostConstructModel> modelClass = new ModelClass<PostConstructModel>(PostConstructModel.class, NO_FACTORIES);
+        PostConstructModel model = new PostConstructModel();
+        modelClass.invokePostConstruct(model);
+        assertEquals(1, model.calls);
+    }
+
+    @Test
+    public void testPostConstructErrorIsRethrown() throws Exception {
+        ModelClass<PostConstructModel> modelClass = new ModelClass<PostConstructModel>(PostConstructModel.class, NO_FACTORIES);
+        PostConstructModel model = new PostConstructModel();
+        model.error = new TestError();
+        try {
+            modelClass.invokePostConstruct(model);
+            fail("expected TestError");
+        } catch (TestError e) {
+            assertSame(model.error, e);
+        }
+    }
+
+    private static ModelClassConstructor<TestModel> constructor(Class<?>... parameterTypes) throws NoSuchMethodException {
+        return new ModelClassConstructor<TestModel>(TestModel.class.getConstructor(parameterTypes), NO_FACTORIES,
+                DefaultInjectionStrategy.REQUIRED);
+    }
+
+    public static class TestModel {
+
+        private final String name;
+        private final long count;
+
+        public TestModel(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+
+        public TestModel(long count) {
+            this.name = null;
+            this.count = count;
+        }
+
+        public TestModel(Object failure) {
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw (RuntimeException) failure;
+        }
+
+    }
+
+    public static class PostConstructModel {
+
+        private int calls;
+        private Error error;
+
+        @PostConstruct
+        private void init() {
+            calls++;
+            if (error != null) {
+                throw error;
+            }
+        }
+
+    }
+
+    @SuppressWarnings("serial")
+    private static class TestError extends Error {
+    }
+
+}
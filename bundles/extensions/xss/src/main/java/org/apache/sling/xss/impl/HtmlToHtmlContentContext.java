@@ -16,8 +16,12 @@
  ******************************************************************************/
 package org.apache.sling.xss.impl;
 
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.owasp.validator.html.AntiSamy;
 import org.owasp.validator.html.CleanResults;
 import org.owasp.validator.html.PolicyException;
 import org.owasp.validator.html.ScanException;
@@ -30,20 +34,51 @@ import org.slf4j.LoggerFactory;
  * <p>
  * The cleanup is performed using the AntiSamy library found at
  * <a href="http://www.owasp.org/index.php/AntiSamy">http://www.owasp.org/index.php/AntiSamy</a>
+ * using its streaming (SAX) scanner, which applies the rules of the policy without building a DOM of the input.
+ * <p>
+ * Since the same rich text is usually filtered on every rendering, the scan results are kept in a bounded LRU
+ * cache keyed by the policy handler and the input itself, so repeated filtering of unchanged content only costs a
+ * lookup. The cache is bounded by the number of characters it holds and split into segments with their own lock,
+ * so concurrent lookups of different content do not contend.
  */
 public class HtmlToHtmlContentContext implements XSSFilterRule {
 
+    /**
+     * The maximum number of characters (inputs and cleaned outputs) kept in the cache.
+     */
+    static final int MAX_CACHED_CHARS = 4 * 1024 * 1024;
+
+    /**
+     * The number of independently locked cache segments, each holding an equal share of {@link #MAX_CACHED_CHARS}.
+     */
+    static final int CACHE_SEGMENTS = 16;
+
+    /**
+     * Inputs longer than this number of characters are not cached.
+     */
+    static final int MAX_CACHEABLE_LENGTH = 64 * 1024;
+
     /**
      * Logger
      */
     private Logger log = LoggerFactory.getLogger(this.getClass());
 
+    private final CacheSegment[] cache = new CacheSegment[CACHE_SEGMENTS];
+
+    {
+        for (int i = 0; i < cache.length; i++) {
+            cache[i] = new CacheSegment(MAX_CACHED_CHARS / CACHE_SEGMENTS);
+        }
+    }
+
+    private volatile ScanMetrics scanMetrics = ScanMetrics.NOOP;
+
     /**
      * @see XSSFilterRule#check(PolicyHandler, String)
      */
     public boolean check(final PolicyHandler policyHandler, final String str) {
         try {
-            return policyHandler.getAntiSamy().scan(str).getNumberOfErrors() == 0;
+            return scan(policyHandler, str).numberOfErrors == 0;
         } catch (final ScanException se) {
             throw new RuntimeException("Unable to scan input");
         } catch (final PolicyException pe) {
@@ -57,13 +92,7 @@ public class HtmlToHtmlContentContext implements XSSFilterRule {
     public String filter(final PolicyHandler policyHandler, final String str) {
         try {
             log.debug("Protecting (HTML -> HTML) :\n{}", str);
-            final CleanResults results = policyHandler.getAntiSamy().scan(str);
-            final String cleaned = results.getCleanHTML();
-            @SuppressWarnings("unchecked")
-            final List<String> errors = results.getErrorMessages();
-            for (final String error : errors) {
-                log.info("AntiSamy warning: {}", error);
-            }
+            final String cleaned = scan(policyHandler, str).cleanHTML;
             log.debug("Protected (HTML -> HTML):\n{}", cleaned);
 
             return cleaned;
@@ -80,4 +109,152 @@ public class HtmlToHtmlContentContext implements XSSFilterRule {
     public boolean supportsPolicy() {
         return true;
     }
+
+    /**
+     * Sets the metrics used to record cache hits, misses and scan times.
+     *
+     * @param scanMetrics the metrics or {@code null} to disable metrics
+     */
+    void setScanMetrics(final ScanMetrics scanMetrics) {
+        this.scanMetrics = (scanMetrics == null) ? ScanMetrics.NOOP : scanMetrics;
+    }
+
+    /**
+     * Drops all cached scan results, e.g. after a policy has been replaced.
+     */
+    void clearCache() {
+        for (final CacheSegment segment : cache) {
+            segment.clear();
+        }
+    }
+
+    private CacheSegment getSegment(final CacheKey key) {
+        int h = key.hashCode();
+        // spread the higher bits, as the segment is selected by the lower bits
+        h ^= (h >>> 16);
+        return cache[h & (CACHE_SEGMENTS - 1)];
+    }
+
+    private ScanResult scan(final PolicyHandler policyHandler, final String str) throws ScanException, PolicyException {
+        final ScanMetrics metrics = this.scanMetrics;
+        final CacheKey key = (str != null && str.length() <= MAX_CACHEABLE_LENGTH) ? new CacheKey(policyHandler, str) : null;
+        if (key != null) {
+            final ScanResult cached = getSegment(key).get(key);
+            if (cached != null) {
+                metrics.cacheHit();
+                return cached;
+            }
+            metrics.cacheMiss();
+        }
+
+        final CleanResults results;
+        final long start = System.nanoTime();
+        try {
+            results = policyHandler.getAntiSamy().scan(str, AntiSamy.SAX);
+        } finally {
+            metrics.scanned(System.nanoTime() - start);
+        }
+
+        @SuppressWarnings("unchecked")
+        final List<String> errors = results.getErrorMessages();
+        for (final String error : errors) {
+            log.info("AntiSamy warning: {}", error);
+        }
+
+        final ScanResult result = new ScanResult(results.getCleanHTML(), results.getNumberOfErrors());
+        if (key != null) {
+            getSegment(key).put(key, result);
+        }
+        return result;
+    }
+
+    /**
+     * A part of the cache with its own lock, evicting the least recently used results once the characters held
+     * exceed its share of the cache.
+     */
+    private static final class CacheSegment {
+
+        private final LinkedHashMap<CacheKey, ScanResult> results = new LinkedHashMap<CacheKey, ScanResult>(16, 0.75f, true);
+
+        private final long maxChars;
+
+        private long chars;
+
+        CacheSegment(final long maxChars) {
+            this.maxChars = maxChars;
+        }
+
+        synchronized ScanResult get(final CacheKey key) {
+            return results.get(key);
+        }
+
+        synchronized void put(final CacheKey key, final ScanResult result) {
+            final long weight = weight(key, result);
+            if (weight > maxChars) {
+                return;
+            }
+            final ScanResult previous = results.put(key, result);
+            if (previous != null) {
+                chars -= weight(key, previous);
+            }
+            chars += weight;
+            final Iterator<Map.Entry<CacheKey, ScanResult>> it = results.entrySet().iterator();
+            while (chars > maxChars && it.hasNext()) {
+                final Map.Entry<CacheKey, ScanResult> eldest = it.next();
+                chars -= weight(eldest.getKey(), eldest.getValue());
+                it.remove();
+            }
+        }
+
+        synchronized void clear() {
+            results.clear();
+            chars = 0;
+        }
+
+        private static long weight(final CacheKey key, final ScanResult result) {
+            return key.src.length() + (result.cleanHTML == null ? 0 : result.cleanHTML.length());
+        }
+    }
+
+    private static final class ScanResult {
+
+        final String cleanHTML;
+
+        final int numberOfErrors;
+
+        ScanResult(final String cleanHTML, final int numberOfErrors) {
+            this.cleanHTML = cleanHTML;
+            this.numberOfErrors = numberOfErrors;
+        }
+    }
+
+    /**
+     * Cache key matching the policy handler by identity and the input by equality, so that a result is never
+     * returned for different content or for a different policy.
+     */
+    private static final class CacheKey {
+
+        private final PolicyHandler policyHandler;
+
+        private final String src;
+
+        CacheKey(final PolicyHandler policyHandler, final String src) {
+            this.policyHandler = policyHandler;
+            this.src = src;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(policyHandler) + src.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof CacheKey)) {
+                return false;
+            }
+            final CacheKey other = (CacheKey) obj;
+            return policyHandler == other.policyHandler && src.equals(other.src);
+        }
+    }
 }
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one or
+ * more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ ******************************************************************************/
+package org.apache.sling.xss.impl;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.felix.scr.annotations.Activate;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.commons.metrics.Counter;
+import org.apache.sling.commons.metrics.MetricsService;
+import org.apache.sling.commons.metrics.Timer;
+
+/**
+ * Records the {@link ScanMetrics} with the Sling Commons Metrics. This is the only class of the bundle using the
+ * metrics API, whose import is optional: the component is only activated if a {@link MetricsService} is available.
+ */
+@Component
+@Service(ScanMetrics.class)
+public class MetricsServiceScanMetrics implements ScanMetrics {
+
+    static final String METRIC_CACHE_HITS = "sling.xss.filter.html.cache.hits";
+
+    static final String METRIC_CACHE_MISSES = "sling.xss.filter.html.cache.misses";
+
+    static final String METRIC_SCAN = "sling.xss.filter.html.scan";
+
+    @Reference
+    private MetricsService metricsService;
+
+    private Counter hits;
+
+    private Counter misses;
+
+    private Timer scans;
+
+    public MetricsServiceScanMetrics() {
+    }
+
+    MetricsServiceScanMetrics(final MetricsService metricsService) {
+        this.metricsService = metricsService;
+        activate();
+    }
+
+    @Activate
+    protected void activate() {
+        hits = metricsService.counter(METRIC_CACHE_HITS);
+        misses = metricsService.counter(METRIC_CACHE_MISSES);
+        scans = metricsService.timer(METRIC_SCAN);
+    }
+
+    @Override
+    public void cacheHit() {
+        hits.increment();
+    }
+
+    @Override
+    public void cacheMiss() {
+        misses.increment();
+    }
+
+    @Override
+    public void scanned(final long nanos) {
+        scans.update(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one or
+ * more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ ******************************************************************************/
+package org.apache.sling.xss.impl;
+
+/**
+ * Records the cache hits, misses and scan times of the {@link HtmlToHtmlContentContext}. The implementation based on
+ * the optional Sling Commons Metrics is {@link MetricsServiceScanMetrics}, so the filter itself does not load any
+ * metrics class.
+ */
+public interface ScanMetrics {
+
+    /**
+     * Metrics discarding everything, used if no metrics service is available.
+     */
+    ScanMetrics NOOP = new ScanMetrics() {
+
+        @Override
+        public void cacheHit() {
+        }
+
+        @Override
+        public void cacheMiss() {
+        }
+
+        @Override
+        public void scanned(final long nanos) {
+        }
+    };
+
+    /**
+     * Records a scan result found in the cache.
+     */
+    void cacheHit();
+
+    /**
+     * Records a cacheable scan result not found in the cache.
+     */
+    void cacheMiss();
+
+    /**
+     * Records the duration of a scan.
+     *
+     * @param nanos the duration in nanoseconds
+     */
+    void scanned(long nanos);
+}
@@ -30,6 +30,8 @@ import org.apache.felix.scr.annotations.Component;
 import org.apache.felix.scr.annotations.Properties;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.ReferenceCardinality;
+import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.Service;
 import org.apache.sling.api.resource.LoginException;
 import org.apache.sling.api.resource.Resource;
@@ -78,7 +80,7 @@ public class XSSFilterImpl implements XSSFilter, ResourceChangeListener, Externa
     private Attribute hrefAttribute;
 
     // available contexts
-    private final XSSFilterRule htmlHtmlContext = new HtmlToHtmlContentContext();
+    private final HtmlToHtmlContentContext htmlHtmlContext = new HtmlToHtmlContentContext();
     private final XSSFilterRule plainHtmlContext = new PlainTextToHtmlContentContext();
 
     // policies cache
@@ -90,6 +92,10 @@ public class XSSFilterImpl implements XSSFilter, ResourceChangeListener, Externa
     @Reference
     private ServiceUserMapped serviceUserMapped;
 
+    @Reference(cardinality = ReferenceCardinality.OPTIONAL_UNARY, policy = ReferencePolicy.DYNAMIC,
+            bind = "bindScanMetrics", unbind = "unbindScanMetrics")
+    private ScanMetrics scanMetrics;
+
     @Override
     public void onChange(List<ResourceChange> resourceChanges) {
         for (ResourceChange change : resourceChanges) {
@@ -229,6 +235,7 @@ public class XSSFilterImpl implements XSSFilter, ResourceChangeListener, Externa
 
         this.defaultHandler = defaultHandler;
         this.hrefAttribute = hrefAttribute;
+        this.htmlHtmlContext.clearCache();
     }
 
     @SuppressWarnings("unused")
@@ -240,13 +247,17 @@ public class XSSFilterImpl implements XSSFilter, ResourceChangeListener, Externa
     public void loadPolicy(String policyName, InputStream policyStream) throws Exception {
         if (policies.size() < DEFAULT_POLICY_CACHE_SIZE) {
             PolicyHandler policyHandler = new PolicyHandler(policyStream);
-            policies.put(policyName, policyHandler);
+            if (policies.put(policyName, policyHandler) != null) {
+                htmlHtmlContext.clearCache();
+            }
         }
     }
 
     @SuppressWarnings("unused")
     public void unloadPolicy(String policyName) {
-        policies.remove(policyName);
+        if (policies.remove(policyName) != null) {
+            htmlHtmlContext.clearCache();
+        }
     }
 
     @SuppressWarnings("unused")
@@ -254,6 +265,20 @@ public class XSSFilterImpl implements XSSFilter, ResourceChangeListener, Externa
         return policies.containsKey(policyName);
     }
 
+    @SuppressWarnings("unused")
+    protected void bindScanMetrics(final ScanMetrics scanMetrics) {
+        this.scanMetrics = scanMetrics;
+        htmlHtmlContext.setScanMetrics(scanMetrics);
+    }
+
+    @SuppressWarnings("unused")
+    protected void unbindScanMetrics(final ScanMetrics scanMetrics) {
+        if (this.scanMetrics == scanMetrics) {
+            this.scanMetrics = null;
+            htmlHtmlContext.setScanMetrics(null);
+        }
+    }
+
     @Override
     public boolean isValidHref(String url) {
         // Same logic as in org.owasp.validator.html.scan.MagicSAXFilter.startElement()
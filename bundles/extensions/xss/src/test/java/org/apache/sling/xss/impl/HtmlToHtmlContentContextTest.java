@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Licensed to the Apache Software Foundation (ASF) under one or
+ * more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information regarding
+ * copyright ownership. The ASF licenses this file to you under the
+ * Apache License, Version 2.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain
+ * a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0 Unless required by
+ * applicable law or agreed to in writing, software distributed
+ * under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions
+ * and limitations under the License.
+ ******************************************************************************/
+package org.apache.sling.xss.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.FileInputStream;
+
+import org.apache.sling.commons.metrics.Counter;
+import org.apache.sling.commons.metrics.MetricsService;
+import org.junit.Before;
+import org.junit.Test;
+import org.owasp.validator.html.AntiSamy;
+import org.owasp.validator.html.Policy;
+
+public class HtmlToHtmlContentContextTest {
+
+    private HtmlToHtmlContentContext context;
+
+    private PolicyHandler policyHandler;
+
+    private AntiSamy antiSamy;
+
+    private Counter hits;
+
+    private Counter misses;
+
+    @Before
+    public void setup() throws Exception {
+        final Policy policy = Policy.getInstance(new FileInputStream("./src/main/resources/SLING-INF/content/config.xml"));
+        antiSamy = spy(new AntiSamy(policy));
+        policyHandler = mock(PolicyHandler.class);
+        when(policyHandler.getPolicy()).thenReturn(policy);
+        when(policyHandler.getAntiSamy()).thenReturn(antiSamy);
+
+        hits = mock(Counter.class);
+        misses = mock(Counter.class);
+        final MetricsService metrics = mock(MetricsService.class);
+        when(metrics.counter(MetricsServiceScanMetrics.METRIC_CACHE_HITS)).thenReturn(hits);
+        when(metrics.counter(MetricsServiceScanMetrics.METRIC_CACHE_MISSES)).thenReturn(misses);
+        when(metrics.timer(MetricsServiceScanMetrics.METRIC_SCAN)).thenReturn(MetricsService.NOOP.timer(MetricsServiceScanMetrics.METRIC_SCAN));
+
+        context = new HtmlToHtmlContentContext();
+        context.setScanMetrics(new MetricsServiceScanMetrics(metrics));
+    }
+
+    @Test
+    public void testRepeatedFilterIsCached() throws Exception {
+        final String source = "<p onmouseover='ugly'>nice</p>";
+        assertEquals("<p>nice</p>", context.filter(policyHandler, source));
+        assertEquals("<p>nice</p>", context.filter(policyHandler, new String(source)));
+        assertFalse(context.check(policyHandler, source));
+
+        verify(antiSamy, times(1)).scan(source, AntiSamy.SAX);
+        verify(misses, times(1)).increment();
+        verify(hits, times(2)).increment();
+    }
+
+    @Test
+    public void testDifferentContentIsScanned() throws Exception {
+        assertEquals("<b>wow!</b>", context.filter(policyHandler, "<b>wow!</b>"));
+        assertTrue(context.check(policyHandler, "<b>wow!</b>"));
+        assertEquals("", context.filter(policyHandler, "<script>ugly</script>"));
+        verify(misses, times(2)).increment();
+    }
+
+    @Test
+    public void testClearCache() throws Exception {
+        context.filter(policyHandler, "simple");
+        context.clearCache();
+        context.filter(policyHandler, "simple");
+        verify(antiSamy, times(2)).scan("simple", AntiSamy.SAX);
+    }
+
+    @Test
+    public void testLargeContentNotCached() throws Exception {
+        final StringBuilder builder = new StringBuilder();
+        while (builder.length() <= HtmlToHtmlContentContext.MAX_CACHEABLE_LENGTH) {
+            builder.append("<b>text</b>");
+        }
+        final String source = builder.toString();
+        context.filter(policyHandler, source);
+        context.filter(policyHandler, source);
+        verify(antiSamy, times(2)).scan(source, AntiSamy.SAX);
+        verify(misses, times(0)).increment();
+    }
+
+    @Test
+    public void testCacheIsBoundedByCharacters() throws Exception {
+        final StringBuilder builder = new StringBuilder();
+        while (builder.length() < HtmlToHtmlContentContext.MAX_CACHEABLE_LENGTH / 2) {
+            builder.append("text ");
+        }
+        final String padding = builder.toString();
+        final int count = 2 * HtmlToHtmlContentContext.MAX_CACHED_CHARS / padding.length();
+        for (int i = 0; i < count; i++) {
+            context.filter(policyHandler, i + padding);
+        }
+        // the least recently used content has been evicted, the most recently used is still cached
+        context.filter(policyHandler, 0 + padding);
+        verify(antiSamy, times(2)).scan(0 + padding, AntiSamy.SAX);
+        context.filter(policyHandler, (count - 1) + padding);
+        verify(antiSamy, times(1)).scan((count - 1) + padding, AntiSamy.SAX);
+    }
+}
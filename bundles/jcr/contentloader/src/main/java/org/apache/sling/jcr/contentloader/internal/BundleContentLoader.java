@@ -84,9 +84,10 @@ public class BundleContentLoader extends BaseImportLoader {
      */
     public void registerBundle(final Session metadataSession, final Bundle bundle, final boolean isUpdate) throws RepositoryException {
 
-        // if this is an update, we have to uninstall the old content first
+        // if this is an update, the old content is uninstalled while registering
+        // the bundle, except for the content which has not changed
         if (isUpdate) {
-            this.unregisterBundle(metadataSession, bundle);
+            delayedBundles.remove(bundle);
         }
 
         log.debug("Registering bundle {} for content loading.", bundle.getSymbolicName());
@@ -115,6 +116,10 @@ public class BundleContentLoader extends BaseImportLoader {
         final Iterator<PathEntry> pathIter = PathEntry.getContentPaths(bundle);
         if (pathIter == null) {
             log.debug("Bundle {} has no initial content", bundle.getSymbolicName());
+            if (isUpdate) {
+                // the previous version of the bundle might have had initial content
+                this.unregisterBundle(metadataSession, bundle);
+            }
             return true;
         }
 
@@ -131,6 +136,7 @@ public class BundleContentLoader extends BaseImportLoader {
 
             boolean success = false;
             List<String> createdNodes = null;
+            Map<String, String> contentDigests = null;
             try {
                 final boolean contentAlreadyLoaded = ((Boolean) bundleContentInfo.get(ContentLoaderService.PROPERTY_CONTENT_LOADED)).booleanValue();
                 boolean isBundleUpdated = false;
@@ -144,7 +150,42 @@ public class BundleContentLoader extends BaseImportLoader {
                 if (!isUpdate && !isBundleUpdated && contentAlreadyLoaded) {
                     log.info("Content of bundle already loaded {}.", bundle.getSymbolicName());
                 } else {
-                    createdNodes = installContent(metadataSession, bundle, pathIter, contentAlreadyLoaded && !isBundleUpdated);
+                    final long start = System.currentTimeMillis();
+                    final List<PathEntry> pathEntries = new ArrayList<PathEntry>();
+                    while (pathIter.hasNext()) {
+                        pathEntries.add(pathIter.next());
+                    }
+                    contentDigests = computeContentDigests(bundle, pathEntries);
+
+                    // content which has been loaded before and did not change is skipped,
+                    // including the nodes to remove on uninstall
+                    final String[] uninstallPaths = (String[]) bundleContentInfo.get(ContentLoaderService.PROPERTY_UNINSTALL_PATHS);
+                    final List<PathEntry> unchangedEntries = contentAlreadyLoaded
+                            ? getUnchangedEntries(metadataSession, pathEntries, contentDigests,
+                                    ContentDigest.parse((String[]) bundleContentInfo.get(ContentLoaderService.PROPERTY_CONTENT_DIGESTS)),
+                                    uninstallPaths)
+                            : Collections.<PathEntry>emptyList();
+                    final List<String> keptNodes = new ArrayList<String>();
+                    final List<String> removedNodes = new ArrayList<String>();
+                    if (uninstallPaths != null) {
+                        for (final String path : uninstallPaths) {
+                            if (isCoveredBy(metadataSession, path, unchangedEntries)) {
+                                keptNodes.add(path);
+                            } else {
+                                removedNodes.add(path);
+                            }
+                        }
+                    }
+                    if (isUpdate) {
+                        uninstallContent(metadataSession, bundle, removedNodes.toArray(new String[removedNodes.size()]));
+                    }
+
+                    createdNodes = installContent(metadataSession, bundle, pathEntries.iterator(),
+                            contentAlreadyLoaded && !isBundleUpdated && !isUpdate, unchangedEntries);
+                    createdNodes.addAll(keptNodes);
+                    log.info("Installed initial content of bundle {} in {} ms: {} path entries applied, {} unchanged path entries skipped.",
+                            new Object[] {bundle.getSymbolicName(), System.currentTimeMillis() - start,
+                                    pathEntries.size() - unchangedEntries.size(), unchangedEntries.size()});
                     if (isRetry) {
                         // log success of retry
                         log.info("Retrying to load initial content for bundle {} succeeded.", bundle.getSymbolicName());
@@ -154,7 +195,7 @@ public class BundleContentLoader extends BaseImportLoader {
                 success = true;
                 return true;
             } finally {
-                bundleHelper.unlockBundleContentInfo(metadataSession, bundle, success, createdNodes);
+                bundleHelper.unlockBundleContentInfo(metadataSession, bundle, success, createdNodes, contentDigests);
             }
 
         } catch (RepositoryException re) {
@@ -192,7 +233,7 @@ public class BundleContentLoader extends BaseImportLoader {
                     uninstallContent(session, bundle, (String[]) bundleContentInfo.get(ContentLoaderService.PROPERTY_UNINSTALL_PATHS));
                     bundleHelper.contentIsUninstalled(session, bundle);
                 } finally {
-                    bundleHelper.unlockBundleContentInfo(session, bundle, false, null);
+                    bundleHelper.unlockBundleContentInfo(session, bundle, false, null, null);
                 }
             } catch (RepositoryException re) {
                 log.error("Cannot remove initial content for bundle " + bundle.getSymbolicName() + " : " + re.getMessage(), re);
@@ -202,12 +243,171 @@ public class BundleContentLoader extends BaseImportLoader {
 
     // ---------- internal -----------------------------------------------------
 
+    /**
+     * Compute the digests of the content of all path entries.
+     *
+     * @return A map from the path entry key to the digest. Path entries whose
+     *         digest can't be computed are not contained.
+     */
+    private Map<String, String> computeContentDigests(final Bundle bundle, final List<PathEntry> pathEntries) {
+        final Map<String, String> digests = new HashMap<String, String>();
+        for (final PathEntry pathEntry : pathEntries) {
+            try {
+                digests.put(ContentDigest.getKey(pathEntry),
+                        ContentDigest.compute(bundle, pathEntry, getContentReaders().keySet()));
+            } catch (IOException ioe) {
+                log.warn("Unable to compute digest of initial content {} in bundle {}", pathEntry.getPath(), bundle.getSymbolicName(), ioe);
+            }
+        }
+        return digests;
+    }
+
+    /**
+     * Return the path entries whose content did not change since it has been
+     * loaded. Path entries with the overwrite flag are always applied again, as
+     * they are expected to replace local modifications. As it is not recorded
+     * which path entry created which nodes, a path entry is only considered
+     * unchanged if no other applied path entry loads content into the same
+     * subtree, and if its target node and its nodes to remove on uninstall
+     * still exist.
+     */
+    private List<PathEntry> getUnchangedEntries(final Session session,
+            final List<PathEntry> pathEntries,
+            final Map<String, String> digests,
+            final Map<String, String> previousDigests,
+            final String[] uninstallPaths) throws RepositoryException {
+        final List<PathEntry> unchanged = new ArrayList<PathEntry>();
+        final List<PathEntry> changed = new ArrayList<PathEntry>();
+        for (final PathEntry pathEntry : pathEntries) {
+            final String key = ContentDigest.getKey(pathEntry);
+            final String digest = digests.get(key);
+            if (!pathEntry.isOverwrite() && digest != null && digest.equals(previousDigests.get(key))) {
+                unchanged.add(pathEntry);
+            } else {
+                changed.add(pathEntry);
+            }
+        }
+        final Map<String, Session> sessions = new HashMap<String, Session>();
+        try {
+            for (final Iterator<PathEntry> i = unchanged.iterator(); i.hasNext(); ) {
+                final PathEntry pathEntry = i.next();
+                final String target = getWorkspaceTarget(session, pathEntry);
+                if (isOverlapping(session, target, changed) || !isPresent(session, target, uninstallPaths, sessions)) {
+                    i.remove();
+                }
+            }
+        } finally {
+            for (final Session workspaceSession : sessions.values()) {
+                workspaceSession.logout();
+            }
+        }
+        for (final PathEntry pathEntry : unchanged) {
+            log.debug("Skipping unchanged initial content {}", pathEntry.getPath());
+        }
+        return unchanged;
+    }
+
+    /**
+     * Check whether one of the path entries loads content into the same subtree
+     * as the target (prefixed with the workspace name).
+     */
+    private boolean isOverlapping(final Session session, final String target, final List<PathEntry> pathEntries) {
+        for (final PathEntry pathEntry : pathEntries) {
+            final String otherTarget = getWorkspaceTarget(session, pathEntry);
+            if (isSameOrDescendant(target, otherTarget) || isSameOrDescendant(otherTarget, target)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Check whether the target node and all nodes to remove on uninstall below
+     * it (all prefixed with the workspace name) still exist.
+     */
+    private boolean isPresent(final Session session, final String target, final String[] uninstallPaths,
+            final Map<String, Session> sessions) throws RepositoryException {
+        if (!nodeExists(session, target, sessions)) {
+            return false;
+        }
+        if (uninstallPaths != null) {
+            for (final String path : uninstallPaths) {
+                if (isSameOrDescendant(path, target) && !nodeExists(session, path, sessions)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check whether the node exists. The path may be prefixed with the workspace
+     * name, sessions for other workspaces are opened on demand and kept in the map.
+     */
+    private boolean nodeExists(final Session defaultSession, final String path, final Map<String, Session> sessions) throws RepositoryException {
+        final int wsSepPos = path.indexOf(":/");
+        if (wsSepPos == -1) {
+            return defaultSession.nodeExists(path);
+        }
+        final String workspaceName = path.substring(0, wsSepPos);
+        final String nodePath = path.substring(wsSepPos + 1);
+        if (workspaceName.equals(defaultSession.getWorkspace().getName())) {
+            return defaultSession.nodeExists(nodePath);
+        }
+        Session workspaceSession = sessions.get(workspaceName);
+        if (workspaceSession == null) {
+            try {
+                workspaceSession = bundleHelper.getSession(workspaceName);
+            } catch (NoSuchWorkspaceException e) {
+                return false;
+            }
+            sessions.put(workspaceName, workspaceSession);
+        }
+        return workspaceSession.nodeExists(nodePath);
+    }
+
+    /**
+     * Check whether the node path (prefixed with the workspace name) is below the
+     * target of one of the path entries.
+     */
+    private boolean isCoveredBy(final Session session, final String path, final List<PathEntry> pathEntries) {
+        for (final PathEntry pathEntry : pathEntries) {
+            if (isSameOrDescendant(path, getWorkspaceTarget(session, pathEntry))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return the target of the path entry prefixed with the workspace name, the same
+     * format used for the nodes to remove on uninstall.
+     */
+    private String getWorkspaceTarget(final Session session, final PathEntry pathEntry) {
+        final String workspace = pathEntry.getWorkspace() != null ? pathEntry.getWorkspace() : session.getWorkspace().getName();
+        String target = pathEntry.getTarget();
+        if (target == null) {
+            target = "/";
+        } else if (!target.startsWith("/")) {
+            target = "/" + target;
+        }
+        return workspace + ":" + target;
+    }
+
+    private boolean isSameOrDescendant(final String path, final String parent) {
+        if (parent.endsWith("/")) {
+            return path.startsWith(parent);
+        }
+        return path.equals(parent) || path.startsWith(parent + '/');
+    }
+
     /**
      * Install the content from the bundle.
      *
+     * @param unchangedEntries The path entries whose content is skipped
      * @return If the content should be removed on uninstall, a list of top nodes
      */
-    private List<String> installContent(final Session defaultSession, final Bundle bundle, final Iterator<PathEntry> pathIter, final boolean contentAlreadyLoaded) throws RepositoryException {
+    private List<String> installContent(final Session defaultSession, final Bundle bundle, final Iterator<PathEntry> pathIter, final boolean contentAlreadyLoaded, final List<PathEntry> unchangedEntries) throws RepositoryException {
 
         final List<String> createdNodes = new ArrayList<String>();
         final Map<String, Session> createdSessions = new HashMap<String, Session>();
@@ -217,7 +417,7 @@ public class BundleContentLoader extends BaseImportLoader {
         try {
             while (pathIter.hasNext()) {
                 final PathEntry pathEntry = pathIter.next();
-                if (!contentAlreadyLoaded || pathEntry.isOverwrite()) {
+                if ((!contentAlreadyLoaded || pathEntry.isOverwrite()) && !unchangedEntries.contains(pathEntry)) {
                     String workspace = pathEntry.getWorkspace();
                     final Session targetSession;
                     if (workspace != null) {
@@ -30,7 +30,7 @@ public interface BundleHelper extends ContentHelper {
 
     Map<String, Object> getBundleContentInfo(Session session, Bundle bundle, boolean create) throws RepositoryException;
 
-    void unlockBundleContentInfo(Session session, Bundle bundle, boolean contentLoaded, List<String> createdNodes)throws RepositoryException;
+    void unlockBundleContentInfo(Session session, Bundle bundle, boolean contentLoaded, List<String> createdNodes, Map<String, String> contentDigests)throws RepositoryException;
 
     void contentIsUninstalled(Session session, Bundle bundle);
 
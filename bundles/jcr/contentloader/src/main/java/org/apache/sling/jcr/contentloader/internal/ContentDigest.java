@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.jcr.contentloader.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.osgi.framework.Bundle;
+
+/**
+ * The <code>ContentDigest</code> computes a digest of the initial content
+ * of a path entry. The digest covers the configuration of the path entry,
+ * the available content readers and the names and the data of all bundle
+ * entries below the path. If the digest of a path entry did not change
+ * between two versions of a bundle, its content does not need to be
+ * installed again.
+ */
+public class ContentDigest {
+
+    private static final String ALGORITHM = "SHA-256";
+
+    private static final String ENCODING = "UTF-8";
+
+    private ContentDigest() {
+        // static methods only
+    }
+
+    /**
+     * Return the key identifying a path entry within a bundle.
+     */
+    public static String getKey(final PathEntry pathEntry) {
+        return pathEntry.getWorkspace() + ":" + pathEntry.getTarget() + ":" + pathEntry.getPath();
+    }
+
+    /**
+     * Compute the digest of a path entry.
+     *
+     * @param bundle The bundle containing the content.
+     * @param pathEntry The path entry
+     * @param readerExtensions The extensions of the available content readers
+     * @return The hex encoded digest
+     * @throws IOException If reading the content fails
+     */
+    public static String compute(final Bundle bundle, final PathEntry pathEntry, final Collection<String> readerExtensions)
+    throws IOException {
+        final MessageDigest md;
+        try {
+            md = MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException nsae) {
+            throw (IOException) new IOException("Digest algorithm " + ALGORITHM + " not available").initCause(nsae);
+        }
+
+        // configuration
+        final StringBuilder config = new StringBuilder(getKey(pathEntry));
+        config.append(':').append(pathEntry.isOverwrite());
+        config.append(':').append(pathEntry.isPropertyOverwrite());
+        config.append(':').append(pathEntry.isUninstall());
+        config.append(':').append(pathEntry.isCheckin());
+        config.append(':').append(pathEntry.isAutoCheckout());
+        for (final String ext : new TreeSet<String>(readerExtensions)) {
+            config.append(':').append(ext).append('=').append(pathEntry.isIgnoredImportProvider(ext));
+        }
+        update(md, config.toString());
+
+        // content
+        updateFromPath(md, bundle, pathEntry.getPath(), new byte[8192]);
+
+        final StringBuilder sb = new StringBuilder();
+        for (final byte b : md.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Parse the stored digests.
+     *
+     * @param values The values as stored by {@link #toValues(Map)} or <code>null</code>
+     * @return A map from the path entry key to the digest
+     */
+    public static Map<String, String> parse(final String[] values) {
+        final Map<String, String> digests = new HashMap<String, String>();
+        if (values != null) {
+            for (final String value : values) {
+                final int pos = value.indexOf(' ');
+                if (pos != -1) {
+                    digests.put(value.substring(pos + 1), value.substring(0, pos));
+                }
+            }
+        }
+        return digests;
+    }
+
+    /**
+     * Convert the digests into values which can be stored in a multi value property.
+     * As the digest is hex encoded, it is stored first separated by a space from the key.
+     */
+    public static String[] toValues(final Map<String, String> digests) {
+        final String[] values = new String[digests.size()];
+        int i = 0;
+        for (final Map.Entry<String, String> entry : digests.entrySet()) {
+            values[i++] = entry.getValue() + ' ' + entry.getKey();
+        }
+        return values;
+    }
+
+    private static void updateFromPath(final MessageDigest md, final Bundle bundle, final String path, final byte[] buffer)
+    throws IOException {
+        @SuppressWarnings("unchecked")
+        final Enumeration<String> entries = bundle.getEntryPaths(path);
+        if (entries == null) {
+            // single file content
+            final URL u = bundle.getEntry(path);
+            if (u != null) {
+                updateFromEntry(md, path, u, buffer);
+            }
+            return;
+        }
+
+        // the order of the entries is not defined
+        final List<String> sorted = new ArrayList<String>();
+        while (entries.hasMoreElements()) {
+            sorted.add(entries.nextElement());
+        }
+        Collections.sort(sorted);
+
+        for (final String entry : sorted) {
+            if (entry.endsWith("/")) {
+                update(md, entry);
+                updateFromPath(md, bundle, entry, buffer);
+            } else {
+                final URL u = bundle.getEntry(entry);
+                if (u != null) {
+                    updateFromEntry(md, entry, u, buffer);
+                }
+            }
+        }
+    }
+
+    private static void updateFromEntry(final MessageDigest md, final String entry, final URL url, final byte[] buffer)
+    throws IOException {
+        update(md, entry);
+        long length = 0;
+        final InputStream in = url.openStream();
+        try {
+            int l;
+            while ((l = in.read(buffer)) != -1) {
+                md.update(buffer, 0, l);
+                length += l;
+            }
+        } finally {
+            in.close();
+        }
+        // terminate the data with its length, so the next entry can't be mistaken for data
+        for (int shift = 56; shift >= 0; shift -= 8) {
+            md.update((byte) (length >>> shift));
+        }
+    }
+
+    private static void update(final MessageDigest md, final String value) throws UnsupportedEncodingException {
+        md.update(value.getBytes(ENCODING));
+        md.update((byte) 0);
+    }
+}
@@ -67,6 +67,7 @@ public class ContentLoaderService implements SynchronousBundleListener, BundleHe
     private static final String PROPERTY_CONTENT_UNLOADED_AT = "content-unload-time";
     private static final String PROPERTY_CONTENT_UNLOADED_BY = "content-unloaded-by";
     public static final String PROPERTY_UNINSTALL_PATHS = "uninstall-paths";
+    public static final String PROPERTY_CONTENT_DIGESTS = "content-digests";
 
     public static final String BUNDLE_CONTENT_NODE = "/var/sling/bundle-content";
 
@@ -362,13 +363,22 @@ public class ContentLoaderService implements SynchronousBundleListener, BundleHe
             }
             info.put(PROPERTY_UNINSTALL_PATHS, s);
         }
+        if ( bcNode.hasProperty(PROPERTY_CONTENT_DIGESTS) ) {
+            final Value[] values = bcNode.getProperty(PROPERTY_CONTENT_DIGESTS).getValues();
+            final String[] s = new String[values.length];
+            for(int i=0; i<values.length; i++) {
+                s[i] = values[i].getString();
+            }
+            info.put(PROPERTY_CONTENT_DIGESTS, s);
+        }
         return info;
     }
 
     public void unlockBundleContentInfo(final Session session,
                                         final Bundle  bundle,
                                         final boolean contentLoaded,
-                                        final List<String> createdNodes)
+                                        final List<String> createdNodes,
+                                        final Map<String, String> contentDigests)
     throws RepositoryException {
         final String nodeName = bundle.getSymbolicName();
         final Node parentNode = (Node)session.getItem(BUNDLE_CONTENT_NODE);
@@ -379,8 +389,12 @@ public class ContentLoaderService implements SynchronousBundleListener, BundleHe
             bcNode.setProperty(PROPERTY_CONTENT_LOADED_BY, this.slingId);
             bcNode.setProperty(PROPERTY_CONTENT_UNLOADED_AT, (String)null);
             bcNode.setProperty(PROPERTY_CONTENT_UNLOADED_BY, (String)null);
-            if ( createdNodes != null && createdNodes.size() > 0 ) {
-                bcNode.setProperty(PROPERTY_UNINSTALL_PATHS, createdNodes.toArray(new String[createdNodes.size()]));
+            if ( createdNodes != null ) {
+                bcNode.setProperty(PROPERTY_UNINSTALL_PATHS,
+                        createdNodes.size() > 0 ? createdNodes.toArray(new String[createdNodes.size()]) : null);
+            }
+            if ( contentDigests != null ) {
+                bcNode.setProperty(PROPERTY_CONTENT_DIGESTS, ContentDigest.toValues(contentDigests));
             }
             bcNode.save();
         }
@@ -398,6 +412,7 @@ public class ContentLoaderService implements SynchronousBundleListener, BundleHe
                 bcNode.setProperty(PROPERTY_CONTENT_UNLOADED_AT, Calendar.getInstance());
                 bcNode.setProperty(PROPERTY_CONTENT_UNLOADED_BY, this.slingId);
                 bcNode.setProperty(PROPERTY_UNINSTALL_PATHS, (String[])null);
+                bcNode.setProperty(PROPERTY_CONTENT_DIGESTS, (String[])null);
                 bcNode.save();
             }
         } catch (RepositoryException re) {
@@ -21,7 +21,9 @@ package org.apache.sling.jcr.contentloader.internal;
 import static java.util.Collections.singletonMap;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 import javax.jcr.Session;
 
@@ -96,6 +98,68 @@ public class BundleContentLoaderTest {
         assertThat("sling:resourceType was not properly set", imported.getResourceType(), equalTo("sling:Folder"));
     }
     
+    @Test
+    public void skipUnchangedContentOnUpdate() throws Exception {
+
+        Bundle mockBundle = newBundleWithInitialContent("SLING-INF/libs;path:=/libs/test");
+        Session session = context.resourceResolver().adaptTo(Session.class);
+
+        contentLoader.registerBundle(session, mockBundle, false);
+        session.getNode("/libs/test/app").remove();
+        session.save();
+
+        contentLoader.registerBundle(session, mockBundle, true);
+
+        assertFalse("Unchanged content was installed again", session.nodeExists("/libs/test/app"));
+    }
+
+    @Test
+    public void installUnchangedContentWithoutTargetOnUpdate() throws Exception {
+
+        Bundle mockBundle = newBundleWithInitialContent("SLING-INF/libs;path:=/libs/test");
+        Session session = context.resourceResolver().adaptTo(Session.class);
+
+        contentLoader.registerBundle(session, mockBundle, false);
+        session.getNode("/libs/test").remove();
+        session.save();
+
+        contentLoader.registerBundle(session, mockBundle, true);
+
+        assertTrue("Removed content was not installed again", session.nodeExists("/libs/test/app"));
+    }
+
+    @Test
+    public void overwriteUnchangedContentOnUpdate() throws Exception {
+
+        Bundle mockBundle = newBundleWithInitialContent("SLING-INF/libs;path:=/libs/test;overwrite:=true");
+        Session session = context.resourceResolver().adaptTo(Session.class);
+
+        contentLoader.registerBundle(session, mockBundle, false);
+        session.getNode("/libs/test/app").setProperty("marker", true);
+        session.save();
+
+        contentLoader.registerBundle(session, mockBundle, true);
+
+        assertFalse("Unchanged content was not overwritten", session.getNode("/libs/test/app").hasProperty("marker"));
+    }
+
+    @Test
+    public void installChangedContentOnUpdate() throws Exception {
+
+        MockBundle mockBundle = newBundleWithInitialContent("SLING-INF/libs;path:=/libs/test;overwrite:=true");
+        Session session = context.resourceResolver().adaptTo(Session.class);
+
+        contentLoader.registerBundle(session, mockBundle, false);
+        session.getNode("/libs/test/app").setProperty("marker", true);
+        session.save();
+
+        // a changed configuration changes the digest of the path entry
+        mockBundle.setHeaders(singletonMap("Sling-Initial-Content", "SLING-INF/libs;path:=/libs/test;overwrite:=true;overwriteProperties:=true"));
+        contentLoader.registerBundle(session, mockBundle, true);
+
+        assertFalse("Changed content was not installed again", session.getNode("/libs/test/app").hasProperty("marker"));
+    }
+
     @Test
     @Ignore("TODO - unregister or somehow ignore the XmlReader component for this test")
     public void loadXmlAsIs() throws Exception {
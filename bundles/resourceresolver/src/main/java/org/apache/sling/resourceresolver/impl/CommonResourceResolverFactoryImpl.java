@@ -41,6 +41,7 @@ import org.apache.sling.api.resource.path.Path;
 import org.apache.sling.resourceresolver.impl.console.ResourceResolverWebConsolePlugin;
 import org.apache.sling.resourceresolver.impl.helper.ResourceDecoratorTracker;
 import org.apache.sling.resourceresolver.impl.helper.ResourceResolverControl;
+import org.apache.sling.resourceresolver.impl.helper.ResourceTypeHierarchyCache;
 import org.apache.sling.resourceresolver.impl.mapping.MapConfigurationProvider;
 import org.apache.sling.resourceresolver.impl.mapping.MapEntries;
 import org.apache.sling.resourceresolver.impl.mapping.MapEntriesHandler;
@@ -64,6 +65,9 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
     /** Helper for the resource resolver. */
     private MapEntriesHandler mapEntries = MapEntriesHandler.EMPTY;
 
+    /** Cache of the resource type hierarchy, {@code null} if not available. */
+    private volatile ResourceTypeHierarchyCache resourceTypeHierarchyCache;
+
     /** The web console plugin. */
     private ResourceResolverWebConsolePlugin plugin;
 
@@ -292,6 +296,13 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
         return mapEntries;
     }
 
+    /**
+     * @return the cache of the resource type hierarchy or {@code null} if not available
+     */
+    public ResourceTypeHierarchyCache getResourceTypeHierarchyCache() {
+        return resourceTypeHierarchyCache;
+    }
+
     /** Activates this component */
     protected void activate(final BundleContext bundleContext) {
         final Logger logger = LoggerFactory.getLogger(getClass());
@@ -308,6 +319,15 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
         } catch (final Exception e) {
             logger.error("activate: Cannot access repository, failed setting up Mapping Support", e);
         }
+        // set up the resource type hierarchy cache
+        try {
+            final ResourceTypeHierarchyCache cache = new ResourceTypeHierarchyCache(
+                    getServiceResourceResolver(getServiceUserAuthenticationInfo("hierarchy")));
+            cache.register(bundleContext);
+            resourceTypeHierarchyCache = cache;
+        } catch (final Exception e) {
+            logger.warn("activate: Cannot access repository, resource type hierarchy will not be cached", e);
+        }
     }
 
     /**
@@ -328,6 +348,10 @@ public class CommonResourceResolverFactoryImpl implements ResourceResolverFactor
             ((MapEntries)mapEntries).dispose();
             mapEntries = MapEntries.EMPTY;
         }
+        if (resourceTypeHierarchyCache != null) {
+            resourceTypeHierarchyCache.dispose();
+            resourceTypeHierarchyCache = null;
+        }
         resolverStackHolder = null;
 
         // copy and clear map before closing the remaining references
@@ -52,6 +52,7 @@ import org.apache.sling.resourceresolver.impl.helper.ResourceIteratorDecorator;
 import org.apache.sling.resourceresolver.impl.helper.ResourcePathIterator;
 import org.apache.sling.resourceresolver.impl.helper.ResourceResolverContext;
 import org.apache.sling.resourceresolver.impl.helper.ResourceResolverControl;
+import org.apache.sling.resourceresolver.impl.helper.ResourceTypeHierarchyCache;
 import org.apache.sling.resourceresolver.impl.helper.StarResource;
 import org.apache.sling.resourceresolver.impl.helper.URI;
 import org.apache.sling.resourceresolver.impl.helper.URIException;
@@ -1213,6 +1214,12 @@ public class ResourceResolverImpl extends SlingAdaptable implements ResourceReso
      */
     @Override
     public String getParentResourceType(final String resourceType) {
+        final ResourceTypeHierarchyCache cache = this.factory.getResourceTypeHierarchyCache();
+        // the cache reflects the persisted state as seen by the resource type resolver,
+        // administrative resolvers read the resource types themselves
+        if ( cache != null && !this.control.isAdmin() && !this.hasChanges() ) {
+            return cache.getParentResourceType(resourceType);
+        }
         return this.control.getParentResourceType(this.factory, this, resourceType);
     }
 
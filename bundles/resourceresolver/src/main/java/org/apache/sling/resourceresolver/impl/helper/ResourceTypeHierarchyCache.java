@@ -0,0 +1,376 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.helper;
+
+import java.util.Arrays;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceUtil;
+import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.apache.sling.api.resource.observation.ResourceChangeListener;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceRegistration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of the resource super type of resource types, shared by all non administrative
+ * resource resolvers.
+ * <p>
+ * The super types are read with the "hierarchy" service resource resolver, which is the
+ * resolver non administrative resource resolvers use for reading the resource type
+ * resources anyway. Only relative resource types and absolute resource types within the
+ * search path are cached, as the cache is invalidated by observing the search path.
+ * Walking up a resource type hierarchy is therefore a sequence of map lookups once the
+ * hierarchy has been read.
+ * <p>
+ * The cache holds at most {@link #MAX_ENTRIES} resource types, the least recently used
+ * ones are evicted once this limit is exceeded.
+ */
+public class ResourceTypeHierarchyCache implements ResourceChangeListener, ExternalResourceChangeListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(ResourceTypeHierarchyCache.class);
+
+    /** Marker for resource types without super type (or without resource type resource). */
+    private static final String NO_SUPER_TYPE = "";
+
+    /** Upper bound of cached resource types. */
+    static final int MAX_ENTRIES = 10000;
+
+    /** Maximum number of resolvers reading resource types concurrently. */
+    private static final int MAX_LOADERS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /** Resource type paths (as returned by {@link ResourceUtil#resourceTypeToPath(String)}) to their super type. */
+    private final ConcurrentMap<String, Entry> superTypes = new ConcurrentHashMap<>();
+
+    /** Locks for resource types currently loaded, so each type is only read once. */
+    private final ConcurrentMap<String, Lock> loadLocks = new ConcurrentHashMap<>();
+
+    /** Idle loaders. A resolver is not thread safe, so each one is used by one thread at a time. */
+    private final BlockingQueue<Loader> loaders = new LinkedBlockingQueue<>();
+
+    private final AtomicInteger loaderCount = new AtomicInteger();
+
+    /** Incremented on each change, loads started before a change are not cached. */
+    private final AtomicLong generation = new AtomicLong();
+
+    /** Logical clock for the least recently used eviction. */
+    private final AtomicLong clock = new AtomicLong();
+
+    private final Lock evictionLock = new ReentrantLock();
+
+    private final String[] searchPath;
+
+    /** The resolver the resolvers of further loaders are cloned from. */
+    private final ResourceResolver resolver;
+
+    private volatile boolean disposed;
+
+    private volatile ServiceRegistration<ResourceChangeListener> registration;
+
+    /**
+     * @param resolver The resolver used to read the resource type resources, it is owned (and closed) by the cache.
+     */
+    public ResourceTypeHierarchyCache(final ResourceResolver resolver) {
+        this.resolver = resolver;
+        this.searchPath = resolver.getSearchPath();
+        this.loaders.add(new Loader(resolver));
+        this.loaderCount.set(1);
+    }
+
+    /**
+     * Registers the cache as a {@link ResourceChangeListener} for the search path.
+     */
+    public void register(final BundleContext bundleContext) {
+        final String[] paths = new String[searchPath.length];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = searchPath[i].endsWith("/") ? searchPath[i].substring(0, searchPath[i].length() - 1) : searchPath[i];
+        }
+        final Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put(ResourceChangeListener.PATHS, paths);
+        props.put(Constants.SERVICE_DESCRIPTION, "Apache Sling Resource Type Hierarchy Cache");
+        props.put(Constants.SERVICE_VENDOR, "The Apache Software Foundation");
+        this.registration = bundleContext.registerService(ResourceChangeListener.class, this, props);
+    }
+
+    public void dispose() {
+        if (this.registration != null) {
+            this.registration.unregister();
+            this.registration = null;
+        }
+        this.disposed = true;
+        Loader loader;
+        while ((loader = this.loaders.poll()) != null) {
+            loader.resolver.close();
+        }
+        this.superTypes.clear();
+    }
+
+    /**
+     * Get the parent resource type
+     *
+     * @see org.apache.sling.api.resource.ResourceResolver#getParentResourceType(java.lang.String)
+     */
+    public String getParentResourceType(final String resourceType) {
+        if (resourceType == null || disposed) {
+            return null;
+        }
+        // normalize resource type to a path string
+        final String rtPath = ResourceUtil.resourceTypeToPath(resourceType);
+        final Entry entry = superTypes.get(rtPath);
+        final String superType;
+        if (entry != null) {
+            entry.lastAccess = clock.incrementAndGet();
+            superType = entry.superType;
+        } else {
+            superType = load(rtPath);
+        }
+        return superType == null || superType.isEmpty() ? null : superType;
+    }
+
+    private String load(final String rtPath) {
+        final Lock lock = new ReentrantLock();
+        lock.lock();
+        try {
+            final Lock existing = loadLocks.putIfAbsent(rtPath, lock);
+            if (existing != null) {
+                // another thread is loading this type, wait for it
+                existing.lock();
+                existing.unlock();
+                final Entry entry = superTypes.get(rtPath);
+                if (entry != null) {
+                    return entry.superType;
+                }
+                // not cached (because of a concurrent change), read it ourselves
+                return read(rtPath, generation.get());
+            }
+            try {
+                final Entry entry = superTypes.get(rtPath);
+                if (entry != null) {
+                    return entry.superType;
+                }
+                final long gen = generation.get();
+                final String superType = read(rtPath, gen);
+                if (superType != null && isCacheable(rtPath) && gen == generation.get() && !disposed) {
+                    superTypes.put(rtPath, new Entry(superType, clock.incrementAndGet()));
+                    if (superTypes.size() > MAX_ENTRIES) {
+                        evict();
+                    }
+                }
+                return superType;
+            } finally {
+                loadLocks.remove(rtPath, lock);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Read the super type of the resource type.
+     * @return The super type, {@link #NO_SUPER_TYPE} if it has none or {@code null} if the cache has been disposed
+     */
+    private String read(final String rtPath, final long gen) {
+        final Loader loader = borrowLoader();
+        if (loader == null) {
+            return null;
+        }
+        try {
+            if (loader.generation != gen) {
+                // make sure the resolver reflects the changes
+                loader.resolver.refresh();
+                loader.generation = gen;
+            }
+            final Resource rtResource = loader.resolver.getResource(rtPath);
+            final String superType = rtResource == null ? null : rtResource.getResourceSuperType();
+            return superType == null ? NO_SUPER_TYPE : superType;
+        } finally {
+            if (disposed) {
+                loader.resolver.close();
+            } else {
+                loaders.add(loader);
+            }
+        }
+    }
+
+    private Loader borrowLoader() {
+        Loader loader = loaders.poll();
+        if (loader == null) {
+            if (loaderCount.incrementAndGet() <= MAX_LOADERS && !disposed) {
+                try {
+                    final ResourceResolver clone = resolver.clone(null);
+                    if (clone != null) {
+                        return new Loader(clone);
+                    }
+                } catch (final LoginException e) {
+                    logger.debug("Unable to create an additional resolver for reading resource types", e);
+                }
+            }
+            loaderCount.decrementAndGet();
+            try {
+                while (loader == null && !disposed) {
+                    loader = loaders.poll(1, TimeUnit.SECONDS);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return loader;
+    }
+
+    /**
+     * Changes outside the search path are not observed, so only relative resource types
+     * and absolute resource types within the search path can be cached.
+     */
+    private boolean isCacheable(final String rtPath) {
+        if (!rtPath.startsWith("/")) {
+            return true;
+        }
+        for (final String prefix : searchPath) {
+            if (rtPath.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evicts the least recently used tenth of the entries.
+     */
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            // another thread is evicting already
+            return;
+        }
+        try {
+            final int size = superTypes.size();
+            if (size <= MAX_ENTRIES) {
+                return;
+            }
+            final long[] accesses = new long[size];
+            int count = 0;
+            for (final Entry entry : superTypes.values()) {
+                if (count == accesses.length) {
+                    break;
+                }
+                accesses[count++] = entry.lastAccess;
+            }
+            Arrays.sort(accesses, 0, count);
+            final long threshold = accesses[Math.min(count - 1, size - MAX_ENTRIES + MAX_ENTRIES / 10)];
+            for (final Map.Entry<String, Entry> entry : superTypes.entrySet()) {
+                if (entry.getValue().lastAccess <= threshold) {
+                    superTypes.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Removes all cached resource types which might be affected by the changes.
+     */
+    @Override
+    public void onChange(final List<ResourceChange> changes) {
+        // loads in progress must not put their (maybe outdated) result
+        generation.incrementAndGet();
+        for (final ResourceChange change : changes) {
+            invalidate(change.getPath(), change.getType() == ChangeType.CHANGED);
+        }
+    }
+
+    /**
+     * Invalidate the resource types read from the path.
+     * @param path The changed path
+     * @param changed {@code true} if only properties of the resource changed, in this case only
+     *                the type at the path itself is affected, otherwise all types below it as well
+     */
+    private void invalidate(final String path, final boolean changed) {
+        for (final String prefix : searchPath) {
+            if ((path + "/").startsWith(prefix)) {
+                final String relativePath = path.length() > prefix.length() ? path.substring(prefix.length()) : "";
+                if (relativePath.isEmpty()) {
+                    logger.debug("Search path entry {} changed, clearing all cached resource types", path);
+                    superTypes.clear();
+                    return;
+                }
+                // a type is cached under its relative or its absolute path
+                superTypes.remove(relativePath);
+                superTypes.remove(path);
+                if (!changed) {
+                    for (final String rtPath : superTypes.keySet()) {
+                        if (isSameOrDescendant(rtPath, relativePath) || isSameOrDescendant(rtPath, path)) {
+                            logger.debug("Resource type {} invalidated by change of {}", rtPath, path);
+                            superTypes.remove(rtPath);
+                        }
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        final String superType;
+
+        volatile long lastAccess;
+
+        Entry(final String superType, final long lastAccess) {
+            this.superType = superType;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private static final class Loader {
+
+        final ResourceResolver resolver;
+
+        /** The generation the resolver has last been refreshed for. */
+        long generation;
+
+        Loader(final ResourceResolver resolver) {
+            this.resolver = resolver;
+        }
+    }
+
+    private static boolean isSameOrDescendant(final String path, final String ancestor) {
+        return path.equals(ancestor) || path.startsWith(ancestor + "/");
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.resourceresolver.impl.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.observation.ResourceChange;
+import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResourceTypeHierarchyCacheTest {
+
+    private ResourceResolver resolver;
+
+    private ResourceTypeHierarchyCache cache;
+
+    @Before
+    public void setup() {
+        resolver = mock(ResourceResolver.class);
+        when(resolver.getSearchPath()).thenReturn(new String[] {"/apps/", "/libs/"});
+        addType("a/b", "a/parent");
+        cache = new ResourceTypeHierarchyCache(resolver);
+    }
+
+    private void addType(final String rtPath, final String superType) {
+        final Resource rtResource = mock(Resource.class);
+        when(rtResource.getResourceSuperType()).thenReturn(superType);
+        when(resolver.getResource(rtPath)).thenReturn(rtResource);
+    }
+
+    private void change(final String path) {
+        change(ChangeType.CHANGED, path);
+    }
+
+    private void change(final ChangeType type, final String path) {
+        cache.onChange(Collections.singletonList(new ResourceChange(type, path, false)));
+    }
+
+    @Test
+    public void testSuperTypeIsCached() {
+        assertEquals("a/parent", cache.getParentResourceType("a/b"));
+        assertEquals("a/parent", cache.getParentResourceType("a:b"));
+        verify(resolver, times(1)).getResource("a/b");
+    }
+
+    @Test
+    public void testMissingTypeIsCached() {
+        assertNull(cache.getParentResourceType("x/y"));
+        assertNull(cache.getParentResourceType("x/y"));
+        verify(resolver, times(1)).getResource("x/y");
+        assertNull(cache.getParentResourceType(null));
+    }
+
+    @Test
+    public void testInvalidationBySearchPathChange() {
+        assertEquals("a/parent", cache.getParentResourceType("a/b"));
+        assertNull(cache.getParentResourceType("x/y"));
+
+        addType("a/b", "a/other");
+        change("/apps/a/b");
+        assertEquals("a/other", cache.getParentResourceType("a/b"));
+        verify(resolver, times(2)).getResource("a/b");
+        verify(resolver, times(1)).refresh();
+
+        // unrelated types stay cached
+        assertNull(cache.getParentResourceType("x/y"));
+        verify(resolver, times(1)).getResource("x/y");
+
+        // a property change of an ancestor does not affect the types below
+        change("/libs/a");
+        assertEquals("a/other", cache.getParentResourceType("a/b"));
+        verify(resolver, times(2)).getResource("a/b");
+
+        // removal of an ancestor invalidates the types below
+        change(ChangeType.REMOVED, "/libs/a");
+        assertEquals("a/other", cache.getParentResourceType("a/b"));
+        verify(resolver, times(3)).getResource("a/b");
+    }
+
+    @Test
+    public void testInvalidationOfAbsoluteType() {
+        addType("/libs/a/b", "a/parent");
+        assertEquals("a/parent", cache.getParentResourceType("/libs/a/b"));
+        change("/libs/a/b");
+        assertEquals("a/parent", cache.getParentResourceType("/libs/a/b"));
+        verify(resolver, times(2)).getResource("/libs/a/b");
+    }
+
+    @Test
+    public void testAbsoluteTypeOutsideSearchPathIsNotCached() {
+        addType("/content/types/b", "a/parent");
+        assertEquals("a/parent", cache.getParentResourceType("/content/types/b"));
+        assertEquals("a/parent", cache.getParentResourceType("/content/types/b"));
+        verify(resolver, times(2)).getResource("/content/types/b");
+    }
+
+    @Test
+    public void testLeastRecentlyUsedTypesAreEvicted() {
+        assertEquals("a/parent", cache.getParentResourceType("a/b"));
+        for (int i = 0; i < ResourceTypeHierarchyCache.MAX_ENTRIES; i++) {
+            cache.getParentResourceType("x/" + i);
+            // keep the first type in use
+            cache.getParentResourceType("a/b");
+        }
+        verify(resolver, times(1)).getResource("a/b");
+
+        // the least recently used type has been evicted
+        assertNull(cache.getParentResourceType("x/0"));
+        verify(resolver, times(2)).getResource("x/0");
+
+        // the most recently used types are still cached
+        final String last = "x/" + (ResourceTypeHierarchyCache.MAX_ENTRIES - 1);
+        assertNull(cache.getParentResourceType(last));
+        verify(resolver, times(1)).getResource(last);
+        assertEquals("a/parent", cache.getParentResourceType("a/b"));
+        verify(resolver, times(1)).getResource("a/b");
+    }
+
+    @Test
+    public void testLoadAfterChangeRefreshesResolver() {
+        assertEquals("a/parent", cache.getParentResourceType("a/b"));
+        verify(resolver, never()).refresh();
+        change("/apps/a/b");
+        assertEquals("a/parent", cache.getParentResourceType("a/b"));
+        verify(resolver, times(1)).refresh();
+    }
+
+    @Test
+    public void testDispose() {
+        cache.dispose();
+        verify(resolver).close();
+        assertNull(cache.getParentResourceType("a/b"));
+    }
+}
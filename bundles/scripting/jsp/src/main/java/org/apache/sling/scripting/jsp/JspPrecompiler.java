@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.scripting.jsp;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>JspPrecompiler</code> compiles all JSP scripts found below
+ * the configured paths in the background.
+ * <p>
+ * Scripts are collected first and then compiled by a bounded number of
+ * worker threads, each using its own service resource resolver. Scripts
+ * which are not out dated are only loaded, as the class files and their
+ * dependencies are kept by the class loader writer. Tag files are compiled
+ * together with the scripts using them.
+ */
+class JspPrecompiler {
+
+    private static final String THREAD_NAME = "Apache Sling JSP Precompiler";
+
+    private static final long STOP_CHECK_INTERVAL = 10;
+
+    /** Default logger */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final JspScriptEngineFactory engineFactory;
+
+    private final ResourceResolverFactory resourceResolverFactory;
+
+    private final String[] paths;
+
+    private final int threads;
+
+    private final Queue<String> scripts = new ConcurrentLinkedQueue<String>();
+
+    private final AtomicInteger compiled = new AtomicInteger();
+
+    private final AtomicInteger failed = new AtomicInteger();
+
+    private volatile boolean stopped;
+
+    /**
+     * @param engineFactory The engine factory compiling the scripts
+     * @param resourceResolverFactory The factory for the service resource resolvers
+     * @param paths The paths to search for scripts, if empty the search path
+     *              of the resource resolver is used
+     * @param threads The number of worker threads
+     */
+    JspPrecompiler(final JspScriptEngineFactory engineFactory,
+            final ResourceResolverFactory resourceResolverFactory,
+            final String[] paths,
+            final int threads) {
+        this.engineFactory = engineFactory;
+        this.resourceResolverFactory = resourceResolverFactory;
+        this.paths = paths;
+        this.threads = threads < 1 ? 1 : threads;
+    }
+
+    /**
+     * Start the precompilation in the background.
+     */
+    void start() {
+        final Thread coordinator = new Thread(THREAD_NAME) {
+            @Override
+            public void run() {
+                precompile();
+            }
+        };
+        coordinator.setDaemon(true);
+        coordinator.start();
+    }
+
+    /**
+     * Stop the precompilation without waiting for it. Scripts currently
+     * compiled are finished, remaining scripts are skipped. The threads are
+     * not interrupted to not abort reading scripts or writing class files.
+     */
+    void stop() {
+        this.stopped = true;
+    }
+
+    /**
+     * @return The factory for the service resource resolvers
+     */
+    ResourceResolverFactory getResourceResolverFactory() {
+        return this.resourceResolverFactory;
+    }
+
+    private void precompile() {
+        final long start = System.currentTimeMillis();
+        if ( !this.collectScripts() ) {
+            return;
+        }
+        final int total = this.scripts.size();
+        logger.info("Precompiling {} JSP scripts using {} threads", total, threads);
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ExecutorService es = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread t = new Thread(r, THREAD_NAME + " #" + threadCount.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            for(int i = 0; i < threads; i++) {
+                es.execute(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        compileScripts();
+                    }
+                });
+            }
+            es.shutdown();
+            while ( !es.awaitTermination(STOP_CHECK_INTERVAL, TimeUnit.SECONDS) ) {
+                if ( stopped ) {
+                    return;
+                }
+            }
+        } catch (final InterruptedException ie) {
+            return;
+        }
+        if ( !stopped ) {
+            logger.info("Precompiled {} JSP scripts in {}ms, {} failed",
+                    new Object[] {compiled.get(), System.currentTimeMillis() - start, failed.get()});
+        }
+    }
+
+    /**
+     * Collect all scripts below the configured paths.
+     * @return <code>true</code> if the scripts have been collected
+     */
+    private boolean collectScripts() {
+        final ResourceResolver resolver = this.getResourceResolver();
+        if ( resolver == null ) {
+            return false;
+        }
+        try {
+            final String[] searchPaths = (paths == null || paths.length == 0) ? resolver.getSearchPath() : paths;
+            for(final String path : searchPaths) {
+                final Resource rsrc = resolver.getResource(path);
+                if ( rsrc != null ) {
+                    this.collectScripts(rsrc);
+                }
+            }
+        } finally {
+            resolver.close();
+        }
+        return !stopped;
+    }
+
+    private void collectScripts(final Resource resource) {
+        final List<Resource> folders = new ArrayList<Resource>();
+        folders.add(resource);
+        while ( !folders.isEmpty() && !stopped ) {
+            final Resource folder = folders.remove(folders.size() - 1);
+            final Iterator<Resource> children = folder.listChildren();
+            while ( children.hasNext() ) {
+                final Resource child = children.next();
+                if ( isScript(child.getName()) ) {
+                    this.scripts.add(child.getPath());
+                } else {
+                    folders.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Page fragments are only compiled as part of the pages including them.
+     */
+    private static boolean isScript(final String name) {
+        return name.endsWith(".jsp") || name.endsWith(".jspx");
+    }
+
+    private void compileScripts() {
+        final ResourceResolver resolver = this.getResourceResolver();
+        if ( resolver == null ) {
+            return;
+        }
+        try {
+            String scriptName;
+            while ( !stopped && (scriptName = this.scripts.poll()) != null ) {
+                if ( this.engineFactory.precompile(resolver, scriptName) ) {
+                    this.compiled.incrementAndGet();
+                } else {
+                    this.failed.incrementAndGet();
+                }
+                // make sure that changes are visible to the next script
+                resolver.refresh();
+            }
+        } finally {
+            resolver.close();
+        }
+    }
+
+    private ResourceResolver getResourceResolver() {
+        try {
+            return this.resourceResolverFactory.getServiceResourceResolver(null);
+        } catch (final LoginException le) {
+            logger.warn("Unable to precompile JSP scripts, no service resource resolver available: {}", le.getMessage());
+            return null;
+        }
+    }
+}
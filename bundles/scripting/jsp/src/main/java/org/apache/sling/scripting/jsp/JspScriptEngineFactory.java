@@ -38,6 +38,7 @@ import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingIOException;
 import org.apache.sling.api.SlingServletException;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
 import org.apache.sling.api.resource.observation.ExternalResourceChangeListener;
 import org.apache.sling.api.resource.observation.ResourceChange;
 import org.apache.sling.api.resource.observation.ResourceChange.ChangeType;
@@ -161,6 +162,23 @@ public class JspScriptEngineFactory
                     "JSP page? Warning - this behavior may produce unintended results and changing " +
                     "it will not impact previously-compiled pages.")
         boolean default_is_session() default true;
+
+        @AttributeDefinition(name = "Precompile Scripts",
+                description = "Should all JSP scripts be compiled in the background when " +
+                    "the script handler is activated? Scripts which are not out dated are only " +
+                    "loaded. This requires a service user mapping for this bundle with read " +
+                    "access to the scripts. Default false.")
+        boolean precompile_enabled() default false;
+
+        @AttributeDefinition(name = "Precompile Paths",
+                description = "The paths to search for JSP scripts to precompile. If empty, " +
+                    "the search path of the resource resolver is used.")
+        String[] precompile_paths() default {};
+
+        @AttributeDefinition(name = "Precompile Threads",
+                description = "The number of threads compiling JSP scripts in the background. " +
+                    "Default 2.")
+        int precompile_threads() default 2;
     }
 
     /** Default logger */
@@ -196,6 +214,14 @@ public class JspScriptEngineFactory
     /** The handler for the jsp factories. */
     private JspFactoryHandler jspFactoryHandler;
 
+    private volatile ResourceResolverFactory resourceResolverFactory;
+
+    /** The configuration, if precompilation is enabled and the component is active. */
+    private volatile Config precompileConfig;
+
+    /** The precompiler, if started. */
+    private JspPrecompiler precompiler;
+
     public static final String[] SCRIPT_TYPE = { "jsp", "jspf", "jspx" };
 
     public static final String[] NAMES = { "jsp", "JSP" };
@@ -377,6 +403,50 @@ public class JspScriptEngineFactory
         return getJspWrapper(scriptName, bindings);
     }
 
+    /**
+     * Compile a JSP script if it is out dated and load it.
+     * @param resolver The resource resolver to read the script
+     * @param scriptName The name of the script
+     * @return <code>true</code> if the script is compiled and loaded
+     */
+    boolean precompile(final ResourceResolver resolver, final String scriptName) {
+        final SlingIOProvider io = this.ioProvider;
+        final JspFactoryHandler jspfh = this.jspFactoryHandler;
+
+        // abort if JSP Support is shut down concurrently (SLING-2704)
+        if (io == null || jspfh == null) {
+            return false;
+        }
+
+        final ClassLoader old = Thread.currentThread().getContextClassLoader();
+        Thread.currentThread().setContextClassLoader(this.dynamicClassLoader);
+        final ResourceResolver oldResolver = io.setRequestResourceResolver(resolver);
+        jspfh.incUsage();
+        JspServletWrapper wrapper = null;
+        try {
+            wrapper = getJspWrapper(scriptName, null);
+            wrapper.prepare();
+            return true;
+        } catch (final ServletException se) {
+            logger.warn("precompile: Unable to compile {} : {}", scriptName, se.getMessage());
+        } catch (final IOException ioe) {
+            logger.warn("precompile: Unable to compile {} : {}", scriptName, ioe.getMessage());
+        } catch (final SlingException se) {
+            logger.warn("precompile: Unable to compile {} : {}", scriptName, se.getMessage());
+        } finally {
+            jspfh.decUsage();
+            io.resetRequestResourceResolver(oldResolver);
+            Thread.currentThread().setContextClassLoader(old);
+        }
+        // don't keep the wrapper of a failed compilation, the next request
+        // creates a new one and compiles the script with its own rights
+        final JspRuntimeContext rctxt = this.jspRuntimeContext;
+        if ( wrapper != null && rctxt != null ) {
+            rctxt.removeWrapper(scriptName, wrapper);
+        }
+        return false;
+    }
+
     // ---------- SCR integration ----------------------------------------------
 
     /**
@@ -421,6 +491,14 @@ public class JspScriptEngineFactory
 
         logger.info("Activating Apache Sling Script Engine for JSP with options {}", options.getProperties());
         logger.debug("IMPORTANT: Do not modify the generated servlet classes directly");
+
+        if ( config.precompile_enabled() ) {
+            this.precompileConfig = config;
+            if ( this.resourceResolverFactory == null ) {
+                logger.info("Precompilation of JSP scripts waits for a resource resolver factory");
+            }
+            this.updatePrecompiler();
+        }
     }
 
     /**
@@ -430,6 +508,9 @@ public class JspScriptEngineFactory
     protected void deactivate(final BundleContext bundleContext) {
         logger.info("Deactivating Apache Sling Script Engine for JSP");
 
+        this.precompileConfig = null;
+        this.updatePrecompiler();
+
         if ( this.tldLocationsCache != null ) {
             this.tldLocationsCache.deactivate(bundleContext);
             this.tldLocationsCache = null;
@@ -497,6 +578,45 @@ public class JspScriptEngineFactory
         }
     }
 
+    /**
+     * Start the precompiler if it is enabled and a resource resolver factory
+     * is available. Stop it on deactivation or if its resource resolver
+     * factory is gone, without waiting for the scripts currently compiled.
+     */
+    private synchronized void updatePrecompiler() {
+        final Config config = this.precompileConfig;
+        final ResourceResolverFactory rrf = this.resourceResolverFactory;
+        if ( this.precompiler != null
+             && (config == null || this.precompiler.getResourceResolverFactory() != rrf) ) {
+            this.precompiler.stop();
+            this.precompiler = null;
+        }
+        if ( this.precompiler == null && config != null && rrf != null ) {
+            this.precompiler = new JspPrecompiler(this, rrf,
+                    config.precompile_paths(), config.precompile_threads());
+            this.precompiler.start();
+        }
+    }
+
+    /**
+     * Bind the resource resolver factory used for precompilation.
+     */
+    @Reference(cardinality=ReferenceCardinality.OPTIONAL, policy=ReferencePolicy.DYNAMIC)
+    protected void bindResourceResolverFactory(final ResourceResolverFactory factory) {
+        this.resourceResolverFactory = factory;
+        this.updatePrecompiler();
+    }
+
+    /**
+     * Unbind the resource resolver factory used for precompilation.
+     */
+    protected void unbindResourceResolverFactory(final ResourceResolverFactory factory) {
+        if ( this.resourceResolverFactory == factory ) {
+            this.resourceResolverFactory = null;
+        }
+        this.updatePrecompiler();
+    }
+
     @Reference(target="(name=org.apache.sling)")
     protected void bindSlingServletContext(final ServletContext context) {
         this.slingServletContext = context;
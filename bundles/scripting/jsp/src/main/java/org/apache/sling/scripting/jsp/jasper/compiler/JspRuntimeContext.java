@@ -332,6 +332,17 @@ public final class JspRuntimeContext {
         return previous;
     }
 
+    /**
+     * Remove a wrapper if it is still registered for the JSP URI.
+     *
+     * @param jspUri JSP URI
+     * @param jsw Servlet wrapper for JSP
+     * @return <code>true</code> if the wrapper has been removed
+     */
+    public boolean removeWrapper(final String jspUri, final JspServletWrapper jsw) {
+        return jsps.remove(jspUri, jsw);
+    }
+
     /**
      * Get an already existing JspServletWrapper.
      *
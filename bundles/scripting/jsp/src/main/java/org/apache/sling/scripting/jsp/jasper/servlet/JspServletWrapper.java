@@ -434,6 +434,34 @@ public class JspServletWrapper {
         this.theServlet = this.loadServlet();
     }
 
+    /**
+     * Compile the servlet if it is out dated and load it without
+     * processing a request. This is used to precompile the servlet.
+     * A failure is not kept for the requests, as it may be caused by the
+     * rights used to precompile or by a tag library not available yet:
+     * the next request compiles the servlet again.
+     */
+    public void prepare() throws IOException, ServletException {
+        if ( theServlet == null ) {
+            synchronized ( this ) {
+                if ( compileException != null ) {
+                    throw compileException;
+                }
+                if ( theServlet == null ) {
+                    boolean prepared = false;
+                    try {
+                        this.prepareServlet(null, null);
+                        prepared = true;
+                    } finally {
+                        if ( !prepared ) {
+                            this.compileException = null;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * @param bindings
      * @throws SlingIOException
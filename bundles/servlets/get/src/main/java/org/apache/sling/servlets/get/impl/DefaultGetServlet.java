@@ -19,6 +19,7 @@ package org.apache.sling.servlets.get.impl;
 import java.io.IOException;
 import java.util.Dictionary;
 import java.util.HashMap;
+import java.util.Hashtable;
 import java.util.Map;
 import java.util.StringTokenizer;
 
@@ -37,13 +38,20 @@ import org.apache.sling.api.resource.ResourceNotFoundException;
 import org.apache.sling.api.resource.ResourceUtil;
 import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
 import org.apache.sling.commons.osgi.OsgiUtil;
+import org.apache.sling.servlets.get.impl.helpers.BinaryCache;
+import org.apache.sling.servlets.get.impl.helpers.BinaryCacheMBean;
 import org.apache.sling.servlets.get.impl.helpers.HtmlRendererServlet;
 import org.apache.sling.servlets.get.impl.helpers.JsonRendererServlet;
 import org.apache.sling.servlets.get.impl.helpers.PlainTextRendererServlet;
+import org.apache.sling.servlets.get.impl.helpers.PrecompressedVariants;
 import org.apache.sling.servlets.get.impl.helpers.StreamRendererServlet;
 import org.apache.sling.servlets.get.impl.helpers.XMLRendererServlet;
 import org.apache.sling.servlets.get.impl.helpers.HeadServletResponse;
+import org.osgi.framework.Constants;
+import org.osgi.framework.ServiceRegistration;
 import org.osgi.service.component.ComponentContext;
+import org.osgi.service.event.EventConstants;
+import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -109,6 +117,44 @@ public class DefaultGetServlet extends SlingSafeMethodsServlet {
     public static final String JSON_RENDERER_MAXIMUM_RESULTS_PROPERTY = "json.maximumresults";
     
     private int jsonMaximumResults;
+
+    private static final boolean DEFAULT_COMPRESSION_PROPERTY = false;
+
+    @Property(boolValue=DEFAULT_COMPRESSION_PROPERTY)
+    private static final String COMPRESSION_PROPERTY = "compression.enabled";
+
+    @Property(value={ "text/*", "application/javascript", "application/x-javascript",
+        "application/json", "application/xml", "image/svg+xml" })
+    private static final String COMPRESSION_MIME_TYPES_PROPERTY = "compression.mimetypes";
+
+    @Property(longValue=PrecompressedVariants.DEFAULT_MAX_LENGTH)
+    private static final String COMPRESSION_MAX_LENGTH_PROPERTY = "compression.maxlength";
+
+    @Property(longValue=PrecompressedVariants.DEFAULT_MAX_SIZE)
+    private static final String COMPRESSION_MAX_SIZE_PROPERTY = "compression.maxsize";
+
+    /** The compressed variants of streamed resources, null if disabled */
+    private PrecompressedVariants variants;
+
+    /** The event handler registration of the compressed variants */
+    private ServiceRegistration variantsRegistration;
+
+    private static final boolean DEFAULT_CACHE_PROPERTY = false;
+
+    @Property(boolValue=DEFAULT_CACHE_PROPERTY)
+    private static final String CACHE_PROPERTY = "cache.enabled";
+
+    @Property(longValue=BinaryCache.DEFAULT_MAX_SIZE)
+    private static final String CACHE_MAX_SIZE_PROPERTY = "cache.maxsize";
+
+    @Property(longValue=BinaryCache.DEFAULT_MAX_ENTRY_LENGTH)
+    private static final String CACHE_MAX_ENTRY_LENGTH_PROPERTY = "cache.maxentrylength";
+
+    /** The local cache of downloaded binaries, null if disabled */
+    private BinaryCache cache;
+
+    /** The event handler and MBean registration of the cache */
+    private ServiceRegistration cacheRegistration;
     
     /** Additional aliases. */
     private String[] aliases;
@@ -145,12 +191,72 @@ public class DefaultGetServlet extends SlingSafeMethodsServlet {
             DEFAULT_RENDERER_PROPERTY);
         this.jsonMaximumResults = OsgiUtil.toInteger(props.get(JSON_RENDERER_MAXIMUM_RESULTS_PROPERTY), 
             DEFAULT_JSON_RENDERER_MAXIMUM_RESULTS);
+
+        if (OsgiUtil.toBoolean(props.get(COMPRESSION_PROPERTY), DEFAULT_COMPRESSION_PROPERTY)) {
+            this.variants = new PrecompressedVariants(
+                ctx.getBundleContext().getDataFile("compressed"),
+                OsgiUtil.toStringArray(props.get(COMPRESSION_MIME_TYPES_PROPERTY),
+                    PrecompressedVariants.DEFAULT_MIME_TYPES),
+                OsgiUtil.toLong(props.get(COMPRESSION_MAX_LENGTH_PROPERTY),
+                    PrecompressedVariants.DEFAULT_MAX_LENGTH),
+                OsgiUtil.toLong(props.get(COMPRESSION_MAX_SIZE_PROPERTY),
+                    PrecompressedVariants.DEFAULT_MAX_SIZE));
+
+            final Hashtable<String, Object> variantsProps = new Hashtable<String, Object>();
+            variantsProps.put(Constants.SERVICE_DESCRIPTION, "Apache Sling Default GET Servlet Compressed Variants");
+            variantsProps.put(Constants.SERVICE_VENDOR, "The Apache Software Foundation");
+            variantsProps.put(EventConstants.EVENT_TOPIC, new String[] {
+                SlingConstants.TOPIC_RESOURCE_CHANGED,
+                SlingConstants.TOPIC_RESOURCE_REMOVED });
+            this.variantsRegistration = ctx.getBundleContext().registerService(
+                EventHandler.class.getName(), variants, variantsProps);
+        } else {
+            this.variants = null;
+        }
+
+        if (OsgiUtil.toBoolean(props.get(CACHE_PROPERTY), DEFAULT_CACHE_PROPERTY)) {
+            this.cache = new BinaryCache(
+                ctx.getBundleContext().getDataFile("binaries"),
+                OsgiUtil.toLong(props.get(CACHE_MAX_SIZE_PROPERTY),
+                    BinaryCache.DEFAULT_MAX_SIZE),
+                OsgiUtil.toLong(props.get(CACHE_MAX_ENTRY_LENGTH_PROPERTY),
+                    BinaryCache.DEFAULT_MAX_ENTRY_LENGTH));
+
+            final Hashtable<String, Object> cacheProps = new Hashtable<String, Object>();
+            cacheProps.put(Constants.SERVICE_DESCRIPTION, "Apache Sling Default GET Servlet Binary Cache");
+            cacheProps.put(Constants.SERVICE_VENDOR, "The Apache Software Foundation");
+            cacheProps.put(EventConstants.EVENT_TOPIC, new String[] {
+                SlingConstants.TOPIC_RESOURCE_CHANGED,
+                SlingConstants.TOPIC_RESOURCE_REMOVED });
+            cacheProps.put("jmx.objectname", "org.apache.sling:type=servlets-get,name=BinaryCache");
+            this.cacheRegistration = ctx.getBundleContext().registerService(
+                new String[] { EventHandler.class.getName(), BinaryCacheMBean.class.getName() },
+                cache, cacheProps);
+        } else {
+            this.cache = null;
+        }
     }
 
     protected void deactivate(ComponentContext ctx) {
         this.aliases = null;
         this.index = false;
         this.indexFiles = null;
+        if (this.variantsRegistration != null) {
+            this.variantsRegistration.unregister();
+            this.variantsRegistration = null;
+        }
+        if (this.variants != null) {
+            this.variants.clear();
+            this.variants = null;
+        }
+        if (this.cacheRegistration != null) {
+            this.cacheRegistration.unregister();
+            this.cacheRegistration = null;
+        }
+        if (this.cache != null) {
+            this.cache.clear();
+            this.cache = null;
+        }
     }
 
     @Override
@@ -159,7 +265,7 @@ public class DefaultGetServlet extends SlingSafeMethodsServlet {
 
         // Register renderer servlets
         setupServlet(rendererMap, StreamRendererServlet.EXT_RES,
-            new StreamRendererServlet(index, indexFiles));
+            new StreamRendererServlet(index, indexFiles, variants, cache));
 
         if (enableHtml) {
             setupServlet(rendererMap, HtmlRendererServlet.EXT_HTML,
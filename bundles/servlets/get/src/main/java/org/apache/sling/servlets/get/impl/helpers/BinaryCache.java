@@ -0,0 +1,391 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.get.impl.helpers;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.resource.Resource;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>BinaryCache</code> keeps copies of frequently downloaded binaries
+ * in a size bounded local directory, so that the {@link StreamRendererServlet}
+ * serves them with {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+ * instead of reading them through the repository.
+ * <p>
+ * Binaries are keyed by resource path and entity tag, a binary is copied to
+ * the cache while it is streamed on its second download, so that no download
+ * waits for the copy, and the least recently used binaries are evicted once
+ * the cache exceeds its maximum size. Cached binaries are invalidated by
+ * resource change events.
+ */
+public class BinaryCache implements BinaryCacheMBean, EventHandler {
+
+    public static final long DEFAULT_MAX_SIZE = 256 * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_ENTRY_LENGTH = 16 * 1024 * 1024;
+
+    // number of downloaded binaries remembered for admission
+    private static final int MAX_SEEN = 1000;
+
+    /** default log */
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final File directory;
+
+    private final long maxSize;
+
+    private final long maxEntryLength;
+
+    /** cached binaries by resource path, in access order */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    /** keys of the binaries downloaded once, in access order */
+    private final LinkedHashMap<String, Boolean> seen = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > MAX_SEEN;
+        }
+    };
+
+    /** keys of the binaries being copied to the cache */
+    private final Set<String> pending = new HashSet<String>();
+
+    private long size;
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    /**
+     * @param directory directory of the cached binaries, its content is removed
+     * @param maxSize maximum total length of the cached binaries
+     * @param maxEntryLength maximum length of a cached binary
+     */
+    public BinaryCache(File directory, long maxSize, long maxEntryLength) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.maxEntryLength = Math.min(maxSize, maxEntryLength);
+        // the cache index is not persisted, drop the binaries of a previous run
+        deleteFiles();
+    }
+
+    /**
+     * Returns the cached binary of the given version of the resource.
+     *
+     * @param resource The downloaded resource
+     * @param etag The entity tag of the resource, <code>null</code> if unknown
+     * @return The cached binary, or <code>null</code> if the resource is to be
+     *         streamed from the repository
+     */
+    CachedBinary open(final Resource resource, final String etag) {
+        if (!isCacheable(resource, etag)) {
+            return null;
+        }
+
+        final String path = resource.getPath();
+        synchronized (this) {
+            final Entry entry = entries.get(path);
+            if (entry != null) {
+                if (entry.etag.equals(etag)) {
+                    final CachedBinary binary = open(entry);
+                    if (binary != null) {
+                        hits.incrementAndGet();
+                        return binary;
+                    }
+                } else {
+                    remove(path);
+                }
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Returns a stream copying the given version of the resource to the cache
+     * while it is read, if it is downloaded for the second time and is not
+     * being copied already, so that the download is not delayed by the copy.
+     * The binary is only cached if the stream is read up to its end.
+     *
+     * @param resource The downloaded resource
+     * @param etag The entity tag of the resource, <code>null</code> if unknown
+     * @param stream The stream of the resource
+     * @return The stream to read the resource from, to be closed after use
+     */
+    InputStream capture(final Resource resource, final String etag, final InputStream stream) {
+        if (!isCacheable(resource, etag)) {
+            return stream;
+        }
+
+        final String path = resource.getPath();
+        final String key = path + etag;
+        synchronized (this) {
+            final Entry entry = entries.get(path);
+            if ((entry != null && entry.etag.equals(etag)) || pending.contains(key)) {
+                return stream;
+            }
+            if (seen.remove(key) == null) {
+                seen.put(key, Boolean.TRUE);
+                return stream;
+            }
+            pending.add(key);
+        }
+
+        File file = null;
+        try {
+            directory.mkdirs();
+            file = File.createTempFile("binary", ".bin", directory);
+            final File copy = file;
+            return new CapturingInputStream(stream, new FileOutputStream(file)) {
+
+                @Override
+                protected void captured() {
+                    add(key, new Entry(path, etag, copy, copy.length()));
+                }
+
+                @Override
+                protected void discarded(final IOException cause) {
+                    if (cause != null) {
+                        log.warn("capture: cannot cache " + path, cause);
+                    }
+                    discard(key, copy);
+                }
+            };
+        } catch (IOException ioe) {
+            log.warn("capture: cannot cache " + path, ioe);
+            discard(key, file);
+            return stream;
+        }
+    }
+
+    /**
+     * Removes the cached binaries of the resource at the given path, of its
+     * descendants and of its ancestors, since the binary of a resource is
+     * usually stored in a child resource.
+     */
+    public synchronized void invalidate(final String path) {
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            if (entry.path.equals(path) || entry.path.startsWith(path + "/")
+                || path.startsWith(entry.path + "/")) {
+                iterator.remove();
+                size -= entry.length;
+                delete(entry.file);
+            }
+        }
+    }
+
+    /**
+     * @see org.osgi.service.event.EventHandler#handleEvent(org.osgi.service.event.Event)
+     */
+    public void handleEvent(final Event event) {
+        final Object path = event.getProperty(SlingConstants.PROPERTY_PATH);
+        if (path != null) {
+            invalidate(path.toString());
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public double getHitRatio() {
+        final long hitCount = hits.get();
+        final long total = hitCount + misses.get();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    public long getBytesSaved() {
+        return bytesSaved.get();
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    public synchronized long getSize() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        for (final Entry entry : entries.values()) {
+            delete(entry.file);
+        }
+        entries.clear();
+        seen.clear();
+        size = 0;
+    }
+
+    private boolean isCacheable(final Resource resource, final String etag) {
+        final long length = resource.getResourceMetadata().getContentLength();
+        return etag != null && length > 0 && length <= maxEntryLength;
+    }
+
+    private synchronized void add(final String key, final Entry entry) {
+        pending.remove(key);
+        remove(entry.path);
+        entries.put(entry.path, entry);
+        size += entry.length;
+        evict();
+        log.debug("add: cached {} in {}", entry.path, entry.file);
+    }
+
+    private synchronized void discard(final String key, final File file) {
+        pending.remove(key);
+        if (file != null) {
+            delete(file);
+        }
+    }
+
+    private CachedBinary open(final Entry entry) {
+        // opened while the entry cannot be evicted, an evicted file remains
+        // readable through the opened channel
+        try {
+            return new CachedBinary(new FileInputStream(entry.file).getChannel(), entry.length);
+        } catch (IOException ioe) {
+            log.warn("open: cannot open cached binary of " + entry.path, ioe);
+            remove(entry.path);
+            return null;
+        }
+    }
+
+    private void remove(final String path) {
+        final Entry entry = entries.remove(path);
+        if (entry != null) {
+            size -= entry.length;
+            delete(entry.file);
+        }
+    }
+
+    private void evict() {
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            final Entry entry = iterator.next();
+            iterator.remove();
+            size -= entry.length;
+            delete(entry.file);
+        }
+    }
+
+    private void deleteFiles() {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (final File file : files) {
+                delete(file);
+            }
+        }
+    }
+
+    private void delete(final File file) {
+        if (!file.delete() && file.exists()) {
+            log.debug("delete: cannot delete {}, still in use", file);
+            file.deleteOnExit();
+        }
+    }
+
+    private static class Entry {
+
+        final String path;
+
+        final String etag;
+
+        final File file;
+
+        final long length;
+
+        Entry(final String path, final String etag, final File file, final long length) {
+            this.path = path;
+            this.etag = etag;
+            this.file = file;
+            this.length = length;
+        }
+    }
+
+    /**
+     * An opened cached binary, to be closed after use.
+     */
+    class CachedBinary {
+
+        private final FileChannel channel;
+
+        private final long length;
+
+        CachedBinary(final FileChannel channel, final long length) {
+            this.channel = channel;
+            this.length = length;
+        }
+
+        long getLength() {
+            return length;
+        }
+
+        /**
+         * Transfers the given range of the binary to the output stream. The
+         * bytes are sent without copying them through the heap if the
+         * output stream is a channel, as provided by some servlet containers.
+         */
+        void transferTo(final long position, final long count, final OutputStream out) throws IOException {
+            final WritableByteChannel target = out instanceof WritableByteChannel
+                    ? (WritableByteChannel) out
+                    : Channels.newChannel(out);
+            long transferred = 0;
+            while (transferred < count) {
+                final long n = channel.transferTo(position + transferred, count - transferred, target);
+                if (n <= 0) {
+                    throw new IOException("Cached binary truncated at " + (position + transferred));
+                }
+                transferred += n;
+            }
+            bytesSaved.addAndGet(transferred);
+        }
+
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
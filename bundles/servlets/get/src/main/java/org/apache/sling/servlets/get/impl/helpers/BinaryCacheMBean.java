@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.get.impl.helpers;
+
+/**
+ * MBean interface exposing the statistics of the {@link BinaryCache}.
+ */
+public interface BinaryCacheMBean {
+
+    /**
+     * @return the number of downloads served from the cache
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of cacheable downloads served from the repository
+     */
+    long getMissCount();
+
+    /**
+     * @return the ratio of cacheable downloads served from the cache
+     */
+    double getHitRatio();
+
+    /**
+     * @return the number of bytes served from the cache instead of the repository
+     */
+    long getBytesSaved();
+
+    /**
+     * @return the number of cached binaries
+     */
+    int getEntryCount();
+
+    /**
+     * @return the total length of the cached binaries in bytes
+     */
+    long getSize();
+
+    /**
+     * Removes all binaries from the cache
+     */
+    void clear();
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.get.impl.helpers;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The <code>CapturingInputStream</code> copies the bytes read from a resource
+ * stream to an output stream, so that a local copy of the resource is written
+ * while it is streamed to the client. Failing to write the copy does not
+ * affect the reader.
+ * <p>
+ * The copy is complete once the stream is read up to its end, it is discarded
+ * if the stream is closed or skipped before.
+ */
+abstract class CapturingInputStream extends FilterInputStream {
+
+    private OutputStream out;
+
+    private boolean done;
+
+    CapturingInputStream(final InputStream in, final OutputStream out) {
+        super(in);
+        this.out = out;
+    }
+
+    /**
+     * Called once the copy is complete and its output stream closed.
+     */
+    protected abstract void captured();
+
+    /**
+     * Called once if the copy is not complete.
+     *
+     * @param cause The failure writing the copy, <code>null</code> if the
+     *            stream has not been read up to its end
+     */
+    protected abstract void discarded(IOException cause);
+
+    @Override
+    public int read() throws IOException {
+        final int b = super.read();
+        if (b < 0) {
+            complete();
+        } else if (out != null) {
+            try {
+                out.write(b);
+            } catch (IOException ioe) {
+                abandon(ioe);
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int rd = super.read(b, off, len);
+        if (rd < 0) {
+            complete();
+        } else if (out != null) {
+            try {
+                out.write(b, off, rd);
+            } catch (IOException ioe) {
+                abandon(ioe);
+            }
+        }
+        return rd;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        // skipped bytes would be missing from the copy
+        abandon(null);
+        return super.skip(n);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            abandon(null);
+        }
+    }
+
+    private void complete() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.close();
+            out = null;
+            done = true;
+            captured();
+        } catch (IOException ioe) {
+            abandon(ioe);
+        }
+    }
+
+    private void abandon(final IOException cause) {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ignore) {
+            }
+            out = null;
+        }
+        if (!done) {
+            done = true;
+            discarded(cause);
+        }
+    }
+}
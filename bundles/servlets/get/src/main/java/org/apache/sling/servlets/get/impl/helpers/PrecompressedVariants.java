@@ -0,0 +1,417 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.get.impl.helpers;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The <code>PrecompressedVariants</code> provides the compressed variants of
+ * the resources streamed by the {@link StreamRendererServlet}, negotiated with
+ * the <code>Accept-Encoding</code> request header.
+ * <p>
+ * A variant is either a pre-compressed sibling of the resource, named after the
+ * resource with a <code>.br</code> (brotli) or <code>.gz</code> (gzip)
+ * extension and not older than the resource, or a gzip rendition of the
+ * version of the resource (as identified by its entity tag) in a size bounded
+ * local directory.
+ * <p>
+ * A rendition is generated while the resource is streamed uncompressed to a
+ * client accepting gzip, so that no request waits for the compression. The
+ * least recently used renditions are evicted once the directory exceeds its
+ * maximum size, renditions are invalidated by resource change events.
+ */
+public class PrecompressedVariants implements EventHandler {
+
+    public static final String[] DEFAULT_MIME_TYPES = { "text/*",
+        "application/javascript", "application/x-javascript",
+        "application/json", "application/xml", "image/svg+xml" };
+
+    public static final long DEFAULT_MAX_LENGTH = 10 * 1024 * 1024;
+
+    public static final long DEFAULT_MAX_SIZE = 64 * 1024 * 1024;
+
+    static final String ENCODING_BROTLI = "br";
+
+    static final String ENCODING_GZIP = "gzip";
+
+    // pre-compressed sibling extensions, by order of preference
+    private static final String[][] SIBLINGS = { { ENCODING_BROTLI, ".br" },
+        { ENCODING_GZIP, ".gz" } };
+
+    /** default log */
+    private final Logger log = LoggerFactory.getLogger(getClass());
+
+    private final File directory;
+
+    private final String[] mimeTypes;
+
+    private final long maxLength;
+
+    private final long maxSize;
+
+    /** generated renditions by resource path, in access order */
+    private final LinkedHashMap<String, Rendition> renditions = new LinkedHashMap<String, Rendition>(16, 0.75f, true);
+
+    /** paths of the resources whose rendition is being generated */
+    private final Set<String> pending = new HashSet<String>();
+
+    private long size;
+
+    /**
+     * @param directory directory of the generated renditions, its content is
+     *            removed, <code>null</code> to only serve pre-compressed siblings
+     * @param mimeTypes compressible mime types, either full types or
+     *            <code>type/*</code> wildcards
+     * @param maxLength maximum length of the resources to generate a rendition for
+     * @param maxSize maximum total length of the generated renditions
+     */
+    public PrecompressedVariants(File directory, String[] mimeTypes, long maxLength, long maxSize) {
+        this.directory = directory;
+        this.mimeTypes = mimeTypes;
+        this.maxLength = maxLength;
+        this.maxSize = maxSize;
+        // the rendition index is not persisted, drop the renditions of a previous run
+        if (directory != null) {
+            final File[] files = directory.listFiles();
+            if (files != null) {
+                for (final File file : files) {
+                    delete(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if resources of the given content type, which
+     * may have parameters, have compressed variants.
+     */
+    boolean isCompressible(final String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        final int semicolon = contentType.indexOf(';');
+        final String type = (semicolon < 0 ? contentType : contentType.substring(0, semicolon)).trim().toLowerCase();
+        for (final String mimeType : mimeTypes) {
+            if (mimeType.endsWith("/*")
+                ? type.startsWith(mimeType.substring(0, mimeType.length() - 1))
+                : type.equals(mimeType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the compressed variant of the resource the client accepts, or
+     * <code>null</code> if the resource should be streamed uncompressed.
+     *
+     * @param request The request whose <code>Accept-Encoding</code> header is negotiated
+     * @param resource The streamed resource
+     * @param contentType The content type of the resource
+     * @param etag The entity tag of the resource, <code>null</code> if unknown
+     */
+    Variant select(final SlingHttpServletRequest request,
+            final Resource resource, final String contentType, final String etag) {
+        if (!isCompressible(contentType)) {
+            return null;
+        }
+        final String acceptEncoding = request.getHeader("Accept-Encoding");
+        final long modifTime = resource.getResourceMetadata().getModificationTime();
+        for (final String[] sibling : SIBLINGS) {
+            if (accepts(acceptEncoding, sibling[0])) {
+                final Resource compressed = resource.getResourceResolver().getResource(
+                    resource.getPath() + sibling[1]);
+                if (compressed != null
+                    && compressed.getResourceMetadata().getModificationTime() >= modifTime) {
+                    final InputStream stream = compressed.adaptTo(InputStream.class);
+                    if (stream != null) {
+                        return new Variant(sibling[0],
+                            compressed.getResourceMetadata().getContentLength(), stream);
+                    }
+                }
+            }
+        }
+        if (directory != null && etag != null && accepts(acceptEncoding, ENCODING_GZIP)) {
+            synchronized (this) {
+                final Rendition rendition = renditions.get(resource.getPath());
+                if (rendition != null) {
+                    if (rendition.etag.equals(etag)) {
+                        // opened while the rendition cannot be evicted, an evicted
+                        // file remains readable through the opened stream
+                        try {
+                            return new Variant(ENCODING_GZIP, rendition.length, new FileInputStream(rendition.file));
+                        } catch (IOException ioe) {
+                            log.warn("select: cannot open rendition of " + resource.getPath(), ioe);
+                        }
+                    }
+                    remove(resource.getPath());
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns a stream generating the gzip rendition of the given version of
+     * the resource while it is read, if the client accepts gzip and no
+     * rendition is available or being generated. The rendition is only kept
+     * if the stream is read up to its end.
+     *
+     * @param request The request whose <code>Accept-Encoding</code> header is negotiated
+     * @param resource The streamed resource
+     * @param contentType The content type of the resource
+     * @param etag The entity tag of the resource, <code>null</code> if unknown
+     * @param stream The stream of the resource
+     * @return The stream to read the resource from, to be closed after use
+     */
+    InputStream capture(final SlingHttpServletRequest request,
+            final Resource resource, final String contentType, final String etag,
+            final InputStream stream) {
+        if (directory == null || etag == null || !isCompressible(contentType)
+            || !accepts(request.getHeader("Accept-Encoding"), ENCODING_GZIP)) {
+            return stream;
+        }
+        final long length = resource.getResourceMetadata().getContentLength();
+        if (length <= 0 || length > maxLength || length > maxSize) {
+            return stream;
+        }
+        final String path = resource.getPath();
+        synchronized (this) {
+            final Rendition rendition = renditions.get(path);
+            if ((rendition != null && rendition.etag.equals(etag)) || !pending.add(path)) {
+                return stream;
+            }
+        }
+        File file = null;
+        try {
+            directory.mkdirs();
+            file = File.createTempFile("rendition", ".gz", directory);
+            final File rendition = file;
+            return new CapturingInputStream(stream,
+                    new GZIPOutputStream(new FileOutputStream(file), StreamRendererServlet.IO_BUFFER_SIZE)) {
+
+                @Override
+                protected void captured() {
+                    add(new Rendition(path, etag, rendition, rendition.length()));
+                }
+
+                @Override
+                protected void discarded(final IOException cause) {
+                    if (cause != null) {
+                        log.warn("capture: cannot compress " + path, cause);
+                    }
+                    discard(path, rendition);
+                }
+            };
+        } catch (IOException ioe) {
+            log.warn("capture: cannot compress " + path, ioe);
+            discard(path, file);
+            return stream;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the given <code>Accept-Encoding</code> header
+     * value lists the encoding with a non zero quality.
+     */
+    static boolean accepts(final String acceptEncoding, final String encoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (final String coding : acceptEncoding.split(",")) {
+            final String[] parts = coding.split(";");
+            if (parts[0].trim().equalsIgnoreCase(encoding)) {
+                for (int i = 1; i < parts.length; i++) {
+                    final String param = parts[i].trim();
+                    if (param.startsWith("q=")) {
+                        try {
+                            return Float.parseFloat(param.substring(2)) > 0;
+                        } catch (NumberFormatException nfe) {
+                            return false;
+                        }
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the entity tag of the variant of the given encoding, derived from
+     * the entity tag of the resource.
+     */
+    static String getVariantETag(final String etag, final String encoding) {
+        return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+    }
+
+    /**
+     * Returns the entity tag of the resource a variant entity tag is derived
+     * from, or the given entity tag if it is not a variant one.
+     */
+    static String getIdentityETag(final String etag) {
+        for (final String[] sibling : SIBLINGS) {
+            final String suffix = "-" + sibling[0] + "\"";
+            if (etag.endsWith(suffix)) {
+                return etag.substring(0, etag.length() - suffix.length()) + "\"";
+            }
+        }
+        return etag;
+    }
+
+    /**
+     * Removes the renditions of the resource at the given path, of its
+     * descendants and of its ancestors, since the binary of a resource is
+     * usually stored in a child resource.
+     */
+    public synchronized void invalidate(final String path) {
+        final Iterator<Rendition> iterator = renditions.values().iterator();
+        while (iterator.hasNext()) {
+            final Rendition rendition = iterator.next();
+            if (rendition.path.equals(path) || rendition.path.startsWith(path + "/")
+                || path.startsWith(rendition.path + "/")) {
+                iterator.remove();
+                size -= rendition.length;
+                delete(rendition.file);
+            }
+        }
+    }
+
+    /**
+     * @see org.osgi.service.event.EventHandler#handleEvent(org.osgi.service.event.Event)
+     */
+    public void handleEvent(final Event event) {
+        final Object path = event.getProperty(SlingConstants.PROPERTY_PATH);
+        if (path != null) {
+            invalidate(path.toString());
+        }
+    }
+
+    public synchronized void clear() {
+        for (final Rendition rendition : renditions.values()) {
+            delete(rendition.file);
+        }
+        renditions.clear();
+        size = 0;
+    }
+
+    synchronized long getSize() {
+        return size;
+    }
+
+    private synchronized void add(final Rendition rendition) {
+        pending.remove(rendition.path);
+        remove(rendition.path);
+        renditions.put(rendition.path, rendition);
+        size += rendition.length;
+        final Iterator<Rendition> iterator = renditions.values().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            final Rendition eldest = iterator.next();
+            iterator.remove();
+            size -= eldest.length;
+            delete(eldest.file);
+        }
+        log.debug("add: generated {} for {}", rendition.file, rendition.path);
+    }
+
+    private synchronized void discard(final String path, final File file) {
+        pending.remove(path);
+        if (file != null) {
+            delete(file);
+        }
+    }
+
+    private void remove(final String path) {
+        final Rendition rendition = renditions.remove(path);
+        if (rendition != null) {
+            size -= rendition.length;
+            delete(rendition.file);
+        }
+    }
+
+    private void delete(final File file) {
+        if (!file.delete() && file.exists()) {
+            log.debug("delete: cannot delete {}, still in use", file);
+            file.deleteOnExit();
+        }
+    }
+
+    private static class Rendition {
+
+        final String path;
+
+        final String etag;
+
+        final File file;
+
+        final long length;
+
+        Rendition(final String path, final String etag, final File file, final long length) {
+            this.path = path;
+            this.etag = etag;
+            this.file = file;
+            this.length = length;
+        }
+    }
+
+    /**
+     * A compressed variant of a resource.
+     */
+    static class Variant {
+
+        private final String encoding;
+
+        private final long length;
+
+        private final InputStream stream;
+
+        Variant(final String encoding, final long length, final InputStream stream) {
+            this.encoding = encoding;
+            this.length = length;
+            this.stream = stream;
+        }
+
+        String getEncoding() {
+            return encoding;
+        }
+
+        long getLength() {
+            return length;
+        }
+
+        InputStream getStream() {
+            return stream;
+        }
+    }
+}
@@ -20,7 +20,6 @@ import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
 import static org.apache.sling.api.servlets.HttpConstants.HEADER_IF_MODIFIED_SINCE;
 import static org.apache.sling.api.servlets.HttpConstants.HEADER_LAST_MODIFIED;
 
-import java.io.BufferedInputStream;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
@@ -30,6 +29,8 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.StringTokenizer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import javax.jcr.Node;
 import javax.jcr.PathNotFoundException;
@@ -82,14 +83,23 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
     // Accept-Ranges header value
     private static final String ACCEPT_RANGES_BYTES = "bytes";
 
+    static final String HEADER_ETAG = "ETag";
 
+    static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+
+    static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
 
     /**
      * Full range marker.
      */
     private static ArrayList<Range> FULL = new ArrayList<Range>(0);
 
-    static final int IO_BUFFER_SIZE = 2048;
+    static final int IO_BUFFER_SIZE = 32 * 1024;
+
+    // copy buffers kept for reuse, any further concurrent copy allocates its own buffer
+    private static final int MAX_POOLED_BUFFERS = 64;
+
+    private static final BlockingQueue<byte[]> BUFFER_POOL = new ArrayBlockingQueue<byte[]>(MAX_POOLED_BUFFERS);
 
     /** default log */
     private final Logger log = LoggerFactory.getLogger(getClass());
@@ -98,9 +108,26 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
 
     private String[] indexFiles;
 
+    private final PrecompressedVariants variants;
+
+    private final BinaryCache cache;
+
     public StreamRendererServlet(boolean index, String[] indexFiles) {
+        this(index, indexFiles, null, null);
+    }
+
+    /**
+     * @param variants compressed variants to negotiate for full responses,
+     *            <code>null</code> to always stream resources uncompressed
+     * @param cache local cache of frequently downloaded binaries,
+     *            <code>null</code> to always stream resources from the repository
+     */
+    public StreamRendererServlet(boolean index, String[] indexFiles,
+            PrecompressedVariants variants, BinaryCache cache) {
         this.index = index;
         this.indexFiles = indexFiles;
+        this.variants = variants;
+        this.cache = cache;
     }
 
     @Override
@@ -153,11 +180,19 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
             return;
         }
 
-        // check the last modification time and If-Modified-Since header
+        // check the entity tag and the last modification time against the
+        // If-None-Match and If-Modified-Since headers, If-None-Match wins
         if (!included) {
             ResourceMetadata meta = resource.getResourceMetadata();
-            long modifTime = meta.getModificationTime();
-            if (unmodified(request, modifTime)) {
+            String etag = getETag(meta);
+            String ifNoneMatch = request.getHeader(HEADER_IF_NONE_MATCH);
+            boolean notModified = ifNoneMatch != null
+                    ? etagMatches(ifNoneMatch, etag)
+                    : unmodified(request, meta.getModificationTime());
+            if (notModified) {
+                if (etag != null) {
+                    response.setHeader(HEADER_ETAG, etag);
+                }
                 response.setStatus(SC_NOT_MODIFIED);
                 return;
             }
@@ -241,6 +276,45 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
         return false;
     }
 
+    /**
+     * Returns the strong entity tag of the resource, derived from its last
+     * modification time and its length, or <code>null</code> if the resource
+     * has no modification time.
+     */
+    static String getETag(final ResourceMetadata meta) {
+        final long modifTime = meta.getModificationTime();
+        if (modifTime <= 0) {
+            return null;
+        }
+        return "\"" + Long.toHexString(modifTime) + "-"
+            + Long.toHexString(Math.max(0, meta.getContentLength())) + "\"";
+    }
+
+    /**
+     * Returns <code>true</code> if one of the entity tags of the given
+     * <code>If-None-Match</code> header value weakly matches the entity tag
+     * of the resource, or of one of its compressed variants.
+     */
+    static boolean etagMatches(final String ifNoneMatch, final String etag) {
+        if ("*".equals(ifNoneMatch.trim())) {
+            return true;
+        }
+        if (etag == null) {
+            return false;
+        }
+        final StringTokenizer tokens = new StringTokenizer(ifNoneMatch, ",");
+        while (tokens.hasMoreTokens()) {
+            String candidate = tokens.nextToken().trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals(etag) || etag.equals(PrecompressedVariants.getIdentityETag(candidate))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void streamResource(final Resource resource,
             final InputStream stream, final boolean included,
             final SlingHttpServletRequest request,
@@ -271,43 +345,113 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
 
             ServletOutputStream out = response.getOutputStream();
 
-            if (ranges == FULL) {
+            PrecompressedVariants.Variant variant = null;
+            if (ranges == FULL && !included && variants != null) {
+                variant = variants.select(request, resource,
+                    response.getContentType(), getETag(resource.getResourceMetadata()));
+                if (variants.isCompressible(response.getContentType())) {
+                    response.addHeader("Vary", "Accept-Encoding");
+                }
+            }
+
+            BinaryCache.CachedBinary cached = null;
+            if (variant == null && cache != null) {
+                cached = cache.open(resource, getETag(resource.getResourceMetadata()));
+            }
+
+            // copy the resource to the cache and generate its gzip rendition
+            // while it is streamed
+            InputStream content = stream;
+            if (ranges == FULL && variant == null && cached == null) {
+                if (cache != null) {
+                    content = cache.capture(resource, getETag(resource.getResourceMetadata()), content);
+                }
+                if (!included && variants != null) {
+                    content = variants.capture(request, resource,
+                        response.getContentType(), getETag(resource.getResourceMetadata()), content);
+                }
+            }
 
-                // return full resource
-                setContentLength(response,
-                    resource.getResourceMetadata().getContentLength());
-                byte[] buf = new byte[IO_BUFFER_SIZE];
-                int rd;
-                while ((rd = stream.read(buf)) >= 0) {
-                    out.write(buf, 0, rd);
+            try {
+                streamContent(resource, content, cached, variant, ranges, response, out);
+            } finally {
+                if (cached != null) {
+                    cached.close();
                 }
+                if (content != stream) {
+                    closeSilently(content);
+                }
+            }
 
-            } else {
+        } finally {
+            closeSilently(stream);
+        }
+    }
 
-                // return ranges of the resource
-                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+    /**
+     * Writes the compressed variant, the cached binary or the stream of the
+     * resource, depending on what is available, for the requested ranges.
+     */
+    private void streamContent(final Resource resource,
+            final InputStream stream, final BinaryCache.CachedBinary cached,
+            final PrecompressedVariants.Variant variant,
+            final ArrayList<Range> ranges,
+            final SlingHttpServletResponse response,
+            final ServletOutputStream out) throws IOException {
+        if (variant != null) {
+
+            // return the compressed variant of the full resource
+            try {
+                response.setHeader(HEADER_CONTENT_ENCODING, variant.getEncoding());
+                String etag = getETag(resource.getResourceMetadata());
+                if (etag != null) {
+                    response.setHeader(HEADER_ETAG, PrecompressedVariants.getVariantETag(etag, variant.getEncoding()));
+                }
+                setContentLength(response, variant.getLength());
+                copyFully(variant.getStream(), out);
+            } finally {
+                closeSilently(variant.getStream());
+            }
 
-                if (ranges.size() == 1) {
+        } else if (ranges == FULL && cached != null) {
 
-                    Range range = ranges.get(0);
-                    response.addHeader("Content-Range", "bytes " + range.start
-                        + "-" + range.end + "/" + range.length);
-                    setContentLength(response, range.end - range.start + 1);
+            // return full resource from the cache
+            setContentLength(response, cached.getLength());
+            cached.transferTo(0, cached.getLength(), out);
 
-                    copy(stream, out, range);
+        } else if (ranges == FULL) {
 
-                } else {
+            // return full resource
+            setContentLength(response,
+                resource.getResourceMetadata().getContentLength());
+            copyFully(stream, out);
 
-                    response.setContentType("multipart/byteranges; boundary="
-                        + mimeSeparation);
+        } else {
+
+            // return ranges of the resource
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+            if (ranges.size() == 1) {
 
-                    copy(resource, out, ranges.iterator());
+                Range range = ranges.get(0);
+                response.addHeader("Content-Range", "bytes " + range.start
+                    + "-" + range.end + "/" + range.length);
+                setContentLength(response, range.end - range.start + 1);
+
+                if (cached != null) {
+                    cached.transferTo(range.start, range.end - range.start + 1, out);
+                } else {
+                    copy(stream, out, range);
                 }
 
+            } else {
+
+                response.setContentType("multipart/byteranges; boundary="
+                    + mimeSeparation);
+
+                copy(resource, cached, out, ranges.iterator());
             }
 
-        } finally {
-            closeSilently(stream);
         }
     }
 
@@ -378,6 +522,7 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
         final long modifTime = meta.getModificationTime();
         if (modifTime > 0) {
             response.setDateHeader(HEADER_LAST_MODIFIED, modifTime);
+            response.setHeader(HEADER_ETAG, getETag(meta));
         }
 
         final String defaultContentType = "application/octet-stream";
@@ -517,21 +662,21 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
      * the face of an exception).
      *
      * @param resource The resource from which to send ranges
+     * @param cached The cached binary of the resource, <code>null</code> if
+     *            the ranges are read from the resource
      * @param ostream The output stream to write to
      * @param ranges Iterator of the ranges the client wanted to retrieve
      * @exception IOException if an input/output error occurs
      */
-    private void copy(Resource resource, ServletOutputStream ostream,
-            Iterator<Range> ranges) throws IOException {
+    private void copy(Resource resource, BinaryCache.CachedBinary cached,
+            ServletOutputStream ostream, Iterator<Range> ranges) throws IOException {
 
         String contentType = resource.getResourceMetadata().getContentType();
         IOException exception = null;
 
         while ((exception == null) && (ranges.hasNext())) {
 
-            InputStream resourceInputStream = resource.adaptTo(InputStream.class);
-            InputStream istream = new BufferedInputStream(resourceInputStream,
-                IO_BUFFER_SIZE);
+            InputStream istream = cached == null ? resource.adaptTo(InputStream.class) : null;
 
             try {
                 Range currentRange = ranges.next();
@@ -548,7 +693,12 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
 
                 // Copy content
                 try {
-                    copy(istream, ostream, currentRange);
+                    if (cached != null) {
+                        cached.transferTo(currentRange.start,
+                            currentRange.end - currentRange.start + 1, ostream);
+                    } else {
+                        copy(istream, ostream, currentRange);
+                    }
                 } catch(IOException e) {
                     exception = e;
                 }
@@ -583,11 +733,44 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
         staticCopyRange(istream, ostream, range.start, endIndex);
     }
 
+    /**
+     * Copies the whole input stream to the output stream with a pooled buffer.
+     */
+    static void copyFully(final InputStream istream, final OutputStream ostream) throws IOException {
+        final byte[] buffer = getBuffer();
+        try {
+            int rd;
+            while ((rd = istream.read(buffer)) >= 0) {
+                ostream.write(buffer, 0, rd);
+            }
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    static byte[] getBuffer() {
+        final byte[] buffer = BUFFER_POOL.poll();
+        return buffer != null ? buffer : new byte[IO_BUFFER_SIZE];
+    }
+
+    static void releaseBuffer(final byte[] buffer) {
+        BUFFER_POOL.offer(buffer);
+    }
+
     // static, package-private method to make unit testing easier
     static void staticCopyRange(InputStream istream,
             OutputStream ostream, long start, long end) throws IOException {
+        final byte buffer[] = getBuffer();
+        try {
+            copyRange(istream, ostream, start, end, buffer);
+        } finally {
+            releaseBuffer(buffer);
+        }
+    }
+
+    private static void copyRange(InputStream istream,
+            OutputStream ostream, long start, long end, byte[] buffer) throws IOException {
         long position = 0;
-        byte buffer[] = new byte[IO_BUFFER_SIZE];
 
         while (position < start) {
             long skipped = istream.skip(start - position);
@@ -646,8 +829,10 @@ public class StreamRendererServlet extends SlingSafeMethodsServlet {
 
                 // If the ETag the client gave does not match the entity
                 // etag, then the entire entity is returned.
-                // Sling: no etag support yet, return full range
-                return FULL;
+                final String etag = getETag(metadata);
+                if (etag == null || !etag.equals(headerValue.trim())) {
+                    return FULL;
+                }
 
             } else if (metadata.getModificationTime() > (headerValueTime + 1000)) {
 
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.get.impl.helpers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import org.apache.sling.api.SlingConstants;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceMetadata;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.osgi.service.event.Event;
+
+public class BinaryCacheTest {
+
+    private static final byte[] CONTENT = "0123456789".getBytes();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File directory;
+
+    private BinaryCache cache;
+
+    @Before
+    public void setup() throws IOException {
+        directory = folder.newFolder("binaries");
+        cache = new BinaryCache(directory, 25, 20);
+    }
+
+    @Test
+    public void testAdmission() throws IOException {
+        final Resource resource = mockResource("/content/a.bin", CONTENT);
+
+        // the first download is not cached
+        assertNull(download(resource, "\"1\""));
+        assertEquals(0, cache.getEntryCount());
+
+        // the second one is copied to the cache while it is streamed
+        assertNull(download(resource, "\"1\""));
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(CONTENT.length, cache.getSize());
+
+        // further ones are hits, ranges are read from the cached binary
+        assertArrayEquals(CONTENT, read(download(resource, "\"1\""), 0, CONTENT.length));
+        assertArrayEquals("345".getBytes(), read(download(resource, "\"1\""), 3, 3));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(CONTENT.length + 3, cache.getBytesSaved());
+        assertEquals(0.5, cache.getHitRatio(), 0.001);
+
+        // a new version of the resource is a miss
+        assertNull(download(resource, "\"2\""));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, directory.list().length);
+    }
+
+    @Test
+    public void testCapture() throws IOException {
+        final Resource resource = mockResource("/content/a.bin", CONTENT);
+        assertNull(download(resource, "\"1\""));
+
+        // a single copy at a time
+        final InputStream stream = resource.adaptTo(InputStream.class);
+        final InputStream captured = cache.capture(resource, "\"1\"", stream);
+        assertNotSame(stream, captured);
+        final InputStream concurrent = resource.adaptTo(InputStream.class);
+        assertSame(concurrent, cache.capture(resource, "\"1\"", concurrent));
+
+        // an interrupted download is not cached
+        assertEquals(CONTENT[0], captured.read());
+        captured.close();
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, directory.list().length);
+        assertNull(cache.open(resource, "\"1\""));
+
+        // and is admitted again
+        assertNull(download(resource, "\"1\""));
+        assertNull(download(resource, "\"1\""));
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    public void testLimits() throws IOException {
+        final Resource large = mockResource("/content/large.bin", new byte[21]);
+        assertNull(download(large, "\"1\""));
+        assertNull(download(large, "\"1\""));
+        assertEquals(0, directory.list().length);
+
+        // no entity tag
+        final Resource a = mockResource("/content/a.bin", CONTENT);
+        assertNull(download(a, null));
+        assertNull(download(a, null));
+        assertEquals(0, cache.getMissCount());
+
+        // the least recently used binary is evicted
+        final Resource b = mockResource("/content/b.bin", CONTENT);
+        final Resource c = mockResource("/content/c.bin", CONTENT);
+        download(a, "\"1\"");
+        download(a, "\"1\"");
+        download(b, "\"1\"");
+        download(b, "\"1\"");
+        download(a, "\"1\"").close();
+        download(c, "\"1\"");
+        download(c, "\"1\"");
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(20, cache.getSize());
+        download(a, "\"1\"").close();
+        assertEquals(2, cache.getHitCount());
+        assertNull(download(b, "\"1\""));
+    }
+
+    @Test
+    public void testInvalidation() throws IOException {
+        final Resource resource = mockResource("/content/a.bin", CONTENT);
+        download(resource, "\"1\"");
+        download(resource, "\"1\"");
+        assertEquals(1, cache.getEntryCount());
+
+        cache.handleEvent(changed("/content/other.bin"));
+        assertEquals(1, cache.getEntryCount());
+
+        // the binary is stored below the resource
+        cache.handleEvent(changed("/content/a.bin/jcr:content"));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSize());
+        assertEquals(0, directory.list().length);
+    }
+
+    private Event changed(final String path) {
+        final Dictionary<String, Object> props = new Hashtable<String, Object>();
+        props.put(SlingConstants.PROPERTY_PATH, path);
+        return new Event(SlingConstants.TOPIC_RESOURCE_CHANGED, props);
+    }
+
+    /**
+     * Downloads the resource as the {@link StreamRendererServlet} does.
+     *
+     * @return The cached binary, to be closed, or <code>null</code> if the
+     *         resource has been streamed from the repository
+     */
+    private BinaryCache.CachedBinary download(final Resource resource, final String etag) throws IOException {
+        final BinaryCache.CachedBinary binary = cache.open(resource, etag);
+        if (binary == null) {
+            final InputStream stream = cache.capture(resource, etag, resource.adaptTo(InputStream.class));
+            try {
+                StreamRendererServlet.copyFully(stream, new ByteArrayOutputStream());
+            } finally {
+                stream.close();
+            }
+        }
+        return binary;
+    }
+
+    private static byte[] read(final BinaryCache.CachedBinary binary, final long position, final long count)
+            throws IOException {
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            binary.transferTo(position, count, out);
+            return out.toByteArray();
+        } finally {
+            binary.close();
+        }
+    }
+
+    private static Resource mockResource(final String path, final byte[] content) {
+        final ResourceMetadata meta = new ResourceMetadata();
+        meta.setContentLength(content.length);
+        final Resource resource = Mockito.mock(Resource.class);
+        Mockito.when(resource.getPath()).thenReturn(path);
+        Mockito.when(resource.getResourceMetadata()).thenReturn(meta);
+        Mockito.when(resource.adaptTo(InputStream.class)).thenAnswer(new Answer<InputStream>() {
+            public InputStream answer(InvocationOnMock invocation) {
+                return new ByteArrayInputStream(content);
+            }
+        });
+        return resource;
+    }
+}
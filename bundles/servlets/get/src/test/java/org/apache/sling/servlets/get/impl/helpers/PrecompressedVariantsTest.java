@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.get.impl.helpers;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceMetadata;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+public class PrecompressedVariantsTest {
+
+    private static final byte[] CONTENT = "body { color: black; } body { color: black; }".getBytes();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAccepts() {
+        assertFalse(PrecompressedVariants.accepts(null, "gzip"));
+        assertTrue(PrecompressedVariants.accepts("gzip, deflate", "gzip"));
+        assertTrue(PrecompressedVariants.accepts("deflate, GZIP;q=0.5", "gzip"));
+        assertFalse(PrecompressedVariants.accepts("gzip;q=0", "gzip"));
+        assertFalse(PrecompressedVariants.accepts("x-gzip", "gzip"));
+        assertTrue(PrecompressedVariants.accepts("gzip, deflate, br", "br"));
+    }
+
+    @Test
+    public void testIsCompressible() {
+        final PrecompressedVariants variants = new PrecompressedVariants(null,
+            PrecompressedVariants.DEFAULT_MIME_TYPES, PrecompressedVariants.DEFAULT_MAX_LENGTH,
+            PrecompressedVariants.DEFAULT_MAX_SIZE);
+        assertTrue(variants.isCompressible("text/css"));
+        assertTrue(variants.isCompressible("text/html; charset=UTF-8"));
+        assertTrue(variants.isCompressible("application/json"));
+        assertFalse(variants.isCompressible("image/png"));
+        assertFalse(variants.isCompressible("application/jsonp"));
+        assertFalse(variants.isCompressible(null));
+    }
+
+    @Test
+    public void testVariantETag() {
+        assertEquals("\"1234-ff-gzip\"", PrecompressedVariants.getVariantETag("\"1234-ff\"", "gzip"));
+        assertEquals("\"1234-ff\"", PrecompressedVariants.getIdentityETag("\"1234-ff-gzip\""));
+        assertEquals("\"1234-ff\"", PrecompressedVariants.getIdentityETag("\"1234-ff-br\""));
+        assertEquals("\"1234-ff\"", PrecompressedVariants.getIdentityETag("\"1234-ff\""));
+    }
+
+    @Test
+    public void testSibling() throws IOException {
+        final ResourceResolver resolver = Mockito.mock(ResourceResolver.class);
+        final Resource resource = mockResource(resolver, "/apps/style.css", 2000, CONTENT);
+        final Resource sibling = mockResource(resolver, "/apps/style.css.br", 3000, "brotli".getBytes());
+        Mockito.when(resolver.getResource("/apps/style.css.br")).thenReturn(sibling);
+
+        final PrecompressedVariants variants = new PrecompressedVariants(null,
+            PrecompressedVariants.DEFAULT_MIME_TYPES, PrecompressedVariants.DEFAULT_MAX_LENGTH,
+            PrecompressedVariants.DEFAULT_MAX_SIZE);
+        final PrecompressedVariants.Variant variant = variants.select(mockRequest("gzip, br"),
+            resource, "text/css", "\"7d0-2d\"");
+        assertEquals("br", variant.getEncoding());
+        assertEquals(6, variant.getLength());
+
+        // no generated rendition without a directory
+        assertNull(variants.select(mockRequest("gzip"), resource, "text/css", "\"7d0-2d\""));
+
+        // outdated sibling
+        sibling.getResourceMetadata().setModificationTime(1000);
+        assertNull(variants.select(mockRequest("gzip, br"), resource, "text/css", "\"7d0-2d\""));
+    }
+
+    @Test
+    public void testRendition() throws IOException {
+        final ResourceResolver resolver = Mockito.mock(ResourceResolver.class);
+        final Resource resource = mockResource(resolver, "/apps/style.css", 2000, CONTENT);
+        final File directory = folder.newFolder("compressed");
+
+        final PrecompressedVariants variants = new PrecompressedVariants(directory,
+            PrecompressedVariants.DEFAULT_MIME_TYPES, PrecompressedVariants.DEFAULT_MAX_LENGTH,
+            PrecompressedVariants.DEFAULT_MAX_SIZE);
+        assertSame(resource.adaptTo(InputStream.class), variants.capture(mockRequest("deflate"),
+            resource, "text/css", "\"7d0-2d\"", resource.adaptTo(InputStream.class)));
+        assertSame(resource.adaptTo(InputStream.class), variants.capture(mockRequest("gzip"),
+            resource, "image/png", "\"7d0-2d\"", resource.adaptTo(InputStream.class)));
+
+        // the first request is served uncompressed while the rendition is generated
+        assertNull(variants.select(mockRequest("gzip"), resource, "text/css", "\"7d0-2d\""));
+        final InputStream captured = variants.capture(mockRequest("gzip"), resource, "text/css",
+            "\"7d0-2d\"", new ByteArrayInputStream(CONTENT));
+        // a single rendition is generated at a time
+        final InputStream concurrent = new ByteArrayInputStream(CONTENT);
+        assertSame(concurrent, variants.capture(mockRequest("gzip"), resource, "text/css",
+            "\"7d0-2d\"", concurrent));
+        assertArrayEquals(CONTENT, read(captured));
+        assertEquals(1, directory.list().length);
+
+        PrecompressedVariants.Variant variant = variants.select(mockRequest("gzip"),
+            resource, "text/css", "\"7d0-2d\"");
+        assertEquals("gzip", variant.getEncoding());
+        assertArrayEquals(CONTENT, gunzip(variant.getStream()));
+
+        // a new version of the resource replaces the rendition
+        assertNull(variants.select(mockRequest("gzip"), resource, "text/css", "\"bb8-2d\""));
+        assertEquals(0, directory.list().length);
+        read(variants.capture(mockRequest("gzip"), resource, "text/css", "\"bb8-2d\"",
+            new ByteArrayInputStream(CONTENT)));
+        variant = variants.select(mockRequest("gzip"), resource, "text/css", "\"bb8-2d\"");
+        assertArrayEquals(CONTENT, gunzip(variant.getStream()));
+        assertEquals(1, directory.list().length);
+
+        // changing the resource or its content invalidates the rendition
+        variants.invalidate("/apps/style.css/jcr:content");
+        assertNull(variants.select(mockRequest("gzip"), resource, "text/css", "\"bb8-2d\""));
+        assertEquals(0, directory.list().length);
+        assertEquals(0, variants.getSize());
+
+        // a partially read stream does not generate a rendition
+        final InputStream partial = variants.capture(mockRequest("gzip"), resource, "text/css",
+            "\"bb8-2d\"", new ByteArrayInputStream(CONTENT));
+        assertEquals(CONTENT[0], partial.read());
+        partial.close();
+        assertNull(variants.select(mockRequest("gzip"), resource, "text/css", "\"bb8-2d\""));
+        assertEquals(0, directory.list().length);
+
+        // resources above the maximum length are not compressed
+        final PrecompressedVariants small = new PrecompressedVariants(directory,
+            PrecompressedVariants.DEFAULT_MIME_TYPES, CONTENT.length - 1,
+            PrecompressedVariants.DEFAULT_MAX_SIZE);
+        final InputStream stream = new ByteArrayInputStream(CONTENT);
+        assertSame(stream, small.capture(mockRequest("gzip"), resource, "text/css", "\"bb8-2d\"", stream));
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        final ResourceResolver resolver = Mockito.mock(ResourceResolver.class);
+        final File directory = folder.newFolder("compressed");
+        new File(directory, "leftover.gz").createNewFile();
+
+        // room for a single rendition
+        final ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        final GZIPOutputStream out = new GZIPOutputStream(gzip);
+        out.write(CONTENT);
+        out.close();
+        final long maxSize = gzip.size() * 3 / 2;
+
+        final PrecompressedVariants variants = new PrecompressedVariants(directory,
+            PrecompressedVariants.DEFAULT_MIME_TYPES, PrecompressedVariants.DEFAULT_MAX_LENGTH,
+            maxSize);
+        // renditions of a previous run are dropped
+        assertEquals(0, directory.list().length);
+
+        final Resource first = mockResource(resolver, "/apps/first.css", 2000, CONTENT);
+        final Resource second = mockResource(resolver, "/apps/second.css", 2000, CONTENT);
+        read(variants.capture(mockRequest("gzip"), first, "text/css", "\"7d0-2d\"",
+            new ByteArrayInputStream(CONTENT)));
+        read(variants.capture(mockRequest("gzip"), second, "text/css", "\"7d0-2d\"",
+            new ByteArrayInputStream(CONTENT)));
+        assertTrue(variants.getSize() <= maxSize);
+
+        // the least recently used rendition is evicted
+        assertNull(variants.select(mockRequest("gzip"), first, "text/css", "\"7d0-2d\""));
+        assertNotNull(variants.select(mockRequest("gzip"), second, "text/css", "\"7d0-2d\""));
+        assertEquals(1, directory.list().length);
+
+        variants.clear();
+        assertEquals(0, directory.list().length);
+        assertEquals(0, variants.getSize());
+    }
+
+    private static Resource mockResource(final ResourceResolver resolver, final String path,
+            final long modifTime, final byte[] content) {
+        final ResourceMetadata meta = new ResourceMetadata();
+        meta.setModificationTime(modifTime);
+        meta.setContentLength(content.length);
+        final Resource resource = Mockito.mock(Resource.class);
+        Mockito.when(resource.getPath()).thenReturn(path);
+        Mockito.when(resource.getResourceMetadata()).thenReturn(meta);
+        Mockito.when(resource.getResourceResolver()).thenReturn(resolver);
+        Mockito.when(resource.adaptTo(InputStream.class)).thenReturn(new ByteArrayInputStream(content));
+        return resource;
+    }
+
+    private static SlingHttpServletRequest mockRequest(final String acceptEncoding) {
+        final SlingHttpServletRequest request = Mockito.mock(SlingHttpServletRequest.class);
+        Mockito.when(request.getHeader("Accept-Encoding")).thenReturn(acceptEncoding);
+        return request;
+    }
+
+    private static byte[] read(final InputStream in) throws IOException {
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            StreamRendererServlet.copyFully(in, out);
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] gunzip(final InputStream stream) throws IOException {
+        final InputStream in = new GZIPInputStream(stream);
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            StreamRendererServlet.copyFully(in, out);
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
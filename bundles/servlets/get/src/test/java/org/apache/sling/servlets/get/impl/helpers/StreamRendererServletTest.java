@@ -19,6 +19,9 @@
 package org.apache.sling.servlets.get.impl.helpers;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
@@ -146,4 +149,31 @@ public class StreamRendererServletTest {
         PrivateAccessor.invoke(streamRendererServlet, "setHeaders", new Class[]{Resource.class, SlingHttpServletResponse.class}, new Object[]{resource, response});
         Mockito.verify(response,Mockito.times(1)).setContentType("application/octet-stream");
     }
+
+    @Test
+    public void testETag() {
+        final ResourceMetadata meta = new ResourceMetadata();
+        assertNull(StreamRendererServlet.getETag(meta));
+
+        meta.setModificationTime(0x1234L);
+        meta.setContentLength(255);
+        assertEquals("\"1234-ff\"", StreamRendererServlet.getETag(meta));
+
+        meta.setContentLength(256);
+        assertEquals("\"1234-100\"", StreamRendererServlet.getETag(meta));
+    }
+
+    @Test
+    public void testETagMatches() {
+        final String etag = "\"1234-ff\"";
+        assertTrue(StreamRendererServlet.etagMatches("*", null));
+        assertTrue(StreamRendererServlet.etagMatches("\"1234-ff\"", etag));
+        assertTrue(StreamRendererServlet.etagMatches("W/\"1234-ff\"", etag));
+        assertTrue(StreamRendererServlet.etagMatches("\"abc\", \"1234-ff\"", etag));
+        assertTrue(StreamRendererServlet.etagMatches("\"1234-ff-gzip\"", etag));
+        assertTrue(StreamRendererServlet.etagMatches("W/\"1234-ff-br\"", etag));
+        assertFalse(StreamRendererServlet.etagMatches("\"1234-fe\"", etag));
+        assertFalse(StreamRendererServlet.etagMatches("\"1234-ff-deflate\"", etag));
+        assertFalse(StreamRendererServlet.etagMatches("\"1234-ff\"", null));
+    }
 }
@@ -41,8 +41,9 @@ import org.slf4j.LoggerFactory;
 
 /**
  * The <code>ChunkCleanUpTask</code> implements a job run at regular intervals
- * to find incomplete chunk uploads and remove them from the repository to
- * prevent littering the repository with incomplete chunks.
+ * to find incomplete chunk uploads and remove them from the staging area of
+ * this instance and from the repository to prevent littering them with
+ * incomplete chunks.
  * <p>
  * This task is configured with OSGi configuration for the PID
  * <code>org.apache.sling.servlets.post.impl.helper.ChunkCleanUpTask</code> with
@@ -110,6 +111,9 @@ public class ChunkCleanUpTask implements Runnable {
         int numCleaned = 0;
         int numLive = 0;
 
+        // chunks staged on this instance
+        numCleaned += uploadhandler.deleteIdleStagedChunks(chunkCleanUpAge);
+
         Session admin = null;
         try {
             // assume chunks are stored in the default workspace
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.helper;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.sling.servlets.post.SlingPostConstants;
+
+/**
+ * <code>ChunkRanges</code> keeps track of the byte ranges received for a
+ * chunk upload. Chunks may be received in any order, but must not overlap.
+ */
+public class ChunkRanges {
+
+    /** Start offset to end offset (inclusive) of the received chunks. */
+    private final TreeMap<Long, Long> ranges = new TreeMap<Long, Long>();
+
+    private long received;
+
+    /**
+     * Parse the range from the name of a chunk node, which is
+     * <code>chunk_&lt;start&gt;_&lt;end&gt;</code>.
+     *
+     * @return Start and end offset (inclusive) or <code>null</code> if the
+     *         name is not a chunk node name
+     */
+    public static long[] parseChunkNodeName(final String name) {
+        final String prefix = SlingPostConstants.CHUNK_NODE_NAME + "_";
+        if (!name.startsWith(prefix)) {
+            return null;
+        }
+        final String[] indexBounds = name.substring(prefix.length()).split("_");
+        if (indexBounds.length != 2) {
+            return null;
+        }
+        try {
+            return new long[] { Long.parseLong(indexBounds[0]), Long.parseLong(indexBounds[1]) };
+        } catch (NumberFormatException nfe) {
+            return null;
+        }
+    }
+
+    /**
+     * Return the name of the chunk node for a range.
+     */
+    public static String getChunkNodeName(final long start, final long end) {
+        return SlingPostConstants.CHUNK_NODE_NAME
+            + "_" + String.valueOf(start) + "_" + String.valueOf(end);
+    }
+
+    /**
+     * Add a range.
+     *
+     * @param start start offset
+     * @param end end offset (inclusive)
+     * @return <code>false</code> if the range overlaps with a range already
+     *         added, in which case it is not added.
+     */
+    public boolean add(final long start, final long end) {
+        if (getOverlapping(start, end) != null) {
+            return false;
+        }
+        ranges.put(start, end);
+        received += end - start + 1;
+        return true;
+    }
+
+    /**
+     * Remove a range added before. It is a no-op if the range has not been
+     * added.
+     *
+     * @param start start offset
+     * @param end end offset (inclusive)
+     */
+    public void remove(final long start, final long end) {
+        final Long rangeEnd = ranges.get(start);
+        if (rangeEnd != null && rangeEnd == end) {
+            ranges.remove(start);
+            received -= end - start + 1;
+        }
+    }
+
+    /**
+     * Return the range overlapping with the given range or <code>null</code>
+     * if there is none.
+     *
+     * @return Start and end offset (inclusive) of the overlapping range
+     */
+    public long[] getOverlapping(final long start, final long end) {
+        final Map.Entry<Long, Long> entry = ranges.floorEntry(end);
+        if (entry != null && entry.getValue() >= start) {
+            return new long[] { entry.getKey(), entry.getValue() };
+        }
+        return null;
+    }
+
+    /**
+     * Return the number of bytes received.
+     */
+    public long getReceived() {
+        return received;
+    }
+
+    /**
+     * Return the length of the contiguous data received from offset 0 on.
+     * This is the offset a client uploading chunks in order continues with.
+     */
+    public long getContiguousLength() {
+        long length = 0;
+        for (final Map.Entry<Long, Long> entry : ranges.entrySet()) {
+            if (entry.getKey() != length) {
+                break;
+            }
+            length = entry.getValue() + 1;
+        }
+        return length;
+    }
+
+    /**
+     * Return true if all bytes of a file with the given length have been
+     * received.
+     */
+    public boolean isComplete(final long length) {
+        return received == length && getContiguousLength() == length;
+    }
+}
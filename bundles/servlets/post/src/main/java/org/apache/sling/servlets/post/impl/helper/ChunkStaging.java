@@ -0,0 +1,300 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.helper;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import javax.jcr.RepositoryException;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * <code>ChunkStaging</code> keeps the chunks of uploads in progress in local
+ * temporary files, one per file being uploaded. Chunks may be written in any
+ * order and concurrently: each request writes its chunk at its offset in the
+ * file without holding a lock, only the bookkeeping of the received ranges is
+ * synchronized. The request writing the last missing chunk is handed the
+ * staged upload to copy it into the repository.
+ * <p>
+ * The staged uploads are local to this instance, so all chunks of a file
+ * must be sent to the same instance.
+ */
+class ChunkStaging {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /** Staged uploads by path of the resource receiving the data. */
+    private final Map<String, Upload> uploads = new HashMap<String, Upload>();
+
+    /**
+     * Write a chunk to the staged upload of a resource.
+     *
+     * @param path path of the resource receiving the data
+     * @param start start offset of the chunk
+     * @param end end offset (inclusive) of the chunk
+     * @param length length of the file or 0 if not known yet
+     * @param data data of the chunk
+     * @return The staged upload if this chunk completed it, <code>null</code>
+     *         otherwise. The caller must {@link #remove(String, Upload)} it
+     *         once assembled or call {@link Upload#assemblyFailed()}.
+     */
+    Upload write(final String path, final long start, final long end,
+            final long length, final InputStream data)
+            throws IOException, RepositoryException {
+        final Upload upload = reserve(path, start, end, length);
+        boolean written = false;
+        try {
+            upload.write(start, end, data);
+            written = true;
+        } finally {
+            if (!written) {
+                upload.release(start, end, false);
+            }
+        }
+        return upload.release(start, end, true) ? upload : null;
+    }
+
+    /**
+     * Remove a staged upload and delete its file.
+     */
+    void remove(final String path, final Upload upload) {
+        synchronized (this) {
+            if (uploads.get(path) == upload) {
+                uploads.remove(path);
+            }
+        }
+        upload.close();
+    }
+
+    /**
+     * Discard the staged upload of a resource, if any.
+     */
+    void discard(final String path) {
+        final Upload upload;
+        synchronized (this) {
+            upload = uploads.remove(path);
+        }
+        if (upload != null) {
+            upload.close();
+        }
+    }
+
+    /**
+     * Discard the staged uploads which did not receive a chunk for the given
+     * time.
+     *
+     * @param maxAge idle time in milliseconds
+     * @return number of uploads discarded
+     */
+    int discardIdle(final long maxAge) {
+        final long now = System.currentTimeMillis();
+        int count = 0;
+        synchronized (this) {
+            final Iterator<Upload> uploadItr = uploads.values().iterator();
+            while (uploadItr.hasNext()) {
+                final Upload upload = uploadItr.next();
+                if (upload.closeIfIdle(now - maxAge)) {
+                    uploadItr.remove();
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private synchronized Upload reserve(final String path, final long start,
+            final long end, final long length)
+            throws IOException, RepositoryException {
+        Upload upload = uploads.get(path);
+        if (upload != null && upload.restartsWith(start, end)) {
+            // a different first chunk starts a new upload of the file
+            uploads.remove(path);
+            upload.close();
+            upload = null;
+        }
+        if (upload == null) {
+            upload = new Upload(path);
+            uploads.put(path, upload);
+        }
+        upload.reserve(start, end, length);
+        return upload;
+    }
+
+    /**
+     * The chunks of a file received so far.
+     */
+    static final class Upload {
+
+        private final String path;
+
+        private final File file;
+
+        private final FileChannel channel;
+
+        private final ChunkRanges received = new ChunkRanges();
+
+        private final ChunkRanges writing = new ChunkRanges();
+
+        private long length;
+
+        private long lastModified;
+
+        private boolean assembling;
+
+        private boolean closed;
+
+        private Upload(final String path) throws IOException {
+            this.path = path;
+            this.file = File.createTempFile("slingchunks", ".tmp");
+            this.file.deleteOnExit();
+            this.channel = new RandomAccessFile(file, "rw").getChannel();
+            this.lastModified = System.currentTimeMillis();
+        }
+
+        /**
+         * Return a stream of the assembled file.
+         */
+        InputStream getInputStream() throws IOException {
+            return new FileInputStream(file);
+        }
+
+        /**
+         * Make the completed upload available for another attempt to
+         * assemble it, which is triggered by a chunk sent again.
+         */
+        synchronized void assemblyFailed() {
+            assembling = false;
+        }
+
+        private synchronized boolean restartsWith(final long start, final long end) {
+            if (start != 0 || writing.getOverlapping(start, end) != null) {
+                return false;
+            }
+            final long[] first = received.getOverlapping(start, start);
+            return first != null && first[1] != end;
+        }
+
+        private synchronized void reserve(final long start, final long end,
+                final long length) throws RepositoryException {
+            if (closed) {
+                throw new RepositoryException("Upload of " + path + " has been discarded");
+            }
+            if (length != 0) {
+                if (this.length == 0) {
+                    final long[] beyond = received.getOverlapping(length, Long.MAX_VALUE);
+                    if (beyond != null) {
+                        throw new RepositoryException("Chunk {"
+                            + ChunkRanges.getChunkNodeName(beyond[0], beyond[1])
+                            + "} exceeds file length {" + length + "}");
+                    }
+                    this.length = length;
+                } else if (length != this.length) {
+                    throw new RepositoryException("File length {" + length
+                        + "} doesn't match expected length {" + this.length + "}");
+                }
+            }
+            if (this.length != 0 && end >= this.length) {
+                throw new RepositoryException("Chunk {"
+                    + ChunkRanges.getChunkNodeName(start, end)
+                    + "} exceeds file length {" + this.length + "}");
+            }
+            long[] overlapping = writing.getOverlapping(start, end);
+            if (overlapping == null) {
+                overlapping = received.getOverlapping(start, end);
+                if (overlapping != null && overlapping[0] == start && overlapping[1] == end) {
+                    // the same chunk sent again, for instance by a client
+                    // which did not get the response, is written again
+                    received.remove(start, end);
+                    overlapping = null;
+                }
+            }
+            if (overlapping != null) {
+                throw new RepositoryException("Chunk {"
+                    + ChunkRanges.getChunkNodeName(overlapping[0], overlapping[1])
+                    + "} of " + path + " overlaps with chunk {"
+                    + ChunkRanges.getChunkNodeName(start, end) + "}");
+            }
+            writing.add(start, end);
+        }
+
+        private void write(final long start, final long end, final InputStream data)
+                throws IOException {
+            final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long position = start;
+            int n;
+            while ((n = data.read(buffer.array())) != -1) {
+                if (position + n > end + 1) {
+                    throw new IOException("Chunk exceeds its size of " + (end - start + 1) + " bytes");
+                }
+                buffer.position(0).limit(n);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            }
+            if (position != end + 1) {
+                throw new IOException("Chunk is missing " + (end + 1 - position) + " bytes");
+            }
+        }
+
+        /**
+         * Release the range reserved by a request.
+         *
+         * @return <code>true</code> if the file is complete and the calling
+         *         request has to assemble it
+         */
+        private synchronized boolean release(final long start, final long end,
+                final boolean written) {
+            writing.remove(start, end);
+            if (!written) {
+                return false;
+            }
+            received.add(start, end);
+            lastModified = System.currentTimeMillis();
+            if (!closed && !assembling && length != 0
+                && writing.getReceived() == 0 && received.isComplete(length)) {
+                assembling = true;
+                return true;
+            }
+            return false;
+        }
+
+        private synchronized boolean closeIfIdle(final long modifiedBefore) {
+            if (assembling || writing.getReceived() != 0 || lastModified >= modifiedBefore) {
+                return false;
+            }
+            close();
+            return true;
+        }
+
+        private synchronized void close() {
+            if (!closed) {
+                closed = true;
+                IOUtils.closeQuietly(channel);
+                file.delete();
+            }
+        }
+    }
+}
@@ -16,21 +16,15 @@
  */
 package org.apache.sling.servlets.post.impl.helper;
 
-import java.io.ByteArrayInputStream;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.SequenceInputStream;
+import java.util.ArrayList;
 import java.util.Calendar;
-import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 
 import javax.jcr.Node;
 import javax.jcr.NodeIterator;
@@ -105,6 +99,12 @@ public class SlingFileUploadHandler {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
+    /**
+     * The chunks of the uploads in progress. The handler is created per
+     * operation, so the staging area is shared by all instances.
+     */
+    private static final ChunkStaging STAGING = new ChunkStaging();
+
     /**
      * The servlet context.
      */
@@ -154,6 +154,21 @@ public class SlingFileUploadHandler {
             typeHint = createNtFile ? NT_FILE : NT_RESOURCE;
         }
 
+        // stage chunks until the file is complete, the repository is only
+        // modified by the request sending the last missing chunk
+        ChunkStaging.Upload upload = null;
+        String uploadPath = null;
+        if (prop.isChunkUpload()) {
+            uploadPath = getChildPath(parentResource.getPath(), name);
+            if (createNtFile) {
+                uploadPath = getChildPath(uploadPath, JCR_CONTENT);
+            }
+            upload = stageChunk(uploadPath, prop, value);
+            if (upload == null) {
+                return;
+            }
+        }
+
         // create nt:file node if needed
         Resource resParent;
         if (createNtFile) {
@@ -178,8 +193,8 @@ public class SlingFileUploadHandler {
                 ));
         try {
             // process chunk upload request separately
-            if (prop.isChunkUpload()) {
-                processChunk(resParent, res, prop, value, changes);
+            if (upload != null) {
+                processChunk(res, uploadPath, upload, changes);
             } else {
                 changes.add(Modification.onModified(res.setProperty(JCR_DATA,
                         value.getInputStream()).getPath()));
@@ -189,6 +204,10 @@ public class SlingFileUploadHandler {
         }
     }
 
+    private static String getChildPath(final String parentPath, final String name) {
+        return parentPath.endsWith("/") ? parentPath + name : parentPath + '/' + name;
+    }
+
     /**
      * Uses the file(s) in the request parameter for creation of new nodes.
      * if the parent node is a nt:folder a new nt:file is created. otherwise
@@ -239,182 +258,92 @@ public class SlingFileUploadHandler {
         }
     }
     /**
-     * Process chunk upload. For first and intermediate chunks request persists
-     * chunks at jcr:content/chunk_start_end/jcr:data or
-     * nt:resource/chunk_start_end/jcr:data. For last last chunk,
-     * merge all previous chunks and last chunk and replace binary at
-     * destination.
+     * Stage the chunk of a chunk upload request. Chunks may be uploaded in
+     * any order and concurrently, as long as they don't overlap, see
+     * {@link ChunkStaging}.
+     *
+     * @return the staged upload if the chunk completed the file,
+     *         <code>null</code> otherwise
      */
-    private void processChunk(final Resource resParent, final Node res,
-            final RequestProperty prop, RequestParameter value,
-            final List<Modification> changes) throws RepositoryException {
+    private ChunkStaging.Upload stageChunk(final String path,
+            final RequestProperty prop, final RequestParameter value)
+            throws RepositoryException {
+        long chunkOffset = prop.getChunk().getOffset();
+        long chunkEnd = chunkOffset + value.getSize() - 1;
+        long totalLength = prop.getChunk().getLength();
+        if (totalLength == 0 && prop.getChunk().isCompleted()) {
+            // the last chunk defines the length of the file
+            totalLength = chunkEnd + 1;
+        }
         try {
-            long chunkOffset = prop.getChunk().getOffset();
-            if (chunkOffset == 0) {
-                // first chunk
-                // check if another chunk upload is already in progress. throw
-                // exception
-                NodeIterator itr = res.getNodes(SlingPostConstants.CHUNK_NODE_NAME
-                    + "*");
-                if (itr.hasNext()) {
-                    throw new RepositoryException(
-                        "Chunk upload already in progress at {" + res.getPath()
-                            + "}");
-                }
-                res.addMixin(SlingPostConstants.NT_SLING_CHUNK_MIXIN);
-                changes.add(Modification.onModified(res.setProperty(
-                    SlingPostConstants.NT_SLING_CHUNKS_LENGTH, 0).getPath()));
-                if (!res.hasProperty(JCR_DATA)) {
-                    // create a empty jcr:data property
-                    res.setProperty(JCR_DATA,
-                        new ByteArrayInputStream("".getBytes()));
-                }
-            }
-            if (!res.hasProperty(SlingPostConstants.NT_SLING_CHUNKS_LENGTH)) {
-                throw new RepositoryException("no chunk upload found at {"
-                    + res.getPath() + "}");
-            }
-            long currentLength = res.getProperty(
-                SlingPostConstants.NT_SLING_CHUNKS_LENGTH).getLong();
-            long totalLength = prop.getChunk().getLength();
-            if (chunkOffset != currentLength) {
-                throw new RepositoryException("Chunk's offset {"
-                    + chunkOffset
-                    + "} doesn't match expected offset {"
-                    + res.getProperty(
-                        SlingPostConstants.NT_SLING_CHUNKS_LENGTH).getLong()
-                    + "}");
-            }
-            if (totalLength != 0) {
-                if (res.hasProperty(SlingPostConstants.NT_SLING_FILE_LENGTH)) {
-                    long expectedLength = res.getProperty(
-                        SlingPostConstants.NT_SLING_FILE_LENGTH).getLong();
-                    if (totalLength != expectedLength) {
-                        throw new RepositoryException("File length {"
-                            + totalLength + "} doesn't match expected length {"
-                            + expectedLength + "}");
-                    }
-                } else {
-                    res.setProperty(SlingPostConstants.NT_SLING_FILE_LENGTH,
-                        totalLength);
-                }
-            }
-            NodeIterator itr = res.getNodes(SlingPostConstants.CHUNK_NODE_NAME
-                + "_" + String.valueOf(chunkOffset) + "*");
-            if (itr.hasNext()) {
-                throw new RepositoryException("Chunk already present at {"
-                    + itr.nextNode().getPath() + "}");
-            }
-            String nodeName = SlingPostConstants.CHUNK_NODE_NAME + "_"
-                + String.valueOf(chunkOffset) + "_"
-                + String.valueOf(chunkOffset + value.getSize() - 1);
-            if (totalLength == (currentLength + value.getSize())
-                || prop.getChunk().isCompleted()) {
-                File file = null;
-                InputStream fileIns = null;
-                try {
-                    file = mergeChunks(res, value.getInputStream());
-                    fileIns = new FileInputStream(file);
-                    changes.add(Modification.onModified(res.setProperty(
-                        JCR_DATA, fileIns).getPath()));
-                    NodeIterator nodeItr = res.getNodes(SlingPostConstants.CHUNK_NODE_NAME
-                        + "*");
-                    while (nodeItr.hasNext()) {
-                        Node nodeRange = nodeItr.nextNode();
-                        changes.add(Modification.onDeleted(nodeRange.getPath()));
-                        nodeRange.remove();
-                    }
-                    if (res.hasProperty(SlingPostConstants.NT_SLING_FILE_LENGTH)) {
-                        javax.jcr.Property expLenProp = res.getProperty(SlingPostConstants.NT_SLING_FILE_LENGTH);
-                        changes.add(Modification.onDeleted(expLenProp.getPath()));
-                        expLenProp.remove();
-                    }
-                    if (res.hasProperty(SlingPostConstants.NT_SLING_CHUNKS_LENGTH)) {
-                        javax.jcr.Property currLenProp = res.getProperty(SlingPostConstants.NT_SLING_CHUNKS_LENGTH);
-                        changes.add(Modification.onDeleted(currLenProp.getPath()));
-                        currLenProp.remove();
-                    }
-                    res.removeMixin(SlingPostConstants.NT_SLING_CHUNK_MIXIN);
-                } finally {
-                    try {
-                        fileIns.close();
-                        file.delete();
-                    } catch (IOException ign) {
-
-                    }
-
-                }
-            } else {
-                Node rangeNode = res.addNode(nodeName,
-                    SlingPostConstants.NT_SLING_CHUNK_NODETYPE);
-                changes.add(Modification.onCreated(rangeNode.getPath()));
-                changes.add(Modification.onModified(rangeNode.setProperty(
-                    JCR_DATA, value.getInputStream()).getPath()));
-                changes.add(Modification.onModified(rangeNode.setProperty(
-                    SlingPostConstants.NT_SLING_CHUNK_OFFSET, chunkOffset).getPath()));
-                changes.add(Modification.onModified(res.setProperty(
-                    SlingPostConstants.NT_SLING_CHUNKS_LENGTH,
-                    currentLength + value.getSize()).getPath()));
+            InputStream data = value.getInputStream();
+            try {
+                return STAGING.write(path, chunkOffset, chunkEnd, totalLength, data);
+            } finally {
+                IOUtils.closeQuietly(data);
             }
         } catch (IOException e) {
-            throw new RepositoryException(
-                "Error while retrieving inputstream from parameter value.", e);
+            throw new RepositoryException("Error while staging chunk {"
+                + ChunkRanges.getChunkNodeName(chunkOffset, chunkEnd)
+                + "} of " + path, e);
         }
     }
 
     /**
-     * Merge all previous chunks with last chunk's stream into a temporary file
-     * and return it.
+     * Assemble a completed chunk upload with a single streaming copy of the
+     * staged file into the binary at the destination. The staged file is
+     * deleted once copied, the changes are saved with the other changes of
+     * the operation.
      */
-    private File mergeChunks(final Node parentNode,
-            final InputStream lastChunkStream) throws PersistenceException,
-            RepositoryException {
-        OutputStream out = null;
-        SequenceInputStream  mergeStrm = null;
-        File file = null;
+    private void processChunk(final Node res, final String uploadPath,
+            final ChunkStaging.Upload upload, final List<Modification> changes)
+            throws RepositoryException, IOException {
+        boolean assembled = false;
         try {
-            file = File.createTempFile("tmp-", "-mergechunk");
-            out = new FileOutputStream(file);
-            String startPattern = SlingPostConstants.CHUNK_NODE_NAME + "_"
-                + "0_*";
-            NodeIterator nodeItr = parentNode.getNodes(startPattern);
-            Set<InputStream> inpStrmSet = new LinkedHashSet<InputStream>();
-            while (nodeItr.hasNext()) {
-                if (nodeItr.getSize() > 1) {
-                    throw new RepositoryException(
-                        "more than one node found for pattern: " + startPattern);
-                }
-                Node rangeNode = nodeItr.nextNode();
-
-                inpStrmSet.add(rangeNode.getProperty(
-                    javax.jcr.Property.JCR_DATA).getBinary().getStream());
-                log.debug("added chunk {} to merge stream", rangeNode.getName());
-                String[] indexBounds = rangeNode.getName().substring(
-                    (SlingPostConstants.CHUNK_NODE_NAME + "_").length()).split(
-                    "_");
-                startPattern = SlingPostConstants.CHUNK_NODE_NAME + "_"
-                    + String.valueOf(Long.valueOf(indexBounds[1]) + 1) + "_*";
-                nodeItr = parentNode.getNodes(startPattern);
+            InputStream data = upload.getInputStream();
+            try {
+                changes.add(Modification.onModified(res.setProperty(
+                    JCR_DATA, data).getPath()));
+            } finally {
+                IOUtils.closeQuietly(data);
             }
-
-            inpStrmSet.add(lastChunkStream);
-            mergeStrm = new SequenceInputStream(
-                Collections.enumeration(inpStrmSet));
-            IOUtils.copyLarge(mergeStrm, out);
-        } catch (IOException e) {
-            throw new PersistenceException("excepiton occured", e);
+            // chunks stored in the repository by previous versions
+            deleteStoredChunks(res, changes);
+            assembled = true;
         } finally {
-            IOUtils.closeQuietly(out);
-            IOUtils.closeQuietly(mergeStrm);
+            if (assembled) {
+                STAGING.remove(uploadPath, upload);
+            } else {
+                upload.assemblyFailed();
+            }
+        }
+        log.debug("assembled chunk upload at {}", res.getPath());
+    }
 
+    /**
+     * Return the chunk nodes below a node, sorted by their offset.
+     */
+    private SortedMap<Long, Node> getChunkNodes(final Node node)
+            throws RepositoryException {
+        SortedMap<Long, Node> chunkNodes = new TreeMap<Long, Node>();
+        NodeIterator nodeItr = node.getNodes(SlingPostConstants.CHUNK_NODE_NAME + "_*");
+        while (nodeItr.hasNext()) {
+            Node rangeNode = nodeItr.nextNode();
+            long[] bounds = ChunkRanges.parseChunkNodeName(rangeNode.getName());
+            if (bounds != null) {
+                chunkNodes.put(bounds[0], rangeNode);
+            }
         }
-        return file;
+        return chunkNodes;
     }
 
     /**
-     * Delete all chunks saved within a node. If no chunks exist, it is no-op.
+     * Delete all chunks of a node, staged or stored in the repository by
+     * previous versions. If no chunks exist, it is no-op.
      */
     public void deleteChunks(final Node node) throws RepositoryException {
+        STAGING.discard(node.getPath());
+        STAGING.discard(getChildPath(node.getPath(), JCR_CONTENT));
         // parent node containing all chunks and has mixin sling:chunks applied
         // on it.
         Node chunkParent = null;
@@ -427,26 +356,59 @@ public class SlingFileUploadHandler {
 
         }
         if (chunkParent != null) {
-            NodeIterator nodeItr = chunkParent.getNodes(SlingPostConstants.CHUNK_NODE_NAME
-                + "*");
-            while (nodeItr.hasNext()) {
-                Node rangeNode = nodeItr.nextNode();
-                rangeNode.remove();
-            }
-            if (chunkParent.hasProperty(SlingPostConstants.NT_SLING_FILE_LENGTH)) {
-                chunkParent.getProperty(SlingPostConstants.NT_SLING_FILE_LENGTH).remove();
-            }
-            if (chunkParent.hasProperty(SlingPostConstants.NT_SLING_CHUNKS_LENGTH)) {
-                chunkParent.getProperty(
-                    SlingPostConstants.NT_SLING_CHUNKS_LENGTH).remove();
+            deleteStoredChunks(chunkParent, null);
+        }
+    }
+
+    /**
+     * Delete the chunks stored in the repository within a node with mixin
+     * sling:chunks.
+     */
+    private void deleteStoredChunks(final Node chunkParent,
+            final List<Modification> changes) throws RepositoryException {
+        if (!hasChunks(chunkParent)) {
+            return;
+        }
+        List<String> deleted = new ArrayList<String>();
+        NodeIterator nodeItr = chunkParent.getNodes(SlingPostConstants.CHUNK_NODE_NAME
+            + "*");
+        while (nodeItr.hasNext()) {
+            Node rangeNode = nodeItr.nextNode();
+            deleted.add(rangeNode.getPath());
+            rangeNode.remove();
+        }
+        if (chunkParent.hasProperty(SlingPostConstants.NT_SLING_FILE_LENGTH)) {
+            javax.jcr.Property expLenProp = chunkParent.getProperty(SlingPostConstants.NT_SLING_FILE_LENGTH);
+            deleted.add(expLenProp.getPath());
+            expLenProp.remove();
+        }
+        if (chunkParent.hasProperty(SlingPostConstants.NT_SLING_CHUNKS_LENGTH)) {
+            javax.jcr.Property currLenProp = chunkParent.getProperty(SlingPostConstants.NT_SLING_CHUNKS_LENGTH);
+            deleted.add(currLenProp.getPath());
+            currLenProp.remove();
+        }
+        chunkParent.removeMixin(SlingPostConstants.NT_SLING_CHUNK_MIXIN);
+        if (changes != null) {
+            for (String path : deleted) {
+                changes.add(Modification.onDeleted(path));
             }
-            chunkParent.removeMixin(SlingPostConstants.NT_SLING_CHUNK_MIXIN);
         }
     }
 
     /**
-     * Get the last {@link SlingPostConstants#NT_SLING_CHUNK_NODETYPE}
-     * {@link Node}.
+     * Discard the staged chunk uploads which did not receive a chunk for the
+     * given time.
+     *
+     * @param maxAge idle time in milliseconds
+     * @return number of uploads discarded
+     */
+    public int deleteIdleStagedChunks(final long maxAge) {
+        return STAGING.discardIdle(maxAge);
+    }
+
+    /**
+     * Get the most recently uploaded
+     * {@link SlingPostConstants#NT_SLING_CHUNK_NODETYPE} {@link Node}.
      *
      * @param node {@link Node} containing
      *            {@link SlingPostConstants#NT_SLING_CHUNK_NODETYPE}
@@ -470,18 +432,17 @@ public class SlingFileUploadHandler {
         if (chunkParent == null) {
             return null;
         }
-        NodeIterator nodeItr = chunkParent.getNodes(SlingPostConstants.CHUNK_NODE_NAME + "_*");
+        // chunks may be uploaded in any order, so the last chunk is the one
+        // created most recently
         Node chunkNode = null;
-        long lastChunkStartIndex = -1;
-        while (nodeItr.hasNext()) {
-            Node currentNode = nodeItr.nextNode();
-
-            String[] indexBounds = currentNode.getName().substring(
-                (SlingPostConstants.CHUNK_NODE_NAME + "_").length()).split("_");
-            long chunkStartIndex = Long.valueOf(indexBounds[0]);
-            if (chunkStartIndex > lastChunkStartIndex) {
+        long lastCreated = -1;
+        for (Node currentNode : getChunkNodes(chunkParent).values()) {
+            long created = currentNode.hasProperty(javax.jcr.Property.JCR_CREATED)
+                ? currentNode.getProperty(javax.jcr.Property.JCR_CREATED).getDate().getTimeInMillis()
+                : 0;
+            if (created >= lastCreated) {
                 chunkNode = currentNode;
-                lastChunkStartIndex = chunkStartIndex;
+                lastCreated = created;
             }
         }
         return chunkNode;
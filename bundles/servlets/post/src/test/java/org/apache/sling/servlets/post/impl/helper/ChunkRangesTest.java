@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.servlets.post.impl.helper;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ChunkRangesTest {
+
+    @Test
+    public void testInOrder() {
+        ChunkRanges ranges = new ChunkRanges();
+        Assert.assertTrue(ranges.add(0, 9));
+        Assert.assertTrue(ranges.add(10, 19));
+        Assert.assertEquals(20, ranges.getReceived());
+        Assert.assertEquals(20, ranges.getContiguousLength());
+        Assert.assertTrue(ranges.isComplete(20));
+        Assert.assertFalse(ranges.isComplete(30));
+    }
+
+    @Test
+    public void testOutOfOrder() {
+        ChunkRanges ranges = new ChunkRanges();
+        Assert.assertTrue(ranges.add(20, 29));
+        Assert.assertEquals(0, ranges.getContiguousLength());
+        Assert.assertTrue(ranges.add(0, 9));
+        Assert.assertEquals(10, ranges.getContiguousLength());
+        Assert.assertFalse(ranges.isComplete(30));
+        Assert.assertTrue(ranges.add(10, 19));
+        Assert.assertEquals(30, ranges.getContiguousLength());
+        Assert.assertTrue(ranges.isComplete(30));
+    }
+
+    @Test
+    public void testOverlapping() {
+        ChunkRanges ranges = new ChunkRanges();
+        Assert.assertTrue(ranges.add(10, 19));
+        Assert.assertFalse(ranges.add(10, 19));
+        Assert.assertFalse(ranges.add(5, 10));
+        Assert.assertFalse(ranges.add(19, 25));
+        Assert.assertFalse(ranges.add(12, 15));
+        Assert.assertArrayEquals(new long[] { 10, 19 }, ranges.getOverlapping(0, 30));
+        Assert.assertNull(ranges.getOverlapping(0, 9));
+        Assert.assertNull(ranges.getOverlapping(20, 29));
+        Assert.assertEquals(10, ranges.getReceived());
+    }
+
+    @Test
+    public void testChunkNodeName() {
+        Assert.assertEquals("chunk_10_19", ChunkRanges.getChunkNodeName(10, 19));
+        Assert.assertArrayEquals(new long[] { 10, 19 }, ChunkRanges.parseChunkNodeName("chunk_10_19"));
+        Assert.assertNull(ChunkRanges.parseChunkNodeName("chunk_10"));
+        Assert.assertNull(ChunkRanges.parseChunkNodeName("chunk_a_b"));
+        Assert.assertNull(ChunkRanges.parseChunkNodeName("other_10_19"));
+    }
+}
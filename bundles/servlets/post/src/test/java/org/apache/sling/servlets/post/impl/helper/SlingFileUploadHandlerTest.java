@@ -0,0 +1,359 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.servlets.post.impl.helper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import javax.jcr.Node;
+import javax.jcr.RepositoryException;
+import javax.jcr.Session;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.sling.api.request.RequestParameter;
+import org.apache.sling.api.resource.AbstractResource;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceMetadata;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.commons.testing.jcr.RepositoryUtil;
+import org.apache.sling.servlets.post.Modification;
+import org.apache.sling.servlets.post.SlingPostConstants;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class SlingFileUploadHandlerTest {
+
+    private static final String DATA = "0123456789abcdefghijklmnopqrstuv";
+
+    private static final int CHUNK_SIZE = 4;
+
+    private static int folderCount;
+
+    private String folderPath;
+
+    @BeforeClass
+    public static void startRepository() throws Exception {
+        RepositoryUtil.startRepository();
+        final Session session = RepositoryUtil.getRepository().loginAdministrative(null);
+        try {
+            final InputStream cnd = SlingFileUploadHandlerTest.class.getResourceAsStream(
+                "/SLING-INF/nodetypes/chunk.cnd");
+            try {
+                RepositoryUtil.registerNodeType(session, cnd);
+            } finally {
+                IOUtils.closeQuietly(cnd);
+            }
+        } finally {
+            session.logout();
+        }
+    }
+
+    @AfterClass
+    public static void stopRepository() throws Exception {
+        RepositoryUtil.stopRepository();
+    }
+
+    @Before
+    public void createFolder() throws Exception {
+        final Session session = RepositoryUtil.getRepository().loginAdministrative(null);
+        try {
+            folderPath = session.getRootNode().addNode(
+                "upload" + (++folderCount) + "_" + System.currentTimeMillis(), "nt:folder").getPath();
+            session.save();
+        } finally {
+            session.logout();
+        }
+    }
+
+    @Test
+    public void testChunksOutOfOrder() throws Exception {
+        final Session session = RepositoryUtil.getRepository().loginAdministrative(null);
+        try {
+            final int chunks = DATA.length() / CHUNK_SIZE;
+            for (int i = chunks - 1; i >= 0; i -= 2) {
+                uploadChunk(session, i);
+            }
+            // incomplete uploads are only staged
+            Assert.assertFalse(session.nodeExists(folderPath + "/file.txt"));
+            for (int i = chunks - 2; i >= 0; i -= 2) {
+                uploadChunk(session, i);
+            }
+            assertAssembled(session);
+        } finally {
+            session.logout();
+        }
+    }
+
+    @Test
+    public void testConcurrentChunks() throws Exception {
+        final int chunks = DATA.length() / CHUNK_SIZE;
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+        final List<Thread> threads = new ArrayList<Thread>();
+        for (int i = 0; i < chunks; i++) {
+            final int chunk = i;
+            final Thread t = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        final Session session = RepositoryUtil.getRepository().loginAdministrative(null);
+                        try {
+                            start.await();
+                            uploadChunk(session, chunk);
+                            session.save();
+                        } finally {
+                            session.logout();
+                        }
+                    } catch (Throwable e) {
+                        failures.add(e);
+                    }
+                }
+            };
+            t.start();
+            threads.add(t);
+        }
+        start.countDown();
+        for (final Thread t : threads) {
+            t.join();
+        }
+        Assert.assertEquals(Collections.emptyList(), failures);
+
+        final Session session = RepositoryUtil.getRepository().loginAdministrative(null);
+        try {
+            assertAssembled(session);
+        } finally {
+            session.logout();
+        }
+    }
+
+    @Test
+    public void testOverlappingChunks() throws Exception {
+        final Session session = RepositoryUtil.getRepository().loginAdministrative(null);
+        try {
+            uploadChunk(session, 0);
+            try {
+                uploadRange(session, CHUNK_SIZE / 2, CHUNK_SIZE);
+                Assert.fail("Overlapping chunk must be rejected");
+            } catch (RepositoryException expected) {
+                // expected
+            }
+            // a chunk sent again is accepted
+            uploadChunk(session, 0);
+            for (int i = 1; i < DATA.length() / CHUNK_SIZE; i++) {
+                uploadChunk(session, i);
+            }
+            assertAssembled(session);
+        } finally {
+            session.logout();
+        }
+    }
+
+    @Test
+    public void testDeleteIdleStagedChunks() throws Exception {
+        final Session session = RepositoryUtil.getRepository().loginAdministrative(null);
+        try {
+            final int chunks = DATA.length() / CHUNK_SIZE;
+            for (int i = 0; i < chunks - 1; i++) {
+                uploadChunk(session, i);
+            }
+            Assert.assertTrue(new SlingFileUploadHandler().deleteIdleStagedChunks(-1) >= 1);
+            uploadChunk(session, chunks - 1);
+            Assert.assertFalse(session.nodeExists(folderPath + "/file.txt"));
+        } finally {
+            session.logout();
+        }
+    }
+
+    private void uploadChunk(final Session session, final int index)
+            throws RepositoryException, IOException {
+        uploadRange(session, index * CHUNK_SIZE, CHUNK_SIZE);
+    }
+
+    private void uploadRange(final Session session, final int offset, final int size)
+            throws RepositoryException, IOException {
+        final Chunk chunk = new Chunk();
+        chunk.setOffsetValue(offset);
+        chunk.setLength(DATA.length());
+        final RequestProperty prop = new RequestProperty(folderPath + "/file.txt");
+        prop.setChunk(chunk);
+        prop.setValues(new RequestParameter[] {
+            new ChunkParameter(DATA.substring(offset, offset + size))
+        });
+        new SlingFileUploadHandler().setFile(new NodeResource(session.getNode(folderPath)),
+            prop, new ArrayList<Modification>());
+    }
+
+    private void assertAssembled(final Session session) throws Exception {
+        final Node content = session.getNode(folderPath + "/file.txt/jcr:content");
+        final InputStream data = content.getProperty("jcr:data").getBinary().getStream();
+        try {
+            Assert.assertEquals(DATA, IOUtils.toString(data, "UTF-8"));
+        } finally {
+            IOUtils.closeQuietly(data);
+        }
+        Assert.assertFalse(content.getNodes(SlingPostConstants.CHUNK_NODE_NAME + "*").hasNext());
+        Assert.assertFalse(content.hasProperty(SlingPostConstants.NT_SLING_CHUNKS_LENGTH));
+        Assert.assertFalse(content.hasProperty(SlingPostConstants.NT_SLING_FILE_LENGTH));
+        Assert.assertFalse(content.isNodeType(SlingPostConstants.NT_SLING_CHUNK_MIXIN));
+    }
+
+    /**
+     * Resource backed by a node, with a resolver supporting the calls of the
+     * upload handler.
+     */
+    private static final class NodeResource extends AbstractResource {
+
+        private final Node node;
+
+        private final ResourceResolver resolver;
+
+        NodeResource(final Node node) {
+            this.node = node;
+            this.resolver = (ResourceResolver) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] {ResourceResolver.class}, new InvocationHandler() {
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args)
+                            throws Throwable {
+                        if (method.getName().equals("create")) {
+                            final Node parent = ((Resource) args[0]).adaptTo(Node.class);
+                            @SuppressWarnings("unchecked")
+                            final Map<String, Object> props = (Map<String, Object>) args[2];
+                            return new NodeResource(parent.addNode((String) args[1],
+                                (String) props.get("jcr:primaryType")));
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        }
+
+        @Override
+        public String getPath() {
+            try {
+                return node.getPath();
+            } catch (RepositoryException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public Resource getChild(final String relPath) {
+            try {
+                return node.hasNode(relPath) ? new NodeResource(node.getNode(relPath)) : null;
+            } catch (RepositoryException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public Iterator<Resource> listChildren() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getResourceType() {
+            return null;
+        }
+
+        @Override
+        public String getResourceSuperType() {
+            return null;
+        }
+
+        @Override
+        public ResourceMetadata getResourceMetadata() {
+            return new ResourceMetadata();
+        }
+
+        @Override
+        public ResourceResolver getResourceResolver() {
+            return resolver;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <AdapterType> AdapterType adaptTo(final Class<AdapterType> type) {
+            if (type == Node.class) {
+                return (AdapterType) node;
+            }
+            return super.adaptTo(type);
+        }
+    }
+
+    private static final class ChunkParameter implements RequestParameter {
+
+        private final byte[] data;
+
+        ChunkParameter(final String data) {
+            this.data = data.getBytes();
+        }
+
+        @Override
+        public boolean isFormField() {
+            return false;
+        }
+
+        @Override
+        public String getContentType() {
+            return "text/plain";
+        }
+
+        @Override
+        public long getSize() {
+            return data.length;
+        }
+
+        @Override
+        public byte[] get() {
+            return data;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(data);
+        }
+
+        @Override
+        public String getFileName() {
+            return "file.txt";
+        }
+
+        @Override
+        public String getString() {
+            return new String(data);
+        }
+
+        @Override
+        public String getString(final String encoding) {
+            return getString();
+        }
+    }
+}
@@ -179,6 +179,10 @@ public class ForwardDistributionAgentFactory extends AbstractDistributionAgentFa
     @Property(boolValue = false, label = "Async delivery", description = "Whether or not to use a separate delivery queue to maximize transport throughput when queue has more than 100 items")
     public static final String ASYNC_DELIVERY = "async.delivery";
 
+    @Property(intValue = 1, label = "Queue processing parallelism", description = "The maximum number of packages with non overlapping paths " +
+            "to be processed concurrently from each queue (only applies to the in-memory and in-file queue providers).")
+    public static final String QUEUE_PROCESSING_PARALLELISM = "queue.processing.parallelism";
+
     @Reference
     private Packaging packaging;
 
@@ -243,12 +247,13 @@ public class ForwardDistributionAgentFactory extends AbstractDistributionAgentFa
 
         DistributionQueueProvider queueProvider;
         String queueProviderName = PropertiesUtil.toString(config.get(QUEUE_PROVIDER), JobHandlingDistributionQueueProvider.TYPE);
+        int queueProcessingParallelism = PropertiesUtil.toInteger(config.get(QUEUE_PROCESSING_PARALLELISM), 1);
         if (JobHandlingDistributionQueueProvider.TYPE.equals(queueProviderName)) {
             queueProvider = new JobHandlingDistributionQueueProvider(agentName, jobManager, context, configAdmin);
         } else if (SimpleDistributionQueueProvider.TYPE.equals(queueProviderName)) {
-            queueProvider = new SimpleDistributionQueueProvider(scheduler, agentName, false);
+            queueProvider = new SimpleDistributionQueueProvider(scheduler, agentName, false, queueProcessingParallelism);
         } else {
-            queueProvider = new SimpleDistributionQueueProvider(scheduler, agentName, true);
+            queueProvider = new SimpleDistributionQueueProvider(scheduler, agentName, true, queueProcessingParallelism);
         }
         queueProvider = new MonitoringDistributionQueueProvider(queueProvider, context);
 
@@ -88,4 +88,26 @@ public interface DistributionQueueMBean {
      */
     Calendar getHeadEnqueuingDate();
 
+    /**
+     * Get the number of packages successfully applied from this queue.
+     *
+     * @return the number of applied packages or {@code -1} if processing statistics are not available
+     */
+    long getAppliedPackages();
+
+    /**
+     * Get the average number of packages applied per second from this queue.
+     *
+     * @return the number of packages applied per second or {@code -1} if processing statistics are not available
+     */
+    double getAppliedPackagesPerSecond();
+
+    /**
+     * Get the number of times a package could not be processed concurrently with the preceding ones, because
+     * its paths overlap with the ones of a preceding package.
+     *
+     * @return the number of conflict stalls or {@code -1} if processing statistics are not available
+     */
+    long getConflictStalls();
+
 }
@@ -21,6 +21,7 @@ package org.apache.sling.distribution.monitor.impl;
 import java.util.Calendar;
 
 import org.apache.sling.distribution.queue.DistributionQueue;
+import org.apache.sling.distribution.queue.impl.DistributionQueueProcessingStats;
 
 /**
  * Default implementation of {@link DistributionQueueMBean}
@@ -29,8 +30,15 @@ public final class DistributionQueueMBeanImpl implements DistributionQueueMBean
 
     private final DistributionQueue distributionQueue;
 
+    private final DistributionQueueProcessingStats processingStats;
+
     public DistributionQueueMBeanImpl(DistributionQueue distributionQueue) {
+        this(distributionQueue, null);
+    }
+
+    public DistributionQueueMBeanImpl(DistributionQueue distributionQueue, DistributionQueueProcessingStats processingStats) {
         this.distributionQueue = distributionQueue;
+        this.processingStats = processingStats;
     }
 
     @Override
@@ -90,4 +98,28 @@ public final class DistributionQueueMBeanImpl implements DistributionQueueMBean
         return null;
     }
 
+    @Override
+    public long getAppliedPackages() {
+        if (processingStats != null) {
+            return processingStats.getAppliedPackages();
+        }
+        return -1;
+    }
+
+    @Override
+    public double getAppliedPackagesPerSecond() {
+        if (processingStats != null) {
+            return processingStats.getAppliedPackagesPerSecond();
+        }
+        return -1;
+    }
+
+    @Override
+    public long getConflictStalls() {
+        if (processingStats != null) {
+            return processingStats.getConflictStalls();
+        }
+        return -1;
+    }
+
 }
@@ -31,6 +31,8 @@ import org.apache.sling.distribution.queue.DistributionQueue;
 import org.apache.sling.distribution.queue.DistributionQueueProcessor;
 import org.apache.sling.distribution.queue.DistributionQueueProvider;
 import org.apache.sling.distribution.queue.DistributionQueueType;
+import org.apache.sling.distribution.queue.impl.DistributionQueueProcessingStats;
+import org.apache.sling.distribution.queue.impl.simple.SimpleDistributionQueueProvider;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
 
@@ -87,7 +89,11 @@ public class MonitoringDistributionQueueProvider implements DistributionQueuePro
 
     private void monitorQueue(DistributionQueue distributionQueue) {
         if (monitoredQueues.add(distributionQueue.getName())) {
-            DistributionQueueMBean mBean = new DistributionQueueMBeanImpl(distributionQueue);
+            DistributionQueueProcessingStats processingStats = null;
+            if (wrapped instanceof SimpleDistributionQueueProvider) {
+                processingStats = ((SimpleDistributionQueueProvider) wrapped).getProcessingStats(distributionQueue.getName());
+            }
+            DistributionQueueMBean mBean = new DistributionQueueMBeanImpl(distributionQueue, processingStats);
 
             Dictionary<String, String> mBeanProps = new Hashtable<String, String>();
             mBeanProps.put("jmx.objectname", "org.apache.sling.distribution:type=queue,id="
@@ -55,6 +55,14 @@ public class RemoteDistributionPackageExporter implements DistributionPackageExp
                                              DistributionTransportSecretProvider secretProvider,
                                              String[] endpoints,
                                              int maxPullItems) {
+        this(log, packageBuilder, secretProvider, endpoints, maxPullItems, false);
+    }
+
+    public RemoteDistributionPackageExporter(DefaultDistributionLog log, DistributionPackageBuilder packageBuilder,
+                                             DistributionTransportSecretProvider secretProvider,
+                                             String[] endpoints,
+                                             int maxPullItems,
+                                             boolean compress) {
         this.maxPullItems = maxPullItems;
         if (packageBuilder == null) {
             throw new IllegalArgumentException("packageBuilder is required");
@@ -68,7 +76,8 @@ public class RemoteDistributionPackageExporter implements DistributionPackageExp
 
         for (String endpoint : endpoints) {
             if (endpoint != null && endpoint.length() > 0) {
-                transportHandlers.add(new SimpleHttpDistributionTransport(log, new DistributionEndpoint(endpoint), packageBuilder, secretProvider));
+                transportHandlers.add(new SimpleHttpDistributionTransport(log, new DistributionEndpoint(endpoint), packageBuilder,
+                        secretProvider, compress));
             }
         }
     }
@@ -78,6 +78,12 @@ public class RemoteDistributionPackageExporterFactory implements DistributionPac
     @Property(label = "Pull Items", description = "number of subsequent pull requests to make", intValue = 1)
     private static final String PULL_ITEMS = "pull.items";
 
+    /**
+     * compression property
+     */
+    @Property(boolValue = false, label = "Compress", description = "Whether or not packages should be requested gzip compressed from the endpoints.")
+    private static final String COMPRESS = "compress";
+
     @Property(name = "packageBuilder.target", label = "Package Builder", description = "The target reference for the DistributionPackageBuilder used to create distribution packages, " +
             "e.g. use target=(name=...) to bind to services by name.", value = SettingsUtils.COMPONENT_NAME_DEFAULT)
     @Reference(name = "packageBuilder")
@@ -101,6 +107,8 @@ public class RemoteDistributionPackageExporterFactory implements DistributionPac
 
         int pollItems = PropertiesUtil.toInteger(config.get(PULL_ITEMS), Integer.MAX_VALUE);
 
+        boolean compress = PropertiesUtil.toBoolean(config.get(COMPRESS), false);
+
 
 
         String exporterName = PropertiesUtil.toString(config.get(NAME), null);
@@ -108,7 +116,7 @@ public class RemoteDistributionPackageExporterFactory implements DistributionPac
         DefaultDistributionLog distributionLog = new DefaultDistributionLog(DistributionComponentKind.EXPORTER, exporterName, RemoteDistributionPackageExporter.class, DefaultDistributionLog.LogLevel.ERROR);
 
 
-        exporter = new RemoteDistributionPackageExporter(distributionLog, packageBuilder, transportSecretProvider, endpoints, pollItems);
+        exporter = new RemoteDistributionPackageExporter(distributionLog, packageBuilder, transportSecretProvider, endpoints, pollItems, compress);
     }
 
 
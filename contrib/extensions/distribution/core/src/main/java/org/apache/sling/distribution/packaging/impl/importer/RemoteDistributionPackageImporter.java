@@ -46,6 +46,11 @@ public class RemoteDistributionPackageImporter implements DistributionPackageImp
 
     public RemoteDistributionPackageImporter(DefaultDistributionLog log, DistributionTransportSecretProvider distributionTransportSecretProvider,
                                              Map<String, String> endpointsMap) {
+        this(log, distributionTransportSecretProvider, endpointsMap, false);
+    }
+
+    public RemoteDistributionPackageImporter(DefaultDistributionLog log, DistributionTransportSecretProvider distributionTransportSecretProvider,
+                                             Map<String, String> endpointsMap, boolean compress) {
         if (distributionTransportSecretProvider == null) {
             throw new IllegalArgumentException("distributionTransportSecretProvider is required");
         }
@@ -54,7 +59,8 @@ public class RemoteDistributionPackageImporter implements DistributionPackageImp
             String endpointKey = entry.getKey();
             String endpoint = entry.getValue();
             if (endpoint != null && endpoint.length() > 0) {
-                transportHandlers.put(endpointKey, new SimpleHttpDistributionTransport(log, new DistributionEndpoint(endpoint), null, distributionTransportSecretProvider));
+                transportHandlers.put(endpointKey, new SimpleHttpDistributionTransport(log, new DistributionEndpoint(endpoint), null,
+                        distributionTransportSecretProvider, compress));
             }
         }
     }
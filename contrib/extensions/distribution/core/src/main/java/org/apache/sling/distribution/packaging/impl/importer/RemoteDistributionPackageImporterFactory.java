@@ -66,6 +66,12 @@ public class RemoteDistributionPackageImporterFactory implements DistributionPac
     @Property(cardinality = 100, label = "Endpoints", description = "The list of endpoints to which the packages will be imported.")
     private static final String ENDPOINTS = "endpoints";
 
+    /**
+     * compression property
+     */
+    @Property(boolValue = false, label = "Compress", description = "Whether or not packages should be gzip compressed while being streamed to the endpoints.")
+    private static final String COMPRESS = "compress";
+
     @Property(name = "transportSecretProvider.target", label = "Transport Secret Provider", description = "The target reference for the DistributionTransportSecretProvider used to obtain the credentials used for accessing the remote endpoints, " +
             "e.g. use target=(name=...) to bind to services by name.")
     @Reference(name = "transportSecretProvider")
@@ -83,7 +89,9 @@ public class RemoteDistributionPackageImporterFactory implements DistributionPac
 
         DefaultDistributionLog distributionLog = new DefaultDistributionLog(DistributionComponentKind.IMPORTER, importerName, RemoteDistributionPackageImporter.class, DefaultDistributionLog.LogLevel.ERROR);
 
-        importer = new RemoteDistributionPackageImporter(distributionLog, transportSecretProvider, endpoints);
+        boolean compress = PropertiesUtil.toBoolean(config.get(COMPRESS), false);
+
+        importer = new RemoteDistributionPackageImporter(distributionLog, transportSecretProvider, endpoints, compress);
 
     }
 
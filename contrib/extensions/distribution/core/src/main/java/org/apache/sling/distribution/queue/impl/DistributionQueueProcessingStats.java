@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.distribution.queue.impl;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Processing statistics of a single {@link org.apache.sling.distribution.queue.DistributionQueue}.
+ */
+public class DistributionQueueProcessingStats {
+
+    private final long startTime = System.currentTimeMillis();
+
+    private final AtomicLong appliedPackages = new AtomicLong();
+
+    private final AtomicLong failedPackages = new AtomicLong();
+
+    private final AtomicLong conflictStalls = new AtomicLong();
+
+    public void packageApplied() {
+        appliedPackages.incrementAndGet();
+    }
+
+    public void packageFailed() {
+        failedPackages.incrementAndGet();
+    }
+
+    /**
+     * record that a package could not be processed concurrently because its paths overlap with the ones of
+     * a preceding package in the queue
+     */
+    public void conflictStall() {
+        conflictStalls.incrementAndGet();
+    }
+
+    public long getAppliedPackages() {
+        return appliedPackages.get();
+    }
+
+    public long getFailedPackages() {
+        return failedPackages.get();
+    }
+
+    public long getConflictStalls() {
+        return conflictStalls.get();
+    }
+
+    /**
+     * @return the average number of packages applied per second since the processing started
+     */
+    public double getAppliedPackagesPerSecond() {
+        long elapsed = Math.max(1, System.currentTimeMillis() - startTime);
+        return appliedPackages.get() * 1000d / elapsed;
+    }
+
+}
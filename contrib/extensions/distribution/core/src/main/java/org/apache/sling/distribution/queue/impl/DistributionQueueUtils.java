@@ -19,6 +19,7 @@
 
 package org.apache.sling.distribution.queue.impl;
 
+import org.apache.sling.distribution.packaging.DistributionPackageInfo;
 import org.apache.sling.distribution.queue.DistributionQueueItem;
 import org.apache.sling.distribution.queue.DistributionQueueItemStatus;
 import org.apache.sling.distribution.queue.DistributionQueueState;
@@ -48,4 +49,43 @@ public class DistributionQueueUtils {
             return DistributionQueueState.IDLE;
         }
     }
+
+    /**
+     * Get the paths affected by the package of a queue item.
+     * @param item a queue item
+     * @return the paths of the package, or {@code null} if they are not known
+     */
+    public static String[] getPaths(DistributionQueueItem item) {
+        return item.get(DistributionPackageInfo.PROPERTY_REQUEST_PATHS, String[].class);
+    }
+
+    /**
+     * Check whether two sets of paths touch overlapping subtrees, that is whether any path in one set is equal to,
+     * an ancestor or a descendant of any path in the other set.
+     * Unknown (null) paths are considered to overlap with everything.
+     * @param paths a set of paths
+     * @param otherPaths another set of paths
+     * @return {@code true} if the two sets of paths overlap
+     */
+    public static boolean overlaps(String[] paths, String[] otherPaths) {
+        if (paths == null || otherPaths == null) {
+            return true;
+        }
+        for (String path : paths) {
+            for (String otherPath : otherPaths) {
+                if (isAncestorOrSelf(path, otherPath) || isAncestorOrSelf(otherPath, path)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAncestorOrSelf(String ancestor, String path) {
+        if (ancestor.equals(path) || "/".equals(ancestor)) {
+            return true;
+        }
+        String prefix = ancestor.endsWith("/") ? ancestor : ancestor + "/";
+        return path.startsWith(prefix);
+    }
 }
@@ -18,42 +18,190 @@
  */
 package org.apache.sling.distribution.queue.impl.simple;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.apache.sling.distribution.queue.DistributionQueue;
 import org.apache.sling.distribution.queue.DistributionQueueEntry;
 import org.apache.sling.distribution.queue.DistributionQueueProcessor;
+import org.apache.sling.distribution.queue.impl.DistributionQueueProcessingStats;
+import org.apache.sling.distribution.queue.impl.DistributionQueueUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * a simple scheduled {@link SimpleDistributionQueue}s processor
+ * a simple scheduled {@link SimpleDistributionQueue}s processor.
+ * <p/>
+ * When configured with a parallelism greater than one, the entries at the head of the queue whose paths do not overlap
+ * are processed concurrently, while entries touching overlapping subtrees are still processed in queue order.
  */
 class SimpleDistributionQueueProcessor implements Runnable {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
     private final DistributionQueue queue;
     private final DistributionQueueProcessor queueProcessor;
+    private final DistributionQueueProcessingStats stats;
+    private final int parallelism;
+    private final ExecutorService executorService;
 
     public SimpleDistributionQueueProcessor(DistributionQueue queue,
                                             DistributionQueueProcessor queueProcessor) {
+        this(queue, queueProcessor, new DistributionQueueProcessingStats(), 1);
+    }
+
+    public SimpleDistributionQueueProcessor(DistributionQueue queue,
+                                            DistributionQueueProcessor queueProcessor,
+                                            DistributionQueueProcessingStats stats,
+                                            int parallelism) {
         this.queue = queue;
         this.queueProcessor = queueProcessor;
+        this.stats = stats;
+        this.parallelism = Math.max(1, parallelism);
+        this.executorService = this.parallelism > 1 ? Executors.newFixedThreadPool(this.parallelism) : null;
     }
 
     public void run() {
         try {
-            DistributionQueueEntry entry;
-            while ((entry = queue.getHead()) != null) {
-                if (queueProcessor.process(queue.getName(), entry)) {
+            if (executorService != null) {
+                processConcurrently();
+            } else {
+                processSequentially();
+            }
+        } catch (InterruptedException e) {
+            log.debug("processing of queue {} interrupted", queue.getName());
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("error while processing queue {}", e);
+        }
+
+    }
+
+    /**
+     * stop the threads used for concurrent processing, if any
+     */
+    void close() {
+        if (executorService != null) {
+            // items not started yet are cancelled, so that the thread waiting for them stops
+            for (Runnable pending : executorService.shutdownNow()) {
+                if (pending instanceof Future) {
+                    ((Future<?>) pending).cancel(false);
+                }
+            }
+        }
+    }
+
+    private void processSequentially() {
+        DistributionQueueEntry entry;
+        while ((entry = queue.getHead()) != null) {
+            if (queueProcessor.process(queue.getName(), entry)) {
+                stats.packageApplied();
+                if (queue.remove(entry.getId()) != null) {
+                    log.debug("item {} processed and removed from the queue", entry.getItem());
+                }
+            } else {
+                stats.packageFailed();
+                log.warn("processing of item {} failed", entry.getId());
+            }
+        }
+    }
+
+    private void processConcurrently() throws InterruptedException {
+        List<DistributionQueueEntry> batch;
+        while (!(batch = nextBatch()).isEmpty()) {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>(batch.size());
+            for (final DistributionQueueEntry entry : batch) {
+                results.add(executorService.submit(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        return queueProcessor.process(queue.getName(), entry);
+                    }
+                }));
+            }
+
+            int processed = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                DistributionQueueEntry entry = batch.get(i);
+                boolean success;
+                try {
+                    success = results.get(i).get();
+                } catch (ExecutionException e) {
+                    log.error("error while processing item {}", entry.getId(), e.getCause());
+                    success = false;
+                } catch (CancellationException e) {
+                    log.debug("processing of queue {} stopped", queue.getName());
+                    return;
+                }
+
+                if (success) {
+                    processed++;
+                    stats.packageApplied();
                     if (queue.remove(entry.getId()) != null) {
                         log.debug("item {} processed and removed from the queue", entry.getItem());
                     }
                 } else {
+                    stats.packageFailed();
                     log.warn("processing of item {} failed", entry.getId());
                 }
             }
-        } catch (Exception e) {
-            log.error("error while processing queue {}", e);
+
+            if (processed == 0) {
+                // nothing could be processed, give up until the next scheduled run
+                break;
+            }
+        }
+    }
+
+    /**
+     * collect, in queue order, up to {@code parallelism} entries whose paths do not overlap with the ones of any
+     * preceding entry; the head of the queue is always part of a non empty batch.
+     */
+    private List<DistributionQueueEntry> nextBatch() {
+        List<DistributionQueueEntry> batch = new ArrayList<DistributionQueueEntry>(parallelism);
+
+        DistributionQueueEntry head = queue.getHead();
+        if (head == null) {
+            return batch;
+        }
+        batch.add(head);
+
+        List<String[]> precedingPaths = new ArrayList<String[]>();
+        precedingPaths.add(DistributionQueueUtils.getPaths(head.getItem()));
+
+        int window = parallelism * 4;
+        int inspected = 1;
+        for (DistributionQueueEntry entry : queue.getItems(1, window)) {
+            if (batch.size() >= parallelism || inspected >= window) {
+                break;
+            }
+            if (entry.getId() == null || entry.getId().equals(head.getId())) {
+                continue;
+            }
+            inspected++;
+
+            String[] paths = DistributionQueueUtils.getPaths(entry.getItem());
+            boolean conflicting = false;
+            for (String[] preceding : precedingPaths) {
+                if (DistributionQueueUtils.overlaps(paths, preceding)) {
+                    conflicting = true;
+                    break;
+                }
+            }
+
+            if (conflicting) {
+                stats.conflictStall();
+                log.debug("item {} overlaps with a preceding item, deferring it", entry.getId());
+            } else {
+                batch.add(entry);
+            }
+            // deferred entries still block the following overlapping ones, in order to preserve ordering
+            precedingPaths.add(paths);
         }
 
+        return batch;
     }
 }
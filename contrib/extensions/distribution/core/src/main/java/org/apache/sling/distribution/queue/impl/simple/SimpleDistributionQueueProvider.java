@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.LineIterator;
@@ -42,6 +43,7 @@ import org.apache.sling.distribution.queue.DistributionQueueItem;
 import org.apache.sling.distribution.queue.DistributionQueueProcessor;
 import org.apache.sling.distribution.queue.DistributionQueueProvider;
 import org.apache.sling.distribution.queue.DistributionQueueType;
+import org.apache.sling.distribution.queue.impl.DistributionQueueProcessingStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -60,11 +62,22 @@ public class SimpleDistributionQueueProvider implements DistributionQueueProvide
     private final Scheduler scheduler;
 
     private final Map<String, SimpleDistributionQueue> queueMap = new ConcurrentHashMap<String, SimpleDistributionQueue>();
+    private final ConcurrentMap<String, DistributionQueueProcessingStats> statsMap = new ConcurrentHashMap<String, DistributionQueueProcessingStats>();
+    private final Map<String, SimpleDistributionQueueProcessor> processorMap = new ConcurrentHashMap<String, SimpleDistributionQueueProcessor>();
     private final boolean checkpoint;
+    private final int parallelism;
     private File checkpointDirectory;
 
     public SimpleDistributionQueueProvider(Scheduler scheduler, String name, boolean checkpoint) {
+        this(scheduler, name, checkpoint, 1);
+    }
+
+    /**
+     * @param parallelism the maximum number of non overlapping queue items to be processed concurrently
+     */
+    public SimpleDistributionQueueProvider(Scheduler scheduler, String name, boolean checkpoint, int parallelism) {
         this.checkpoint = checkpoint;
+        this.parallelism = parallelism;
         if (name == null || scheduler == null) {
             throw new IllegalArgumentException("all arguments are required");
         }
@@ -109,6 +122,26 @@ public class SimpleDistributionQueueProvider implements DistributionQueueProvide
         return queueMap.values();
     }
 
+    /**
+     * get the processing statistics of a queue
+     * @param queueName the name of the queue
+     * @return the processing statistics of the queue
+     */
+    @Nonnull
+    public DistributionQueueProcessingStats getProcessingStats(@Nonnull String queueName) {
+        String key = name + queueName;
+
+        DistributionQueueProcessingStats stats = statsMap.get(key);
+        if (stats == null) {
+            DistributionQueueProcessingStats newStats = new DistributionQueueProcessingStats();
+            stats = statsMap.putIfAbsent(key, newStats);
+            if (stats == null) {
+                stats = newStats;
+            }
+        }
+        return stats;
+    }
+
     public void enableQueueProcessing(@Nonnull DistributionQueueProcessor queueProcessor, String... queueNames) {
 
         if (checkpoint) {
@@ -174,7 +207,14 @@ public class SimpleDistributionQueueProvider implements DistributionQueueProvide
             ScheduleOptions options = scheduler.NOW(-1, 1)
                     .canRunConcurrently(false)
                     .name(getJobName(queueName));
-            scheduler.schedule(new SimpleDistributionQueueProcessor(getQueue(queueName), queueProcessor), options);
+            SimpleDistributionQueueProcessor processor = new SimpleDistributionQueueProcessor(getQueue(queueName), queueProcessor,
+                    getProcessingStats(queueName), parallelism);
+            SimpleDistributionQueueProcessor previous = processorMap.put(queueName, processor);
+            scheduler.schedule(processor, options);
+            if (previous != null) {
+                // processing enabled again, the new job replaces the previous one
+                previous.close();
+            }
         }
 
     }
@@ -188,6 +228,10 @@ public class SimpleDistributionQueueProvider implements DistributionQueueProvide
             } else {
                 log.warn("could not disable queue processing on {}", queue);
             }
+            SimpleDistributionQueueProcessor processor = processorMap.remove(queueName);
+            if (processor != null) {
+                processor.close();
+            }
             if (checkpoint) {
                 // disable checkpointing
                 if (scheduler.unschedule(getJobName(queueName) + "-checkpoint")) {
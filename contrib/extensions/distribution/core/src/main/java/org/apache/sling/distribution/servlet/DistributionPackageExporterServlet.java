@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.felix.scr.annotations.sling.SlingServlet;
@@ -52,6 +53,10 @@ public class DistributionPackageExporterServlet extends SlingAllMethodsServlet {
 
     private final Logger log = LoggerFactory.getLogger(getClass());
 
+    private static final String GZIP_ENCODING = "gzip";
+
+    private static final int BUFFER_SIZE = 8192;
+
     @Override
     protected void doPost(SlingHttpServletRequest request, SlingHttpServletResponse response)
             throws ServletException, IOException {
@@ -89,6 +94,11 @@ public class DistributionPackageExporterServlet extends SlingAllMethodsServlet {
 
         response.setContentType(ContentType.APPLICATION_OCTET_STREAM.toString());
 
+        final boolean compress = acceptsGzip(request);
+        if (compress) {
+            response.setHeader("Content-Encoding", GZIP_ENCODING);
+        }
+
         DistributionRequest distributionRequest = RequestUtils.fromServletRequest(request);
         ResourceResolver resourceResolver = request.getResourceResolver();
 
@@ -101,11 +111,18 @@ public class DistributionPackageExporterServlet extends SlingAllMethodsServlet {
                     fetched.incrementAndGet();
 
                     InputStream inputStream = null;
-                    int bytesCopied = -1;
+                    long bytesCopied = -1;
                     try {
                         inputStream = DistributionPackageUtils.createStreamWithHeader(distributionPackage);
 
-                        bytesCopied = IOUtils.copy(inputStream, response.getOutputStream());
+                        // stream the package through a fixed size buffer, eventually compressing it on the fly
+                        if (compress) {
+                            GZIPOutputStream outputStream = new GZIPOutputStream(response.getOutputStream(), BUFFER_SIZE);
+                            bytesCopied = IOUtils.copyLarge(inputStream, outputStream, new byte[BUFFER_SIZE]);
+                            outputStream.finish();
+                        } else {
+                            bytesCopied = IOUtils.copyLarge(inputStream, response.getOutputStream(), new byte[BUFFER_SIZE]);
+                        }
                     } catch (IOException e) {
                         log.error("cannot process package", e);
                     } finally {
@@ -154,6 +171,11 @@ public class DistributionPackageExporterServlet extends SlingAllMethodsServlet {
         }
     }
 
+    private static boolean acceptsGzip(SlingHttpServletRequest request) {
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.toLowerCase().contains(GZIP_ENCODING);
+    }
+
     private void deletePackage(final SlingHttpServletRequest request, final SlingHttpServletResponse response) throws DistributionException {
         DistributionPackageExporter distributionPackageExporter = request
                 .getResource()
@@ -29,6 +29,7 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 import javax.servlet.ServletException;
 
@@ -58,6 +59,10 @@ public class DistributionPackageImporterServlet extends SlingAllMethodsServlet {
      */
     private static final String DIGEST_HEADER = "Digest";
 
+    private static final String GZIP_ENCODING = "gzip";
+
+    private static final int BUFFER_SIZE = 8192;
+
     private final Pattern digestHeaderRegex = Pattern.compile("(MD[25]|SHA-(?:1|256|384|512))=([a-fA-F0-9]+)");
 
     @Override
@@ -87,11 +92,13 @@ public class DistributionPackageImporterServlet extends SlingAllMethodsServlet {
         final long start = System.currentTimeMillis();
         response.setContentType("application/json");
 
-        InputStream stream;
+        // packages are read straight from the request stream, eventually decompressing them on the fly
+        InputStream stream = request.getInputStream();
+        if (GZIP_ENCODING.equalsIgnoreCase(request.getHeader("Content-Encoding"))) {
+            stream = new GZIPInputStream(stream, BUFFER_SIZE);
+        }
         if (isNotEmpty(digestAlgorithm) && isNotEmpty(digestMessage)) {
-            stream = openDigestInputStream(request.getInputStream(), digestAlgorithm);
-        } else {
-            stream = request.getInputStream();
+            stream = openDigestInputStream(stream, digestAlgorithm);
         }
 
         ResourceResolver resourceResolver = request.getResourceResolver();
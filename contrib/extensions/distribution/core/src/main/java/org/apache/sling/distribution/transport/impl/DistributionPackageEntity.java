@@ -0,0 +1,100 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.distribution.transport.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.sling.distribution.packaging.DistributionPackage;
+import org.apache.sling.distribution.packaging.impl.DistributionPackageUtils;
+
+/**
+ * A non repeatable, chunked {@link org.apache.http.HttpEntity} which streams a {@link DistributionPackage}
+ * (header included) directly to the connection output stream, optionally gzip compressing it on the fly.
+ * <p/>
+ * The package is never buffered as a whole, the heap used while sending is bounded by {@link #BUFFER_SIZE}.
+ */
+class DistributionPackageEntity extends AbstractHttpEntity {
+
+    static final String GZIP_ENCODING = "gzip";
+
+    static final int BUFFER_SIZE = 8192;
+
+    private final DistributionPackage distributionPackage;
+
+    private final boolean compress;
+
+    private volatile boolean consumed;
+
+    DistributionPackageEntity(DistributionPackage distributionPackage, boolean compress) {
+        this.distributionPackage = distributionPackage;
+        this.compress = compress;
+        setChunked(true);
+        setContentType(ContentType.APPLICATION_OCTET_STREAM.toString());
+        if (compress) {
+            setContentEncoding(GZIP_ENCODING);
+        }
+    }
+
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    public long getContentLength() {
+        return -1;
+    }
+
+    public InputStream getContent() throws IOException {
+        return DistributionPackageUtils.createStreamWithHeader(distributionPackage);
+    }
+
+    public void writeTo(OutputStream outputStream) throws IOException {
+        if (outputStream == null) {
+            throw new IllegalArgumentException("output stream cannot be null");
+        }
+
+        InputStream inputStream = null;
+        try {
+            inputStream = getContent();
+
+            if (compress) {
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+                IOUtils.copyLarge(inputStream, gzipOutputStream, new byte[BUFFER_SIZE]);
+                // finish the deflater without closing the connection stream
+                gzipOutputStream.finish();
+            } else {
+                IOUtils.copyLarge(inputStream, outputStream, new byte[BUFFER_SIZE]);
+            }
+            outputStream.flush();
+        } finally {
+            consumed = true;
+            IOUtils.closeQuietly(inputStream);
+        }
+    }
+
+    public boolean isStreaming() {
+        return !consumed;
+    }
+
+}
@@ -23,27 +23,69 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.zip.GZIPInputStream;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.fluent.Executor;
 import org.apache.http.client.fluent.Request;
 import org.apache.http.client.utils.URIBuilder;
+import org.apache.sling.distribution.common.DistributionException;
 
 class HttpTransportUtils {
 
-    public static InputStream fetchNextPackage(Executor executor, URI distributionURI) throws URISyntaxException, IOException {
+    /**
+     * Reads a package straight from the stream of a fetch response.
+     */
+    interface PackageReader<T> {
+
+        T read(InputStream inputStream) throws DistributionException;
+
+    }
+
+    /**
+     * Fetches the next package from the given URI and hands the response stream to the given reader while the
+     * connection is still open, so that the package is never buffered in memory as a whole.
+     *
+     * @return the object created by the reader or {@code null} if no package was available
+     */
+    public static <T> T fetchNextPackage(Executor executor, URI distributionURI, boolean compress,
+                                         final PackageReader<T> packageReader) throws URISyntaxException, IOException {
         URI fetchUri = getFetchUri(distributionURI);
         Request fetchReq = Request.Post(fetchUri).useExpectContinue();
-        HttpResponse httpResponse = executor.execute(fetchReq).returnResponse();
-
-        if (httpResponse.getStatusLine().getStatusCode() != 200) {
-            return null;
+        if (compress) {
+            fetchReq.addHeader(HttpHeaders.ACCEPT_ENCODING, DistributionPackageEntity.GZIP_ENCODING);
         }
 
-        HttpEntity entity = httpResponse.getEntity();
-
-        return entity.getContent();
+        return executor.execute(fetchReq).handleResponse(new ResponseHandler<T>() {
+            public T handleResponse(HttpResponse httpResponse) throws IOException {
+                if (httpResponse.getStatusLine().getStatusCode() != 200) {
+                    return null;
+                }
+
+                HttpEntity entity = httpResponse.getEntity();
+                if (entity == null) {
+                    return null;
+                }
+
+                InputStream inputStream = entity.getContent();
+                try {
+                    Header contentEncoding = entity.getContentEncoding();
+                    if (contentEncoding != null && DistributionPackageEntity.GZIP_ENCODING.equalsIgnoreCase(contentEncoding.getValue())) {
+                        inputStream = new GZIPInputStream(inputStream, DistributionPackageEntity.BUFFER_SIZE);
+                    }
+                    return packageReader.read(inputStream);
+                } catch (DistributionException e) {
+                    throw new IOException(e);
+                } finally {
+                    IOUtils.closeQuietly(inputStream);
+                }
+            }
+        });
     }
 
     public static boolean deletePackage(Executor executor, URI distributionURI, String remotePackageId) throws URISyntaxException, IOException {
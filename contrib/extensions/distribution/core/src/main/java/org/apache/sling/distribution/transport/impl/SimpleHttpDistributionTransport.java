@@ -25,14 +25,12 @@ import java.net.URI;
 import java.util.Map;
 import java.util.UUID;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpHost;
 import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.fluent.Executor;
 import org.apache.http.client.fluent.Request;
 import org.apache.http.client.fluent.Response;
 import org.apache.http.conn.HttpHostConnectException;
-import org.apache.http.entity.ContentType;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.distribution.DistributionRequest;
 import org.apache.sling.distribution.common.DistributionException;
@@ -42,7 +40,6 @@ import org.apache.sling.distribution.packaging.DistributionPackage;
 import org.apache.sling.distribution.packaging.DistributionPackageBuilder;
 import org.apache.sling.distribution.packaging.DistributionPackageInfo;
 import org.apache.sling.distribution.packaging.impl.AbstractDistributionPackage;
-import org.apache.sling.distribution.packaging.impl.DistributionPackageUtils;
 import org.apache.sling.distribution.transport.DistributionTransportSecret;
 import org.apache.sling.distribution.transport.DistributionTransportSecretProvider;
 import org.apache.sling.distribution.util.RequestUtils;
@@ -72,11 +69,23 @@ public class SimpleHttpDistributionTransport implements DistributionTransport {
     private final DistributionPackageBuilder packageBuilder;
     private final DistributionTransportSecretProvider secretProvider;
     private final String contextKeyExecutor;
+    private final boolean compress;
 
     public SimpleHttpDistributionTransport(DefaultDistributionLog log, DistributionEndpoint distributionEndpoint,
                                            DistributionPackageBuilder packageBuilder,
                                            DistributionTransportSecretProvider secretProvider) {
+        this(log, distributionEndpoint, packageBuilder, secretProvider, false);
+    }
+
+    /**
+     * @param compress whether delivered packages should be gzip compressed while being streamed to the endpoint
+     */
+    public SimpleHttpDistributionTransport(DefaultDistributionLog log, DistributionEndpoint distributionEndpoint,
+                                           DistributionPackageBuilder packageBuilder,
+                                           DistributionTransportSecretProvider secretProvider,
+                                           boolean compress) {
         this.log = log;
+        this.compress = compress;
 
         this.distributionEndpoint = distributionEndpoint;
         this.packageBuilder = packageBuilder;
@@ -108,20 +117,14 @@ public class SimpleHttpDistributionTransport implements DistributionTransport {
                     }
                 }
 
-                InputStream inputStream = null;
-                try {
-                    inputStream = DistributionPackageUtils.createStreamWithHeader(distributionPackage);
-
-                    req = req.bodyStream(inputStream, ContentType.APPLICATION_OCTET_STREAM);
+                // the package is streamed (chunked) to the endpoint while being read, it is never buffered as a whole
+                req = req.body(new DistributionPackageEntity(distributionPackage, compress));
 
-                    Response response = executor.execute(req);
-                    response.returnContent(); // throws an error if HTTP status is >= 300
+                Response response = executor.execute(req);
+                response.returnContent(); // throws an error if HTTP status is >= 300
 
-                } finally {
-                    IOUtils.closeQuietly(inputStream);
-                }
-
-                log.debug("delivered packageId={}, endpoint={}", distributionPackage.getId(), distributionEndpoint.getUri());
+                log.debug("delivered packageId={}, endpoint={}, compressed={}", new Object[]{distributionPackage.getId(),
+                        distributionEndpoint.getUri(), compress});
             } catch (HttpHostConnectException e) {
                 throw new RecoverableDistributionException("endpoint not available " + distributionEndpoint.getUri(), e);
             } catch (HttpResponseException e) {
@@ -138,7 +141,7 @@ public class SimpleHttpDistributionTransport implements DistributionTransport {
     }
 
     @Nullable
-    public RemoteDistributionPackage retrievePackage(@Nonnull ResourceResolver resourceResolver, @Nonnull DistributionRequest distributionRequest, @Nonnull DistributionTransportContext distributionContext) throws DistributionException {
+    public RemoteDistributionPackage retrievePackage(@Nonnull final ResourceResolver resourceResolver, @Nonnull DistributionRequest distributionRequest, @Nonnull DistributionTransportContext distributionContext) throws DistributionException {
         log.debug("pulling from {}", distributionEndpoint.getUri());
 
         try {
@@ -147,13 +150,18 @@ public class SimpleHttpDistributionTransport implements DistributionTransport {
             Executor executor = getExecutor(distributionContext);
 
             // TODO : add queue parameter
-            InputStream inputStream = HttpTransportUtils.fetchNextPackage(executor, distributionURI);
-
-            if (inputStream == null) {
+            // the package is read straight from the connection stream, without copying the response in memory first
+            final DistributionPackage responsePackage = HttpTransportUtils.fetchNextPackage(executor, distributionURI, compress,
+                    new HttpTransportUtils.PackageReader<DistributionPackage>() {
+                        public DistributionPackage read(InputStream inputStream) throws DistributionException {
+                            return packageBuilder.readPackage(resourceResolver, inputStream);
+                        }
+                    });
+
+            if (responsePackage == null) {
                 return null;
             }
 
-            final DistributionPackage responsePackage = packageBuilder.readPackage(resourceResolver, inputStream);
             responsePackage.getInfo().put(PACKAGE_INFO_PROPERTY_ORIGIN_URI, distributionURI);
             log.debug("pulled package with info {}", responsePackage.getInfo());
 
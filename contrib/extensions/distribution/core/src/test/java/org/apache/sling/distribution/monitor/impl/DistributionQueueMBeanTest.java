@@ -38,6 +38,7 @@ import org.apache.sling.distribution.queue.DistributionQueueEntry;
 import org.apache.sling.distribution.queue.DistributionQueueItem;
 import org.apache.sling.distribution.queue.DistributionQueueItemStatus;
 import org.apache.sling.distribution.queue.DistributionQueueStatus;
+import org.apache.sling.distribution.queue.impl.DistributionQueueProcessingStats;
 import org.junit.Test;
 
 /**
@@ -65,6 +66,23 @@ public class DistributionQueueMBeanTest {
         assertEquals(-1, mBean.getHeadDequeuingAttempts());
         assertNull(mBean.getHeadStatus());
         assertNull(mBean.getHeadEnqueuingDate());
+        assertEquals(-1, mBean.getAppliedPackages());
+        assertEquals(-1, mBean.getConflictStalls());
+    }
+
+    @Test
+    public void verifyMBeanExposedProcessingStats() {
+        DistributionQueue distributionQueue = mock(DistributionQueue.class);
+        DistributionQueueProcessingStats stats = new DistributionQueueProcessingStats();
+        stats.packageApplied();
+        stats.packageApplied();
+        stats.conflictStall();
+
+        DistributionQueueMBean mBean = new DistributionQueueMBeanImpl(distributionQueue, stats);
+
+        assertEquals(2, mBean.getAppliedPackages());
+        assertEquals(1, mBean.getConflictStalls());
+        assertTrue(mBean.getAppliedPackagesPerSecond() > 0);
     }
 
     @Test
@@ -18,15 +18,28 @@
  */
 package org.apache.sling.distribution.queue.impl.simple;
 
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.apache.sling.distribution.packaging.DistributionPackageInfo;
 import org.apache.sling.distribution.queue.DistributionQueue;
 import org.apache.sling.distribution.queue.DistributionQueueEntry;
 import org.apache.sling.distribution.queue.DistributionQueueItem;
 import org.apache.sling.distribution.queue.DistributionQueueProcessor;
+import org.apache.sling.distribution.queue.impl.DistributionQueueProcessingStats;
 import org.junit.Test;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -73,4 +86,82 @@ public class SimpleDistributionQueueProcessorTest {
                 queue, queueProcessor);
         simpleDistributionQueueProcessor.run();
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testConcurrentRunDefersOverlappingItems() throws Exception {
+        SimpleDistributionQueue queue = new SimpleDistributionQueue("agent", "queue");
+        queue.add(newItem("a", "/content/a"));
+        queue.add(newItem("ab", "/content/a/b"));
+        queue.add(newItem("c", "/content/c"));
+
+        final List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+        DistributionQueueProcessor queueProcessor = new DistributionQueueProcessor() {
+            public boolean process(@Nonnull String queueName, @Nonnull DistributionQueueEntry queueEntry) {
+                processed.add(queueEntry.getId());
+                return true;
+            }
+        };
+        DistributionQueueProcessingStats stats = new DistributionQueueProcessingStats();
+        SimpleDistributionQueueProcessor simpleDistributionQueueProcessor = new SimpleDistributionQueueProcessor(
+                queue, queueProcessor, stats, 3);
+        try {
+            simpleDistributionQueueProcessor.run();
+        } finally {
+            simpleDistributionQueueProcessor.close();
+        }
+
+        assertTrue(queue.getStatus().isEmpty());
+        assertEquals(3, processed.size());
+        // the overlapping item is processed after the one it overlaps with
+        assertTrue(processed.indexOf("a") < processed.indexOf("ab"));
+        assertEquals(3, stats.getAppliedPackages());
+        assertEquals(1, stats.getConflictStalls());
+    }
+
+    @Test
+    public void testInterruptedConcurrentRun() throws Exception {
+        SimpleDistributionQueue queue = new SimpleDistributionQueue("agent", "queue");
+        queue.add(newItem("a", "/content/a"));
+
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        DistributionQueueProcessor queueProcessor = new DistributionQueueProcessor() {
+            public boolean process(@Nonnull String queueName, @Nonnull DistributionQueueEntry queueEntry) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return true;
+            }
+        };
+        final SimpleDistributionQueueProcessor simpleDistributionQueueProcessor = new SimpleDistributionQueueProcessor(
+                queue, queueProcessor, new DistributionQueueProcessingStats(), 2);
+        final AtomicBoolean interrupted = new AtomicBoolean();
+        Thread runner = new Thread() {
+            @Override
+            public void run() {
+                simpleDistributionQueueProcessor.run();
+                interrupted.set(Thread.currentThread().isInterrupted());
+            }
+        };
+        try {
+            runner.start();
+            started.await();
+            runner.interrupt();
+            runner.join(10000);
+            assertFalse(runner.isAlive());
+            assertTrue("the interrupt status is restored", interrupted.get());
+        } finally {
+            release.countDown();
+            simpleDistributionQueueProcessor.close();
+        }
+    }
+
+    private static DistributionQueueItem newItem(String id, String... paths) {
+        Map<String, Object> info = new HashMap<String, Object>();
+        info.put(DistributionPackageInfo.PROPERTY_REQUEST_PATHS, paths);
+        return new DistributionQueueItem(id, info);
+    }
+}
@@ -19,6 +19,7 @@
 package org.apache.sling.distribution.queue.impl.simple;
 
 import java.io.File;
+import java.util.HashMap;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.sling.commons.scheduler.ScheduleOptions;
@@ -28,10 +29,14 @@ import org.apache.sling.distribution.queue.DistributionQueueEntry;
 import org.apache.sling.distribution.queue.DistributionQueueItem;
 import org.apache.sling.distribution.queue.DistributionQueueProcessor;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import static org.junit.Assert.*;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.same;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -74,6 +79,33 @@ public class SimpleDistributionQueueProviderTest {
         simpledistributionQueueProvider.enableQueueProcessing(processor);
     }
 
+    @Test
+    public void testEnableQueueProcessingAgain() throws Exception {
+        Scheduler scheduler = mock(Scheduler.class);
+        ScheduleOptions options = mock(ScheduleOptions.class);
+        when(scheduler.NOW(-1, 1)).thenReturn(options);
+        when(options.canRunConcurrently(false)).thenReturn(options);
+        when(options.name(any(String.class))).thenReturn(options);
+        SimpleDistributionQueueProvider simpledistributionQueueProvider = new SimpleDistributionQueueProvider(scheduler,
+                "dummy-agent", false, 2);
+        DistributionQueueProcessor processor = mock(DistributionQueueProcessor.class);
+        when(processor.process(any(String.class), any(DistributionQueueEntry.class))).thenReturn(true);
+        simpledistributionQueueProvider.enableQueueProcessing(processor, "queue");
+        simpledistributionQueueProvider.enableQueueProcessing(processor, "queue");
+
+        ArgumentCaptor<Runnable> jobs = ArgumentCaptor.forClass(Runnable.class);
+        verify(scheduler, times(2)).schedule(jobs.capture(), same(options));
+        DistributionQueue queue = simpledistributionQueueProvider.getQueue("queue");
+        queue.add(new DistributionQueueItem("item", new HashMap<String, Object>()));
+
+        // the threads of the replaced processor are stopped
+        jobs.getAllValues().get(0).run();
+        assertEquals(1, queue.getStatus().getItemsCount());
+        jobs.getAllValues().get(1).run();
+        assertTrue(queue.getStatus().isEmpty());
+        simpledistributionQueueProvider.disableQueueProcessing();
+    }
+
     @Test
     public void testEnableQueueProcessingWithCheckpointRecovery() throws Exception {
         File checkpointDirectory = new File("dummy-agent-simple-queues-checkpoints");
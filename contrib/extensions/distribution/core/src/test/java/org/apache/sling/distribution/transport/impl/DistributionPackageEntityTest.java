@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.distribution.transport.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.sling.distribution.packaging.DistributionPackage;
+import org.apache.sling.distribution.packaging.DistributionPackageInfo;
+import org.junit.Test;
+
+/**
+ * Testcase for {@link DistributionPackageEntity}
+ */
+public class DistributionPackageEntityTest {
+
+    @Test
+    public void testPlainStreaming() throws Exception {
+        byte[] expected = IOUtils.toByteArray(new DistributionPackageEntity(mockPackage(), false).getContent());
+
+        DistributionPackageEntity entity = new DistributionPackageEntity(mockPackage(), false);
+        assertTrue(entity.isChunked());
+        assertFalse(entity.isRepeatable());
+        assertNull(entity.getContentEncoding());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        entity.writeTo(outputStream);
+
+        assertArrayEquals(expected, outputStream.toByteArray());
+        assertFalse(entity.isStreaming());
+    }
+
+    @Test
+    public void testCompressedStreaming() throws Exception {
+        byte[] expected = IOUtils.toByteArray(new DistributionPackageEntity(mockPackage(), false).getContent());
+
+        DistributionPackageEntity entity = new DistributionPackageEntity(mockPackage(), true);
+        assertEquals("gzip", entity.getContentEncoding().getValue());
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        entity.writeTo(outputStream);
+
+        byte[] decompressed = IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(outputStream.toByteArray())));
+        assertArrayEquals(expected, decompressed);
+    }
+
+    private static DistributionPackage mockPackage() throws Exception {
+        DistributionPackage distributionPackage = mock(DistributionPackage.class);
+        when(distributionPackage.getId()).thenReturn("some-package");
+        when(distributionPackage.getInfo()).thenReturn(new DistributionPackageInfo("type"));
+        when(distributionPackage.createInputStream()).thenReturn(new ByteArrayInputStream("package binary stuff".getBytes("UTF-8")));
+        return distributionPackage;
+    }
+}
@@ -34,6 +34,7 @@ import java.util.Map;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.StatusLine;
+import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.fluent.Executor;
 import org.apache.http.client.fluent.Request;
 import org.apache.http.client.fluent.Response;
@@ -48,6 +49,8 @@ import org.apache.sling.distribution.packaging.DistributionPackageInfo;
 import org.apache.sling.distribution.transport.DistributionTransportSecret;
 import org.apache.sling.distribution.transport.DistributionTransportSecretProvider;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 /**
  * Testcase for {@link SimpleHttpDistributionTransport}
@@ -98,7 +101,7 @@ public class SimpleHttpDistributionTransportTest {
         StatusLine statusLine = mock(StatusLine.class);
         when(statusLine.getStatusCode()).thenReturn(404);
         when(httpResponse.getStatusLine()).thenReturn(statusLine);
-        when(response.returnResponse()).thenReturn(httpResponse);
+        handleWith(response, httpResponse);
         when(executor.execute(any(Request.class))).thenReturn(response);
         DistributionEndpoint endpoint = new DistributionEndpoint("http://127.0.0.1:8080/some/resource");
         DistributionPackageBuilder packageBuilder = mock(DistributionPackageBuilder.class);
@@ -130,7 +133,7 @@ public class SimpleHttpDistributionTransportTest {
         InputStream stream = new ByteArrayInputStream("package binary stuff".getBytes("UTF-8"));
         when(entity.getContent()).thenReturn(stream);
         when(httpResponse.getEntity()).thenReturn(entity);
-        when(response.returnResponse()).thenReturn(httpResponse);
+        handleWith(response, httpResponse);
         when(executor.execute(any(Request.class))).thenReturn(response);
         DistributionEndpoint endpoint = new DistributionEndpoint("http://127.0.0.1:8080/some/resource");
         DistributionPackageBuilder packageBuilder = mock(DistributionPackageBuilder.class);
@@ -148,4 +151,14 @@ public class SimpleHttpDistributionTransportTest {
         RemoteDistributionPackage retrievedPackage = simpleHttpDistributionTransport.retrievePackage(resourceResolver, distributionRequest, distributionContext);
         assertNotNull(retrievedPackage);
     }
-}
\ No newline at end of file
+
+    @SuppressWarnings("unchecked")
+    private static void handleWith(Response response, final HttpResponse httpResponse) throws Exception {
+        when(response.handleResponse(any(ResponseHandler.class))).thenAnswer(new Answer<Object>() {
+            public Object answer(InvocationOnMock invocation) throws Throwable {
+                ResponseHandler<?> handler = (ResponseHandler<?>) invocation.getArguments()[0];
+                return handler.handleResponse(httpResponse);
+            }
+        });
+    }
+}
@@ -16,12 +16,20 @@
  */
 package org.apache.sling.rewriter.impl.components;
 
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.felix.scr.annotations.Activate;
 import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Deactivate;
 import org.apache.felix.scr.annotations.Property;
 import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.Service;
@@ -37,47 +45,91 @@ import org.xml.sax.SAXException;
  * On the fly HTML parser which can be used as the
  * starting point for html pipelines.
  *
+ * The output is parsed while it is written, the parser threads
+ * are pooled by this factory. If all of them are busy, the output
+ * is parsed in the request thread once it is completely written.
  */
 @Component
 @Service(value=GeneratorFactory.class)
 @Property(name="pipeline.type",value="html-generator")
 public class HtmlGeneratorFactory implements GeneratorFactory {
 
+    /** Maximum number of parser threads, each of them serves one request at a time. */
+    private static final int MAX_PARSER_THREADS = Math.max(16, 4 * Runtime.getRuntime().availableProcessors());
+
     @Reference
     private HtmlParser htmlParser;
 
+    private volatile ThreadPoolExecutor executor;
+
+    @Activate
+    protected void activate() {
+        final AtomicInteger counter = new AtomicInteger();
+        // no queue: a parser is rejected rather than waiting for a thread
+        this.executor = new ThreadPoolExecutor(0, MAX_PARSER_THREADS, 60, TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(), new ThreadFactory() {
+
+            public Thread newThread(final Runnable r) {
+                final Thread thread = new Thread(r, "Sling Rewriter Html Parser " + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    @Deactivate
+    protected void deactivate() {
+        // generators created later on parse in the request thread
+        this.executor.shutdown();
+    }
+
     /**
      * @see org.apache.sling.rewriter.GeneratorFactory#createGenerator()
      */
     public Generator createGenerator() {
-        return new HtmlGenerator(htmlParser);
+        return new HtmlGenerator(htmlParser, executor);
     }
 
     public static final class HtmlGenerator implements Generator {
 
-        private final StringWriter writer;
-
-        private final HtmlParser htmlParser;
+        private final StreamingHtmlParser parser;
 
-        private ContentHandler contentHandler;
+        private final PrintWriter writer;
 
+        /**
+         * Creates a generator parsing in the writing thread, once the output is complete.
+         */
         public HtmlGenerator(final HtmlParser parser) {
-            this.htmlParser = parser;
-            this.writer = new StringWriter();
+            this(parser, null);
+        }
+
+        /**
+         * Creates a generator parsing in a thread of the given executor, or
+         * in the writing thread if the executor is null or rejects it.
+         */
+        public HtmlGenerator(final HtmlParser parser, final Executor executor) {
+            this.parser = new StreamingHtmlParser(parser, executor);
+            try {
+                this.writer = new PrintWriter(new OutputStreamWriter(this.parser, StreamingHtmlParser.ENCODING));
+            } catch (final UnsupportedEncodingException uee) {
+                // utf-8 is always supported
+                throw new IllegalStateException(uee);
+            }
         }
 
         /**
          * @see org.apache.sling.rewriter.Generator#finished()
          */
         public void finished() throws IOException, SAXException {
-            this.htmlParser.parse(new ByteArrayInputStream(this.writer.toString().getBytes("UTF-8")), "UTF-8", this.contentHandler);
+            this.writer.flush();
+            this.parser.finish();
         }
 
         /**
          * @see org.apache.sling.rewriter.Generator#getWriter()
          */
         public PrintWriter getWriter() {
-            return new PrintWriter(writer);
+            return this.writer;
         }
 
         public void init(ProcessingContext context,
@@ -90,14 +142,14 @@ public class HtmlGeneratorFactory implements GeneratorFactory {
          * @see org.apache.sling.rewriter.Generator#setContentHandler(org.xml.sax.ContentHandler)
          */
         public void setContentHandler(ContentHandler handler) {
-            this.contentHandler = handler;
+            this.parser.setContentHandler(handler);
         }
 
         /**
          * @see org.apache.sling.rewriter.Generator#dispose()
          */
         public void dispose() {
-            // nothing to do
+            this.parser.abort();
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,490 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.rewriter.impl.components;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.apache.sling.commons.html.HtmlParser;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * Incremental html parsing: the bytes written to this stream are handed over chunk by chunk
+ * to the {@link HtmlParser}, which runs in a thread of its own, and the SAX events it generates
+ * out of each chunk are replayed to the content handler in the writing thread.
+ *
+ * The writing thread and the parser thread never run at the same time: the writer waits while
+ * the parser consumes a chunk, the parser waits while the next chunk is written. Buffered input
+ * is hence bounded by {@link #CHUNK_SIZE}, and buffered events by what one chunk generates.
+ *
+ * If no executor is given, or it rejects the parser (e.g. saturated or shut down), the whole
+ * output is buffered instead, and parsed in the writing thread when finishing.
+ */
+class StreamingHtmlParser extends OutputStream {
+
+    static final int CHUNK_SIZE = 8192;
+
+    static final String ENCODING = "UTF-8";
+
+    private final HtmlParser htmlParser;
+
+    private final Executor executor;
+
+    private final EventBuffer events = new EventBuffer();
+
+    private final Object lock = new Object();
+
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+
+    private ContentHandler contentHandler;
+
+    /** bytes written to the current chunk, only accessed by the writing thread */
+    private int chunkLength;
+
+    /** bytes handed over to the parser, guarded by lock */
+    private int inputLength;
+
+    /** position of the parser in the handed over bytes, guarded by lock */
+    private int inputPosition;
+
+    private boolean started;
+
+    private boolean closed;
+
+    private boolean aborted;
+
+    /** true once the parser consumed the current chunk and waits for the next one */
+    private boolean parserWaiting;
+
+    private boolean parserDone;
+
+    private Exception parserException;
+
+    /** first failure of the pipeline, rethrown when finishing */
+    private Exception failure;
+
+    /** whole output, if there is no parser thread */
+    private ByteArrayOutputStream buffer;
+
+    /**
+     * @param executor executor running the parser, or null to parse in the writing thread
+     */
+    StreamingHtmlParser(final HtmlParser htmlParser, final Executor executor) {
+        this.htmlParser = htmlParser;
+        this.executor = executor;
+    }
+
+    void setContentHandler(final ContentHandler contentHandler) {
+        this.contentHandler = contentHandler;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        if ( this.chunkLength == CHUNK_SIZE ) {
+            this.pumpQuietly();
+        }
+        this.chunk[this.chunkLength++] = (byte)b;
+    }
+
+    @Override
+    public void write(final byte[] b, int off, int len) throws IOException {
+        while ( len > 0 ) {
+            if ( this.chunkLength == CHUNK_SIZE ) {
+                this.pumpQuietly();
+            }
+            final int length = Math.min(len, CHUNK_SIZE - this.chunkLength);
+            System.arraycopy(b, off, this.chunk, this.chunkLength, length);
+            this.chunkLength += length;
+            off += length;
+            len -= length;
+        }
+    }
+
+    /**
+     * Parses what has been written so far, and passes the resulting events down the pipeline.
+     */
+    @Override
+    public void flush() throws IOException {
+        if ( this.chunkLength > 0 ) {
+            this.pumpQuietly();
+        }
+    }
+
+    /**
+     * Parses the remaining input, and waits for the end of the document.
+     */
+    void finish() throws IOException, SAXException {
+        if ( this.failure == null ) {
+            this.pump(true);
+        }
+        if ( this.failure instanceof SAXException ) {
+            throw (SAXException)this.failure;
+        } else if ( this.failure instanceof IOException ) {
+            throw (IOException)this.failure;
+        } else if ( this.failure instanceof RuntimeException ) {
+            throw (RuntimeException)this.failure;
+        } else if ( this.failure != null ) {
+            throw new SAXException(this.failure);
+        }
+    }
+
+    /**
+     * Stops the parser thread if it is still waiting for input.
+     */
+    void abort() {
+        synchronized ( this.lock ) {
+            this.aborted = true;
+            this.lock.notifyAll();
+        }
+    }
+
+    private void pumpQuietly() throws IOException {
+        if ( this.failure != null ) {
+            // the pipeline is broken, remaining output is dropped
+            this.chunkLength = 0;
+            throw new IOException("Html parsing failed", this.failure);
+        }
+        try {
+            this.pump(false);
+        } catch (final SAXException se) {
+            if ( se.getCause() instanceof IOException ) {
+                throw (IOException)se.getCause();
+            }
+            throw new IOException("Html parsing failed", se);
+        }
+    }
+
+    /**
+     * Hands the current chunk over to the parser, waits until it is consumed and replays the events.
+     */
+    private void pump(final boolean close) throws IOException, SAXException {
+        if ( !this.started ) {
+            this.start();
+        }
+        if ( this.buffer != null ) {
+            this.buffer.write(this.chunk, 0, this.chunkLength);
+            this.chunkLength = 0;
+            if ( close ) {
+                this.parseBuffer();
+            }
+            return;
+        }
+        synchronized ( this.lock ) {
+            if ( !this.parserDone ) {
+                this.inputPosition = 0;
+                this.inputLength = this.chunkLength;
+                this.closed = close;
+                this.parserWaiting = false;
+                this.lock.notifyAll();
+                while ( !this.parserWaiting && !this.parserDone ) {
+                    try {
+                        this.lock.wait();
+                    } catch (final InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        this.aborted = true;
+                        this.lock.notifyAll();
+                        this.failure = new InterruptedIOException("Interrupted while parsing html");
+                        throw (InterruptedIOException)this.failure;
+                    }
+                }
+            }
+            this.chunkLength = 0;
+            if ( this.parserException != null && this.failure == null ) {
+                this.failure = this.parserException;
+            }
+        }
+        try {
+            this.events.replay(this.contentHandler);
+        } catch (final SAXException se) {
+            this.failure = se;
+            throw se;
+        } catch (final RuntimeException re) {
+            this.failure = re;
+            throw re;
+        }
+        if ( this.failure instanceof SAXException ) {
+            throw (SAXException)this.failure;
+        }
+    }
+
+    /**
+     * Starts the parser thread, or falls back to buffering the output if there is none.
+     */
+    private void start() {
+        this.started = true;
+        if ( this.executor != null ) {
+            try {
+                this.executor.execute(new Runnable() {
+
+                    public void run() {
+                        parse();
+                    }
+                });
+                return;
+            } catch (final RejectedExecutionException ree) {
+                // no parser thread available
+            }
+        }
+        this.buffer = new ByteArrayOutputStream(CHUNK_SIZE);
+    }
+
+    /**
+     * Parses the buffered output in the writing thread.
+     */
+    private void parseBuffer() throws SAXException {
+        final InputStream input = new ByteArrayInputStream(this.buffer.toByteArray());
+        this.buffer.reset();
+        try {
+            this.htmlParser.parse(input, ENCODING, this.contentHandler);
+        } catch (final SAXException se) {
+            this.failure = se;
+            throw se;
+        } catch (final RuntimeException re) {
+            this.failure = re;
+            throw re;
+        }
+    }
+
+    /**
+     * Runs in the parser thread.
+     */
+    private void parse() {
+        Exception exception = null;
+        try {
+            this.htmlParser.parse(new ChunkInputStream(), ENCODING, this.events);
+        } catch (final Exception e) {
+            exception = e;
+        } finally {
+            synchronized ( this.lock ) {
+                if ( !this.aborted ) {
+                    this.parserException = exception;
+                }
+                this.parserDone = true;
+                this.lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Input of the parser, reading the chunks handed over by the writing thread.
+     */
+    private final class ChunkInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            final byte[] b = new byte[1];
+            return this.read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) throws IOException {
+            if ( len == 0 ) {
+                return 0;
+            }
+            synchronized ( lock ) {
+                while ( inputPosition == inputLength && !closed && !aborted ) {
+                    parserWaiting = true;
+                    lock.notifyAll();
+                    try {
+                        lock.wait();
+                    } catch (final InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException();
+                    }
+                }
+                if ( aborted ) {
+                    throw new IOException("Html parsing aborted");
+                }
+                if ( inputPosition == inputLength ) {
+                    return -1;
+                }
+                final int length = Math.min(len, inputLength - inputPosition);
+                System.arraycopy(chunk, inputPosition, b, off, length);
+                inputPosition += length;
+                return length;
+            }
+        }
+
+        /**
+         * Lets the decoder hand the chars of a chunk over to the parser without blocking for more.
+         */
+        @Override
+        public int available() {
+            synchronized ( lock ) {
+                return inputLength - inputPosition;
+            }
+        }
+    }
+
+    /**
+     * Records the SAX events generated by the parser thread, to replay them in the writing thread.
+     */
+    private static final class EventBuffer implements ContentHandler, LexicalHandler {
+
+        private static final int START_DOCUMENT = 0;
+        private static final int END_DOCUMENT = 1;
+        private static final int START_PREFIX_MAPPING = 2;
+        private static final int END_PREFIX_MAPPING = 3;
+        private static final int START_ELEMENT = 4;
+        private static final int END_ELEMENT = 5;
+        private static final int CHARACTERS = 6;
+        private static final int IGNORABLE_WHITESPACE = 7;
+        private static final int PROCESSING_INSTRUCTION = 8;
+        private static final int SKIPPED_ENTITY = 9;
+        private static final int DOCUMENT_LOCATOR = 10;
+        private static final int START_DTD = 11;
+        private static final int END_DTD = 12;
+        private static final int START_ENTITY = 13;
+        private static final int END_ENTITY = 14;
+        private static final int START_CDATA = 15;
+        private static final int END_CDATA = 16;
+        private static final int COMMENT = 17;
+
+        private final List<Object[]> events = new ArrayList<Object[]>();
+
+        private void add(final Object... event) {
+            this.events.add(event);
+        }
+
+        void replay(final ContentHandler handler) throws SAXException {
+            final LexicalHandler lexicalHandler = handler instanceof LexicalHandler ? (LexicalHandler)handler : null;
+            try {
+                for(final Object[] event : this.events) {
+                    switch ( (Integer)event[0] ) {
+                        case START_DOCUMENT : handler.startDocument(); break;
+                        case END_DOCUMENT : handler.endDocument(); break;
+                        case START_PREFIX_MAPPING : handler.startPrefixMapping((String)event[1], (String)event[2]); break;
+                        case END_PREFIX_MAPPING : handler.endPrefixMapping((String)event[1]); break;
+                        case START_ELEMENT : handler.startElement((String)event[1], (String)event[2], (String)event[3], (Attributes)event[4]); break;
+                        case END_ELEMENT : handler.endElement((String)event[1], (String)event[2], (String)event[3]); break;
+                        case CHARACTERS : handler.characters((char[])event[1], 0, ((char[])event[1]).length); break;
+                        case IGNORABLE_WHITESPACE : handler.ignorableWhitespace((char[])event[1], 0, ((char[])event[1]).length); break;
+                        case PROCESSING_INSTRUCTION : handler.processingInstruction((String)event[1], (String)event[2]); break;
+                        case SKIPPED_ENTITY : handler.skippedEntity((String)event[1]); break;
+                        case DOCUMENT_LOCATOR : handler.setDocumentLocator((Locator)event[1]); break;
+                        default :
+                            if ( lexicalHandler != null ) {
+                                switch ( (Integer)event[0] ) {
+                                    case START_DTD : lexicalHandler.startDTD((String)event[1], (String)event[2], (String)event[3]); break;
+                                    case END_DTD : lexicalHandler.endDTD(); break;
+                                    case START_ENTITY : lexicalHandler.startEntity((String)event[1]); break;
+                                    case END_ENTITY : lexicalHandler.endEntity((String)event[1]); break;
+                                    case START_CDATA : lexicalHandler.startCDATA(); break;
+                                    case END_CDATA : lexicalHandler.endCDATA(); break;
+                                    case COMMENT : lexicalHandler.comment((char[])event[1], 0, ((char[])event[1]).length); break;
+                                }
+                            }
+                    }
+                }
+            } finally {
+                this.events.clear();
+            }
+        }
+
+        private static char[] copy(final char[] ch, final int start, final int length) {
+            final char[] copy = new char[length];
+            System.arraycopy(ch, start, copy, 0, length);
+            return copy;
+        }
+
+        public void setDocumentLocator(final Locator locator) {
+            this.add(DOCUMENT_LOCATOR, locator);
+        }
+
+        public void startDocument() {
+            this.add(START_DOCUMENT);
+        }
+
+        public void endDocument() {
+            this.add(END_DOCUMENT);
+        }
+
+        public void startPrefixMapping(final String prefix, final String uri) {
+            this.add(START_PREFIX_MAPPING, prefix, uri);
+        }
+
+        public void endPrefixMapping(final String prefix) {
+            this.add(END_PREFIX_MAPPING, prefix);
+        }
+
+        public void startElement(final String uri, final String localName, final String qName, final Attributes atts) {
+            // the parser may reuse its attributes instance
+            this.add(START_ELEMENT, uri, localName, qName, new AttributesImpl(atts));
+        }
+
+        public void endElement(final String uri, final String localName, final String qName) {
+            this.add(END_ELEMENT, uri, localName, qName);
+        }
+
+        public void characters(final char[] ch, final int start, final int length) {
+            this.add(CHARACTERS, copy(ch, start, length));
+        }
+
+        public void ignorableWhitespace(final char[] ch, final int start, final int length) {
+            this.add(IGNORABLE_WHITESPACE, copy(ch, start, length));
+        }
+
+        public void processingInstruction(final String target, final String data) {
+            this.add(PROCESSING_INSTRUCTION, target, data);
+        }
+
+        public void skippedEntity(final String name) {
+            this.add(SKIPPED_ENTITY, name);
+        }
+
+        public void startDTD(final String name, final String publicId, final String systemId) {
+            this.add(START_DTD, name, publicId, systemId);
+        }
+
+        public void endDTD() {
+            this.add(END_DTD);
+        }
+
+        public void startEntity(final String name) {
+            this.add(START_ENTITY, name);
+        }
+
+        public void endEntity(final String name) {
+            this.add(END_ENTITY, name);
+        }
+
+        public void startCDATA() {
+            this.add(START_CDATA);
+        }
+
+        public void endCDATA() {
+            this.add(END_CDATA);
+        }
+
+        public void comment(final char[] ch, final int start, final int length) {
+            this.add(COMMENT, copy(ch, start, length));
+        }
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements. See the NOTICE file distributed with this
+ * work for additional information regarding copyright ownership. The ASF
+ * licenses this file to You under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.sling.rewriter.impl.components;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sling.commons.html.HtmlParser;
+import org.apache.sling.commons.html.impl.HtmlParserImpl;
+import org.junit.After;
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+public class HtmlGeneratorFactoryTest {
+
+    private final HtmlParser htmlParser = new HtmlParserImpl();
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static String page(final int paragraphs) {
+        final StringBuilder page = new StringBuilder("<html><head><title>test</title></head><body>");
+        for(int i = 0; i < paragraphs; i++) {
+            page.append("<p class=\"c").append(i).append("\">paragraph ").append(i).append(" &amp; éè</p><!-- ").append(i).append(" -->");
+        }
+        return page.append("</body></html>").toString();
+    }
+
+    @Test public void testIncrementalParsing() throws Exception {
+        final Thread writingThread = Thread.currentThread();
+        final RecordingHandler handler = new RecordingHandler() {
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes atts) {
+                assertTrue("events should be received by the writing thread", Thread.currentThread() == writingThread);
+                super.startElement(uri, localName, qName, atts);
+            }
+        };
+        final HtmlGeneratorFactory.HtmlGenerator generator = new HtmlGeneratorFactory.HtmlGenerator(htmlParser, executor);
+        generator.setContentHandler(handler);
+        final PrintWriter writer = generator.getWriter();
+        writer.write(page(2000));
+        assertTrue("page should be parsed while it is written", handler.events.size() > 0);
+        generator.finished();
+        generator.dispose();
+
+        final RecordingHandler expected = new RecordingHandler();
+        htmlParser.parse(new ByteArrayInputStream(page(2000).getBytes("UTF-8")), "UTF-8", expected);
+        assertEquals(expected.events, handler.events);
+    }
+
+    @Test public void testFlush() throws Exception {
+        final RecordingHandler handler = new RecordingHandler();
+        final HtmlGeneratorFactory.HtmlGenerator generator = new HtmlGeneratorFactory.HtmlGenerator(htmlParser, executor);
+        generator.setContentHandler(handler);
+        generator.getWriter().write("<html><body><p>first</p><p>");
+        generator.getWriter().flush();
+        assertTrue("flushed content should be parsed", handler.events.contains("characters:first"));
+        generator.getWriter().write("second</p></body></html>");
+        generator.finished();
+        generator.dispose();
+        assertTrue(handler.events.contains("characters:second"));
+        assertEquals("endDocument", handler.events.get(handler.events.size() - 1));
+    }
+
+    @Test public void testDisposeWithoutFinishing() throws Exception {
+        final HtmlGeneratorFactory.HtmlGenerator generator = new HtmlGeneratorFactory.HtmlGenerator(htmlParser, executor);
+        generator.setContentHandler(new RecordingHandler());
+        generator.getWriter().write("<html><body><p>first</p>");
+        generator.getWriter().flush();
+        generator.dispose();
+        executor.shutdown();
+        assertTrue("parser thread should be stopped", executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test public void testRejectedParser() throws Exception {
+        executor.shutdown();
+        final Thread writingThread = Thread.currentThread();
+        final RecordingHandler handler = new RecordingHandler() {
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes atts) {
+                assertTrue("parser should run in the writing thread", Thread.currentThread() == writingThread);
+                super.startElement(uri, localName, qName, atts);
+            }
+        };
+        final HtmlGeneratorFactory.HtmlGenerator generator = new HtmlGeneratorFactory.HtmlGenerator(htmlParser, executor);
+        generator.setContentHandler(handler);
+        generator.getWriter().write(page(2000));
+        generator.getWriter().flush();
+        assertTrue("page should be parsed once complete", handler.events.isEmpty());
+        generator.finished();
+        generator.dispose();
+
+        final RecordingHandler expected = new RecordingHandler();
+        htmlParser.parse(new ByteArrayInputStream(page(2000).getBytes("UTF-8")), "UTF-8", expected);
+        assertEquals(expected.events, handler.events);
+    }
+
+    private static class RecordingHandler extends DefaultHandler {
+
+        final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes atts) {
+            final StringBuilder event = new StringBuilder("startElement:").append(qName);
+            for(int i = 0; i < atts.getLength(); i++) {
+                event.append(' ').append(atts.getQName(i)).append('=').append(atts.getValue(i));
+            }
+            events.add(event.toString());
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            events.add("endElement:" + qName);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            // the parser is free to split text, merge consecutive characters
+            final String text = new String(ch, start, length);
+            final int last = events.size() - 1;
+            if ( last >= 0 && events.get(last).startsWith("characters:") ) {
+                events.set(last, events.get(last) + text);
+            } else {
+                events.add("characters:" + text);
+            }
+        }
+
+        @Override
+        public void endDocument() {
+            events.add("endDocument");
+        }
+    }
+}
@@ -126,6 +126,11 @@ public class BasePipe implements Pipe {
         return bindings.instantiateExpression(rawPath);
     }
 
+    @Override
+    public Resource getResource() {
+        return resource;
+    }
+
     @Override
     public Resource getConfiguredInput() {
         Resource configuredInput = null;
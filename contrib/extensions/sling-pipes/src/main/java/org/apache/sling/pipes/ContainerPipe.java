@@ -42,6 +42,11 @@ public class ContainerPipe extends BasePipe {
 
     List<Pipe> reversePipeList = new ArrayList<>();
 
+    /**
+     * output of the first pipe the execution resumes from, null to execute from the beginning
+     */
+    String resumePath;
+
     /**
      * Constructor
      * @param plumber plumber
@@ -113,6 +118,51 @@ public class ContainerPipe extends BasePipe {
         return reversePipeList.iterator().next();
     }
 
+    /**
+     * Resumes the execution of the container from a given output of its first pipe: preceding outputs of the first
+     * pipe are skipped, so that following pipes are not executed for them. If the first pipe does not output that
+     * resource, the whole container is executed. This is deterministic only if the first pipe does not modify content,
+     * and outputs the same resources in the same order whatever the changes of the previous execution (e.g. a
+     * traversal or a query ordered by path, but not a query for resources that the container has not written yet).
+     * @param path path of an output of the first pipe, null to execute the container from the beginning
+     */
+    public void resumeFrom(String path) {
+        resumePath = path;
+    }
+
+    /**
+     * Return the output of the first pipe the current output of the container comes from
+     * @return current resource of the first pipe, null if the execution has not started
+     */
+    public Resource getCurrentSource() {
+        return bindings.getExecutedResource(getFirstPipe().getName());
+    }
+
+    /**
+     * Return the output of the first pipe, starting with the resource to resume from if any
+     * @return output of the first pipe
+     */
+    Iterator<Resource> getFirstPipeOutput() {
+        Pipe firstPipe = getFirstPipe();
+        Iterator<Resource> output = firstPipe.getOutput();
+        if (resumePath == null) {
+            return output;
+        }
+        long skipped = 0;
+        while (output.hasNext()) {
+            Resource resource = output.next();
+            if (resource != null && resumePath.equals(resource.getPath())) {
+                log.info("[{}] resuming from {}, {} outputs of {} skipped", new Object[]{getName(), resumePath, skipped,
+                        firstPipe.getName()});
+                return new ResumedIterator(resource, output);
+            }
+            skipped++;
+        }
+        log.info("[{}] {} is not an output of {} anymore, executing from the beginning", new Object[]{getName(), resumePath,
+                firstPipe.getName()});
+        return firstPipe.getOutput();
+    }
+
     /**
      * output resource of the container pipe
      * @return output resource of the last pipe of the container
@@ -152,7 +202,7 @@ public class ContainerPipe extends BasePipe {
             iterators = new HashMap<>();
             Pipe firstPipe = container.getFirstPipe();
             //we initialize the first iterator the only one not to be updated
-            iterators.put(firstPipe, firstPipe.getOutput());
+            iterators.put(firstPipe, container.getFirstPipeOutput());
         }
 
         /**
@@ -223,4 +273,37 @@ public class ContainerPipe extends BasePipe {
         }
     }
 
+    /**
+     * output of the first pipe from the resource the execution resumes from
+     */
+    static class ResumedIterator implements Iterator<Resource> {
+        Resource first;
+
+        Iterator<Resource> remaining;
+
+        ResumedIterator(Resource first, Iterator<Resource> remaining) {
+            this.first = first;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return first != null || remaining.hasNext();
+        }
+
+        @Override
+        public Resource next() {
+            if (first != null) {
+                Resource resource = first;
+                first = null;
+                return resource;
+            }
+            return remaining.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
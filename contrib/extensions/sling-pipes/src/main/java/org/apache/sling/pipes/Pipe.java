@@ -46,6 +46,23 @@ public interface Pipe {
 
     String PN_DISTRIBUTION_AGENT = "distribution.agent";
 
+    /**
+     * number of outputs after which the plumber commits (and distributes) the pending changes,
+     * changes are committed once at the end of the execution if not set
+     */
+    String PN_BATCH_SIZE = "batch.size";
+
+    /**
+     * path of the output of a container's first pipe the last committed output of a batched execution, that has
+     * not completed yet, comes from
+     */
+    String PN_CHECKPOINT_PATH = "checkpoint.path";
+
+    /**
+     * number of outputs committed by a batched execution that has not completed yet
+     */
+    String PN_CHECKPOINT_COUNT = "checkpoint.count";
+
     /**
      * returns true if that pipe will modify content during its execution
      * @return true for write / false for read
@@ -76,6 +93,12 @@ public interface Pipe {
      */
     ContainerPipe getParent();
 
+    /**
+     * Get the resource this pipe is configured with
+     * @return configuration resource of the pipe
+     */
+    Resource getResource();
+
     /**
      * Get the pipe's optional configured resource or null
      * @return input if configured
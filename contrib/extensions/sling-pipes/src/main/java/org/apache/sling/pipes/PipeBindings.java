@@ -24,6 +24,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.Invocable;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
@@ -33,10 +35,15 @@ import javax.script.SimpleScriptContext;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -62,6 +69,41 @@ public class PipeBindings {
 
     private static final Pattern INJECTED_SCRIPT = Pattern.compile("\\$\\{(([^\\{^\\}]*(\\{[0-9,]+\\})?)*)\\}");
 
+    /**
+     * script that is only a reference to a binding, or to one of its (nested) map values, e.g. <code>fruit.color</code>
+     */
+    private static final Pattern PROPERTY_REFERENCE = Pattern.compile("[A-Za-z_$][\\w$]*(\\.[A-Za-z_$][\\w$]*)*");
+
+    /**
+     * bean properties of maps, that the script engine resolves instead of the map values
+     */
+    private static final Set<String> MAP_BEAN_PROPERTIES = new HashSet<>(Arrays.asList("class", "empty"));
+
+    private static final int MAX_CACHED_EXPRESSIONS = 1000;
+
+    /**
+     * parsed expressions, shared by all bindings as they only depend on the expression text
+     */
+    private static final Map<String, Expression> EXPRESSIONS = Collections.synchronizedMap(
+            new LinkedHashMap<String, Expression>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Expression> eldest) {
+                    return size() > MAX_CACHED_EXPRESSIONS;
+                }
+            });
+
+    private static final Object UNRESOLVED = new Object();
+
+    /**
+     * scripts compiled by this instance's engine, a compiled script can't be evaluated by another engine
+     */
+    Map<String, CompiledScript> compiledScripts = new HashMap<>();
+
+    /**
+     * true once an additional script is executed, as it could define globals shadowing the bindings
+     */
+    boolean scripted = false;
+
     /**
      * public constructor, built from pipe's resource
      * @param resource pipe's configuration resource
@@ -116,6 +158,7 @@ public class PipeBindings {
             if (is != null) {
                 try {
                     engine.eval(new InputStreamReader(is), scriptContext);
+                    scripted = true;
                 } catch (Exception e) {
                     log.error("unable to execute {}", path);
                 }
@@ -223,12 +266,68 @@ public class PipeBindings {
      * @throws ScriptException in case the script fails, an exception is thrown (to let call code the opportunity to stop the execution)
      */
     protected Object evaluate(String expr) throws ScriptException {
-        String computed = computeECMA5Expression(expr);
-        if (computed != null){
-            //computed is null in case expr is a simple string
-            return engine.eval(computed, scriptContext);
+        Expression expression = getExpression(expr);
+        if (expression.script == null) {
+            //script is null in case expr is a simple string
+            return expr;
         }
-        return expr;
+        if (expression.properties != null && !scripted) {
+            Object value = resolveProperties(expression.properties);
+            if (value != UNRESOLVED) {
+                return value;
+            }
+        }
+        CompiledScript compiled = compiledScripts.get(expression.script);
+        if (compiled == null) {
+            compiled = ((Compilable)engine).compile(expression.script);
+            compiledScripts.put(expression.script, compiled);
+        }
+        return compiled.eval(scriptContext);
+    }
+
+    /**
+     * @param expr ecma like expression
+     * @return parsed expression, from the shared cache if already parsed
+     */
+    Expression getExpression(String expr) {
+        Expression expression = EXPRESSIONS.get(expr);
+        if (expression == null) {
+            expression = new Expression(computeECMA5Expression(expr));
+            EXPRESSIONS.put(expr, expression);
+        }
+        return expression;
+    }
+
+    /**
+     * resolves a property reference without the script engine
+     * @param properties binding name followed by the keys of its nested maps
+     * @return resolved value, or <code>UNRESOLVED</code> if the script engine is needed to resolve it
+     */
+    private Object resolveProperties(String[] properties) {
+        if (properties.length == 1) {
+            switch (properties[0]) {
+                case "null":
+                    return null;
+                case "true":
+                    return Boolean.TRUE;
+                case "false":
+                    return Boolean.FALSE;
+            }
+        }
+        Bindings bindings = getBindings();
+        if (!bindings.containsKey(properties[0])) {
+            return UNRESOLVED;
+        }
+        Object value = bindings.get(properties[0]);
+        for (int i = 1; i < properties.length; i++) {
+            //script objects are left to the engine
+            if (!(value instanceof Map) || value instanceof Bindings || MAP_BEAN_PROPERTIES.contains(properties[i])
+                    || !((Map)value).containsKey(properties[i])) {
+                return UNRESOLVED;
+            }
+            value = ((Map)value).get(properties[i]);
+        }
+        return value;
     }
 
     /**
@@ -281,6 +380,26 @@ public class PipeBindings {
         return outputResources.get(name);
     }
 
+    /**
+     * expression translated to an ECMA5 script
+     */
+    static final class Expression {
+        /**
+         * ECMA5 script, null if the expression is a simple string
+         */
+        final String script;
+
+        /**
+         * binding name & nested keys if the script is a plain property reference, null otherwise
+         */
+        final String[] properties;
+
+        Expression(String script) {
+            this.script = script;
+            this.properties = script != null && PROPERTY_REFERENCE.matcher(script).matches() ? script.split("\\.") : null;
+        }
+    }
+
     /**
      * interface mapping a javascript date
      */
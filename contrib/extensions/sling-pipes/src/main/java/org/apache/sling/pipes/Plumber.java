@@ -22,6 +22,7 @@ import org.apache.sling.api.resource.ResourceResolver;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 /**
  * Plumber is an osgi service aiming to make pipes available to the sling system, in order to
@@ -30,6 +31,11 @@ public interface Plumber {
 
     String RESOURCE_TYPE = "slingPipes/plumber";
 
+    /**
+     * topic of the jobs executing pipes asynchronously
+     */
+    String JOB_TOPIC = "org/apache/sling/pipes/execution";
+
     /**
      * Instantiate a pipe from the given resource and returns it
      * @param resource configuration resource
@@ -59,6 +65,36 @@ public interface Plumber {
      */
     Set<String> execute(ResourceResolver resolver, Pipe pipe, Map bindings, boolean save) throws Exception;
 
+    /**
+     * Executes a given pipe, handing each output resource over to the given handler rather than collecting them.
+     * If the pipe modifies content and has a {@link Pipe#PN_BATCH_SIZE} configured, changes are committed every
+     * batch, and a checkpoint is then recorded on the pipe configuration that a later execution can resume from.
+     * A resumed container pipe skips the outputs of its first pipe before the checkpoint without executing the
+     * following pipes for them, see {@link ContainerPipe#resumeFrom(String)}.
+     * @param resolver resource resolver with which pipe will be executed
+     * @param pipe pipe to execute
+     * @param bindings bindings to add to the execution of the pipe, can be null
+     * @param save in case that pipe writes anything, wether the plumber should save changes or not
+     * @param resume if true and a checkpoint is left by a previous execution, outputs before the checkpoint are skipped
+     * @param handler called with each output resource, can be null
+     * @throws Exception in case execution fails
+     * @return number of output resources handed over to the handler
+     */
+    long execute(ResourceResolver resolver, Pipe pipe, Map bindings, boolean save, boolean resume, Consumer<Resource> handler) throws Exception;
+
+    /**
+     * Queues the execution of a pipe as a sling job, run with the rights of the given resolver's user,
+     * and saving its changes. The job reports its progress, and resumes from the last checkpoint when retried.
+     * Requires the sling event api to be available.
+     * @param resolver resource resolver of the user requesting the execution
+     * @param path path of a valid pipe configuration
+     * @param bindings bindings to add to the execution of the pipe, can be null
+     * @param resume if true, execution resumes from the checkpoint left by a previous execution
+     * @throws Exception in case the job can't be queued
+     * @return id of the queued job
+     */
+    String executeAsync(ResourceResolver resolver, String path, Map bindings, boolean resume) throws Exception;
+
     /**
      * Persist some pipe changes, and eventually distribute changes
      * @param resolver resolver with which changes will be persisted
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.pipes.internal;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.felix.scr.annotations.Component;
+import org.apache.felix.scr.annotations.Property;
+import org.apache.felix.scr.annotations.Reference;
+import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.commons.json.JSONObject;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.JobManager;
+import org.apache.sling.event.jobs.consumer.JobExecutionContext;
+import org.apache.sling.event.jobs.consumer.JobExecutionResult;
+import org.apache.sling.event.jobs.consumer.JobExecutor;
+import org.apache.sling.pipes.Pipe;
+import org.apache.sling.pipes.Plumber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * queues pipe executions as sling jobs, and executes them with the rights of the requesting user.
+ * This is the only class of the bundle depending on the sling event api, which is optional.
+ */
+@Component
+@Service({PipeJobQueue.class, JobExecutor.class})
+@Property(name = JobExecutor.PROPERTY_TOPICS, value = Plumber.JOB_TOPIC)
+public class PipeJobExecutor implements PipeJobQueue, JobExecutor {
+    private final Logger log = LoggerFactory.getLogger(this.getClass());
+
+    static final String JOB_PATH = "path";
+
+    static final String JOB_BINDINGS = "bindings";
+
+    static final String JOB_USER = "userID";
+
+    static final String JOB_RESUME = "resume";
+
+    /**
+     * number of outputs between two progress reports of pipes committing only once
+     */
+    static final int PROGRESS_INTERVAL = 1000;
+
+    @Reference
+    protected JobManager jobManager;
+
+    @Reference
+    protected Plumber plumber;
+
+    @Reference
+    protected ResourceResolverFactory resolverFactory;
+
+    @Override
+    public String queue(ResourceResolver resolver, String path, Map bindings, boolean resume) throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(JOB_PATH, path);
+        properties.put(JOB_USER, resolver.getUserID());
+        properties.put(JOB_RESUME, resume);
+        if (bindings != null) {
+            properties.put(JOB_BINDINGS, new JSONObject(bindings).toString());
+        }
+        Job job = jobManager.addJob(Plumber.JOB_TOPIC, properties);
+        if (job == null) {
+            throw new Exception("unable to queue the execution of " + path);
+        }
+        log.info("execution of {} queued as job {}", path, job.getId());
+        return job.getId();
+    }
+
+    @Override
+    public JobExecutionResult process(Job job, JobExecutionContext context) {
+        String path = job.getProperty(JOB_PATH, String.class);
+        String userID = job.getProperty(JOB_USER, String.class);
+        Map<String, Object> authInfo = new HashMap<>();
+        if (userID != null) {
+            authInfo.put(ResourceResolverFactory.USER_IMPERSONATION, userID);
+        }
+        ResourceResolver resolver = null;
+        AtomicLong outputs = new AtomicLong();
+        try {
+            resolver = resolverFactory.getServiceResourceResolver(authInfo);
+            Pipe pipe = plumber.getPipe(resolver.getResource(path));
+            if (pipe == null) {
+                return context.result().message("unable to build pipe based on configuration at " + path).cancelled();
+            }
+            String bindings = job.getProperty(JOB_BINDINGS, String.class);
+            if (StringUtils.isNotBlank(bindings)) {
+                JSONObject bindingJSON = new JSONObject(bindings);
+                for (Iterator<String> keys = bindingJSON.keys(); keys.hasNext();){
+                    String key = keys.next();
+                    pipe.getBindings().addBinding(key, bindingJSON.get(key));
+                }
+            }
+            int batchSize = pipe.getResource().adaptTo(ValueMap.class).get(Pipe.PN_BATCH_SIZE, 0);
+            int interval = batchSize > 0 ? batchSize : PROGRESS_INTERVAL;
+            long start = System.currentTimeMillis();
+            // a retried job goes on from where the failed attempt committed its last batch
+            boolean resume = job.getProperty(JOB_RESUME, false) || job.getRetryCount() > 0;
+            long count = plumber.execute(resolver, pipe, null, true, resume, resource -> {
+                // the handler gets the first output of a batch once the previous batch is committed,
+                // which is where the job reports its progress and stops if requested
+                long processed = outputs.getAndIncrement();
+                if (processed > 0 && processed % interval == 0) {
+                    reportProgress(context, processed, start);
+                    if (context.isStopped()) {
+                        throw new StoppedException();
+                    }
+                }
+            });
+            reportProgress(context, count, start);
+            return context.result().message(count + " outputs processed").succeeded();
+        } catch (StoppedException e) {
+            log.info("execution of {} stopped after {} outputs", path, outputs.get() - 1);
+            return context.result().message("stopped after " + (outputs.get() - 1) + " outputs").cancelled();
+        } catch (Exception e) {
+            if (context.isStopped()) {
+                // a stopped job is not retried
+                log.info("execution of {} stopped", path, e);
+                return context.result().message("stopped: " + e.getMessage()).cancelled();
+            }
+            log.error("unable to execute {}", path, e);
+            return context.result().message(e.getMessage()).failed();
+        } finally {
+            if (resolver != null) {
+                resolver.close();
+            }
+        }
+    }
+
+    private void reportProgress(JobExecutionContext context, long count, long start) {
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        context.log("{0} outputs processed in {1}ms ({2} per second)", count, elapsed, count * 1000 / elapsed);
+    }
+
+    /**
+     * thrown by the output handler to interrupt the execution of a stopped job
+     */
+    private static class StoppedException extends RuntimeException {
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.pipes.internal;
+
+import java.util.Map;
+
+import org.apache.sling.api.resource.ResourceResolver;
+
+/**
+ * queues pipe executions as sling jobs, this service is only available if the sling event api is,
+ * its interface doesn't depend on it so that the plumber does not either
+ */
+public interface PipeJobQueue {
+
+    /**
+     * Queues the execution of a pipe
+     * @param resolver resource resolver of the user requesting the execution
+     * @param path path of a valid pipe configuration
+     * @param bindings bindings to add to the execution of the pipe, can be null
+     * @param resume if true, execution resumes from the checkpoint left by a previous execution
+     * @throws Exception in case the job can't be queued
+     * @return id of the queued job
+     */
+    String queue(ResourceResolver resolver, String path, Map bindings, boolean resume) throws Exception;
+}
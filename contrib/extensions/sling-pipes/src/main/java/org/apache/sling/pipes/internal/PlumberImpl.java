@@ -21,6 +21,7 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang.StringUtils;
 import org.apache.felix.scr.annotations.Activate;
@@ -29,9 +30,13 @@ import org.apache.felix.scr.annotations.Reference;
 import org.apache.felix.scr.annotations.ReferenceCardinality;
 import org.apache.felix.scr.annotations.ReferencePolicy;
 import org.apache.felix.scr.annotations.Service;
+import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.api.resource.ModifiableValueMap;
 import org.apache.sling.api.resource.PersistenceException;
 import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
 import org.apache.sling.distribution.DistributionRequest;
 import org.apache.sling.distribution.DistributionRequestType;
 import org.apache.sling.distribution.DistributionResponse;
@@ -50,7 +55,7 @@ import org.slf4j.LoggerFactory;
  * implements plumber interface, and registers default pipes
  */
 @Component
-@Service
+@Service(Plumber.class)
 public class PlumberImpl implements Plumber {
     private final Logger log = LoggerFactory.getLogger(this.getClass());
 
@@ -59,6 +64,12 @@ public class PlumberImpl implements Plumber {
     @Reference(policy= ReferencePolicy.DYNAMIC, cardinality= ReferenceCardinality.OPTIONAL_UNARY)
     protected volatile Distributor distributor = null;
 
+    @Reference(policy= ReferencePolicy.DYNAMIC, cardinality= ReferenceCardinality.OPTIONAL_UNARY)
+    protected volatile PipeJobQueue jobQueue = null;
+
+    @Reference
+    protected ResourceResolverFactory resolverFactory;
+
     @Activate
     public void activate(){
         registry = new HashMap<>();
@@ -106,24 +117,164 @@ public class PlumberImpl implements Plumber {
 
     @Override
     public Set<String> execute(ResourceResolver resolver, Pipe pipe, Map additionalBindings, boolean save) throws Exception {
+        Set<String> set = new HashSet<>();
+        execute(resolver, pipe, additionalBindings, save, false, resource -> set.add(resource.getPath()));
+        return set;
+    }
+
+    /**
+     * Executes a given pipe, committing every {@link Pipe#PN_BATCH_SIZE} outputs if the pipe modifies content.
+     * Only container pipes resume from a checkpoint: the checkpoint is the output of their first pipe the last
+     * committed output comes from, and a resumed execution skips the outputs of the first pipe before it, see
+     * {@link ContainerPipe#resumeFrom(String)}. Outputs coming from the checkpoint itself are processed again.
+     */
+    @Override
+    public long execute(ResourceResolver resolver, Pipe pipe, Map additionalBindings, boolean save, boolean resume,
+                        Consumer<Resource> handler) throws Exception {
         if (additionalBindings != null && pipe instanceof ContainerPipe){
             pipe.getBindings().addBindings(additionalBindings);
         }
+        ValueMap properties = pipe.getResource().adaptTo(ValueMap.class);
+        int batchSize = properties.get(Pipe.PN_BATCH_SIZE, 0);
+        boolean batched = save && batchSize > 0 && pipe.modifiesContent() && !pipe.isDryRun();
+        String checkpoint = resume ? properties.get(Pipe.PN_CHECKPOINT_PATH, String.class) : null;
+        long processed = 0;
+        if (checkpoint != null) {
+            if (pipe instanceof ContainerPipe) {
+                processed = properties.get(Pipe.PN_CHECKPOINT_COUNT, 0L);
+                log.info("[{}] resuming execution from {} ({} outputs already processed)", new Object[]{pipe.getName(),
+                        checkpoint, processed});
+                ((ContainerPipe)pipe).resumeFrom(checkpoint);
+            } else {
+                log.info("[{}] only container pipes can resume, executing from the beginning", pipe.getName());
+            }
+        }
 
-        log.info("[{}] execution starts, save ({})", pipe, save);
-        Set<String> set = new HashSet<>();
-        for (Iterator<Resource> it = pipe.getOutput(); it.hasNext();){
-            Resource resource = it.next();
-            if (resource != null) {
+        log.info("[{}] execution starts, save ({}), batch size ({})", new Object[]{pipe, save, batchSize});
+        long start = System.currentTimeMillis();
+        long count = 0;
+        Set<String> paths = new HashSet<>();
+        ResourceResolver checkpointResolver = batched ? getCheckpointResolver(pipe) : null;
+        try {
+            for (Iterator<Resource> it = pipe.getOutput(); it.hasNext();){
+                Resource resource = it.next();
+                if (resource == null) {
+                    continue;
+                }
                 log.debug("[{}] retrieved {}", pipe.getName(), resource.getPath());
-                set.add(resource.getPath());
+                paths.add(resource.getPath());
+                count++;
+                if (handler != null) {
+                    handler.accept(resource);
+                }
+                if (batchSize > 0 && count % batchSize == 0) {
+                    if (batched) {
+                        persist(resolver, pipe, paths);
+                        paths.clear();
+                        checkpoint(checkpointResolver, pipe, getCheckpointPath(pipe, resource), processed + count);
+                    }
+                    reportProgress(pipe, processed + count, start);
+                }
+            }
+            if (save) {
+                persist(resolver, pipe, paths);
+                if (batched) {
+                    clearCheckpoint(checkpointResolver, pipe);
+                }
+            }
+        } finally {
+            if (checkpointResolver != null) {
+                checkpointResolver.close();
             }
         }
-        if (save) {
-            persist(resolver, pipe, set);
-        }
+        reportProgress(pipe, count, start);
         log.info("[{}] done executing.", pipe.getName());
-        return set;
+        return count;
+    }
+
+    /**
+     * checkpoints are recorded on the pipe configuration with a service resolver, as the user executing the pipe
+     * may not be allowed to modify it
+     * @return resolver with which checkpoints are recorded, null if none is available
+     */
+    private ResourceResolver getCheckpointResolver(Pipe pipe) {
+        ResourceResolverFactory factory = resolverFactory;
+        if (factory != null) {
+            try {
+                return factory.getServiceResourceResolver(null);
+            } catch (LoginException e) {
+                log.warn("[{}] no service resolver available, no checkpoint will be recorded", pipe.getName(), e);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return path a container resumes from after the given output, see {@link ContainerPipe#resumeFrom(String)}
+     */
+    private String getCheckpointPath(Pipe pipe, Resource output) {
+        if (pipe instanceof ContainerPipe) {
+            Resource source = ((ContainerPipe)pipe).getCurrentSource();
+            if (source != null) {
+                return source.getPath();
+            }
+        }
+        return output.getPath();
+    }
+
+    /**
+     * records the checkpoint of a committed batch. Failing to do so is not fatal,
+     * a later execution just resumes from an earlier checkpoint.
+     */
+    private void checkpoint(ResourceResolver checkpointResolver, Pipe pipe, String path, long processed) {
+        ModifiableValueMap properties = getCheckpointProperties(checkpointResolver, pipe);
+        if (properties != null) {
+            properties.put(Pipe.PN_CHECKPOINT_PATH, path);
+            properties.put(Pipe.PN_CHECKPOINT_COUNT, processed);
+            commitCheckpoint(checkpointResolver, pipe);
+        }
+    }
+
+    private void clearCheckpoint(ResourceResolver checkpointResolver, Pipe pipe) {
+        ModifiableValueMap properties = getCheckpointProperties(checkpointResolver, pipe);
+        if (properties != null && properties.containsKey(Pipe.PN_CHECKPOINT_PATH)) {
+            properties.remove(Pipe.PN_CHECKPOINT_PATH);
+            properties.remove(Pipe.PN_CHECKPOINT_COUNT);
+            commitCheckpoint(checkpointResolver, pipe);
+        }
+    }
+
+    private ModifiableValueMap getCheckpointProperties(ResourceResolver checkpointResolver, Pipe pipe) {
+        if (checkpointResolver == null) {
+            return null;
+        }
+        checkpointResolver.refresh();
+        Resource resource = checkpointResolver.getResource(pipe.getResource().getPath());
+        return resource != null ? resource.adaptTo(ModifiableValueMap.class) : null;
+    }
+
+    private void commitCheckpoint(ResourceResolver checkpointResolver, Pipe pipe) {
+        try {
+            checkpointResolver.commit();
+        } catch (PersistenceException e) {
+            log.warn("[{}] unable to record checkpoint", pipe.getName(), e);
+            checkpointResolver.revert();
+        }
+    }
+
+    private void reportProgress(Pipe pipe, long count, long start) {
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        long throughput = count * 1000 / elapsed;
+        log.info("[{}] {} outputs processed in {}ms ({} per second)", new Object[]{pipe.getName(), count, elapsed, throughput});
+    }
+
+    @Override
+    public String executeAsync(ResourceResolver resolver, String path, Map bindings, boolean resume) throws Exception {
+        PipeJobQueue queue = jobQueue;
+        if (queue == null) {
+            throw new Exception("no job manager is available to execute " + path + " asynchronously");
+        }
+        return queue.queue(resolver, path, bindings, resume);
     }
 
     @Override
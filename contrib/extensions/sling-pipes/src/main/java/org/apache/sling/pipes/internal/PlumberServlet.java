@@ -17,9 +17,10 @@
 package org.apache.sling.pipes.internal;
 
 import java.io.IOException;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.ServletException;
 
@@ -33,11 +34,11 @@ import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.servlets.SlingAllMethodsServlet;
 import org.apache.sling.commons.json.JSONException;
 import org.apache.sling.commons.json.JSONObject;
+import org.apache.sling.commons.json.io.JSONWriter;
 import org.apache.sling.pipes.BasePipe;
 import org.apache.sling.pipes.ContainerPipe;
 import org.apache.sling.pipes.OutputWriter;
 import org.apache.sling.pipes.Pipe;
-import org.apache.sling.pipes.PipeBindings;
 import org.apache.sling.pipes.Plumber;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +64,12 @@ public class PlumberServlet extends SlingAllMethodsServlet {
 
     protected static final String PARAM_SIZE = "size";
 
+    protected static final String PARAM_RESUME = "resume";
+
+    protected static final String PARAM_ASYNC = "async";
+
+    protected static final String KEY_JOB = "job";
+
     public static final int NB_MAX = 10;
 
     @Reference
@@ -89,14 +96,16 @@ public class PlumberServlet extends SlingAllMethodsServlet {
             if (size < 0) {
                 size = Integer.MAX_VALUE;
             }
+            boolean resume = Boolean.parseBoolean(request.getParameter(PARAM_RESUME));
+            boolean async = Boolean.parseBoolean(request.getParameter(PARAM_ASYNC));
 
             ResourceResolver resolver = request.getResourceResolver();
             Resource pipeResource = resolver.getResource(path);
             Pipe pipe = plumber.getPipe(pipeResource);
-            PipeBindings bindings = pipe.getBindings();
+            Map<String, Object> bindings = new HashMap<>();
 
             if (StringUtils.isNotBlank(dryRun) && dryRun.equals(Boolean.TRUE.toString())) {
-                bindings.addBinding(BasePipe.DRYRUN_KEY, true);
+                bindings.put(BasePipe.DRYRUN_KEY, true);
             }
 
             String paramBindings = request.getParameter(PARAM_BINDINGS);
@@ -105,33 +114,47 @@ public class PlumberServlet extends SlingAllMethodsServlet {
                     JSONObject bindingJSON = new JSONObject(paramBindings);
                     for (Iterator<String> keys = bindingJSON.keys(); keys.hasNext();){
                         String key = keys.next();
-                        bindings.addBinding(key, bindingJSON.get(key));
+                        bindings.put(key, bindingJSON.get(key));
                     }
                 } catch (Exception e){
                     log.error("Unable to retrieve bindings information", e);
                 }
             }
-            if (!writeAllowed && pipe.modifiesContent()) {
+            pipe.getBindings().addBindings(bindings);
+            if (!writeAllowed && (async || pipe.modifiesContent())) {
                 throw new Exception("This pipe modifies content, you should use a POST request");
             }
+            if (async) {
+                writeJob(response, plumber.executeAsync(resolver, path, bindings, resume));
+                return;
+            }
             OutputWriter writer = getWriter(request, response, pipe);
-            int i = 0;
-            Iterator<Resource> resourceIterator = pipe.getOutput();
-            Set<String> paths = new HashSet<String>();
-            while (resourceIterator.hasNext()){
-                Resource resource = resourceIterator.next();
-                paths.add(resource.getPath());
-                if (++i < size) {
-                    writer.writeItem(resource);
+            final int maxItems = size;
+            AtomicInteger i = new AtomicInteger();
+            long count = plumber.execute(resolver, pipe, null, true, resume, resource -> {
+                if (i.incrementAndGet() < maxItems) {
+                    try {
+                        writer.writeItem(resource);
+                    } catch (JSONException e) {
+                        throw new IllegalStateException(e);
+                    }
                 }
-            }
-            writer.ends(i);
-            plumber.persist(resolver, pipe, paths);
+            });
+            writer.ends((int)count);
         } catch (Exception e) {
             throw new ServletException(e);
         }
     }
 
+    void writeJob(SlingHttpServletResponse response, String jobId) throws IOException, JSONException {
+        response.setCharacterEncoding("utf-8");
+        response.setContentType("application/json");
+        JSONWriter writer = new JSONWriter(response.getWriter());
+        writer.object();
+        writer.key(KEY_JOB).value(jobId);
+        writer.endObject();
+    }
+
     OutputWriter getWriter(SlingHttpServletRequest request, SlingHttpServletResponse response, Pipe pipe) throws IOException, JSONException {
         OutputWriter[] candidates = new OutputWriter[]{new CustomJsonWriter(), new CustomWriter(), new DefaultOutputWriter()};
         for (OutputWriter candidate : candidates) {
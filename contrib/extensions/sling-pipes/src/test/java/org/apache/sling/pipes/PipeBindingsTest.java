@@ -82,6 +82,37 @@ public class PipeBindingsTest extends AbstractPipeTest {
         assertEquals("expression should be correctly instantiated", "apricots and bananas", newExpression);
     }
 
+    @Test
+    public void testCompiledExpression() throws Exception {
+        PipeBindings bindings = getDummyTreeBinding();
+        Map<String, String> testMap = new HashMap<>();
+        testMap.put("a", "apricots");
+        testMap.put("b", "bananas");
+        bindings.getBindings().put("test", testMap);
+        assertEquals("apricots and bananas", bindings.instantiateExpression("${test.a} and ${test.b}"));
+        testMap.put("a", "avocados");
+        assertEquals("expression should be evaluated against current bindings", "avocados and bananas",
+                bindings.instantiateExpression("${test.a} and ${test.b}"));
+        assertEquals("expression should have been compiled once", 1, bindings.compiledScripts.size());
+    }
+
+    @Test
+    public void testPropertyReference() throws Exception {
+        PipeBindings bindings = getDummyTreeBinding();
+        Map<String, Object> testMap = new HashMap<>();
+        Map<String, Object> nestedMap = new HashMap<>();
+        nestedMap.put("color", "green");
+        testMap.put("apple", nestedMap);
+        testMap.put("count", 3L);
+        bindings.getBindings().put("test", testMap);
+        assertEquals("green", bindings.instantiateObject("${test.apple.color}"));
+        assertEquals(3L, bindings.instantiateObject("${test.count}"));
+        assertEquals(Boolean.TRUE, bindings.instantiateObject("${true}"));
+        assertTrue("property references should not need any script", bindings.compiledScripts.isEmpty());
+        assertNull("missing key should be evaluated as undefined", bindings.instantiateObject("${test.apple.weight}"));
+        assertEquals("missing keys should be left to the script engine", 1, bindings.compiledScripts.size());
+    }
+
     @Test
     public void testEvaluateNull() throws Exception {
         PipeBindings bindings = getDummyTreeBinding();
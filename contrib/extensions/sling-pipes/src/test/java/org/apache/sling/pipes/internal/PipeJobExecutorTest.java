@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.pipes.internal;
+
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.event.jobs.Job;
+import org.apache.sling.event.jobs.consumer.JobExecutionContext;
+import org.apache.sling.pipes.AbstractPipeTest;
+import org.apache.sling.pipes.Pipe;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * testing executions of pipes as jobs
+ */
+public class PipeJobExecutorTest extends AbstractPipeTest {
+
+    String pipePath = PATH_PIPE + "/" + WritePipeTest.NN_VARIABLE_PIPED;
+
+    String applePath = pipePath + "/conf/fruit/conf/apple";
+
+    String bananaPath = pipePath + "/conf/fruit/conf/banana";
+
+    PipeJobExecutor executor;
+
+    JobExecutionContext jobContext;
+
+    @Before
+    public void setup() {
+        super.setup();
+        context.load().json("/write.json", PATH_PIPE);
+        ((PlumberImpl)plumber).resolverFactory = context.getService(ResourceResolverFactory.class);
+        executor = new PipeJobExecutor();
+        executor.plumber = plumber;
+        jobContext = mock(JobExecutionContext.class, RETURNS_DEEP_STUBS);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Job getJob() throws Exception {
+        // the job resolver is closed once executed, the one of the context is still needed by the test
+        ResourceResolver resolver = spy(context.resourceResolver());
+        doNothing().when(resolver).close();
+        executor.resolverFactory = mock(ResourceResolverFactory.class);
+        when(executor.resolverFactory.getServiceResourceResolver(any(Map.class))).thenReturn(resolver);
+        Job job = mock(Job.class);
+        when(job.getProperty(PipeJobExecutor.JOB_PATH, String.class)).thenReturn(pipePath);
+        when(job.getProperty(PipeJobExecutor.JOB_RESUME, false)).thenReturn(false);
+        return job;
+    }
+
+    private String getDescription(String path) {
+        return context.resourceResolver().getResource(path).adaptTo(ValueMap.class).get("jcr:description", String.class);
+    }
+
+    @Test
+    public void testExecution() throws Exception {
+        executor.process(getJob(), jobContext);
+        verify(jobContext.result().message("2 outputs processed")).succeeded();
+        assertEquals("banana is a fruit and its color is yellow", getDescription(bananaPath));
+    }
+
+    @Test
+    public void testStoppedExecution() throws Exception {
+        ModifiableValueMap properties = context.resourceResolver().getResource(pipePath).adaptTo(ModifiableValueMap.class);
+        properties.put(Pipe.PN_BATCH_SIZE, 1);
+        context.resourceResolver().commit();
+        when(jobContext.isStopped()).thenReturn(true);
+        executor.process(getJob(), jobContext);
+        verify(jobContext.result().message("stopped after 1 outputs")).cancelled();
+        verify(jobContext).log(anyString(), any(), any(), any());
+        assertEquals("first batch should be committed", "apple is a fruit and its color is green", getDescription(applePath));
+        assertEquals("checkpoint of the first batch should be recorded", applePath,
+                context.resourceResolver().getResource(pipePath).adaptTo(ValueMap.class).get(Pipe.PN_CHECKPOINT_PATH, String.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFailureOfStoppedExecution() throws Exception {
+        executor.plumber = spy(plumber);
+        doThrow(new IllegalStateException("interrupted")).when(executor.plumber).execute(any(ResourceResolver.class),
+                any(Pipe.class), any(Map.class), anyBoolean(), anyBoolean(), any(Consumer.class));
+        when(jobContext.isStopped()).thenReturn(true);
+        executor.process(getJob(), jobContext);
+        verify(jobContext.result().message("stopped: interrupted")).cancelled();
+    }
+}
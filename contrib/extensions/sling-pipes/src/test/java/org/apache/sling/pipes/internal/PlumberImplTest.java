@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.pipes.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.sling.api.resource.ModifiableValueMap;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ResourceResolverFactory;
+import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.pipes.AbstractPipeTest;
+import org.apache.sling.pipes.Pipe;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+/**
+ * testing batched commits & resumed executions
+ */
+public class PlumberImplTest extends AbstractPipeTest {
+
+    String pipePath = PATH_PIPE + "/" + WritePipeTest.NN_VARIABLE_PIPED;
+
+    String applePath = pipePath + "/conf/fruit/conf/apple";
+
+    String bananaPath = pipePath + "/conf/fruit/conf/banana";
+
+    @Before
+    public void setup() {
+        super.setup();
+        ((PlumberImpl)plumber).resolverFactory = context.getService(ResourceResolverFactory.class);
+        context.load().json("/write.json", PATH_PIPE);
+    }
+
+    private void configure(Object... keyValues) throws Exception {
+        ModifiableValueMap properties = context.resourceResolver().getResource(pipePath).adaptTo(ModifiableValueMap.class);
+        for (int i = 0; i < keyValues.length; i += 2) {
+            properties.put((String)keyValues[i], keyValues[i + 1]);
+        }
+        context.resourceResolver().commit();
+    }
+
+    private String getDescription(String path) {
+        return context.resourceResolver().getResource(path).adaptTo(ValueMap.class).get("jcr:description", String.class);
+    }
+
+    @Test
+    public void testBatchedCommits() throws Exception {
+        configure(Pipe.PN_BATCH_SIZE, 1);
+        final ResourceResolver resolver = context.resourceResolver();
+        final List<String> checkpoints = new ArrayList<>();
+        long count = plumber.execute(resolver, getPipe(pipePath), null, true, false, resource -> {
+            checkpoints.add(resolver.getResource(pipePath).adaptTo(ValueMap.class).get(Pipe.PN_CHECKPOINT_PATH, String.class));
+        });
+        assertEquals("there should be two outputs", 2, count);
+        assertNull("there should be no checkpoint before the first batch", checkpoints.get(0));
+        assertEquals("first batch should have been committed with its checkpoint", applePath, checkpoints.get(1));
+        assertFalse("There should be no more pending changes", resolver.hasChanges());
+        ValueMap properties = resolver.getResource(pipePath).adaptTo(ValueMap.class);
+        assertFalse("checkpoint should be removed once execution is done", properties.containsKey(Pipe.PN_CHECKPOINT_PATH));
+        assertEquals("apple is a fruit and its color is green", getDescription(applePath));
+        assertEquals("banana is a fruit and its color is yellow", getDescription(bananaPath));
+    }
+
+    @Test
+    public void testCheckpointWithoutServiceResolver() throws Exception {
+        configure(Pipe.PN_BATCH_SIZE, 1);
+        ((PlumberImpl)plumber).resolverFactory = null;
+        final ResourceResolver resolver = context.resourceResolver();
+        final List<String> checkpoints = new ArrayList<>();
+        long count = plumber.execute(resolver, getPipe(pipePath), null, true, false, resource -> {
+            checkpoints.add(resolver.getResource(pipePath).adaptTo(ValueMap.class).get(Pipe.PN_CHECKPOINT_PATH, String.class));
+        });
+        assertEquals("there should be two outputs", 2, count);
+        assertNull("no checkpoint should be recorded without service resolver", checkpoints.get(1));
+        assertEquals("banana is a fruit and its color is yellow", getDescription(bananaPath));
+    }
+
+    @Test
+    public void testResume() throws Exception {
+        configure(Pipe.PN_BATCH_SIZE, 1, Pipe.PN_CHECKPOINT_PATH, bananaPath, Pipe.PN_CHECKPOINT_COUNT, 1L);
+        ResourceResolver resolver = spy(context.resourceResolver());
+        final List<String> outputs = new ArrayList<>();
+        long count = plumber.execute(resolver, getPipe(pipePath), null, true, true, resource -> outputs.add(resource.getPath()));
+        assertEquals("only the outputs from the checkpoint on should be processed", 1, count);
+        assertEquals(bananaPath, outputs.get(0));
+        verify(resolver, never()).revert();
+        assertNull("outputs before the checkpoint should not be executed again", getDescription(applePath));
+        assertEquals("banana is a fruit and its color is yellow", getDescription(bananaPath));
+        Resource pipeResource = context.resourceResolver().getResource(pipePath);
+        assertFalse("checkpoint should be removed once execution is done", pipeResource.adaptTo(ValueMap.class).containsKey(Pipe.PN_CHECKPOINT_PATH));
+    }
+
+    @Test
+    public void testChangedOutputs() throws Exception {
+        // the checkpoint is not output anymore, as for a query on resources not written yet
+        configure(Pipe.PN_BATCH_SIZE, 1, Pipe.PN_CHECKPOINT_PATH, "/content/unknown", Pipe.PN_CHECKPOINT_COUNT, 1L);
+        final List<String> outputs = new ArrayList<>();
+        long count = plumber.execute(context.resourceResolver(), getPipe(pipePath), null, true, true, resource -> outputs.add(resource.getPath()));
+        assertEquals("the whole pipe should be executed", 2, count);
+        assertEquals(2, outputs.size());
+        assertEquals(applePath, outputs.get(0));
+        assertEquals("apple is a fruit and its color is green", getDescription(applePath));
+        assertEquals("banana is a fruit and its color is yellow", getDescription(bananaPath));
+    }
+
+    @Test
+    public void testUnknownCheckpoint() throws Exception {
+        configure(Pipe.PN_BATCH_SIZE, 1, Pipe.PN_CHECKPOINT_PATH, "/content/unknown");
+        long count = plumber.execute(context.resourceResolver(), getPipe(pipePath), null, true, true, null);
+        assertEquals("all outputs should be processed", 2, count);
+        assertEquals("banana is a fruit and its color is yellow", getDescription(bananaPath));
+    }
+}
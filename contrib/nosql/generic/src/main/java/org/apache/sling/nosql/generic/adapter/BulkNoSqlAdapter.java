@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.nosql.generic.adapter;
+
+import java.util.Collection;
+import java.util.Set;
+
+import aQute.bnd.annotation.ConsumerType;
+
+/**
+ * Optional extension of {@link NoSqlAdapter} for NoSQL databases supporting bulk operations.
+ * If the adapter implements this interface, all changes of a commit are written with
+ * one call per operation type instead of one call per resource.
+ */
+@ConsumerType
+public interface BulkNoSqlAdapter extends NoSqlAdapter {
+
+    /**
+     * Store multiple data entries in NoSQL database.
+     * The same guarantees as for {@link #store(NoSqlData)} apply for each entry.
+     * @param data Data entries with paths
+     * @return Paths of the entries for which a new entry was created.
+     *     All other entries have overridden an existing entry.
+     */
+    Set<String> storeAll(Collection<NoSqlData> data);
+
+    /**
+     * Remove data including all path-related children from NoSQL database for all given paths.
+     * @param paths Paths to remove
+     * @return true if anything was removed
+     */
+    boolean deleteRecursiveAll(Collection<String> paths);
+
+}
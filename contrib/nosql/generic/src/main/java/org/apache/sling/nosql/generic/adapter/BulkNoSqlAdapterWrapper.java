@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.nosql.generic.adapter;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.apache.sling.api.resource.LoginException;
+
+/**
+ * Wrapper for {@link NoSqlAdapter} that implements {@link BulkNoSqlAdapter} for all adapters.
+ * Bulk operations are passed to the delegate if it implements {@link BulkNoSqlAdapter},
+ * otherwise they are executed as single operations.
+ */
+public final class BulkNoSqlAdapterWrapper implements BulkNoSqlAdapter {
+
+    private final NoSqlAdapter delegate;
+
+    public BulkNoSqlAdapterWrapper(NoSqlAdapter delegate) {
+        this.delegate = delegate;
+    }
+
+    public boolean validPath(String path) {
+        return delegate.validPath(path);
+    }
+
+    public NoSqlData get(String path) {
+        return delegate.get(path);
+    }
+
+    public Iterator<NoSqlData> getChildren(String parentPath) {
+        return delegate.getChildren(parentPath);
+    }
+
+    public boolean store(NoSqlData data) {
+        return delegate.store(data);
+    }
+
+    public boolean deleteRecursive(String path) {
+        return delegate.deleteRecursive(path);
+    }
+
+    public Set<String> storeAll(Collection<NoSqlData> data) {
+        if (delegate instanceof BulkNoSqlAdapter) {
+            return ((BulkNoSqlAdapter)delegate).storeAll(data);
+        }
+        Set<String> createdPaths = new HashSet<String>();
+        for (NoSqlData item : data) {
+            if (delegate.store(item)) {
+                createdPaths.add(item.getPath());
+            }
+        }
+        return createdPaths;
+    }
+
+    public boolean deleteRecursiveAll(Collection<String> paths) {
+        if (delegate instanceof BulkNoSqlAdapter) {
+            return ((BulkNoSqlAdapter)delegate).deleteRecursiveAll(paths);
+        }
+        boolean deletedAnything = false;
+        for (String path : paths) {
+            deletedAnything |= delegate.deleteRecursive(path);
+        }
+        return deletedAnything;
+    }
+
+    public Iterator<NoSqlData> query(String query, String language) {
+        return delegate.query(query, language);
+    }
+
+    @Override
+    public void checkConnection() throws LoginException {
+        delegate.checkConnection();
+    }
+
+    @Override
+    public void createIndexDefinitions() {
+        delegate.createIndexDefinitions();
+    }
+
+}
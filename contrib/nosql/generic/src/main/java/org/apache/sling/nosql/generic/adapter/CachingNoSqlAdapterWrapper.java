@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.nosql.generic.adapter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.api.resource.LoginException;
+
+/**
+ * Wrapper for {@link NoSqlAdapter} that caches the results of {@link #get(String)} and
+ * {@link #getChildren(String)} calls for a limited time.
+ * <p>
+ * The wrapper is meant to be shared by all resource providers created for the same NoSQL database.
+ * All writes through the wrapper invalidate the affected entries immediately, changes done by other
+ * clients of the NoSQL database become visible after the time to live at the latest.
+ * Query results are not cached.
+ * </p>
+ * Bulk operations are passed to the delegate if it implements {@link BulkNoSqlAdapter},
+ * otherwise they are executed as single operations.
+ */
+public final class CachingNoSqlAdapterWrapper implements BulkNoSqlAdapter {
+
+    private final BulkNoSqlAdapter delegate;
+    private final long timeToLive;
+
+    private final Cache<NoSqlData> items;
+    private final Cache<List<NoSqlData>> children;
+
+    // incremented by each invalidation, values read concurrently to a write are not cached
+    private final AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * @param delegate NoSQL adapter
+     * @param timeToLive Time to live of cache entries in milliseconds
+     * @param maxEntries Maximum number of entries for both items and child lists.
+     *     If the maximum is reached, the least recently used entry is removed.
+     */
+    public CachingNoSqlAdapterWrapper(NoSqlAdapter delegate, long timeToLive, int maxEntries) {
+        this.delegate = new BulkNoSqlAdapterWrapper(delegate);
+        this.timeToLive = timeToLive;
+        this.items = new Cache<NoSqlData>(maxEntries);
+        this.children = new Cache<List<NoSqlData>>(maxEntries);
+    }
+
+    public boolean validPath(String path) {
+        return delegate.validPath(path);
+    }
+
+    public NoSqlData get(String path) {
+        CacheEntry<NoSqlData> entry = items.get(path);
+        if (entry != null) {
+            return entry.value;
+        }
+        // non-existing items are cached as well
+        long generation = invalidations.get();
+        NoSqlData data = delegate.get(path);
+        put(items, path, data, generation);
+        return data;
+    }
+
+    public Iterator<NoSqlData> getChildren(String parentPath) {
+        CacheEntry<List<NoSqlData>> entry = children.get(parentPath);
+        if (entry != null) {
+            return entry.value.iterator();
+        }
+        long generation = invalidations.get();
+        List<NoSqlData> result = new ArrayList<NoSqlData>();
+        Iterator<NoSqlData> dataIterator = delegate.getChildren(parentPath);
+        while (dataIterator.hasNext()) {
+            NoSqlData data = dataIterator.next();
+            result.add(data);
+            // children are usually accessed after listing them
+            put(items, data.getPath(), data, generation);
+        }
+        result = Collections.unmodifiableList(result);
+        put(children, parentPath, result, generation);
+        return result.iterator();
+    }
+
+    public boolean store(NoSqlData data) {
+        try {
+            return delegate.store(data);
+        }
+        finally {
+            invalidate(data.getPath(), false);
+        }
+    }
+
+    public boolean deleteRecursive(String path) {
+        try {
+            return delegate.deleteRecursive(path);
+        }
+        finally {
+            invalidate(path, true);
+        }
+    }
+
+    public Set<String> storeAll(Collection<NoSqlData> data) {
+        try {
+            return delegate.storeAll(data);
+        }
+        finally {
+            for (NoSqlData item : data) {
+                invalidate(item.getPath(), false);
+            }
+        }
+    }
+
+    public boolean deleteRecursiveAll(Collection<String> paths) {
+        try {
+            return delegate.deleteRecursiveAll(paths);
+        }
+        finally {
+            for (String path : paths) {
+                invalidate(path, true);
+            }
+        }
+    }
+
+    public Iterator<NoSqlData> query(String query, String language) {
+        return delegate.query(query, language);
+    }
+
+    @Override
+    public void checkConnection() throws LoginException {
+        delegate.checkConnection();
+    }
+
+    @Override
+    public void createIndexDefinitions() {
+        delegate.createIndexDefinitions();
+    }
+
+    /**
+     * Removes all cached entries.
+     */
+    public void clear() {
+        invalidations.incrementAndGet();
+        items.clear();
+        children.clear();
+    }
+
+    /**
+     * Caches the value unless an invalidation happened since it has been read.
+     * The invalidation count is checked after adding the entry: an invalidation either
+     * removes the added entry or has been counted before the check.
+     * @param generation Invalidation count before reading the value
+     */
+    private <T> void put(Cache<T> cache, String key, T value, long generation) {
+        CacheEntry<T> entry = new CacheEntry<T>(value, System.currentTimeMillis() + timeToLive);
+        cache.put(key, entry);
+        if (invalidations.get() != generation) {
+            cache.remove(key, entry);
+        }
+    }
+
+    /**
+     * Invalidates the cached item and the child list of its parent.
+     * @param path Path
+     * @param descendants If true all cached items and child lists below the path are invalidated as well
+     */
+    private void invalidate(String path, boolean descendants) {
+        invalidations.incrementAndGet();
+        items.remove(path);
+        children.remove(path);
+        if (descendants) {
+            String prefix = path.endsWith("/") ? path : path + "/";
+            items.removeDescendants(prefix);
+            children.removeDescendants(prefix);
+        }
+        int pos = path.lastIndexOf('/');
+        if (pos > 0) {
+            children.remove(path.substring(0, pos));
+        }
+        else if (pos == 0 && path.length() > 1) {
+            children.remove("/");
+        }
+    }
+
+    /**
+     * Least recently used cache of entries, expired entries are removed when they are accessed.
+     */
+    private static final class Cache<T> {
+
+        private final Map<String, CacheEntry<T>> entries;
+
+        public Cache(final int maxEntries) {
+            entries = new LinkedHashMap<String, CacheEntry<T>>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CacheEntry<T>> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+
+        public synchronized CacheEntry<T> get(String key) {
+            CacheEntry<T> entry = entries.get(key);
+            if (entry != null && entry.isExpired()) {
+                entries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+
+        public synchronized void put(String key, CacheEntry<T> entry) {
+            entries.put(key, entry);
+        }
+
+        public synchronized void remove(String key) {
+            entries.remove(key);
+        }
+
+        public synchronized void remove(String key, CacheEntry<T> entry) {
+            if (entries.get(key) == entry) {
+                entries.remove(key);
+            }
+        }
+
+        public synchronized void removeDescendants(String prefix) {
+            Iterator<String> keys = entries.keySet().iterator();
+            while (keys.hasNext()) {
+                if (keys.next().startsWith(prefix)) {
+                    keys.remove();
+                }
+            }
+        }
+
+        public synchronized void clear() {
+            entries.clear();
+        }
+
+    }
+
+    private static final class CacheEntry<T> {
+
+        private final T value;
+        private final long expires;
+
+        public CacheEntry(T value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+
+        public boolean isExpired() {
+            return System.currentTimeMillis() >= expires;
+        }
+
+    }
+
+}
@@ -18,21 +18,25 @@
  */
 package org.apache.sling.nosql.generic.adapter;
 
+import java.util.Collection;
 import java.util.Iterator;
+import java.util.Set;
 
 import org.apache.sling.api.resource.LoginException;
 import org.slf4j.Logger;
 
 /**
  * Wrapper for {@link NoSqlAdapter} that enables logging and time counting for each call.
+ * Bulk operations are passed to the delegate if it implements {@link BulkNoSqlAdapter},
+ * otherwise they are executed as single operations.
  */
-public final class MetricsNoSqlAdapterWrapper implements NoSqlAdapter {
+public final class MetricsNoSqlAdapterWrapper implements BulkNoSqlAdapter {
 
-    private final NoSqlAdapter delegate;
+    private final BulkNoSqlAdapter delegate;
     private final Logger logger;
 
     public MetricsNoSqlAdapterWrapper(NoSqlAdapter delegate, Logger logger) {
-        this.delegate = delegate;
+        this.delegate = new BulkNoSqlAdapterWrapper(delegate);
         this.logger = logger;
     }
 
@@ -80,6 +84,26 @@ public final class MetricsNoSqlAdapterWrapper implements NoSqlAdapter {
         }
     }
 
+    public Set<String> storeAll(Collection<NoSqlData> data) {
+        Metrics metrics = new Metrics();
+        try {
+            return delegate.storeAll(data);
+        }
+        finally {
+            metrics.finish("storeAll({} items)", data.size());
+        }
+    }
+
+    public boolean deleteRecursiveAll(Collection<String> paths) {
+        Metrics metrics = new Metrics();
+        try {
+            return delegate.deleteRecursiveAll(paths);
+        }
+        finally {
+            metrics.finish("deleteRecursiveAll({})", paths);
+        }
+    }
+
     public Iterator<NoSqlData> query(String query, String language) {
         Metrics metrics = new Metrics();
         try {
@@ -40,6 +40,7 @@ import org.apache.sling.api.resource.Resource;
 import org.apache.sling.api.resource.ResourceProvider;
 import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ValueMap;
+import org.apache.sling.nosql.generic.adapter.BulkNoSqlAdapter;
 import org.apache.sling.nosql.generic.adapter.NoSqlAdapter;
 import org.apache.sling.nosql.generic.adapter.NoSqlData;
 import org.osgi.service.event.Event;
@@ -53,7 +54,7 @@ public class NoSqlResourceProvider implements ResourceProvider, ModifyingResourc
     
     private static final String ROOT_PATH = "/";
     
-    private final NoSqlAdapter adapter;
+    private final BulkNoSqlAdapter adapter;
     private final EventAdmin eventAdmin;
     private final Map<String, NoSqlData> changedResources = new LinkedHashMap<String, NoSqlData>();
     private final Set<String> deletedResources = new HashSet<String>();
@@ -190,17 +191,22 @@ public class NoSqlResourceProvider implements ResourceProvider, ModifyingResourc
     
     public void commit(ResourceResolver resolver) throws PersistenceException {
         try {
-            for (String path : deletedResources) {
-               adapter.deleteRecursive(path); 
-               notifyRemoved(path);
-            }
-            for (NoSqlData item : changedResources.values()) {
-                boolean created = adapter.store(item);
-                if (created) {
-                    notifyAdded(item.getPath());
+            // write all changes with one bulk operation per type if supported by the adapter
+            if (!deletedResources.isEmpty()) {
+                adapter.deleteRecursiveAll(deletedResources);
+                for (String path : deletedResources) {
+                    notifyRemoved(path);
                 }
-                else {
-                    notifyUpdated(item.getPath());
+            }
+            if (!changedResources.isEmpty()) {
+                Set<String> createdPaths = adapter.storeAll(changedResources.values());
+                for (NoSqlData item : changedResources.values()) {
+                    if (createdPaths.contains(item.getPath())) {
+                        notifyAdded(item.getPath());
+                    }
+                    else {
+                        notifyUpdated(item.getPath());
+                    }
                 }
             }
         }
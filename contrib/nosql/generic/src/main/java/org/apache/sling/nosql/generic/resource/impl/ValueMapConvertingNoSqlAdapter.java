@@ -21,16 +21,22 @@ package org.apache.sling.nosql.generic.resource.impl;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import javax.xml.bind.DatatypeConverter;
 
 import org.apache.sling.api.resource.LoginException;
+import org.apache.sling.nosql.generic.adapter.BulkNoSqlAdapter;
+import org.apache.sling.nosql.generic.adapter.BulkNoSqlAdapterWrapper;
 import org.apache.sling.nosql.generic.adapter.NoSqlAdapter;
 import org.apache.sling.nosql.generic.adapter.NoSqlData;
 import org.slf4j.Logger;
@@ -41,18 +47,20 @@ import org.slf4j.LoggerFactory;
  * when passing to the underlying NoSql adapter and back to typed values when reading from it.
  * This is required because too many implementations access ValueMap without type specifier so
  * we cannot only rely on the type conversion in the typed get methods of a ValueMap.
+ * Bulk operations are executed as single operations if the underlying adapter does not support them,
+ * see {@link BulkNoSqlAdapterWrapper}.
  */
-class ValueMapConvertingNoSqlAdapter implements NoSqlAdapter {
+class ValueMapConvertingNoSqlAdapter implements BulkNoSqlAdapter {
     
     private static final String PREFIX_CALENDAR = "{{calendar}}";
     private static final String PREFIX_BYTE_ARRAY = "{{bytes}}";
 
-    private final NoSqlAdapter delegate;
+    private final BulkNoSqlAdapter delegate;
     
     private static final Logger log = LoggerFactory.getLogger(ValueMapConvertingNoSqlAdapter.class);
 
     public ValueMapConvertingNoSqlAdapter(NoSqlAdapter delegate) {
-        this.delegate = delegate;
+        this.delegate = new BulkNoSqlAdapterWrapper(delegate);
     }
 
     public boolean validPath(String path) {
@@ -75,6 +83,18 @@ class ValueMapConvertingNoSqlAdapter implements NoSqlAdapter {
         return delegate.deleteRecursive(path);
     }
 
+    public Set<String> storeAll(Collection<NoSqlData> data) {
+        List<NoSqlData> serializedData = new ArrayList<NoSqlData>(data.size());
+        for (NoSqlData item : data) {
+            serializedData.add(serializeUnsupportedTypes(item));
+        }
+        return delegate.storeAll(serializedData);
+    }
+
+    public boolean deleteRecursiveAll(Collection<String> paths) {
+        return delegate.deleteRecursiveAll(paths);
+    }
+
     public Iterator<NoSqlData> query(String query, String language) {
         return deserializeUnsupportedTypes(delegate.query(query, language));
     }
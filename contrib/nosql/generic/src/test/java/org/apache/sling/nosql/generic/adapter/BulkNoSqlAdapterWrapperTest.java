@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.nosql.generic.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.sling.nosql.generic.simple.provider.SimpleNoSqlAdapter;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+public class BulkNoSqlAdapterWrapperTest {
+
+    private NoSqlAdapter delegate;
+    private BulkNoSqlAdapterWrapper underTest;
+
+    @Before
+    public void setUp() {
+        // adapter without bulk support
+        final SimpleNoSqlAdapter simpleAdapter = new SimpleNoSqlAdapter();
+        delegate = spy(new AbstractNoSqlAdapter() {
+            public NoSqlData get(String path) {
+                return simpleAdapter.get(path);
+            }
+            public Iterator<NoSqlData> getChildren(String parentPath) {
+                return simpleAdapter.getChildren(parentPath);
+            }
+            public boolean store(NoSqlData data) {
+                return simpleAdapter.store(data);
+            }
+            public boolean deleteRecursive(String path) {
+                return simpleAdapter.deleteRecursive(path);
+            }
+            public void checkConnection() {
+                // nothing to check
+            }
+            public void createIndexDefinitions() {
+                // nothing to create
+            }
+        });
+        underTest = new BulkNoSqlAdapterWrapper(delegate);
+    }
+
+    @Test
+    public void testSingleOperations() {
+        underTest.store(data("/content/b"));
+
+        assertEquals(ImmutableSet.of("/content/a"),
+                underTest.storeAll(ImmutableList.of(data("/content/a"), data("/content/b"))));
+        verify(delegate, times(3)).store(any(NoSqlData.class));
+        assertNotNull(underTest.get("/content/a"));
+
+        assertTrue(underTest.deleteRecursiveAll(ImmutableList.of("/content/a", "/content/b")));
+        verify(delegate, times(1)).deleteRecursive("/content/a");
+        verify(delegate, times(1)).deleteRecursive("/content/b");
+        assertNull(underTest.get("/content/a"));
+        assertFalse(underTest.deleteRecursiveAll(ImmutableList.of("/content/a")));
+    }
+
+    private static NoSqlData data(String path) {
+        Map<String, Object> props = ImmutableMap.<String, Object>of("prop1", "value1");
+        return new NoSqlData(path, props);
+    }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.nosql.generic.adapter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.sling.nosql.generic.simple.provider.SimpleNoSqlAdapter;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterators;
+
+public class CachingNoSqlAdapterWrapperTest {
+
+    private SimpleNoSqlAdapter delegate;
+    private CachingNoSqlAdapterWrapper underTest;
+
+    @Before
+    public void setUp() {
+        delegate = spy(new SimpleNoSqlAdapter());
+        underTest = new CachingNoSqlAdapterWrapper(delegate, 60000, 1000);
+    }
+
+    @Test
+    public void testGetIsCached() {
+        delegate.store(data("/content/a"));
+
+        assertNotNull(underTest.get("/content/a"));
+        assertNotNull(underTest.get("/content/a"));
+        assertNull(underTest.get("/content/b"));
+        assertNull(underTest.get("/content/b"));
+
+        verify(delegate, times(1)).get("/content/a");
+        verify(delegate, times(1)).get("/content/b");
+    }
+
+    @Test
+    public void testGetChildrenIsCached() {
+        delegate.store(data("/content/a"));
+        delegate.store(data("/content/b"));
+
+        assertEquals(2, Iterators.size(underTest.getChildren("/content")));
+        assertEquals(2, Iterators.size(underTest.getChildren("/content")));
+        assertNotNull(underTest.get("/content/a"));
+
+        verify(delegate, times(1)).getChildren("/content");
+        // only called by the simple adapter to build the child list, the item is read from the cached child list
+        verify(delegate, times(1)).get("/content/a");
+    }
+
+    @Test
+    public void testStoreInvalidates() {
+        assertNull(underTest.get("/content/a"));
+        assertEquals(0, Iterators.size(underTest.getChildren("/content")));
+
+        underTest.store(data("/content/a"));
+
+        assertNotNull(underTest.get("/content/a"));
+        assertEquals(1, Iterators.size(underTest.getChildren("/content")));
+    }
+
+    @Test
+    public void testDeleteRecursiveInvalidatesDescendants() {
+        underTest.store(data("/content/a"));
+        underTest.store(data("/content/a/b"));
+        assertNotNull(underTest.get("/content/a/b"));
+        assertEquals(1, Iterators.size(underTest.getChildren("/content/a")));
+        assertEquals(1, Iterators.size(underTest.getChildren("/content")));
+
+        underTest.deleteRecursive("/content/a");
+
+        assertNull(underTest.get("/content/a"));
+        assertNull(underTest.get("/content/a/b"));
+        assertEquals(0, Iterators.size(underTest.getChildren("/content/a")));
+        assertEquals(0, Iterators.size(underTest.getChildren("/content")));
+    }
+
+    @Test
+    public void testBulkOperations() {
+        assertNull(underTest.get("/content/a"));
+        underTest.store(data("/content/b"));
+
+        List<NoSqlData> items = ImmutableList.of(data("/content/a"), data("/content/b"));
+        assertEquals(ImmutableSet.of("/content/a"), underTest.storeAll(items));
+        verify(delegate, times(1)).storeAll(items);
+        assertNotNull(underTest.get("/content/a"));
+
+        assertEquals(true, underTest.deleteRecursiveAll(ImmutableList.of("/content/a", "/content/b")));
+        assertNull(underTest.get("/content/a"));
+        assertNull(underTest.get("/content/b"));
+        assertFalse(underTest.deleteRecursiveAll(ImmutableList.of("/content/a")));
+    }
+
+    @Test
+    public void testTimeToLive() {
+        underTest = new CachingNoSqlAdapterWrapper(delegate, 0, 1000);
+        delegate.store(data("/content/a"));
+
+        assertNotNull(underTest.get("/content/a"));
+        assertNotNull(underTest.get("/content/a"));
+
+        verify(delegate, times(2)).get("/content/a");
+    }
+
+    @Test
+    public void testMaxEntries() {
+        underTest = new CachingNoSqlAdapterWrapper(delegate, 60000, 2);
+
+        underTest.get("/content/a");
+        underTest.get("/content/b");
+        underTest.get("/content/c");
+        underTest.get("/content/c");
+        underTest.get("/content/a");
+
+        verify(delegate, times(1)).get("/content/c");
+        verify(delegate, times(2)).get("/content/a");
+    }
+
+    @Test
+    public void testMaxEntriesRemovesLeastRecentlyUsed() {
+        underTest = new CachingNoSqlAdapterWrapper(delegate, 60000, 2);
+
+        underTest.get("/content/a");
+        underTest.get("/content/b");
+        underTest.get("/content/a");
+        underTest.get("/content/c");
+        underTest.get("/content/a");
+        underTest.get("/content/b");
+
+        verify(delegate, times(1)).get("/content/a");
+        verify(delegate, times(2)).get("/content/b");
+    }
+
+    @Test
+    public void testConcurrentStoreIsNotOverwrittenByGet() {
+        // the item is stored after it has been read by the delegate but before it is cached
+        doAnswer(new Answer<NoSqlData>() {
+            @Override
+            public NoSqlData answer(InvocationOnMock invocation) throws Throwable {
+                NoSqlData result = (NoSqlData)invocation.callRealMethod();
+                underTest.store(data("/content/a"));
+                return result;
+            }
+        }).when(delegate).get("/content/a");
+
+        assertNull(underTest.get("/content/a"));
+        assertNotNull(underTest.get("/content/a"));
+    }
+
+    private static NoSqlData data(String path) {
+        Map<String, Object> props = ImmutableMap.<String, Object>of("prop1", "value1");
+        return new NoSqlData(path, props);
+    }
+
+}
@@ -18,18 +18,21 @@
  */
 package org.apache.sling.nosql.generic.simple.provider;
 
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.sling.api.resource.LoginException;
-import org.apache.sling.nosql.generic.adapter.NoSqlAdapter;
+import org.apache.sling.nosql.generic.adapter.BulkNoSqlAdapter;
 import org.apache.sling.nosql.generic.adapter.NoSqlData;
 import org.apache.sling.nosql.generic.resource.impl.PathUtil;
 
@@ -40,7 +43,7 @@ import com.google.common.collect.Iterators;
 /**
  * Stores resource data in a hash map for testing.
  */
-public class SimpleNoSqlAdapter implements NoSqlAdapter {
+public class SimpleNoSqlAdapter implements BulkNoSqlAdapter {
     
     private final SortedMap<String, Map<String,Object>> store = new TreeMap<String, Map<String,Object>>();
 
@@ -95,6 +98,24 @@ public class SimpleNoSqlAdapter implements NoSqlAdapter {
         return deletedAnything;
     }
 
+    public Set<String> storeAll(Collection<NoSqlData> data) {
+        Set<String> createdPaths = new HashSet<String>();
+        for (NoSqlData item : data) {
+            if (store(item)) {
+                createdPaths.add(item.getPath());
+            }
+        }
+        return createdPaths;
+    }
+
+    public boolean deleteRecursiveAll(Collection<String> paths) {
+        boolean deletedAnything = false;
+        for (String path : paths) {
+            deletedAnything |= deleteRecursive(path);
+        }
+        return deletedAnything;
+    }
+
     public Iterator<NoSqlData> query(String query, String language) {
         // implement simple dummy query
         if (StringUtils.equals(language, "simple") && StringUtils.equals(query, "all")) {
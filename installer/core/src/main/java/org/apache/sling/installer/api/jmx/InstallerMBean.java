@@ -19,6 +19,8 @@
 
 package org.apache.sling.installer.api.jmx;
 
+import javax.management.openmbean.TabularData;
+
 import org.osgi.annotation.versioning.ProviderType;
 
 @ProviderType
@@ -48,4 +50,13 @@ public interface InstallerMBean {
      * @return Time since last suspended.
      */
     long getSuspendedSince();
+
+    /**
+     * Execution time statistics of the install tasks, one row per task type
+     * with the columns {@code type}, {@code count}, {@code totalTime} and
+     * {@code maxTime} (times in milliseconds).
+     * @return The task statistics
+     * @since 1.1.0
+     */
+    TabularData getTaskStatistics();
 }
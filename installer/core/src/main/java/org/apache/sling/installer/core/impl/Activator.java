@@ -117,7 +117,7 @@ public class Activator implements BundleActivator {
         mbeanProps.put(Constants.SERVICE_VENDOR, VENDOR);
         mbeanProps.put("jmx.objectname", new ObjectName("org.apache.sling.installer", jmxProps));
         ServiceRegistration mbeanReg = context.registerService(new String[] {InstallerMBean.class.getName(),
-                InstallationListener.class.getName()}, new InstallerMBeanImpl(osgiControllerService), mbeanProps);
+                InstallationListener.class.getName()}, new InstallerMBeanImpl(osgiControllerService, osgiControllerService.getTaskStatistics()), mbeanProps);
         registrations.add(mbeanReg);
     }
 
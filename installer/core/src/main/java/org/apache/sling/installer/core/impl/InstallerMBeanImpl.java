@@ -19,18 +19,33 @@
 
 package org.apache.sling.installer.core.impl;
 
+import java.util.Map;
+
+import javax.management.openmbean.CompositeDataSupport;
+import javax.management.openmbean.CompositeType;
+import javax.management.openmbean.OpenDataException;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.SimpleType;
+import javax.management.openmbean.TabularData;
+import javax.management.openmbean.TabularDataSupport;
+import javax.management.openmbean.TabularType;
+
 import org.apache.sling.installer.api.event.InstallationEvent;
 import org.apache.sling.installer.api.event.InstallationListener;
 import org.apache.sling.installer.api.info.InfoProvider;
 import org.apache.sling.installer.api.jmx.InstallerMBean;
 
 public class InstallerMBeanImpl implements InstallationListener, InstallerMBean {
+    private static final String[] TASK_STATISTICS_ITEMS = {"type", "count", "totalTime", "maxTime"};
+
     private final InfoProvider infoProvider;
+    private final TaskStatistics taskStatistics;
     private volatile boolean active;
     private volatile long lastEventTime;
 
-    public InstallerMBeanImpl(InfoProvider infoProvider) {
+    public InstallerMBeanImpl(InfoProvider infoProvider, TaskStatistics taskStatistics) {
         this.infoProvider = infoProvider;
+        this.taskStatistics = taskStatistics;
     }
 
     //~---------------------------------------< InstallationListener >
@@ -72,4 +87,24 @@ public class InstallerMBeanImpl implements InstallationListener, InstallerMBean
     public long getSuspendedSince() {
         return active ? -1 : lastEventTime;
     }
+
+    @Override
+    public TabularData getTaskStatistics() {
+        try {
+            final CompositeType rowType = new CompositeType("TaskStatistics", "Execution time of an install task type",
+                    TASK_STATISTICS_ITEMS,
+                    new String[] {"Task type", "Number of executions", "Total execution time (ms)", "Maximum execution time (ms)"},
+                    new OpenType<?>[] {SimpleType.STRING, SimpleType.LONG, SimpleType.LONG, SimpleType.LONG});
+            final TabularDataSupport data = new TabularDataSupport(new TabularType("TaskStatistics",
+                    "Execution time statistics of the install tasks", rowType, new String[] {"type"}));
+            for(final Map.Entry<String, long[]> entry : taskStatistics.getTimings().entrySet()) {
+                final long[] values = entry.getValue();
+                data.put(new CompositeDataSupport(rowType, TASK_STATISTICS_ITEMS,
+                        new Object[] {entry.getKey(), values[0], values[1], values[2]}));
+            }
+            return data;
+        } catch (final OpenDataException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
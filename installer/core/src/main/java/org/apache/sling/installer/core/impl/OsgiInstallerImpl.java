@@ -93,6 +93,15 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
      */
     private static final String PROP_REQUIRED_SERVICES = "sling.installer.requiredservices";
 
+    /**
+     * The name of the framework property setting the number of threads
+     * for executing tasks of the same start level in parallel
+     */
+    private static final String PROP_PARALLEL_THREADS = "sling.installer.parallelthreads";
+
+    /** By default tasks are executed sequentially by the background thread */
+    private static final int DEFAULT_PARALLEL_THREADS = 1;
+
     /** The logger */
     private final Logger logger =  LoggerFactory.getLogger(this.getClass());
 
@@ -147,6 +156,12 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
     /** Switch start level on bundle update? */
     private final boolean switchStartLevel;
 
+    /** Executor for independent tasks, <code>null</code> if tasks are executed sequentially. */
+    private final ParallelTaskExecutor parallelExecutor;
+
+    /** Execution time statistics of the tasks. */
+    private final TaskStatistics taskStatistics = new TaskStatistics();
+
     /**
      *  Constructor
      *
@@ -160,6 +175,8 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
         this.listener = new InstallListener(ctx, logger);
         this.persistentList = new PersistentResourceList(f, listener);
         this.switchStartLevel = PropertiesUtil.toBoolean(ctx.getProperty(PROP_START_LEVEL_HANDLING), false);
+        final int parallelThreads = PropertiesUtil.toInteger(ctx.getProperty(PROP_PARALLEL_THREADS), DEFAULT_PARALLEL_THREADS);
+        this.parallelExecutor = parallelThreads > 1 ? new ParallelTaskExecutor(ctx, parallelThreads) : null;
     }
 
     /**
@@ -208,6 +225,10 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
             logger.debug("Done waiting for background thread");
         }
 
+        if ( this.parallelExecutor != null ) {
+            this.parallelExecutor.shutdown();
+        }
+
         // remove file util
         FileDataStore.SHARED = null;
 
@@ -840,6 +861,16 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
                 }
             };
             while (this.active && !tasks.isEmpty()) {
+                if ( this.parallelExecutor != null ) {
+                    final List<InstallTask> batch;
+                    synchronized (tasks) {
+                        batch = this.parallelExecutor.takeBatch(tasks);
+                    }
+                    if ( batch != null ) {
+                        this.parallelExecutor.execute(batch, ctx, this.taskStatistics);
+                        continue;
+                    }
+                }
                 InstallTask task = null;
                 synchronized (tasks) {
                     task = tasks.first();
@@ -889,11 +920,14 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
                     t.start();
                     return ACTION.SHUTDOWN;
                 }
+                final long start = System.nanoTime();
                 try {
                     logger.debug("Executing task: {}", task);
                     task.execute(ctx);
                 } catch (final Throwable t) {
                     logger.error("Uncaught exception during task execution!", t);
+                } finally {
+                    this.taskStatistics.record(task, System.nanoTime() - start);
                 }
             }
             // save new state
@@ -1352,6 +1386,13 @@ implements OsgiInstaller, ResourceChangeListener, RetryHandler, InfoProvider, Ru
         return null;
     }
 
+    /**
+     * The execution time statistics of the tasks.
+     */
+    public TaskStatistics getTaskStatistics() {
+        return this.taskStatistics;
+    }
+
     /**
      * @see org.apache.sling.installer.api.info.InfoProvider#getInstallationState()
      */
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.core.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.sling.installer.api.tasks.InstallTask;
+import org.apache.sling.installer.api.tasks.InstallationContext;
+import org.apache.sling.installer.core.impl.tasks.BundleInstallTask;
+import org.apache.sling.installer.core.impl.tasks.BundleStartTask;
+import org.apache.sling.installer.core.impl.tasks.BundleUpdateTask;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.startlevel.BundleStartLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes batches of tasks of the same start level concurrently.
+ *
+ * A batch is the run of consecutive tasks at the head of the sorted tasks
+ * which are either bundle install or bundle update tasks for the same start
+ * level or bundle start tasks for bundles with the same start level, so the
+ * tasks are never reordered. Bundles of the same start level are treated as
+ * independent, as the framework does not order them either when changing the
+ * start level: their package dependencies are resolved by the framework and
+ * their service dependencies have to be dynamic anyway. All other tasks are
+ * executed sequentially by the installer. As refresh tasks sort between the
+ * update and the start tasks, the refreshes requested by a batch are
+ * executed as a single refresh once the batch is done.
+ */
+public class ParallelTaskExecutor {
+
+    /** The logger */
+    private final Logger logger =  LoggerFactory.getLogger(this.getClass());
+
+    private final BundleContext bundleContext;
+
+    private final ExecutorService executor;
+
+    public ParallelTaskExecutor(final BundleContext bundleContext, final int threads) {
+        this.bundleContext = bundleContext;
+        final AtomicInteger counter = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+            @Override
+            public Thread newThread(final Runnable r) {
+                final Thread t = new Thread(r, "OsgiInstallerImpl-worker-" + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Shutdown the executor.
+     */
+    public void shutdown() {
+        this.executor.shutdownNow();
+    }
+
+    /**
+     * Remove the next batch from the tasks.
+     * The caller must synchronize on the tasks.
+     * @param tasks The sorted tasks
+     * @return The batch or {@code null} if the first task should be executed sequentially
+     */
+    public List<InstallTask> takeBatch(final SortedSet<InstallTask> tasks) {
+        final InstallTask first = tasks.first();
+        final Class<?> type = first.getClass();
+        if ( type != BundleInstallTask.class && type != BundleUpdateTask.class && type != BundleStartTask.class ) {
+            return null;
+        }
+        final String key = getBatchKey(first);
+        final List<InstallTask> batch = new ArrayList<InstallTask>();
+        for(final InstallTask t : tasks) {
+            if ( t.getClass() != type || !key.equals(getBatchKey(t)) ) {
+                break;
+            }
+            batch.add(t);
+        }
+        if ( batch.size() < 2 ) {
+            return null;
+        }
+        tasks.removeAll(batch);
+        return batch;
+    }
+
+    /**
+     * Execute the tasks concurrently and wait until all are done.
+     */
+    public void execute(final List<InstallTask> batch,
+            final InstallationContext ctx,
+            final TaskStatistics statistics) {
+        logger.debug("Executing {} tasks in parallel: {}", batch.size(), batch);
+        final List<Future<?>> futures = new ArrayList<Future<?>>();
+        for(final InstallTask task : batch) {
+            final Runnable runnable = new Runnable() {
+
+                @Override
+                public void run() {
+                    final long start = System.nanoTime();
+                    try {
+                        logger.debug("Executing task: {}", task);
+                        task.execute(ctx);
+                    } catch (final Throwable t) {
+                        logger.error("Uncaught exception during task execution!", t);
+                    } finally {
+                        statistics.record(task, System.nanoTime() - start);
+                    }
+                }
+            };
+            try {
+                futures.add(this.executor.submit(runnable));
+            } catch (final RejectedExecutionException ree) {
+                // shutting down, the remaining tasks are processed on the next start
+                logger.debug("Executor is shut down, not executing task {}", task);
+            }
+        }
+        boolean interrupted = false;
+        for(final Future<?> f : futures) {
+            while ( true ) {
+                try {
+                    f.get();
+                    break;
+                } catch (final InterruptedException ie) {
+                    interrupted = true;
+                } catch (final ExecutionException ee) {
+                    // already logged by the task
+                    break;
+                }
+            }
+        }
+        if ( interrupted ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The batch key of start tasks is the start level of the bundle, the
+     * batch key of install and update tasks is the sort key up to
+     * (excluding) the resource information.
+     */
+    private String getBatchKey(final InstallTask task) {
+        if ( task instanceof BundleStartTask ) {
+            return String.valueOf(this.getStartLevel((BundleStartTask)task));
+        }
+        final String sortKey = task.getSortKey();
+        final int pos = sortKey.indexOf('-', 3);
+        return pos == -1 ? sortKey : sortKey.substring(0, pos);
+    }
+
+    int getStartLevel(final BundleStartTask task) {
+        try {
+            final Bundle b = this.bundleContext.getBundle(task.getBundleId());
+            if ( b != null ) {
+                final BundleStartLevel bsl = b.adapt(BundleStartLevel.class);
+                if ( bsl != null ) {
+                    return bsl.getStartLevel();
+                }
+            }
+        } catch ( final IllegalStateException ignore ) {
+            // bundle is uninstalled, the task handles this
+        }
+        return 0;
+    }
+}
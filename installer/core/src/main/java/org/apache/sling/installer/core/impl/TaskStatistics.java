@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.core.impl;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.sling.installer.api.tasks.InstallTask;
+
+/**
+ * Execution time statistics of install tasks, collected per task type.
+ */
+public class TaskStatistics {
+
+    private final ConcurrentMap<String, Timing> timings = new ConcurrentHashMap<String, Timing>();
+
+    /**
+     * Record the execution of a task.
+     * @param task The task
+     * @param durationNanos The execution time in nanoseconds
+     */
+    public void record(final InstallTask task, final long durationNanos) {
+        final String type = task.getClass().getSimpleName();
+        Timing t = this.timings.get(type);
+        if ( t == null ) {
+            final Timing newTiming = new Timing();
+            t = this.timings.putIfAbsent(type, newTiming);
+            if ( t == null ) {
+                t = newTiming;
+            }
+        }
+        t.record(durationNanos);
+    }
+
+    /**
+     * Get a snapshot of the timings, sorted by task type.
+     * @return A map from the task type to count, total and max time in milliseconds
+     */
+    public Map<String, long[]> getTimings() {
+        final Map<String, long[]> result = new TreeMap<String, long[]>();
+        for(final Map.Entry<String, Timing> entry : this.timings.entrySet()) {
+            final Timing t = entry.getValue();
+            result.put(entry.getKey(), new long[] {t.count.get(), t.totalNanos.get() / 1000000, t.maxNanos.get() / 1000000});
+        }
+        return result;
+    }
+
+    private static final class Timing {
+
+        final AtomicLong count = new AtomicLong();
+
+        final AtomicLong totalNanos = new AtomicLong();
+
+        final AtomicLong maxNanos = new AtomicLong();
+
+        void record(final long durationNanos) {
+            this.count.incrementAndGet();
+            this.totalNanos.addAndGet(durationNanos);
+            long max = this.maxNanos.get();
+            while ( durationNanos > max && !this.maxNanos.compareAndSet(max, durationNanos) ) {
+                max = this.maxNanos.get();
+            }
+        }
+    }
+}
@@ -51,6 +51,10 @@ public class BundleStartTask extends AbstractBundleTask {
         return sortKey;
     }
 
+    public long getBundleId() {
+        return this.bundleId;
+    }
+
     @Override
     public String toString() {
         return getClass().getSimpleName() + ": bundle " + bundleId;
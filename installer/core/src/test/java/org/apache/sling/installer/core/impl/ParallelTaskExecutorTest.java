@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.core.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.sling.installer.api.InstallableResource;
+import org.apache.sling.installer.api.tasks.InstallTask;
+import org.apache.sling.installer.api.tasks.InstallationContext;
+import org.apache.sling.installer.api.tasks.TransformationResult;
+import org.apache.sling.installer.core.impl.tasks.BundleInstallTask;
+import org.apache.sling.installer.core.impl.tasks.BundleStartTask;
+import org.apache.sling.installer.core.impl.tasks.MockInstallationListener;
+import org.apache.sling.installer.core.impl.tasks.RefreshBundlesTask;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelTaskExecutorTest {
+
+    private ParallelTaskExecutor executor;
+
+    @Before
+    public void setUp() {
+        executor = new ParallelTaskExecutor(new MockBundleContext(), 4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    private static EntityResourceList getRegisteredResource(final String url) throws IOException {
+        new FileDataStore(new MockBundleContext());
+        final InternalResource internal = InternalResource.create("test",
+                new InstallableResource(url, null, new Hashtable<String, Object>(), null, null, null));
+        RegisteredResourceImpl rr = RegisteredResourceImpl.create(internal);
+        final TransformationResult result = new TransformationResult();
+        result.setId(url);
+        result.setResourceType(InstallableResource.TYPE_BUNDLE);
+        rr = (RegisteredResourceImpl)rr.clone(result);
+
+        final EntityResourceList erl = new EntityResourceList("test", new MockInstallationListener());
+        erl.addOrUpdate(rr);
+        return erl;
+    }
+
+    @Test
+    public void testInstallBatch() throws Exception {
+        final BundleInstallTask a = new BundleInstallTask(getRegisteredResource("test:a.jar"), null);
+        final BundleInstallTask b = new BundleInstallTask(getRegisteredResource("test:b.jar"), null);
+        final SortedSet<InstallTask> tasks = new TreeSet<InstallTask>(Arrays.<InstallTask>asList(
+                a, b, new RefreshBundlesTask(null), new BundleStartTask(null, 5, null)));
+
+        final List<InstallTask> batch = executor.takeBatch(tasks);
+        assertEquals(Arrays.<InstallTask>asList(a, b), batch);
+        assertEquals(2, tasks.size());
+        assertTrue(tasks.first() instanceof RefreshBundlesTask);
+    }
+
+    @Test
+    public void testSequentialTasksAreNotBatched() throws Exception {
+        final SortedSet<InstallTask> tasks = new TreeSet<InstallTask>(Arrays.<InstallTask>asList(
+                new BundleInstallTask(getRegisteredResource("test:a.jar"), null),
+                new RefreshBundlesTask(null),
+                new BundleStartTask(null, 5, null)));
+
+        // a single install task
+        assertNull(executor.takeBatch(tasks));
+        assertEquals(3, tasks.size());
+
+        // refresh tasks are never batched
+        tasks.remove(tasks.first());
+        assertNull(executor.takeBatch(tasks));
+        assertEquals(2, tasks.size());
+    }
+
+    @Test
+    public void testStartBatch() throws Exception {
+        final SortedSet<InstallTask> tasks = new TreeSet<InstallTask>(Arrays.<InstallTask>asList(
+                new BundleStartTask(null, 5, null),
+                new BundleStartTask(null, 6, null),
+                new BundleStartTask(null, 7, null)));
+
+        final List<InstallTask> batch = executor.takeBatch(tasks);
+        assertEquals(3, batch.size());
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    public void testStartBatchIsContiguous() throws Exception {
+        final ParallelTaskExecutor levels = new ParallelTaskExecutor(new MockBundleContext(), 4) {
+            @Override
+            int getStartLevel(final BundleStartTask task) {
+                return task.getBundleId() == 7 ? 20 : 10;
+            }
+        };
+        try {
+            final BundleStartTask five = new BundleStartTask(null, 5, null);
+            final BundleStartTask six = new BundleStartTask(null, 6, null);
+            final SortedSet<InstallTask> tasks = new TreeSet<InstallTask>(Arrays.<InstallTask>asList(
+                    five, six, new BundleStartTask(null, 7, null), new BundleStartTask(null, 8, null)));
+
+            // bundle 8 has the same start level but is not moved before bundle 7
+            assertEquals(Arrays.<InstallTask>asList(five, six), levels.takeBatch(tasks));
+            assertNull(levels.takeBatch(tasks));
+            assertEquals(2, tasks.size());
+        } finally {
+            levels.shutdown();
+        }
+    }
+
+    @Test
+    public void testExecuteConcurrently() throws Exception {
+        final CyclicBarrier barrier = new CyclicBarrier(3);
+        final List<InstallTask> batch = Arrays.<InstallTask>asList(new BarrierTask("a", barrier),
+                new BarrierTask("b", barrier), new BarrierTask("c", barrier));
+        final TaskStatistics statistics = new TaskStatistics();
+
+        executor.execute(batch, null, statistics);
+
+        for(final InstallTask t : batch) {
+            assertTrue(t + " did not meet the others", ((BarrierTask)t).passed);
+        }
+        assertEquals(3, statistics.getTimings().get(BarrierTask.class.getSimpleName())[0]);
+    }
+
+    private static final class BarrierTask extends InstallTask {
+
+        private final String key;
+
+        private final CyclicBarrier barrier;
+
+        volatile boolean passed;
+
+        BarrierTask(final String key, final CyclicBarrier barrier) {
+            super(null);
+            this.key = key;
+            this.barrier = barrier;
+        }
+
+        @Override
+        public void execute(final InstallationContext ctx) {
+            try {
+                // only passes if all tasks of the batch run at the same time
+                barrier.await(5, TimeUnit.SECONDS);
+                passed = true;
+            } catch (final Exception e) {
+                // not passed
+            }
+        }
+
+        @Override
+        public String getSortKey() {
+            return key;
+        }
+    }
+}
@@ -19,8 +19,14 @@
 package org.apache.sling.installer.provider.file.impl;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -28,10 +34,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * This class is a monitor for the file system
- * that periodically checks for changes.
+ * This class is a monitor for the file system.
+ * If possible, changes are detected by a {@link FileWatcher} and only
+ * the changed entries are checked. Otherwise or if the root directory
+ * can't be watched anymore, the whole tree is checked periodically.
  */
-public class FileMonitor extends TimerTask {
+public class FileMonitor extends TimerTask implements FileWatcher.Listener {
 
     /** The logger. */
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
@@ -44,19 +52,38 @@ public class FileMonitor extends TimerTask {
 
     private final FileChangesListener listener;
 
+    private final long interval;
+
+    private volatile FileWatcher watcher;
+
     /**
      * Creates a new instance of this class.
      * @param interval The interval between executions of the task, in milliseconds.
+     * @param watch Whether changes should be detected by watching the file system
      */
-    public FileMonitor(final File rootDir, final Long interval, final FileChangesListener listener) {
+    public FileMonitor(final File rootDir, final Long interval, final boolean watch, final FileChangesListener listener) {
         this.listener = listener;
         this.root = new Monitorable(rootDir);
+        this.interval = (interval != null ? interval : 5000);
+        // register the watcher before the initial scan so no change gets lost
+        if ( watch && rootDir.isDirectory() ) {
+            try {
+                this.watcher = new FileWatcher(rootDir, FileWatcher.DEFAULT_DEBOUNCE, this);
+            } catch (final IOException e) {
+                logger.info("Unable to watch {}, falling back to periodic checks: {}", rootDir, e.getMessage());
+            }
+        }
         createStatus(this.root);
         final List<File> files = new ArrayList<File>();
         collect(this.root.file, files);
         this.listener.initialSet(files);
-        logger.debug("Starting file monitor for {} with an interval of {}ms", this.root.file, interval);
-        timer.schedule(this, 0, (interval != null ? interval : 5000));
+        if ( this.watcher != null ) {
+            logger.debug("Starting file watcher for {}", this.root.file);
+            this.watcher.start();
+        } else {
+            logger.debug("Starting file monitor for {} with an interval of {}ms", this.root.file, this.interval);
+            timer.schedule(this, 0, this.interval);
+        }
     }
 
     public File getRoot() {
@@ -104,6 +131,10 @@ public class FileMonitor extends TimerTask {
      * never run (again).
      */
     void stop() {
+        final FileWatcher w = this.watcher;
+        if ( w != null ) {
+            w.stop();
+        }
         synchronized (timer) {
             if (!stop) {
                 stop = true;
@@ -154,6 +185,128 @@ public class FileMonitor extends TimerTask {
         }
     }
 
+    /**
+     * @see org.apache.sling.installer.provider.file.impl.FileWatcher.Listener#changed(java.util.Set, java.util.Set)
+     */
+    public void changed(final Set<File> changed, final Set<File> rescan) {
+        synchronized ( this ) {
+            try {
+                final Collector c = new Collector();
+                for(final File dir : rescan) {
+                    final Monitorable monitorable = this.find(dir);
+                    if ( monitorable != null ) {
+                        logger.debug("Rescanning {}", dir);
+                        if ( monitorable.status instanceof DirStatus ) {
+                            // force an update of the children
+                            ((DirStatus)monitorable.status).lastModified = -1;
+                        }
+                        this.check(monitorable, c);
+                    }
+                }
+                // check parents before their children, so a removed or added
+                // directory is handled as a whole
+                final List<File> files = new ArrayList<File>(changed);
+                Collections.sort(files, DEPTH_COMPARATOR);
+                for(final File file : files) {
+                    this.checkEntry(file, c);
+                }
+                this.listener.updated(c.added, c.changed, c.removed);
+            } catch (Exception e) {
+                logger.warn("Unable to process changes in " + this.root.file, e);
+            }
+        }
+    }
+
+    /**
+     * @see org.apache.sling.installer.provider.file.impl.FileWatcher.Listener#invalidated()
+     */
+    public void invalidated() {
+        this.watcher = null;
+        synchronized ( timer ) {
+            if ( !stop ) {
+                logger.debug("Continuing file monitor for {} with an interval of {}ms", this.root.file, this.interval);
+                timer.schedule(this, 0, this.interval);
+            }
+        }
+    }
+
+    /**
+     * Check a single entry reported by the watcher.
+     */
+    private void checkEntry(final File file, final Collector collector) {
+        final Monitorable parent = this.find(file.getParentFile());
+        if ( parent == null || !(parent.status instanceof DirStatus) ) {
+            // the parent has been added or removed as a whole
+            return;
+        }
+        final DirStatus ds = (DirStatus)parent.status;
+        Monitorable monitorable = null;
+        for(final Monitorable child : ds.children) {
+            if ( child.file.getName().equals(file.getName()) ) {
+                monitorable = child;
+                break;
+            }
+        }
+        if ( monitorable == null ) {
+            monitorable = new Monitorable(file);
+            monitorable.status = NonExistingStatus.SINGLETON;
+            ds.children = Arrays.copyOf(ds.children, ds.children.length + 1);
+            ds.children[ds.children.length - 1] = monitorable;
+        } else if ( monitorable.status instanceof DirStatus && monitorable.file.isDirectory() ) {
+            // the content of a directory is watched on its own
+            return;
+        }
+        this.check(monitorable, collector);
+        if ( monitorable.status instanceof NonExistingStatus ) {
+            final List<Monitorable> children = new ArrayList<Monitorable>(Arrays.asList(ds.children));
+            children.remove(monitorable);
+            ds.children = children.toArray(new Monitorable[children.size()]);
+        }
+    }
+
+    /**
+     * Find the monitorable for a file
+     * @return The monitorable or {@code null} if the file is not part of the current tree.
+     */
+    private Monitorable find(final File file) {
+        final Path relPath;
+        try {
+            relPath = this.root.file.toPath().relativize(file.toPath());
+        } catch (final IllegalArgumentException e) {
+            return null;
+        }
+        Monitorable current = this.root;
+        for(final Path name : relPath) {
+            final String segment = name.toString();
+            if ( segment.isEmpty() ) {
+                continue;
+            }
+            if ( !(current.status instanceof DirStatus) || segment.equals("..") ) {
+                return null;
+            }
+            Monitorable next = null;
+            for(final Monitorable child : ((DirStatus)current.status).children) {
+                if ( child.file.getName().equals(segment) ) {
+                    next = child;
+                    break;
+                }
+            }
+            if ( next == null ) {
+                return null;
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    /** Orders files by the depth of their path. */
+    private static final Comparator<File> DEPTH_COMPARATOR = new Comparator<File>() {
+
+        public int compare(final File f1, final File f2) {
+            return f1.toPath().getNameCount() - f2.toPath().getNameCount();
+        }
+    };
+
     /**
      * Check the monitorable
      * @param monitorable The monitorable to check
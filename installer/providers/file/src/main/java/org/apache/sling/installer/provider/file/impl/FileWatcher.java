@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.sling.installer.provider.file.impl;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Watches a directory tree with a {@link WatchService} and reports
+ * the changed entries in debounced batches.
+ * Directories are registered recursively, including directories
+ * created later on. If events of a directory are lost, the directory
+ * is reported for a rescan.
+ * <p>
+ * Only native watch services are used. Where the platform falls back
+ * to a polling watch service (e.g. on Mac OS X, which polls every ten
+ * seconds), the watcher can't be created and the callers should use
+ * their own periodic checks, which are usually more frequent.
+ * <p>
+ * This class is also inlined into the file system resource provider
+ * bundle, so it must only depend on the JDK and SLF4J.
+ */
+public final class FileWatcher implements Runnable {
+
+    /** Default quiet period before a batch of changes is reported, in milliseconds. */
+    public static final long DEFAULT_DEBOUNCE = 100;
+
+    /** A batch is reported at the latest after this multiple of the debounce period. */
+    private static final int MAX_DEBOUNCE_FACTOR = 10;
+
+    /** Listener for the changes. */
+    public interface Listener {
+
+        /**
+         * Called with a batch of changes.
+         * @param changed Files and directories which have been added, changed or removed
+         * @param rescan Directories which have to be rescanned because events have been lost
+         */
+        void changed(Set<File> changed, Set<File> rescan);
+
+        /**
+         * Called if the root directory can't be watched anymore, e.g. because
+         * it has been removed. The watcher is stopped afterwards.
+         */
+        void invalidated();
+    }
+
+    /** The logger. */
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Path root;
+
+    private final long debounce;
+
+    private final Listener listener;
+
+    private final WatchService watchService;
+
+    private final Map<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+
+    private final Thread thread;
+
+    private volatile boolean stopped;
+
+    /**
+     * Creates a new watcher and registers the directory tree.
+     * Changes are not reported before {@link #start()} is called.
+     * @param rootDir The root directory
+     * @param debounce The quiet period before a batch of changes is reported, in milliseconds
+     * @param listener The listener
+     * @throws IOException If the watch service is not available or the tree can't be registered
+     */
+    public FileWatcher(final File rootDir, final long debounce, final Listener listener) throws IOException {
+        this.root = rootDir.toPath();
+        this.debounce = debounce;
+        this.listener = listener;
+        this.watchService = this.root.getFileSystem().newWatchService();
+        if ( this.watchService.getClass().getName().endsWith(".PollingWatchService") ) {
+            this.watchService.close();
+            throw new IOException("The watch service of the platform is not native");
+        }
+        try {
+            this.registerAll(this.root);
+        } catch (final IOException e) {
+            this.watchService.close();
+            throw e;
+        }
+        this.thread = new Thread(this, "Apache Sling File Watcher " + rootDir);
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        this.thread.start();
+    }
+
+    /**
+     * Stop watching. If a batch is currently reported, this method
+     * waits until the listener returns.
+     */
+    public void stop() {
+        this.stopped = true;
+        try {
+            this.watchService.close();
+        } catch (final IOException e) {
+            logger.debug("Unable to close watch service for " + this.root, e);
+        }
+        if ( Thread.currentThread() != this.thread ) {
+            boolean interrupted = false;
+            while ( this.thread.isAlive() ) {
+                try {
+                    this.thread.join();
+                } catch (final InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if ( interrupted ) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @see java.lang.Runnable#run()
+     */
+    public void run() {
+        final Set<File> changed = new LinkedHashSet<File>();
+        final Set<File> rescan = new LinkedHashSet<File>();
+        long firstEvent = 0;
+        boolean valid = true;
+        while ( !stopped && valid ) {
+            final WatchKey key;
+            try {
+                if ( changed.isEmpty() && rescan.isEmpty() ) {
+                    key = this.watchService.take();
+                } else {
+                    key = this.watchService.poll(this.debounce, TimeUnit.MILLISECONDS);
+                }
+            } catch (final InterruptedException e) {
+                break;
+            } catch (final ClosedWatchServiceException e) {
+                break;
+            }
+            if ( key != null ) {
+                valid = this.processEvents(key, changed, rescan);
+                if ( firstEvent == 0 && (!changed.isEmpty() || !rescan.isEmpty()) ) {
+                    firstEvent = System.currentTimeMillis();
+                }
+            }
+            final boolean due = key == null || !valid
+                    || System.currentTimeMillis() - firstEvent >= this.debounce * MAX_DEBOUNCE_FACTOR;
+            if ( due && !stopped && (!changed.isEmpty() || !rescan.isEmpty()) ) {
+                logger.debug("Reporting {} changed entries and {} directories to rescan in {}",
+                        new Object[] {changed.size(), rescan.size(), this.root});
+                try {
+                    this.listener.changed(new LinkedHashSet<File>(changed), new LinkedHashSet<File>(rescan));
+                } catch (final Exception e) {
+                    logger.warn("Unable to process changes in " + this.root, e);
+                }
+                changed.clear();
+                rescan.clear();
+                firstEvent = 0;
+            }
+        }
+        if ( !valid && !stopped ) {
+            logger.debug("Root directory {} is not watchable anymore", this.root);
+            this.stop();
+            this.listener.invalidated();
+        }
+    }
+
+    /**
+     * Collect the events of a key.
+     * @return {@code false} if the root directory is not watchable anymore
+     */
+    private boolean processEvents(final WatchKey key, final Set<File> changed, final Set<File> rescan) {
+        final Path dir = this.keys.get(key);
+        if ( dir != null ) {
+            for(final WatchEvent<?> event : key.pollEvents()) {
+                if ( event.kind() == OVERFLOW ) {
+                    logger.debug("Events lost for {}", dir);
+                    rescan.add(dir.toFile());
+                    continue;
+                }
+                final Path child = dir.resolve((Path)event.context());
+                changed.add(child.toFile());
+                if ( event.kind() == ENTRY_CREATE && Files.isDirectory(child) ) {
+                    try {
+                        this.registerAll(child);
+                    } catch (final IOException e) {
+                        logger.debug("Unable to watch " + child, e);
+                        rescan.add(dir.toFile());
+                    }
+                }
+            }
+        }
+        if ( !key.reset() ) {
+            this.keys.remove(key);
+            if ( this.root.equals(dir) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void registerAll(final Path start) throws IOException {
+        Files.walkFileTree(start, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+                new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs)
+            throws IOException {
+                keys.put(dir.register(watchService, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY), dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(final Path file, final IOException exc)
+            throws IOException {
+                if ( file.equals(start) ) {
+                    throw exc;
+                }
+                // removed in the meantime or a symbolic link loop
+                logger.debug("Unable to visit {}: {}", file, exc.getMessage());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
@@ -101,6 +101,9 @@ public class DefaultStartupHandler
     /** MBean startup listener. */
     private final StartupListener mbeanStartupListener;
 
+    /** The startup profiler, if enabled. */
+    private final StartupProfiler profiler;
+
     /** The started time. */
     private final long startedAt;
 
@@ -111,12 +114,16 @@ public class DefaultStartupHandler
      * @param context Bundle context
      * @param logger  Logger
      * @param manager The startup manager
+     * @param startedAt The start time
+     * @param profiler The startup profiler or {@code null}
      */
     public DefaultStartupHandler(final BundleContext context,
             final Logger logger,
             final StartupManager manager,
-            final long startedAt) {
+            final long startedAt,
+            final StartupProfiler profiler) {
         this.logger = logger;
+        this.profiler = profiler;
         this.bundleContext = context;
         this.startedAt = startedAt;
         this.startupMode = manager.getMode();
@@ -367,6 +374,9 @@ public class DefaultStartupHandler
         if ( this.mbeanStartupListener != null ) {
             this.mbeanStartupListener.startupFinished(this.startupMode);
         }
+        if ( this.profiler != null ) {
+            this.profiler.startupFinished(this.startupMode);
+        }
 
         // stop the queue
         this.enqueue(false);
@@ -207,21 +207,32 @@ public class Sling {
 
             // initiate startup handler
             final StartupManager startupManager = new StartupManager(props, logger);
+            final StartupProfiler profiler = startupManager.createProfiler();
 
             Framework tmpFramework = createFramework(notifiable, logger, props);
             init(tmpFramework);
+            if (profiler != null) {
+                profiler.register(tmpFramework.getBundleContext());
+                profiler.begin("bootstrap install");
+            }
 
             final boolean restart = new BootstrapInstaller(tmpFramework.getBundleContext(), logger,
                     resourceProvider, startupManager.getMode()).install();
             startupManager.markInstalled();
+            if (profiler != null) {
+                profiler.end("bootstrap install");
+            }
 
             if (restart) {
                 restart(tmpFramework);
                 tmpFramework = createFramework(notifiable, logger, props);
                 init(tmpFramework);
+                if (profiler != null) {
+                    profiler.register(tmpFramework.getBundleContext());
+                }
             }
 
-            new DefaultStartupHandler(tmpFramework.getBundleContext(), logger, startupManager, startedAt);
+            new DefaultStartupHandler(tmpFramework.getBundleContext(), logger, startupManager, startedAt, profiler);
 
             // finally start
             tmpFramework.start();
@@ -49,6 +49,18 @@ public class StartupManager {
     /** Name of the mode override property. */
     private static final String OVERRIDE_PROP = "org.apache.sling.launchpad.startupmode";
 
+    /** Name of the property enabling the startup profiler. */
+    private static final String PROFILER_PROP = "org.apache.sling.launchpad.startup.profiler";
+
+    /** Name of the property defining the number of events kept by the startup profiler. */
+    private static final String PROFILER_SIZE_PROP = "org.apache.sling.launchpad.startup.profiler.size";
+
+    /** The default number of events kept by the startup profiler. */
+    private static final int DEFAULT_PROFILER_SIZE = 65536;
+
+    /** The file the startup timeline is written to. */
+    private static final String PROFILER_FILE = "startup-timeline.json";
+
     /**
      * The {@link Logger} use for logging messages during installation and
      * startup.
@@ -65,6 +77,10 @@ public class StartupManager {
 
     private final boolean incrementalStartupEnabled;
 
+    private final boolean profilerEnabled;
+
+    private final int profilerSize;
+
     StartupManager(final Map<String, String> properties,
                    final Logger logger) {
         this.logger = logger;
@@ -84,6 +100,18 @@ public class StartupManager {
 
         this.incrementalStartupEnabled = Boolean.valueOf(properties.get(SharedConstants.SLING_INSTALL_INCREMENTAL_START));
 
+        this.profilerEnabled = Boolean.valueOf(System.getProperty(PROFILER_PROP, properties.get(PROFILER_PROP)));
+        int size = DEFAULT_PROFILER_SIZE;
+        final String sizeValue = System.getProperty(PROFILER_SIZE_PROP, properties.get(PROFILER_SIZE_PROP));
+        if ( sizeValue != null ) {
+            try {
+                size = Integer.parseInt(sizeValue.trim());
+            } catch (final NumberFormatException nfe) {
+                this.logger.log(Logger.LOG_WARNING, "Invalid startup profiler size " + sizeValue + ", using " + DEFAULT_PROFILER_SIZE);
+            }
+        }
+        this.profilerSize = size > 0 ? size : DEFAULT_PROFILER_SIZE;
+
         // if this is not a restart, reduce start level
         if ( this.mode != StartupMode.RESTART && this.incrementalStartupEnabled ) {
             final String startLevel = properties.get(SharedConstants.SLING_INSTALL_STARTLEVEL);
@@ -106,6 +134,17 @@ public class StartupManager {
         return this.incrementalStartupEnabled;
     }
 
+    /**
+     * Create the startup profiler if it is enabled.
+     * @return The profiler or {@code null}
+     */
+    public StartupProfiler createProfiler() {
+        if ( !this.profilerEnabled ) {
+            return null;
+        }
+        return new StartupProfiler(this.logger, new File(this.confDir.getParentFile(), PROFILER_FILE), this.profilerSize);
+    }
+
     /**
      * Return the target start level.
      * @return Target start level
@@ -0,0 +1,348 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.launchpad.base.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.apache.felix.framework.Logger;
+import org.apache.sling.launchpad.api.StartupMode;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.Constants;
+import org.osgi.framework.FrameworkEvent;
+import org.osgi.framework.FrameworkListener;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.SynchronousBundleListener;
+import org.osgi.framework.startlevel.FrameworkStartLevel;
+
+/**
+ * The startup profiler records a timeline of framework events
+ * (bundle lifecycle, service registrations and start level changes)
+ * during startup into a ring buffer.
+ *
+ * Once the startup is finished, the timeline is written in the
+ * trace event format which can be loaded into chrome://tracing or
+ * flame graph viewers like speedscope.
+ *
+ * @see StartupManager#createProfiler()
+ */
+public class StartupProfiler
+    implements SynchronousBundleListener, FrameworkListener, ServiceListener {
+
+    /** Event phases of the trace event format. */
+    private static final char PHASE_BEGIN = 'B';
+
+    private static final char PHASE_END = 'E';
+
+    private static final char PHASE_INSTANT = 'i';
+
+    /** Logger. */
+    private final Logger logger;
+
+    /** The file to write the timeline to. */
+    private final File file;
+
+    /** The ring buffer. */
+    private final AtomicReferenceArray<Event> events;
+
+    /** The number of recorded events. */
+    private final AtomicLong count = new AtomicLong();
+
+    /** The time the profiler has been created. */
+    private final long startNanos = System.nanoTime();
+
+    /** The context of the current framework. */
+    private volatile BundleContext bundleContext;
+
+    /**
+     * Create a new profiler
+     * @param logger Logger
+     * @param file The file to write the timeline to
+     * @param capacity The maximum number of events kept
+     */
+    public StartupProfiler(final Logger logger, final File file, final int capacity) {
+        this.logger = logger;
+        this.file = file;
+        this.events = new AtomicReferenceArray<Event>(capacity);
+    }
+
+    /**
+     * Start listening for events of the framework.
+     * This is called again if the framework is restarted.
+     * @param context The system bundle context
+     */
+    public void register(final BundleContext context) {
+        this.bundleContext = context;
+        context.addBundleListener(this);
+        context.addFrameworkListener(this);
+        context.addServiceListener(this);
+    }
+
+    /**
+     * Record the begin of a custom section.
+     * @param name The name of the section
+     */
+    public void begin(final String name) {
+        this.record(PHASE_BEGIN, "launchpad", name, null);
+    }
+
+    /**
+     * Record the end of a custom section.
+     * @param name The name of the section
+     */
+    public void end(final String name) {
+        this.record(PHASE_END, "launchpad", name, null);
+    }
+
+    /**
+     * The startup is finished. Stop listening and
+     * write the timeline.
+     * @param mode The startup mode
+     */
+    public void startupFinished(final StartupMode mode) {
+        this.record(PHASE_INSTANT, "framework", "startup finished", mode.name());
+        final BundleContext context = this.bundleContext;
+        if ( context != null ) {
+            try {
+                context.removeServiceListener(this);
+                context.removeFrameworkListener(this);
+                context.removeBundleListener(this);
+            } catch ( final IllegalStateException ignore ) {
+                // framework is already stopped
+            }
+            this.bundleContext = null;
+        }
+        try {
+            this.file.getParentFile().mkdirs();
+            final Writer w = new OutputStreamWriter(new FileOutputStream(this.file), "UTF-8");
+            try {
+                this.write(w, mode);
+            } finally {
+                w.close();
+            }
+            this.logger.log(Logger.LOG_INFO, "Startup timeline written to " + this.file.getAbsolutePath());
+        } catch ( final IOException ioe ) {
+            this.logger.log(Logger.LOG_ERROR, "Unable to write startup timeline to " + this.file.getAbsolutePath(), ioe);
+        }
+    }
+
+    /**
+     * @see org.osgi.framework.BundleListener#bundleChanged(org.osgi.framework.BundleEvent)
+     */
+    @Override
+    public void bundleChanged(final BundleEvent event) {
+        final Bundle bundle = event.getBundle();
+        final String name = bundle.getSymbolicName() != null ? bundle.getSymbolicName() : bundle.getLocation();
+        final String bundleId = String.valueOf(bundle.getBundleId());
+        switch ( event.getType() ) {
+            case BundleEvent.STARTING : this.record(PHASE_BEGIN, "bundle", "start " + name, bundleId);
+                                        break;
+            case BundleEvent.STARTED : this.record(PHASE_END, "bundle", "start " + name, bundleId);
+                                       break;
+            case BundleEvent.STOPPING : this.record(PHASE_BEGIN, "bundle", "stop " + name, bundleId);
+                                        break;
+            case BundleEvent.STOPPED : this.record(PHASE_END, "bundle", "stop " + name, bundleId);
+                                       break;
+            case BundleEvent.INSTALLED : this.record(PHASE_INSTANT, "bundle", "install " + name, bundleId);
+                                         break;
+            case BundleEvent.RESOLVED : this.record(PHASE_INSTANT, "bundle", "resolve " + name, bundleId);
+                                        break;
+            case BundleEvent.UPDATED : this.record(PHASE_INSTANT, "bundle", "update " + name, bundleId);
+                                       break;
+            case BundleEvent.UNINSTALLED : this.record(PHASE_INSTANT, "bundle", "uninstall " + name, bundleId);
+                                           break;
+        }
+    }
+
+    /**
+     * @see org.osgi.framework.FrameworkListener#frameworkEvent(org.osgi.framework.FrameworkEvent)
+     */
+    @Override
+    public void frameworkEvent(final FrameworkEvent event) {
+        if ( event.getType() == FrameworkEvent.STARTLEVEL_CHANGED ) {
+            String level = null;
+            final FrameworkStartLevel fsl = event.getBundle().adapt(FrameworkStartLevel.class);
+            if ( fsl != null ) {
+                level = String.valueOf(fsl.getStartLevel());
+            }
+            this.record(PHASE_INSTANT, "framework", "start level changed", level);
+        } else if ( event.getType() == FrameworkEvent.STARTED ) {
+            this.record(PHASE_INSTANT, "framework", "framework started", null);
+        } else if ( event.getType() == FrameworkEvent.ERROR ) {
+            this.record(PHASE_INSTANT, "framework", "error", String.valueOf(event.getThrowable()));
+        }
+    }
+
+    /**
+     * @see org.osgi.framework.ServiceListener#serviceChanged(org.osgi.framework.ServiceEvent)
+     */
+    @Override
+    public void serviceChanged(final ServiceEvent event) {
+        if ( event.getType() == ServiceEvent.REGISTERED ) {
+            final Object objectClass = event.getServiceReference().getProperty(Constants.OBJECTCLASS);
+            final String name = objectClass instanceof String[]
+                    ? Arrays.toString((String[]) objectClass) : String.valueOf(objectClass);
+            final Bundle bundle = event.getServiceReference().getBundle();
+            this.record(PHASE_INSTANT, "service", "register " + name,
+                    bundle == null ? null : String.valueOf(bundle.getBundleId()));
+        }
+    }
+
+    /**
+     * Record an event in the ring buffer.
+     */
+    private void record(final char phase, final String category, final String name, final String info) {
+        final Thread current = Thread.currentThread();
+        final Event e = new Event(System.nanoTime() - this.startNanos, phase, category, name, info,
+                current.getId(), current.getName());
+        final long index = this.count.getAndIncrement();
+        this.events.set((int) (index % this.events.length()), e);
+    }
+
+    /**
+     * Write the timeline in the trace event format.
+     * @param w The writer
+     * @param mode The startup mode
+     * @throws IOException If writing fails
+     */
+    void write(final Writer w, final StartupMode mode) throws IOException {
+        final long total = this.count.get();
+        final long first = Math.max(0, total - this.events.length());
+
+        w.write("{\"displayTimeUnit\":\"ns\",\"otherData\":{\"mode\":");
+        writeString(w, mode.name());
+        w.write(",\"events\":");
+        w.write(String.valueOf(total));
+        w.write(",\"dropped\":");
+        w.write(String.valueOf(first));
+        w.write("},\"traceEvents\":[");
+        boolean needsComma = false;
+        for(long i = first; i < total; i++) {
+            final Event e = this.events.get((int) (i % this.events.length()));
+            if ( e == null ) {
+                continue;
+            }
+            if ( needsComma ) {
+                w.write(',');
+            }
+            needsComma = true;
+            w.write("\n{\"name\":");
+            writeString(w, e.name);
+            w.write(",\"cat\":");
+            writeString(w, e.category);
+            w.write(",\"ph\":\"");
+            w.write(e.phase);
+            w.write("\",\"ts\":");
+            // timestamps are in microseconds
+            w.write(String.valueOf(e.nanos / 1000));
+            w.write('.');
+            final String fraction = String.valueOf(e.nanos % 1000);
+            for(int p = fraction.length(); p < 3; p++) {
+                w.write('0');
+            }
+            w.write(fraction);
+            w.write(",\"pid\":1,\"tid\":");
+            w.write(String.valueOf(e.threadId));
+            if ( e.phase == PHASE_INSTANT ) {
+                w.write(",\"s\":\"t\"");
+            }
+            w.write(",\"args\":{\"thread\":");
+            writeString(w, e.threadName);
+            if ( e.info != null ) {
+                w.write(",\"info\":");
+                writeString(w, e.info);
+            }
+            w.write("}}");
+        }
+        w.write("\n]}\n");
+    }
+
+    private static void writeString(final Writer w, final String value) throws IOException {
+        w.write('"');
+        for(int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch ( c ) {
+                case '"' : w.write("\\\"");
+                           break;
+                case '\\' : w.write("\\\\");
+                            break;
+                case '\n' : w.write("\\n");
+                            break;
+                case '\r' : w.write("\\r");
+                            break;
+                case '\t' : w.write("\\t");
+                            break;
+                default : if ( c < 0x20 ) {
+                              final String hex = Integer.toHexString(c);
+                              w.write("\\u");
+                              for(int p = hex.length(); p < 4; p++) {
+                                  w.write('0');
+                              }
+                              w.write(hex);
+                          } else {
+                              w.write(c);
+                          }
+            }
+        }
+        w.write('"');
+    }
+
+    /**
+     * A recorded event.
+     */
+    private static final class Event {
+
+        final long nanos;
+
+        final char phase;
+
+        final String category;
+
+        final String name;
+
+        final String info;
+
+        final long threadId;
+
+        final String threadName;
+
+        Event(final long nanos,
+              final char phase,
+              final String category,
+              final String name,
+              final String info,
+              final long threadId,
+              final String threadName) {
+            this.nanos = nanos;
+            this.phase = phase;
+            this.category = category;
+            this.name = name;
+            this.info = info;
+            this.threadId = threadId;
+            this.threadName = threadName;
+        }
+    }
+}
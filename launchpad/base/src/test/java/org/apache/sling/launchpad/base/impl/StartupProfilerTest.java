@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sling.launchpad.base.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.apache.felix.framework.Logger;
+import org.apache.sling.launchpad.api.StartupMode;
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleEvent;
+
+public class StartupProfilerTest {
+
+    private Bundle bundle(final long id, final String symbolicName) {
+        final Bundle b = mock(Bundle.class);
+        when(b.getBundleId()).thenReturn(id);
+        when(b.getSymbolicName()).thenReturn(symbolicName);
+        return b;
+    }
+
+    private String write(final StartupProfiler profiler) throws IOException {
+        final StringWriter w = new StringWriter();
+        profiler.write(w, StartupMode.INSTALL);
+        return w.toString();
+    }
+
+    @Test
+    public void testBundleTimeline() throws IOException {
+        final StartupProfiler profiler = new StartupProfiler(new Logger(), new File("unused"), 16);
+        final Bundle b = bundle(5, "org.apache.sling.\"quoted\"");
+        profiler.bundleChanged(new BundleEvent(BundleEvent.INSTALLED, b));
+        profiler.bundleChanged(new BundleEvent(BundleEvent.STARTING, b));
+        profiler.bundleChanged(new BundleEvent(BundleEvent.STARTED, b));
+
+        final String json = write(profiler);
+        assertTrue(json, json.contains("\"otherData\":{\"mode\":\"INSTALL\",\"events\":3,\"dropped\":0}"));
+        assertTrue(json, json.contains("\"name\":\"install org.apache.sling.\\\"quoted\\\"\",\"cat\":\"bundle\",\"ph\":\"i\""));
+        assertTrue(json, json.contains("\"name\":\"start org.apache.sling.\\\"quoted\\\"\",\"cat\":\"bundle\",\"ph\":\"B\""));
+        assertTrue(json, json.contains("\"name\":\"start org.apache.sling.\\\"quoted\\\"\",\"cat\":\"bundle\",\"ph\":\"E\""));
+        assertTrue(json, json.contains("\"info\":\"5\""));
+        assertTrue(json, json.indexOf("\"ph\":\"B\"") < json.indexOf("\"ph\":\"E\""));
+    }
+
+    @Test
+    public void testRingBufferOverflow() throws IOException {
+        final StartupProfiler profiler = new StartupProfiler(new Logger(), new File("unused"), 4);
+        for(int i = 0; i < 10; i++) {
+            profiler.begin("section" + i);
+        }
+
+        final String json = write(profiler);
+        assertTrue(json, json.contains("\"events\":10,\"dropped\":6"));
+        assertFalse(json, json.contains("section5\""));
+        for(int i = 6; i < 10; i++) {
+            assertTrue(json, json.contains("\"name\":\"section" + i + "\""));
+        }
+        assertTrue(json, json.indexOf("section6") < json.indexOf("section9"));
+    }
+
+    @Test
+    public void testStartupFinishedWritesFile() throws IOException {
+        final File file = File.createTempFile(getClass().getSimpleName(), ".json");
+        try {
+            final StartupProfiler profiler = new StartupProfiler(new Logger(), file, 16);
+            profiler.begin("bootstrap install");
+            profiler.end("bootstrap install");
+            profiler.startupFinished(StartupMode.RESTART);
+
+            assertTrue(file.length() > 0);
+            assertEquals(3, write(profiler).split("\"pid\":1").length - 1);
+        } finally {
+            file.delete();
+        }
+    }
+}